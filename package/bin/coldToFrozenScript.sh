@@ -43,4 +43,11 @@ fi
 bucket=$1
 
 source java_executable.env
+
+# Hand the bucket over to the running Shuttl server, so that no JVM with the
+# full classpath has to start for every bucket. Archive the bucket in a JVM of
+# our own if the server doesn't take it.
+if $JAVA -Xshare:auto -cp "./*" com.splunk.shuttl.server.handoff.BucketHandoffClient freeze "$bucket"; then
+  exit 0
+fi
 exec $JAVA -cp ./*:../lib/* com.splunk.shuttl.archiver.archive.BucketFreezer $bucket
@@ -21,4 +21,10 @@
 cd $SPLUNK_HOME/etc/apps/shuttl/bin
 
 source java_executable.env
+
+# Let the running Shuttl server retry, and only retry in a JVM of our own if
+# the server doesn't take it.
+if $JAVA -Xshare:auto -cp "./*" com.splunk.shuttl.server.handoff.BucketHandoffClient retry-copy; then
+  exit 0
+fi
 exec $JAVA -Djetty.home=. -Dsplunk.home=../../../../ -cp .:../lib/*:./* com.splunk.shuttl.archiver.retry.WarmToColdRetrier
@@ -38,6 +38,13 @@ cold_path_destination="$2"
 mv $bucket $cold_path_destination
 
 source java_executable.env
+
+# Hand the bucket over to the running Shuttl server, so that no JVM with the
+# full classpath has to start for every bucket. Copy the bucket in a JVM of
+# our own if the server doesn't take it.
+if $JAVA -Xshare:auto -cp "./*" com.splunk.shuttl.server.handoff.BucketHandoffClient copy "$cold_path_destination"; then
+  exit 0
+fi
 $JAVA -cp ./*:../lib/* com.splunk.shuttl.archiver.copy.ColdCopyEntryPoint "$cold_path_destination" &
 
 # The sleep below is for when testing the script through Java.
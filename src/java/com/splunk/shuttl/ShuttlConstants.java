@@ -38,11 +38,14 @@ public final class ShuttlConstants {
 	public static final String ENDPOINT_SINK_PREFIX = "/sinkprefix";
 	public static final String ENDPOINT_BUCKET_ARCHIVE = "/bucket/archive";
 	public static final String ENDPOINT_BUCKET_COPY = "/bucket/copy";
+	public static final String ENDPOINT_BUCKETS_ARCHIVE = "/buckets/archive";
+	public static final String ENDPOINT_BUCKETS_COPY = "/buckets/copy";
 	public static final String ENDPOINT_BUCKET_THAW = "/bucket/thaw";
 	public static final String ENDPOINT_BUCKET_FLUSH = "/bucket/flush";
 	public static final String ENDPOINT_LIST_THAW = "/thaw/list";
 	public static final String ENDPOINT_LIST_BUCKETS = "/bucket/list";
 	public static final String ENDPOINT_LIST_INDEXES = "/index/list";
+	public static final String ENDPOINT_GLACIER_INVENTORY_IMPORT = "/glacier/inventory/import";
 	public static final String ENDPOINT_ARCHIVER = "/archiver";
 	public static final String ENDPOINT_SHUTDOWN = "/shutdown";
 	public static final String ENDPOINT_EXPORT_SRVC_STATUS = "/exportservicestatus";
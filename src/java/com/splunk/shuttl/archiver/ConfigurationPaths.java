@@ -23,6 +23,7 @@ public class ConfigurationPaths {
 
 	private static final String CONFIGURATION_PATH = "etc/apps/shuttl/conf/";
 	private static final String BACKEND_PROPERTIES_PATH = "etc/apps/shuttl/conf/backend";
+	private static final String HANDOFF_PORT_PATH = "var/run/splunk/shuttl-handoff.port";
 
 	/**
 	 * @return directory where shuttl has it's MBean configuration files.
@@ -35,6 +36,14 @@ public class ConfigurationPaths {
 		return new File(getSplunkHome(), BACKEND_PROPERTIES_PATH);
 	}
 
+	/**
+	 * @return file where the running server writes the port that the bucket
+	 *         scripts hand buckets over to.
+	 */
+	public static File getHandoffPortFile() {
+		return new File(getSplunkHome(), HANDOFF_PORT_PATH);
+	}
+
 	private static String getSplunkHome() {
 		String splunkHome = System.getenv("SPLUNK_HOME");
 		if (splunkHome == null)
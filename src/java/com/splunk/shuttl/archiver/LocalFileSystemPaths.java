@@ -57,6 +57,14 @@ public class LocalFileSystemPaths {
 
 	final String PUT_TRANSFER_LOCKS_NAME = "put-transfers-locks-dir";
 
+	final String JOB_JOURNAL_NAME = "job-journal-dir";
+
+	final String TRASH_NAME = "trash-dir";
+
+	final String GLACIER_ARCHIVE_IDS_NAME = "glacier-archive-ids-dir";
+
+	final String METADATA_LOGS_NAME = "metadata-logs-dir";
+
 	private final String archiverDirectoryPath;
 
 	public LocalFileSystemPaths(File directory) {
@@ -190,6 +198,34 @@ public class LocalFileSystemPaths {
 				bucket);
 	}
 
+	/**
+	 * Contains the journal of archive and copy jobs.
+	 */
+	public File getJobJournalDirectory() {
+		return createDirectoryUnderArchiverDir(JOB_JOURNAL_NAME);
+	}
+
+	/**
+	 * Contains buckets that are deleted in the background.
+	 */
+	public File getTrashDirectory() {
+		return createDirectoryUnderArchiverDir(TRASH_NAME);
+	}
+
+	/**
+	 * Contains the log of glacier archive ids.
+	 */
+	public File getGlacierArchiveIdsDirectory() {
+		return createDirectoryUnderArchiverDir(GLACIER_ARCHIVE_IDS_NAME);
+	}
+
+	/**
+	 * Contains the local copies of the per-index metadata logs.
+	 */
+	public File getMetadataLogsDirectory() {
+		return createDirectoryUnderArchiverDir(METADATA_LOGS_NAME);
+	}
+
 	public static LocalFileSystemPaths create() {
 		String archiverPath = getPathForArchiverData();
 		return new LocalFileSystemPaths(archiverPath);
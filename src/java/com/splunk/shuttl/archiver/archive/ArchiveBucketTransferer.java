@@ -22,12 +22,14 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.PutBucketTransaction;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
 
@@ -42,19 +44,24 @@ public class ArchiveBucketTransferer {
 	private final ArchiveFileSystem archiveFileSystem;
 	private final PathResolver pathResolver;
 	private final ArchiveBucketSize archiveBucketSize;
+	private final ArchiveBucketChecksums archiveBucketChecksums;
 	private final TransactionExecuter transactionExecuter;
 
 	public ArchiveBucketTransferer(ArchiveFileSystem archive,
 			PathResolver pathResolver, ArchiveBucketSize archiveBucketSize,
+			ArchiveBucketChecksums archiveBucketChecksums,
 			TransactionExecuter transactionExecuter) {
 		this.archiveFileSystem = archive;
 		this.pathResolver = pathResolver;
 		this.archiveBucketSize = archiveBucketSize;
+		this.archiveBucketChecksums = archiveBucketChecksums;
 		this.transactionExecuter = transactionExecuter;
 	}
 
 	/**
-	 * Transfers the bucket and its content to the archive.
+	 * Transfers the bucket and its content to the archive. The checksums of the
+	 * bucket's files are computed while they are transferred, and persisted with
+	 * the bucket size.
 	 * 
 	 * @param bucket
 	 *          to transfer to {@link ArchiveFileSystem}
@@ -66,19 +73,22 @@ public class ArchiveBucketTransferer {
 		String tempPath = pathResolver.resolveTempPathForBucket(bucket);
 		logger.info(will("attempting to transfer bucket to archive", "bucket",
 				bucket, "destination", destination));
+		ChecksumManifest checksums = new ChecksumManifest();
 		Transaction bucketTransaction = PutBucketTransaction.create(
-				archiveFileSystem, bucket, tempPath, destination);
-
-		// TODO: Merge the bucket transaction and the bucketsize transaction. They
-		// should be able to be run at once with
-		// transactionExecuter.execute(Transaction... transactions)
-		bucketTransaction(bucket, bucketTransaction);
-		bucketSizeTransaction(bucket);
+				archiveFileSystem, bucket, tempPath, destination, checksums);
+		Transaction bucketSizeTransaction = archiveBucketSize
+				.getPersistBucketSizeTransaction(bucket);
+		Transaction checksumsTransaction = archiveBucketChecksums
+				.getPersistChecksumsTransaction(bucket, checksums);
+
+		executeTransactions(bucket, bucketTransaction, bucketSizeTransaction,
+				checksumsTransaction);
 	}
 
-	private void bucketTransaction(Bucket bucket, Transaction bucketTransaction) {
+	private void executeTransactions(Bucket bucket,
+			Transaction... transactions) {
 		try {
-			transactionExecuter.execute(bucketTransaction);
+			transactionExecuter.execute(transactions);
 		} catch (TransactionException e) {
 			logger.error(did("Executed a bucket transaction.", e,
 					"To transfer the bucket to the archive.", "bucket", bucket));
@@ -86,10 +96,6 @@ public class ArchiveBucketTransferer {
 		}
 	}
 
-	private void bucketSizeTransaction(Bucket bucket) {
-		archiveBucketSize.persistBucketSize(bucket);
-	}
-
 	/**
 	 * This method exists since a {@link Bucket} can be archived with multiple
 	 * formats. A Bucket may have to be re-transmitted after a failed archiving
@@ -62,7 +62,7 @@ public class ArchiveConfiguration {
 	 */
 	private static SoftReference<ArchiveConfiguration> sharedInstanceRef;
 
-	public static ArchiveConfiguration getSharedInstance() {
+	public static synchronized ArchiveConfiguration getSharedInstance() {
 		ArchiveConfiguration sharedInstance = null;
 		if (sharedInstanceRef != null)
 			sharedInstance = sharedInstanceRef.get();
@@ -75,6 +75,22 @@ public class ArchiveConfiguration {
 		return sharedInstance;
 	}
 
+	/**
+	 * Reads the configuration from the MBean again, so that changes made to the
+	 * MBean since the shared instance was created are seen.
+	 * 
+	 * @return the shared instance, which is replaced only if the configuration
+	 *         in the MBean is not equal to it.
+	 */
+	public static synchronized ArchiveConfiguration getRefreshedSharedInstance() {
+		ArchiveConfiguration configured = createConfigurationFromMBean();
+		ArchiveConfiguration sharedInstance = getSharedInstance();
+		if (configured.equals(sharedInstance))
+			return sharedInstance;
+		sharedInstanceRef = new SoftReference<ArchiveConfiguration>(configured);
+		return configured;
+	}
+
 	public static ArchiveConfiguration createConfigurationFromMBean() {
 		try {
 			return createConfigurationWithMBean(ShuttlArchiver.getMBeanProxy());
@@ -200,4 +216,78 @@ public class ArchiveConfiguration {
 		return backendName;
 	}
 
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result
+				+ ((localArchiverDir == null) ? 0 : localArchiverDir.hashCode());
+		result = prime * result
+				+ ((bucketFormats == null) ? 0 : bucketFormats.hashCode());
+		result = prime * result
+				+ ((clusterName == null) ? 0 : clusterName.hashCode());
+		result = prime * result
+				+ ((serverName == null) ? 0 : serverName.hashCode());
+		result = prime * result
+				+ ((bucketFormatPriority == null) ? 0 : bucketFormatPriority.hashCode());
+		result = prime * result + ((tempPath == null) ? 0 : tempPath.hashCode());
+		result = prime * result
+				+ ((archivePath == null) ? 0 : archivePath.hashCode());
+		result = prime * result
+				+ ((backendName == null) ? 0 : backendName.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArchiveConfiguration other = (ArchiveConfiguration) obj;
+		if (localArchiverDir == null) {
+			if (other.localArchiverDir != null)
+				return false;
+		} else if (!localArchiverDir.equals(other.localArchiverDir))
+			return false;
+		if (bucketFormats == null) {
+			if (other.bucketFormats != null)
+				return false;
+		} else if (!bucketFormats.equals(other.bucketFormats))
+			return false;
+		if (clusterName == null) {
+			if (other.clusterName != null)
+				return false;
+		} else if (!clusterName.equals(other.clusterName))
+			return false;
+		if (serverName == null) {
+			if (other.serverName != null)
+				return false;
+		} else if (!serverName.equals(other.serverName))
+			return false;
+		if (bucketFormatPriority == null) {
+			if (other.bucketFormatPriority != null)
+				return false;
+		} else if (!bucketFormatPriority.equals(other.bucketFormatPriority))
+			return false;
+		if (tempPath == null) {
+			if (other.tempPath != null)
+				return false;
+		} else if (!tempPath.equals(other.tempPath))
+			return false;
+		if (archivePath == null) {
+			if (other.archivePath != null)
+				return false;
+		} else if (!archivePath.equals(other.archivePath))
+			return false;
+		if (backendName == null) {
+			if (other.backendName != null)
+				return false;
+		} else if (!backendName.equals(other.backendName))
+			return false;
+		return true;
+	}
+
 }
@@ -0,0 +1,146 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * The stages that buckets go through when they are archived by the
+ * {@link PipelinedBucketArchiver}: export, upload and delete. Every stage has
+ * its own threads and a bounded queue in front of it. A stage that hands work
+ * to a full queue waits for room, so a slow upload holds back the exports
+ * instead of filling the local disk with exported buckets.
+ */
+public class ArchivePipeline {
+
+	private static final Logger logger = Logger.getLogger(ArchivePipeline.class);
+
+	public static final int DEFAULT_EXPORT_THREADS = 2;
+	public static final int DEFAULT_UPLOAD_THREADS = 2;
+	public static final int DEFAULT_DELETE_THREADS = 1;
+	public static final int DEFAULT_STAGE_QUEUE_SIZE = 4;
+
+	private final ExecutorService exportStage;
+	private final ExecutorService uploadStage;
+	private final ExecutorService deleteStage;
+
+	public ArchivePipeline(ExecutorService exportStage,
+			ExecutorService uploadStage, ExecutorService deleteStage) {
+		this.exportStage = exportStage;
+		this.uploadStage = uploadStage;
+		this.deleteStage = deleteStage;
+	}
+
+	public ExecutorService getExportStage() {
+		return exportStage;
+	}
+
+	public ExecutorService getUploadStage() {
+		return uploadStage;
+	}
+
+	public ExecutorService getDeleteStage() {
+		return deleteStage;
+	}
+
+	public static ArchivePipeline create(int exportThreads, int uploadThreads,
+			int deleteThreads, int stageQueueSize) {
+		return new ArchivePipeline(createStage("export", exportThreads,
+				stageQueueSize), createStage("upload", uploadThreads, stageQueueSize),
+				createStage("delete", deleteThreads, stageQueueSize));
+	}
+
+	/**
+	 * The stage's threads never time out. Work that waited for room is put
+	 * straight into the queue, and there must be a thread left to take it.
+	 */
+	private static ExecutorService createStage(String name, int threads,
+			int queueSize) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory(
+						"shuttl-archive-" + name + "-"), new WaitsForRoomInQueue());
+	}
+
+	/**
+	 * Makes the thread that hands over work wait until there is room in the
+	 * queue of the stage. The queue is only full when all of the stage's
+	 * threads have been started.
+	 */
+	private static class WaitsForRoomInQueue implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown())
+				throw new RejectedExecutionException("Stage is shut down");
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(e);
+			}
+		}
+	}
+
+	public static ArchivePipeline createWithMBean(ShuttlServerMBean serverMBean) {
+		return create(
+				valueOrDefault(serverMBean.getExportThreads(), DEFAULT_EXPORT_THREADS),
+				valueOrDefault(serverMBean.getUploadThreads(), DEFAULT_UPLOAD_THREADS),
+				valueOrDefault(serverMBean.getDeleteThreads(), DEFAULT_DELETE_THREADS),
+				valueOrDefault(serverMBean.getStageQueueSize(),
+						DEFAULT_STAGE_QUEUE_SIZE));
+	}
+
+	private static int valueOrDefault(int value, int defaultValue) {
+		return value > 0 ? value : defaultValue;
+	}
+
+	private static ArchivePipeline sharedInstance;
+
+	/**
+	 * @return the pipeline shared by the whole JVM, configured with the
+	 *         {@link ShuttlServerMBean} when it is registered.
+	 */
+	public static synchronized ArchivePipeline getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createSharedInstance();
+		return sharedInstance;
+	}
+
+	private static ArchivePipeline createSharedInstance() {
+		try {
+			return createWithMBean(ShuttlServer.getMBeanProxy());
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlServerMBean", e,
+					"Will create the archive pipeline with default threads"));
+			return create(DEFAULT_EXPORT_THREADS, DEFAULT_UPLOAD_THREADS,
+					DEFAULT_DELETE_THREADS, DEFAULT_STAGE_QUEUE_SIZE);
+		}
+	}
+}
@@ -19,6 +19,7 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -30,24 +31,28 @@ import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.ShuttlConstants;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
+import com.splunk.shuttl.archiver.http.PooledHttpClientFactory;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.archiver.util.UtilsHttp;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
 import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
 import com.splunk.shuttl.server.mbeans.rest.ListBucketsEndpoint;
+import com.splunk.shuttl.server.mbeans.util.EndpointUtils;
+import com.splunk.shuttl.server.model.BucketBatchResult;
 
 /**
  * Handling all the calls and returns to and from {@link ListBucketsEndpoint}
  */
-public class ArchiveRestHandler implements SharedLockBucketHandler {
+public class ArchiveRestHandler implements SharedLockBucketHandler,
+		SharedLockBucketsHandler {
 
 	private final HttpClient httpClient;
 	private final Logger logger;
@@ -79,6 +84,48 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		}
 	}
 
+	/**
+	 * Archives all the buckets with one request to the batch archive endpoint.
+	 */
+	public void callRestToArchiveLocalBuckets(List<LocalBucket> buckets) {
+		HttpResponse response = null;
+		try {
+			HttpUriRequest request = EndpointUtils.createBucketsPostRequest(
+					serverMBean.getHttpHost(), serverMBean.getHttpPort(),
+					ShuttlConstants.ENDPOINT_BUCKETS_ARCHIVE, buckets);
+			logger.debug(will("Send an archive buckets request", "request_uri",
+					request.getURI(), "buckets", buckets.size()));
+			response = httpClient.execute(request);
+			int statusCode = response.getStatusLine().getStatusCode();
+			if (statusCode != HttpStatus.SC_OK)
+				throw new HttpResponseException(statusCode,
+						"Unexpected response when archiving buckets.");
+			logBatchResults(BucketBatchResult.fromJson(EntityUtils.toString(response
+					.getEntity())));
+		} catch (HttpResponseException e) {
+			logger.error(did("Sent an archive buckets request",
+					"Got non ok http_status", "expected HttpStatus.SC_OK",
+					"http_status", e.getStatusCode(), "buckets", buckets));
+		} catch (IOException e) {
+			logger.error(did("Sent archive buckets request", e, "request to succeed",
+					"buckets", buckets));
+		} finally {
+			UtilsHttp.consumeResponse(response);
+		}
+	}
+
+	private void logBatchResults(List<BucketBatchResult> results) {
+		for (BucketBatchResult result : results)
+			if (result.isSuccessful())
+				logger.debug(done("Got result for bucket in archive buckets request",
+						"result", result));
+			else
+				logger.error(did("Sent bucket in archive buckets request",
+						"Got non ok http_status",
+						"expected HttpStatus.SC_OK, SC_ACCEPTED or SC_NO_CONTENT",
+						"result", result));
+	}
+
 	private HttpUriRequest createBucketArchiveRequest(LocalBucket bucket)
 			throws UnsupportedEncodingException {
 		// CONFIG configure the host and port with a general solution.
@@ -110,6 +157,7 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 			HttpResponse response, Bucket bucket) throws HttpResponseException {
 		switch (response.getStatusLine().getStatusCode()) {
 		case HttpStatus.SC_OK:
+		case HttpStatus.SC_ACCEPTED:
 		case HttpStatus.SC_NO_CONTENT:
 			logSuccess(response, bucket, response.getStatusLine().getStatusCode());
 			break;
@@ -141,7 +189,8 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 
 	private void logHttpResponseException(Bucket bucket, HttpResponseException e) {
 		logger.error(did("Sent an archive bucket reuqest",
-				"Got non ok http_status", "expected HttpStatus.SC_OK or SC_NO_CONTENT",
+				"Got non ok http_status",
+				"expected HttpStatus.SC_OK, SC_ACCEPTED or SC_NO_CONTENT",
 				"http_status", e.getStatusCode(), "bucket_name", bucket.getName()));
 	}
 
@@ -164,6 +213,14 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		callRestToArchiveLocalBucket((LocalBucket) bucket);
 	}
 
+	@Override
+	public void handleSharedLockedBuckets(List<Bucket> buckets) {
+		List<LocalBucket> localBuckets = new ArrayList<LocalBucket>();
+		for (Bucket bucket : buckets)
+			localBuckets.add((LocalBucket) bucket);
+		callRestToArchiveLocalBuckets(localBuckets);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -182,7 +239,8 @@ public class ArchiveRestHandler implements SharedLockBucketHandler {
 		ShuttlServerMBean serverMBean = ShuttlServer
 				.getRegisteredServerMBean(logger);
 
-		return new ArchiveRestHandler(new DefaultHttpClient(), logger, serverMBean);
+		return new ArchiveRestHandler(PooledHttpClientFactory.getSharedHttpClient(),
+				logger, serverMBean);
 	}
 
 }
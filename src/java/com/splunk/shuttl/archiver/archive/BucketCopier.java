@@ -17,7 +17,12 @@ package com.splunk.shuttl.archiver.archive;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -25,7 +30,8 @@ import com.splunk.shuttl.archiver.importexport.BucketExportController;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
- * Copies a bucket in all formats with the {@link ArchiveBucketTransferer}.
+ * Copies a bucket in all formats with the {@link ArchiveBucketTransferer}. The
+ * formats are exported and transferred concurrently on the executor.
  */
 public class BucketCopier implements BucketShuttler {
 
@@ -35,27 +41,109 @@ public class BucketCopier implements BucketShuttler {
 	private final ArchiveBucketTransferer archiveBucketTransferer;
 	private final List<BucketFormat> bucketFormats;
 	private final BucketDeleter bucketDeleter;
+	private final ExecutorService executorService;
 
 	public BucketCopier(BucketExportController bucketExportController,
 			ArchiveBucketTransferer archiveBucketTransferer,
-			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter) {
+			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter,
+			ExecutorService executorService) {
 		this.bucketExportController = bucketExportController;
 		this.archiveBucketTransferer = archiveBucketTransferer;
 		this.bucketFormats = bucketFormats;
 		this.bucketDeleter = bucketDeleter;
+		this.executorService = executorService;
 	}
 
 	public void copyBucket(LocalBucket bucket) {
-		List<RuntimeException> copyExceptions = new ArrayList<RuntimeException>();
-		for (BucketFormat format : bucketFormats)
-			if (!archiveBucketTransferer.isArchived(bucket, format))
-				exportBucketThenCopy(bucket, format, copyExceptions);
+		List<RuntimeException> copyExceptions = Collections
+				.synchronizedList(new ArrayList<RuntimeException>());
+		List<BucketFormat> formatsToCopy = getFormatsNotArchived(bucket);
+		if (formatsToCopy.size() == 1)
+			exportBucketThenCopy(bucket, formatsToCopy.get(0), copyExceptions);
+		else
+			exportAndCopyConcurrently(bucket, formatsToCopy, copyExceptions);
 
 		if (!copyExceptions.isEmpty())
 			throw new RuntimeException("Got some exceptions when copying bucket: "
 					+ copyExceptions.toString());
 	}
 
+	private List<BucketFormat> getFormatsNotArchived(LocalBucket bucket) {
+		List<BucketFormat> formats = new ArrayList<BucketFormat>();
+		for (BucketFormat format : bucketFormats)
+			if (!archiveBucketTransferer.isArchived(bucket, format))
+				formats.add(format);
+		return formats;
+	}
+
+	/**
+	 * Waits for every format to finish before throwing, so that no export is
+	 * left running when the bucket is released.
+	 */
+	private void exportAndCopyConcurrently(LocalBucket bucket,
+			List<BucketFormat> formats, List<RuntimeException> copyExceptions) {
+		List<Future<Void>> copies = new ArrayList<Future<Void>>();
+		for (BucketFormat format : formats)
+			copies.add(executorService.submit(new ExportThenCopy(bucket, format,
+					copyExceptions)));
+
+		RuntimeException exportException = null;
+		for (Future<Void> copy : copies) {
+			RuntimeException e = waitForCopy(copy);
+			if (exportException == null)
+				exportException = e;
+		}
+		if (exportException != null)
+			throw exportException;
+	}
+
+	private RuntimeException waitForCopy(Future<Void> copy) {
+		boolean interrupted = false;
+		try {
+			while (true)
+				try {
+					copy.get();
+					return null;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					return asRuntimeException(e.getCause());
+				}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private RuntimeException asRuntimeException(Throwable cause) {
+		if (cause instanceof RuntimeException)
+			return (RuntimeException) cause;
+		else if (cause instanceof Error)
+			throw (Error) cause;
+		else
+			return new RuntimeException(cause);
+	}
+
+	private class ExportThenCopy implements Callable<Void> {
+
+		private final LocalBucket bucket;
+		private final BucketFormat format;
+		private final List<RuntimeException> copyExceptions;
+
+		public ExportThenCopy(LocalBucket bucket, BucketFormat format,
+				List<RuntimeException> copyExceptions) {
+			this.bucket = bucket;
+			this.format = format;
+			this.copyExceptions = copyExceptions;
+		}
+
+		@Override
+		public Void call() {
+			exportBucketThenCopy(bucket, format, copyExceptions);
+			return null;
+		}
+	}
+
 	private void exportBucketThenCopy(LocalBucket bucket, BucketFormat format,
 			List<RuntimeException> copyExceptions) {
 		LocalBucket exportedBucket = bucketExportController.exportBucket(bucket,
@@ -16,29 +16,53 @@ package com.splunk.shuttl.archiver.archive;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
- * Deletes {@link Bucket}s.
+ * Deletes {@link Bucket}s. With a {@link BucketTrash}, buckets are moved to the
+ * trash and deleted in the background instead.
  */
 public class BucketDeleter {
 
 	private final Logger logger;
+	private final BucketTrash bucketTrash;
 
 	public BucketDeleter(Logger logger) {
+		this(logger, null);
+	}
+
+	public BucketDeleter(Logger logger, BucketTrash bucketTrash) {
 		this.logger = logger;
+		this.bucketTrash = bucketTrash;
 	}
 
 	/**
 	 * @param bucket
-	 *          to delete.
+	 *          to delete. Deleted right away if it can not be moved to the
+	 *          trash.
 	 */
 	public void deleteBucket(LocalBucket bucket) {
+		bucket.captureSize();
+		if (!moveToTrash(bucket))
+			deleteNow(bucket);
+	}
+
+	private boolean moveToTrash(LocalBucket bucket) {
+		if (bucketTrash == null)
+			return false;
+		File directory = bucket.getDirectory();
+		return directory != null && directory.isDirectory()
+				&& bucketTrash.moveToTrash(directory, bucket.getSize());
+	}
+
+	private void deleteNow(LocalBucket bucket) {
 		try {
 			bucket.deleteBucket();
 		} catch (IOException e) {
@@ -59,4 +83,13 @@ public class BucketDeleter {
 		return new BucketDeleter(Logger.getLogger(BucketDeleter.class));
 	}
 
+	/**
+	 * @return deleter that moves buckets to the trash of the paths.
+	 */
+	public static BucketDeleter createWithTrash(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new BucketDeleter(Logger.getLogger(BucketDeleter.class),
+				BucketTrash.getSharedInstance(localFileSystemPaths));
+	}
+
 }
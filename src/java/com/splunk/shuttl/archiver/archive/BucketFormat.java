@@ -16,13 +16,20 @@
 package com.splunk.shuttl.archiver.archive;
 
 public enum BucketFormat {
-	SPLUNK_BUCKET, UNKNOWN, CSV, SPLUNK_BUCKET_TGZ;
+	SPLUNK_BUCKET, UNKNOWN, CSV, SPLUNK_BUCKET_TGZ, SPLUNK_BUCKET_ZSTD,
+	SPLUNK_BUCKET_LZ4, SPLUNK_BUCKET_CONTAINER;
 
 	public static String extensionOfFormat(BucketFormat format) {
 		if (format.equals(CSV))
 			return ".csv";
 		else if (format.equals(SPLUNK_BUCKET_TGZ))
 			return ".tgz";
+		else if (format.equals(SPLUNK_BUCKET_ZSTD))
+			return ".tzst";
+		else if (format.equals(SPLUNK_BUCKET_LZ4))
+			return ".tlz4";
+		else if (format.equals(SPLUNK_BUCKET_CONTAINER))
+			return ".sbc";
 		return "";
 	}
 }
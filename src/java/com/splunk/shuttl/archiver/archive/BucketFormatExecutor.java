@@ -0,0 +1,61 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+
+/**
+ * Bounded executor shared by all {@link BucketCopier}s for exporting and
+ * transferring the formats of a bucket concurrently. When all threads are busy
+ * and the queue is full, the format is copied in the calling thread, which
+ * throttles the callers instead of rejecting the copy.
+ */
+public class BucketFormatExecutor {
+
+	public static final int DEFAULT_THREADS = 8;
+	public static final int DEFAULT_QUEUE_SIZE = 64;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * @return executor with a fixed number of daemon threads and a bounded
+	 *         queue, that runs tasks in the caller when saturated.
+	 */
+	public static ExecutorService create(int threads, int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory(
+						"shuttl-format-copier-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ExecutorService sharedInstance;
+
+	/**
+	 * @return the executor shared by the whole JVM.
+	 */
+	public static synchronized ExecutorService getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = create(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+		return sharedInstance;
+	}
+}
@@ -72,6 +72,21 @@ public class BucketFreezer {
 	 * @return An exit code depending on the outcome.
 	 */
 	public int freezeBucket(String indexName, String path) {
+		int exitCode = moveBucketToArchive(indexName, path);
+		if (exitCode == EXIT_OK)
+			archiveFailedBuckets();
+		return exitCode;
+	}
+
+	/**
+	 * Moves the bucket and calls the archive endpoint with it, without recovering
+	 * any failed archiving attempts. Splunk can remove the bucket once this
+	 * method returns {@link #EXIT_OK}.
+	 * 
+	 * @return An exit code depending on the outcome.
+	 * @see #archiveFailedBuckets()
+	 */
+	public int moveBucketToArchive(String indexName, String path) {
 		try {
 			moveAndArchiveBucket(indexName, path);
 			return EXIT_OK;
@@ -95,7 +110,12 @@ public class BucketFreezer {
 
 		bucketLocker.callBucketHandlerUnderSharedLock(bucket,
 				new MoveAndArchiveBucketUnderLock(bucketMover, archiveRestHandler));
+	}
 
+	/**
+	 * Archives buckets that were moved by earlier freezes but failed to archive.
+	 */
+	public void archiveFailedBuckets() {
 		failedBucketsArchiver.archiveFailedBuckets(archiveRestHandler);
 	}
 
@@ -17,9 +17,11 @@ package com.splunk.shuttl.archiver.archive;
 import com.splunk.shuttl.archiver.ArchiverMBeanNotRegisteredException;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLocker;
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketRetryScheduler;
 import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
+import com.splunk.shuttl.archiver.journal.JobJournal;
 
 /**
  * @author periksson
@@ -37,11 +39,14 @@ public class BucketFreezerProvider {
 	 *           if archiver MBean is not registered.
 	 */
 	public BucketFreezer getConfiguredBucketFreezer() {
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
 		IndexPreservingBucketMover bucketMover = IndexPreservingBucketMover
-				.create(LocalFileSystemPaths.create().getSafeDirectory());
+				.createWithJournal(localFileSystemPaths.getSafeDirectory(),
+						JobJournal.create(localFileSystemPaths));
 		BucketLocker bucketLocker = new ArchiveBucketLocker();
 		FailedBucketsArchiver failedBucketsArchiver = new FailedBucketsArchiver(
-				bucketMover, bucketLocker);
+				bucketMover, bucketLocker,
+				FailedBucketRetryScheduler.create(localFileSystemPaths));
 		ArchiveRestHandler archiveRestHandler = ArchiveRestHandler.create();
 
 		return new BucketFreezer(bucketMover, bucketLocker, archiveRestHandler,
@@ -20,12 +20,18 @@ import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.importexport.BucketExportController;
+import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.importexport.container.ContainerFormatExporter;
 import com.splunk.shuttl.archiver.importexport.csv.BucketToCsvFileExporter;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
 import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz;
+import com.splunk.shuttl.archiver.importexport.tgz.StreamingTgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TarFormatExporter;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 
 /**
@@ -52,7 +58,31 @@ public class BucketShuttlerFactory {
 	private static BucketCopier newCopierWithDependencies(
 			BucketCopierDependencies deps) {
 		return new BucketCopier(deps.exporter, deps.transferer, deps.formats,
-				deps.deleter);
+				deps.deleter, BucketFormatExecutor.getSharedInstance());
+	}
+
+	/**
+	 * @return {@link PipelinedBucketArchiver} that archives in the
+	 *         {@link ArchivePipeline} shared by the JVM.
+	 */
+	public static PipelinedBucketArchiver createPipelinedArchiverWithConfig(
+			ArchiveConfiguration config) {
+		return createPipelinedArchiver(config,
+				ArchiveFileSystemFactory.getWithConfiguration(config),
+				LocalFileSystemPaths.create());
+	}
+
+	/**
+	 * @return {@link PipelinedBucketArchiver} that archives to an already
+	 *         created {@link ArchiveFileSystem}.
+	 */
+	public static PipelinedBucketArchiver createPipelinedArchiver(
+			ArchiveConfiguration config, ArchiveFileSystem archiveFileSystem,
+			LocalFileSystemPaths localFileSystemPaths) {
+		BucketCopierDependencies deps = getDependencies(config, archiveFileSystem,
+				localFileSystemPaths);
+		return new PipelinedBucketArchiver(deps.exporter, deps.transferer,
+				deps.formats, deps.deleter, ArchivePipeline.getSharedInstance());
 	}
 
 	/**
@@ -98,15 +128,21 @@ public class BucketShuttlerFactory {
 		ArchiveBucketSize archiveBucketSize = ArchiveBucketSize.create(
 				pathResolver, archiveFileSystem, localFileSystemPaths);
 
-		TgzFormatExporter tgzFormatExporter = TgzFormatExporter
-				.create(CreatesBucketTgz.create(localFileSystemPaths));
+		BucketExporter tgzExporter = createTgzExporter(archiveFileSystem,
+				localFileSystemPaths);
 
 		BucketExportController bucketExportController = BucketExportController
-				.create(CsvExporter.create(bucketToCsvFileExporter), tgzFormatExporter);
+				.create(CsvExporter.create(bucketToCsvFileExporter), tgzExporter,
+						TarFormatExporter.createForZstd(localFileSystemPaths),
+						TarFormatExporter.createForLz4(localFileSystemPaths),
+						ContainerFormatExporter.create(localFileSystemPaths));
+		ArchiveBucketChecksums archiveBucketChecksums = ArchiveBucketChecksums
+				.create(pathResolver, archiveFileSystem, localFileSystemPaths);
 		ArchiveBucketTransferer bucketTransferer = new ArchiveBucketTransferer(
 				archiveFileSystem, pathResolver, archiveBucketSize,
-				new TransactionExecuter());
-		BucketDeleter bucketDeleter = BucketDeleter.create();
+				archiveBucketChecksums, new TransactionExecuter());
+		BucketDeleter bucketDeleter = BucketDeleter
+				.createWithTrash(localFileSystemPaths);
 		List<BucketFormat> archiveFormats = config.getArchiveFormats();
 
 		BucketCopierDependencies deps = new BucketCopierDependencies(
@@ -114,6 +150,20 @@ public class BucketShuttlerFactory {
 		return deps;
 	}
 
+	/**
+	 * Streams the tgz straight into the archive when the archive supports it, to
+	 * avoid writing and reading the whole tgz on local disk.
+	 */
+	private static BucketExporter createTgzExporter(
+			ArchiveFileSystem archiveFileSystem,
+			LocalFileSystemPaths localFileSystemPaths) {
+		if (archiveFileSystem instanceof WritesTempOutputStream)
+			return StreamingTgzFormatExporter.create(localFileSystemPaths);
+		else
+			return TgzFormatExporter.create(CreatesBucketTgz
+					.create(localFileSystemPaths));
+	}
+
 	private static class BucketCopierDependencies {
 
 		public BucketExportController exporter;
@@ -57,6 +57,10 @@ public class BucketShuttlerRunner implements Runnable {
 					+ " before archiving bucket");
 	}
 
+	public LocalBucket getBucket() {
+		return bucket;
+	}
+
 	private boolean locksAreLocked() {
 		for (BucketLock lock : bucketLocks)
 			if (!lock.isLocked())
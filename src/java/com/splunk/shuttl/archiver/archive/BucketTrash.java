@@ -0,0 +1,264 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.throttle.TokenBucket;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlMBeanException;
+import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
+
+/**
+ * Deletes buckets in the background. A bucket is renamed into the trash
+ * directory, which takes the same time no matter how many files the bucket
+ * has, and is then deleted file by file by a daemon thread. The deletes are
+ * limited to a number of files per second, to smooth out the disk load of
+ * deleting large buckets.<br/>
+ * <br/>
+ * Buckets that were left in the trash when the JVM stopped are deleted when
+ * the trash is started again. Their sizes are not known until their deletion
+ * starts, while trashed buckets are counted as pending with the size they were
+ * trashed with.
+ */
+public class BucketTrash implements BucketTrashMBean {
+
+	private static final Logger logger = Logger.getLogger(BucketTrash.class);
+
+	public static final int DEFAULT_DELETES_PER_SECOND = 1000;
+
+	private final File trashDirectory;
+	private final TokenBucket deletes;
+	private final BlockingQueue<TrashedDirectory> trashedDirectories;
+	private final AtomicInteger bucketsPending;
+	private final AtomicLong bytesPending;
+	private final AtomicLong bytesReclaimed;
+
+	/**
+	 * @param deletes
+	 *          limits the number of files deleted per second.
+	 */
+	public BucketTrash(File trashDirectory, TokenBucket deletes) {
+		this.trashDirectory = trashDirectory;
+		this.deletes = deletes;
+		this.trashedDirectories = new LinkedBlockingQueue<TrashedDirectory>();
+		this.bucketsPending = new AtomicInteger();
+		this.bytesPending = new AtomicLong();
+		this.bytesReclaimed = new AtomicLong();
+	}
+
+	/**
+	 * @param size
+	 *          bytes of the directory, which are pending until they are deleted.
+	 * @return true if the directory was moved to the trash, false if it could
+	 *         not be renamed, which happens when the directory is on another file
+	 *         system than the trash.
+	 */
+	public boolean moveToTrash(File directory, long size) {
+		File trashedDirectory = new File(trashDirectory, UUID.randomUUID() + "-"
+				+ directory.getName());
+		if (!directory.renameTo(trashedDirectory))
+			return false;
+		bytesPending.addAndGet(size);
+		addToQueue(new TrashedDirectory(trashedDirectory, size));
+		return true;
+	}
+
+	private void addToQueue(TrashedDirectory trashedDirectory) {
+		bucketsPending.incrementAndGet();
+		trashedDirectories.add(trashedDirectory);
+	}
+
+	/**
+	 * Starts the daemon thread that empties the trash, after queueing what was
+	 * left in the trash.
+	 */
+	public void start() {
+		File[] leftInTrash = trashDirectory.listFiles();
+		if (leftInTrash != null)
+			for (File trashedDirectory : leftInTrash)
+				addToQueue(new TrashedDirectory(trashedDirectory, null));
+
+		Thread emptier = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				emptyTrashUntilInterrupted();
+			}
+		}, "shuttl-trash-emptier");
+		emptier.setDaemon(true);
+		emptier.start();
+	}
+
+	private void emptyTrashUntilInterrupted() {
+		try {
+			while (true)
+				deleteTrashedDirectory(trashedDirectories.take());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InterruptedIOException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Deletes the directories that are in the trash queue, in the calling
+	 * thread.
+	 */
+	/* package-private */void emptyTrash() throws InterruptedIOException {
+		TrashedDirectory trashedDirectory;
+		while ((trashedDirectory = trashedDirectories.poll()) != null)
+			deleteTrashedDirectory(trashedDirectory);
+	}
+
+	private void deleteTrashedDirectory(TrashedDirectory trashed)
+			throws InterruptedIOException {
+		long size = trashed.size != null ? trashed.size : measure(trashed);
+		long deleted = 0;
+		try {
+			if (trashed.directory.exists())
+				deleted = deleteRecursively(trashed.directory);
+		} finally {
+			bytesPending.addAndGet(deleted - size);
+			bucketsPending.decrementAndGet();
+		}
+		if (trashed.directory.exists())
+			logger.warn(warn("Deleted trashed bucket", "Some files were not "
+					+ "deleted", "They will be deleted when the trash is started again",
+					"directory", trashed.directory, "bytes_deleted", deleted,
+					"bytes_total", size));
+	}
+
+	/**
+	 * Measures a directory that was left in the trash, and counts it as pending.
+	 */
+	private long measure(TrashedDirectory trashed) {
+		long size = trashed.directory.exists() ? FileUtils
+				.sizeOf(trashed.directory) : 0;
+		bytesPending.addAndGet(size);
+		return size;
+	}
+
+	/**
+	 * @return bytes of the files that were deleted.
+	 */
+	private long deleteRecursively(File file) throws InterruptedIOException {
+		long deleted = 0;
+		File[] children = file.isDirectory() ? file.listFiles() : null;
+		if (children != null)
+			for (File child : children)
+				deleted += deleteRecursively(child);
+
+		long length = file.isFile() ? file.length() : 0;
+		deletes.acquire(1);
+		if (file.delete()) {
+			deleted += length;
+			bytesReclaimed.addAndGet(length);
+			bytesPending.addAndGet(-length);
+		}
+		return deleted;
+	}
+
+	private static class TrashedDirectory {
+
+		private final File directory;
+		/** Null if the directory was left in the trash and is not measured. */
+		private final Long size;
+
+		public TrashedDirectory(File directory, Long size) {
+			this.directory = directory;
+			this.size = size;
+		}
+	}
+
+	@Override
+	public int getBucketsPending() {
+		return bucketsPending.get();
+	}
+
+	@Override
+	public long getBytesPending() {
+		return bytesPending.get();
+	}
+
+	@Override
+	public long getBytesReclaimed() {
+		return bytesReclaimed.get();
+	}
+
+	public static BucketTrash create(File trashDirectory, int deletesPerSecond) {
+		return new BucketTrash(trashDirectory, new TokenBucket(deletesPerSecond));
+	}
+
+	private static final Map<File, BucketTrash> sharedInstances =
+			new HashMap<File, BucketTrash>();
+
+	/**
+	 * @return started trash shared by the whole JVM for the trash directory of
+	 *         the paths. The first trash that is started is registered as the
+	 *         {@link BucketTrashMBean}.
+	 */
+	public static synchronized BucketTrash getSharedInstance(
+			LocalFileSystemPaths localFileSystemPaths) {
+		File trashDirectory = localFileSystemPaths.getTrashDirectory();
+		BucketTrash trash = sharedInstances.get(trashDirectory);
+		if (trash == null) {
+			trash = create(trashDirectory, getDeletesPerSecond());
+			trash.start();
+			registerMBean(trash);
+			sharedInstances.put(trashDirectory, trash);
+		}
+		return trash;
+	}
+
+	private static void registerMBean(BucketTrash trash) {
+		try {
+			RegistersMBeans.create().registerMBean(OBJECT_NAME, trash);
+		} catch (ShuttlMBeanException e) {
+			logger.warn(warn("Registered the trash MBean", e,
+					"The trash statistics will not be available through JMX"));
+		}
+	}
+
+	private static int getDeletesPerSecond() {
+		try {
+			int deletesPerSecond = ShuttlServer.getMBeanProxy()
+					.getTrashDeletesPerSecond();
+			return deletesPerSecond > 0 ? deletesPerSecond
+					: DEFAULT_DELETES_PER_SECOND;
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlServerMBean", e,
+					"Will delete trashed buckets with the default rate",
+					"deletes_per_second", DEFAULT_DELETES_PER_SECOND));
+			return DEFAULT_DELETES_PER_SECOND;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+/**
+ * Statistics of the {@link BucketTrash}, exposed through JMX.
+ */
+public interface BucketTrashMBean {
+
+	public static final String OBJECT_NAME = "com.splunk.shuttl.mbeans:type=Trash";
+
+	/**
+	 * @return number of trashed buckets that are not completely deleted yet.
+	 */
+	public int getBucketsPending();
+
+	/**
+	 * @return bytes of the trashed buckets that are not deleted yet, as they
+	 *         were measured before they were trashed. Buckets left in the trash
+	 *         by an earlier JVM are not counted until their deletion starts.
+	 */
+	public long getBytesPending();
+
+	/**
+	 * @return bytes deleted since the JVM started.
+	 */
+	public long getBytesReclaimed();
+}
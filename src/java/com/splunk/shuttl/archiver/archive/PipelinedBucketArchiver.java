@@ -0,0 +1,280 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.importexport.BucketExportController;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Archives buckets like the {@link BucketArchiver}, but runs the export, upload
+ * and delete of each format as stages of an {@link ArchivePipeline}. While one
+ * bucket is uploaded the next one can be exported, so the CPU and local disk
+ * work of exporting overlaps with the network work of uploading.<br/>
+ * <br/>
+ * {@link #archiveBucket(LocalBucket)} still returns when the bucket is archived
+ * and deleted, so the number of buckets in the pipeline is bounded by the
+ * number of threads archiving buckets.
+ */
+public class PipelinedBucketArchiver implements BucketShuttler {
+
+	private static final Logger logger = Logger
+			.getLogger(PipelinedBucketArchiver.class);
+
+	private final BucketExportController bucketExportController;
+	private final ArchiveBucketTransferer archiveBucketTransferer;
+	private final List<BucketFormat> bucketFormats;
+	private final BucketDeleter bucketDeleter;
+	private final ArchivePipeline pipeline;
+
+	public PipelinedBucketArchiver(
+			BucketExportController bucketExportController,
+			ArchiveBucketTransferer archiveBucketTransferer,
+			List<BucketFormat> bucketFormats, BucketDeleter bucketDeleter,
+			ArchivePipeline pipeline) {
+		this.bucketExportController = bucketExportController;
+		this.archiveBucketTransferer = archiveBucketTransferer;
+		this.bucketFormats = bucketFormats;
+		this.bucketDeleter = bucketDeleter;
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * Exports and uploads every format that is not archived yet, and deletes the
+	 * bucket when all formats are archived.
+	 * 
+	 * @throws RuntimeException
+	 *           if any format failed. The bucket is then not deleted.
+	 */
+	public void archiveBucket(LocalBucket bucket) {
+		List<BucketFormat> formats = getFormatsNotArchived(bucket);
+		ArchivingBucket archivingBucket = new ArchivingBucket(bucket,
+				formats.size());
+		for (BucketFormat format : formats)
+			handOver(pipeline.getExportStage(), new Export(archivingBucket, format),
+					archivingBucket);
+		if (formats.isEmpty())
+			handOver(pipeline.getDeleteStage(), new DeleteBucket(archivingBucket),
+					archivingBucket);
+		archivingBucket.awaitArchived();
+	}
+
+	private List<BucketFormat> getFormatsNotArchived(LocalBucket bucket) {
+		List<BucketFormat> formats = new ArrayList<BucketFormat>();
+		for (BucketFormat format : bucketFormats)
+			if (!archiveBucketTransferer.isArchived(bucket, format))
+				formats.add(format);
+		return formats;
+	}
+
+	/**
+	 * A format that can not be handed over to the next stage has failed, and it
+	 * must still be counted so that the bucket is not waited for forever.
+	 */
+	private void handOver(ExecutorService stage, Runnable work,
+			ArchivingBucket archivingBucket) {
+		try {
+			stage.execute(work);
+		} catch (RuntimeException e) {
+			archivingBucket.formatFailed(e);
+		}
+	}
+
+	private class Export implements Runnable {
+
+		private final ArchivingBucket archivingBucket;
+		private final BucketFormat format;
+
+		public Export(ArchivingBucket archivingBucket, BucketFormat format) {
+			this.archivingBucket = archivingBucket;
+			this.format = format;
+		}
+
+		@Override
+		public void run() {
+			LocalBucket exportedBucket;
+			try {
+				exportedBucket = bucketExportController.exportBucket(
+						archivingBucket.bucket, format);
+			} catch (Throwable e) {
+				archivingBucket.formatFailed(e);
+				return;
+			}
+			handOver(pipeline.getUploadStage(), new Upload(archivingBucket,
+					exportedBucket), archivingBucket);
+		}
+	}
+
+	private class Upload implements Runnable {
+
+		private final ArchivingBucket archivingBucket;
+		private final LocalBucket exportedBucket;
+
+		public Upload(ArchivingBucket archivingBucket, LocalBucket exportedBucket) {
+			this.archivingBucket = archivingBucket;
+			this.exportedBucket = exportedBucket;
+		}
+
+		@Override
+		public void run() {
+			Throwable failure = null;
+			try {
+				archiveBucketTransferer.transferBucketToArchive(exportedBucket);
+			} catch (Throwable e) {
+				logger.debug(warn("Uploaded bucket", e,
+						"Will eventually throw this exception", "bucket", exportedBucket));
+				failure = e;
+			}
+			if (!archivingBucket.bucket.equals(exportedBucket))
+				deleteExport();
+			archivingBucket.formatDone(failure);
+		}
+
+		private void deleteExport() {
+			try {
+				pipeline.getDeleteStage().execute(new Runnable() {
+
+					@Override
+					public void run() {
+						bucketDeleter.deleteBucket(exportedBucket);
+					}
+				});
+			} catch (RuntimeException e) {
+				bucketDeleter.deleteBucket(exportedBucket);
+			}
+		}
+	}
+
+	private class DeleteBucket implements Runnable {
+
+		private final ArchivingBucket archivingBucket;
+
+		public DeleteBucket(ArchivingBucket archivingBucket) {
+			this.archivingBucket = archivingBucket;
+		}
+
+		@Override
+		public void run() {
+			try {
+				bucketDeleter.deleteBucket(archivingBucket.bucket);
+			} catch (Throwable e) {
+				logger.error(did("Deleted archived bucket", e,
+						"to delete the bucket after all formats were archived", "bucket",
+						archivingBucket.bucket));
+				archivingBucket.deleteFailed(e);
+				return;
+			}
+			archivingBucket.deleted();
+		}
+	}
+
+	/**
+	 * Keeps track of the formats of a bucket that are in the pipeline. The
+	 * bucket is deleted when the last format is archived, unless a format
+	 * failed.
+	 */
+	private class ArchivingBucket {
+
+		private final LocalBucket bucket;
+		private final List<Throwable> failures;
+		private int formatsLeft;
+		private boolean done;
+
+		public ArchivingBucket(LocalBucket bucket, int formats) {
+			this.bucket = bucket;
+			this.formatsLeft = formats;
+			this.failures = new ArrayList<Throwable>();
+		}
+
+		public void formatFailed(Throwable failure) {
+			formatDone(failure);
+		}
+
+		/**
+		 * @param failure
+		 *          of the format, or null if it was archived.
+		 */
+		public void formatDone(Throwable failure) {
+			boolean deleteBucket;
+			synchronized (this) {
+				if (failure != null)
+					failures.add(failure);
+				if (--formatsLeft > 0)
+					return;
+				deleteBucket = failures.isEmpty();
+				if (!deleteBucket)
+					finish();
+			}
+			if (deleteBucket)
+				handOverDelete();
+		}
+
+		private void handOverDelete() {
+			try {
+				pipeline.getDeleteStage().execute(new DeleteBucket(this));
+			} catch (RuntimeException e) {
+				deleteFailed(e);
+			}
+		}
+
+		public synchronized void deleted() {
+			finish();
+		}
+
+		public synchronized void deleteFailed(Throwable failure) {
+			failures.add(failure);
+			finish();
+		}
+
+		private synchronized void finish() {
+			done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until the bucket has left the pipeline, even when interrupted, so
+		 * that no stage works on the bucket after it is released.
+		 */
+		public synchronized void awaitArchived() {
+			boolean interrupted = false;
+			try {
+				while (!done)
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+			if (!failures.isEmpty())
+				throw new RuntimeException("Got some exceptions when archiving "
+						+ "bucket: " + failures.toString());
+		}
+	}
+
+	@Override
+	public void shuttlBucket(LocalBucket bucket) {
+		archiveBucket(bucket);
+	}
+}
@@ -0,0 +1,271 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Decides which failed buckets are due for another try. Keeps the number of
+ * attempts and the time of the next attempt for every failed bucket, and backs
+ * off with {@link RetryBackoff} after each attempt. A bucket seen for the first
+ * time has already been tried once, by the freeze that failed.<br/>
+ * <br/>
+ * Only one retry round runs at a time, across all JVMs, and a round retries at
+ * most {@link #DEFAULT_MAX_BUCKETS_PER_ROUND} buckets. Buckets that are due but
+ * did not fit are retried in the next round.
+ */
+public class FailedBucketRetryScheduler {
+
+	private static final Logger logger = Logger
+			.getLogger(FailedBucketRetryScheduler.class);
+
+	public static final int DEFAULT_MAX_BUCKETS_PER_ROUND = 50;
+	private static final String SCHEDULE_FILE_NAME = "retries.schedule";
+	private static final String LOCK_FILE_NAME = "retries.lock";
+	private static final String SEPARATOR = "\t";
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * File locks are held by the JVM, so rounds in the same JVM are kept apart
+	 * with this flag.
+	 */
+	private static final AtomicBoolean ROUND_RUNNING = new AtomicBoolean();
+
+	private final File scheduleFile;
+	private final File lockFile;
+	private final RetryBackoff backoff;
+	private final int maxBucketsPerRound;
+
+	public FailedBucketRetryScheduler(File scheduleFile, File lockFile,
+			RetryBackoff backoff, int maxBucketsPerRound) {
+		this.scheduleFile = scheduleFile;
+		this.lockFile = lockFile;
+		this.backoff = backoff;
+		this.maxBucketsPerRound = maxBucketsPerRound;
+	}
+
+	/**
+	 * Retries the buckets that are due with the retrier, unless another round is
+	 * already running.
+	 * 
+	 * @param failedBuckets
+	 *          all buckets that have failed and not yet been recovered. Buckets
+	 *          that are not in this list are forgotten.
+	 * @return true if the round was run, false if another round was running.
+	 */
+	public boolean retryDueBuckets(List<Bucket> failedBuckets,
+			RetriesBuckets retrier) {
+		return retryDueBuckets(failedBuckets, retrier, System.currentTimeMillis());
+	}
+
+	/* package-private */boolean retryDueBuckets(List<Bucket> failedBuckets,
+			RetriesBuckets retrier, long now) {
+		if (!ROUND_RUNNING.compareAndSet(false, true))
+			return false;
+		try {
+			RandomAccessFile lock = tryLockRound();
+			if (lock == null)
+				return false;
+			try {
+				List<Bucket> dueBuckets = scheduleDueBuckets(failedBuckets, now);
+				if (!dueBuckets.isEmpty())
+					retrier.retryBuckets(dueBuckets);
+				return true;
+			} finally {
+				IOUtils.closeQuietly(lock);
+			}
+		} finally {
+			ROUND_RUNNING.set(false);
+		}
+	}
+
+	private RandomAccessFile tryLockRound() {
+		RandomAccessFile lock = null;
+		try {
+			lockFile.getParentFile().mkdirs();
+			lock = new RandomAccessFile(lockFile, "rw");
+			FileLock fileLock = lock.getChannel().tryLock();
+			if (fileLock != null)
+				return lock;
+			IOUtils.closeQuietly(lock);
+			return null;
+		} catch (IOException e) {
+			IOUtils.closeQuietly(lock);
+			logger.error(did("Locked retry schedule", e, "to get the lock",
+					"lock_file", lockFile));
+			throw new RetryScheduleException(e);
+		}
+	}
+
+	/**
+	 * Records an attempt for every bucket that is due, and writes the schedule
+	 * before the buckets are retried. A crash during the retries will then not
+	 * make the buckets due right away.
+	 */
+	private List<Bucket> scheduleDueBuckets(List<Bucket> failedBuckets,
+			long now) {
+		Map<String, Attempts> schedule = readSchedule();
+		Map<String, Attempts> newSchedule = new LinkedHashMap<String, Attempts>();
+		List<Bucket> dueBuckets = new ArrayList<Bucket>();
+		int waiting = 0;
+		for (Bucket bucket : failedBuckets) {
+			String key = getKey(bucket);
+			Attempts attempts = schedule.get(key);
+			if (attempts == null) {
+				attempts = firstAttempt(now);
+			} else if (attempts.isDue(now)) {
+				if (dueBuckets.size() < maxBucketsPerRound) {
+					attempts = nextAttempt(attempts, now);
+					dueBuckets.add(bucket);
+				} else {
+					waiting++;
+				}
+			}
+			newSchedule.put(key, attempts);
+		}
+		writeSchedule(newSchedule);
+
+		if (waiting > 0)
+			logger.info(happened("More failed buckets were due than can be "
+					+ "retried at once", "retried", dueBuckets.size(), "waiting",
+					waiting));
+		return dueBuckets;
+	}
+
+	private Attempts firstAttempt(long now) {
+		return new Attempts(1, now + backoff.getDelay(1));
+	}
+
+	private Attempts nextAttempt(Attempts attempts, long now) {
+		int count = attempts.count + 1;
+		return new Attempts(count, now + backoff.getDelay(count));
+	}
+
+	private String getKey(Bucket bucket) {
+		return bucket.getPath();
+	}
+
+	private Map<String, Attempts> readSchedule() {
+		Map<String, Attempts> schedule = new LinkedHashMap<String, Attempts>();
+		if (!scheduleFile.exists())
+			return schedule;
+		try {
+			for (String line : FileUtils.readLines(scheduleFile, ENCODING))
+				putParsedLine(schedule, line);
+			return schedule;
+		} catch (IOException e) {
+			logger.error(did("Read retry schedule", e, "to read the attempts",
+					"schedule", scheduleFile));
+			throw new RetryScheduleException(e);
+		}
+	}
+
+	private void putParsedLine(Map<String, Attempts> schedule, String line) {
+		String[] fields = line.split(SEPARATOR, 3);
+		if (fields.length != 3)
+			return;
+		try {
+			schedule.put(fields[2], new Attempts(Integer.parseInt(fields[0]),
+					Long.parseLong(fields[1])));
+		} catch (NumberFormatException e) {
+			// Ignore lines that are not complete.
+		}
+	}
+
+	/**
+	 * Writes to a temporary file that replaces the schedule, so that a crash
+	 * never leaves half a schedule.
+	 */
+	private void writeSchedule(Map<String, Attempts> schedule) {
+		File tempFile = new File(scheduleFile.getPath() + ".tmp");
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, Attempts> entry : schedule.entrySet())
+			lines.add(entry.getValue().count + SEPARATOR
+					+ entry.getValue().nextAttempt + SEPARATOR + entry.getKey());
+		try {
+			FileUtils.writeLines(tempFile, ENCODING, lines, "\n");
+			if (!tempFile.renameTo(scheduleFile)) {
+				FileUtils.deleteQuietly(scheduleFile);
+				if (!tempFile.renameTo(scheduleFile))
+					throw new IOException("Could not rename " + tempFile + " to "
+							+ scheduleFile);
+			}
+		} catch (IOException e) {
+			logger.error(did("Wrote retry schedule", e, "to write the attempts",
+					"schedule", scheduleFile));
+			throw new RetryScheduleException(e);
+		}
+	}
+
+	private static class Attempts {
+
+		private final int count;
+		private final long nextAttempt;
+
+		public Attempts(int count, long nextAttempt) {
+			this.count = count;
+			this.nextAttempt = nextAttempt;
+		}
+
+		public boolean isDue(long now) {
+			return nextAttempt <= now;
+		}
+	}
+
+	/**
+	 * Retries the buckets that are due.
+	 */
+	public interface RetriesBuckets {
+
+		void retryBuckets(List<Bucket> buckets);
+	}
+
+	public static class RetryScheduleException extends RuntimeException {
+
+		public RetryScheduleException(Throwable cause) {
+			super(cause);
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * @return scheduler that keeps its schedule next to the job journal.
+	 */
+	public static FailedBucketRetryScheduler create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		File directory = localFileSystemPaths.getJobJournalDirectory();
+		return new FailedBucketRetryScheduler(new File(directory,
+				SCHEDULE_FILE_NAME), new File(directory, LOCK_FILE_NAME),
+				RetryBackoff.create(), DEFAULT_MAX_BUCKETS_PER_ROUND);
+	}
+}
@@ -20,8 +20,10 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketRetryScheduler.RetriesBuckets;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -31,8 +33,11 @@ import com.splunk.shuttl.archiver.model.Bucket;
  */
 public class FailedBucketsArchiver {
 
+	/* package-private */static final int BATCH_SIZE = 100;
+
 	private final IndexPreservingBucketMover bucketMover;
 	private final BucketLocker bucketLocker;
+	private final FailedBucketRetryScheduler retryScheduler;
 	private static Logger logger = Logger.getLogger(FailedBucketsArchiver.class);
 
 	/**
@@ -41,13 +46,28 @@ public class FailedBucketsArchiver {
 	 */
 	public FailedBucketsArchiver(IndexPreservingBucketMover bucketMover,
 			BucketLocker bucketLocker) {
+		this(bucketMover, bucketLocker, null);
+	}
+
+	/**
+	 * @param retryScheduler
+	 *          for backing off from buckets that keep failing. Every failed
+	 *          bucket is recovered each time if null.
+	 */
+	public FailedBucketsArchiver(IndexPreservingBucketMover bucketMover,
+			BucketLocker bucketLocker, FailedBucketRetryScheduler retryScheduler) {
 		this.bucketMover = bucketMover;
 		this.bucketLocker = bucketLocker;
+		this.retryScheduler = retryScheduler;
 	}
 
 	/**
 	 * Recover failed buckets with handler. Any bucket that is available for
-	 * recovery is sent to the {@link SharedLockBucketHandler}.
+	 * recovery is sent to the {@link SharedLockBucketHandler}. If the handler is
+	 * also a {@link SharedLockBucketsHandler}, the buckets are sent to it in
+	 * batches of {@link #BATCH_SIZE} instead. With a
+	 * {@link FailedBucketRetryScheduler}, only the buckets that are due are
+	 * sent, and nothing is sent if another round of retries is running.
 	 * 
 	 * @param bucketHandler
 	 *          to handle the moved buckets. Executes the handler if it was
@@ -55,12 +75,46 @@ public class FailedBucketsArchiver {
 	 */
 	public void archiveFailedBuckets(SharedLockBucketHandler bucketHandler) {
 		List<Bucket> movedBuckets = bucketMover.getMovedBuckets();
+		if (retryScheduler == null)
+			archiveBuckets(movedBuckets, bucketHandler);
+		else
+			archiveDueBuckets(movedBuckets, bucketHandler);
+	}
+
+	private void archiveDueBuckets(List<Bucket> movedBuckets,
+			final SharedLockBucketHandler bucketHandler) {
+		boolean didRun = retryScheduler.retryDueBuckets(movedBuckets,
+				new RetriesBuckets() {
+
+					@Override
+					public void retryBuckets(List<Bucket> buckets) {
+						archiveBuckets(buckets, bucketHandler);
+					}
+				});
+		if (!didRun)
+			logger.debug(happened("Failed buckets are already being archived",
+					"failed buckets", movedBuckets.size()));
+	}
+
+	private void archiveBuckets(List<Bucket> movedBuckets,
+			SharedLockBucketHandler bucketHandler) {
 		if (!movedBuckets.isEmpty())
 			logger.info(will("Archiving failed buckets", "failed buckets",
 					movedBuckets));
 
-		for (Bucket movedBucket : movedBuckets)
-			bucketLocker.callBucketHandlerUnderSharedLock(movedBucket, bucketHandler);
+		if (bucketHandler instanceof SharedLockBucketsHandler)
+			archiveInBatches(movedBuckets, (SharedLockBucketsHandler) bucketHandler);
+		else
+			for (Bucket movedBucket : movedBuckets)
+				bucketLocker.callBucketHandlerUnderSharedLock(movedBucket,
+						bucketHandler);
+	}
+
+	private void archiveInBatches(List<Bucket> movedBuckets,
+			SharedLockBucketsHandler bucketsHandler) {
+		for (int i = 0; i < movedBuckets.size(); i += BATCH_SIZE)
+			bucketLocker.callBucketsHandlerUnderSharedLocks(movedBuckets.subList(i,
+					Math.min(i + BATCH_SIZE, movedBuckets.size())), bucketsHandler);
 	}
 
 }
@@ -23,6 +23,8 @@ import java.util.List;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
@@ -37,7 +39,11 @@ import com.splunk.shuttl.archiver.model.MovesBuckets;
  * any format changes are being made to the buckets. This means that the class
  * will only handle {@link BucketFormat#SPLUNK_BUCKET}. If the class want's to
  * be re-used with other formats, then the formats would need to be preserved
- * with a directory structure, like the indexes are preserved.
+ * with a directory structure, like the indexes are preserved.<br/>
+ * <br/>
+ * When created with a {@link JobJournal}, every move is enqueued as an archive
+ * job before the bucket is moved, and the moved buckets are listed from the
+ * journal's pending jobs instead of by walking the move location.
  */
 public class IndexPreservingBucketMover {
 
@@ -52,13 +58,19 @@ public class IndexPreservingBucketMover {
 	private static final BucketFormat ONLY_VALID_BUCKET_FORMAT = BucketFormat.SPLUNK_BUCKET;
 
 	private final File movedBucketsLocation;
+	private final JobJournal jobJournal;
 
 	/**
 	 * @param movedBucketsLocationPath
 	 *          path to the failed buckets location
+	 * @param jobJournal
+	 *          for recording moves, or null to list moved buckets by walking the
+	 *          move location.
 	 */
-	private IndexPreservingBucketMover(File movedBucketsLocation) {
+	private IndexPreservingBucketMover(File movedBucketsLocation,
+			JobJournal jobJournal) {
 		this.movedBucketsLocation = movedBucketsLocation;
+		this.jobJournal = jobJournal;
 	}
 
 	/**
@@ -81,6 +93,9 @@ public class IndexPreservingBucketMover {
 	private LocalBucket moveBucketToMovedBucketsLocationAndPerserveItsIndex(
 			LocalBucket bucket) {
 		File indexDirectory = new File(movedBucketsLocation, bucket.getIndex());
+		if (jobJournal != null)
+			jobJournal.enqueue(JobType.ARCHIVE, bucket.getIndex(), new File(
+					indexDirectory, bucket.getDirectory().getName()));
 		indexDirectory.mkdirs();
 		return MovesBuckets.moveBucket(bucket, indexDirectory);
 	}
@@ -90,6 +105,18 @@ public class IndexPreservingBucketMover {
 	 *         transfered
 	 */
 	public List<Bucket> getMovedBuckets() {
+		if (jobJournal != null)
+			return new ArrayList<Bucket>(
+					jobJournal.getPendingBuckets(JobType.ARCHIVE));
+		else
+			return getBucketsInMoveLocation();
+	}
+
+	/**
+	 * @return all buckets in the move location, found by walking its
+	 *         directories.
+	 */
+	public List<Bucket> getBucketsInMoveLocation() {
 		ArrayList<Bucket> movedBuckets = new ArrayList<Bucket>();
 
 		File[] listFiles = movedBucketsLocation.listFiles();
@@ -126,7 +153,18 @@ public class IndexPreservingBucketMover {
 	 */
 	public static IndexPreservingBucketMover create(File moveLocationDirectory) {
 		verifyMoveLocationRequirements(moveLocationDirectory);
-		return new IndexPreservingBucketMover(moveLocationDirectory);
+		return new IndexPreservingBucketMover(moveLocationDirectory, null);
+	}
+
+	/**
+	 * @return instance of a BucketMover that records its moves in the
+	 *         {@link JobJournal}.
+	 * @see IndexPreservingBucketMover#create(File)
+	 */
+	public static IndexPreservingBucketMover createWithJournal(
+			File moveLocationDirectory, JobJournal jobJournal) {
+		verifyMoveLocationRequirements(moveLocationDirectory);
+		return new IndexPreservingBucketMover(moveLocationDirectory, jobJournal);
 	}
 
 	private static void verifyMoveLocationRequirements(File file) {
@@ -0,0 +1,62 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jittered exponential backoff. The delay doubles with every attempt up to a
+ * max delay, and a random half of it is taken away so that buckets that failed
+ * together are not retried together.
+ */
+public class RetryBackoff {
+
+	public static final long DEFAULT_BASE_DELAY = TimeUnit.MINUTES.toMillis(1);
+	public static final long DEFAULT_MAX_DELAY = TimeUnit.HOURS.toMillis(2);
+
+	private final long baseDelay;
+	private final long maxDelay;
+	private final Random random;
+
+	public RetryBackoff(long baseDelay, long maxDelay, Random random) {
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.random = random;
+	}
+
+	/**
+	 * @param attempts
+	 *          that have been made, at least 1.
+	 * @return milliseconds to wait before the next attempt. Between half and all
+	 *         of the backed off delay.
+	 */
+	public long getDelay(int attempts) {
+		long delay = getBackedOffDelay(attempts);
+		long halfDelay = delay / 2;
+		return delay - halfDelay + (long) (random.nextDouble() * halfDelay);
+	}
+
+	private long getBackedOffDelay(int attempts) {
+		long delay = baseDelay;
+		for (int i = 1; i < attempts && delay < maxDelay; i++)
+			delay *= 2;
+		return Math.min(delay, maxDelay);
+	}
+
+	public static RetryBackoff create() {
+		return new RetryBackoff(DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, new Random());
+	}
+}
@@ -14,6 +14,9 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.bucketlock;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -32,6 +35,34 @@ public abstract class BucketLocker {
 				bucketHandler);
 	}
 
+	/**
+	 * Locks every bucket like
+	 * {@link #callBucketHandlerUnderSharedLock(Bucket, SharedLockBucketHandler)}
+	 * , and then executes the handler once with all the buckets that were locked.
+	 * The locks are held until the handler returns.
+	 */
+	public void callBucketsHandlerUnderSharedLocks(
+			List<? extends Bucket> buckets, SharedLockBucketsHandler bucketsHandler) {
+		List<BucketLock> bucketLocks = new ArrayList<BucketLock>();
+		try {
+			List<Bucket> lockedBuckets = new ArrayList<Bucket>();
+			for (Bucket bucket : buckets) {
+				BucketLock bucketLock = getLockForBucket(bucket);
+				bucketLocks.add(bucketLock);
+				if (bucketLock.tryLockExclusive()
+						&& bucketLock.tryConvertExclusiveToSharedLock())
+					lockedBuckets.add(bucket);
+				else
+					bucketsHandler.bucketWasLocked(bucket);
+			}
+			if (!lockedBuckets.isEmpty())
+				bucketsHandler.handleSharedLockedBuckets(lockedBuckets);
+		} finally {
+			for (BucketLock bucketLock : bucketLocks)
+				bucketLock.closeLock();
+		}
+	}
+
 	/**
 	 * @return {@link BucketLock} instance for bucket, which knows where the
 	 *         buckets are stored.
@@ -80,4 +111,21 @@ public abstract class BucketLocker {
 		void bucketWasLocked(Bucket bucket);
 	}
 
+	/**
+	 * Interface for operating on many {@link Bucket}s at once, while they are
+	 * all locked with {@link BucketLock}s.
+	 */
+	public interface SharedLockBucketsHandler {
+
+		/**
+		 * Do operations on the {@link Bucket}s while they are locked.
+		 */
+		void handleSharedLockedBuckets(List<Bucket> buckets);
+
+		/**
+		 * Bucket was locked. Do not do anything on it.
+		 */
+		void bucketWasLocked(Bucket bucket);
+	}
+
 }
@@ -0,0 +1,120 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.checksum;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@link FileChecksum} of every file in a transferred bucket, by the
+ * file's path relative to the bucket. Files can be added from many threads.<br/>
+ * <br/>
+ * The text format is one line, so that it can be stored as bucket metadata. It
+ * is a header followed by one record per file, tab separated. A record is
+ * "crc32 sha256 length path", space separated.
+ */
+public class ChecksumManifest {
+
+	private static final String HEADER = "shuttl-checksums-1";
+	private static final String RECORD_SEPARATOR = "\t";
+	private static final String FIELD_SEPARATOR = " ";
+
+	private final Map<String, FileChecksum> checksums = new HashMap<String, FileChecksum>();
+
+	public synchronized void put(String path, FileChecksum checksum) {
+		checksums.put(path, checksum);
+	}
+
+	/**
+	 * @return checksum of the file, or null if the file isn't in the manifest.
+	 */
+	public synchronized FileChecksum get(String path) {
+		return checksums.get(path);
+	}
+
+	public synchronized Set<String> getPaths() {
+		return Collections.unmodifiableSet(new TreeSet<String>(checksums
+				.keySet()));
+	}
+
+	public synchronized boolean isEmpty() {
+		return checksums.isEmpty();
+	}
+
+	/**
+	 * @throws ChecksumMismatchException
+	 *           if the file is not in the manifest or has another checksum.
+	 */
+	public void verify(String path, FileChecksum actual)
+			throws ChecksumMismatchException {
+		FileChecksum expected = get(path);
+		if (expected == null)
+			throw new ChecksumMismatchException("File is not in the checksum "
+					+ "manifest: " + path);
+		if (!expected.equals(actual))
+			throw new ChecksumMismatchException("File: " + path + " has checksum: "
+					+ actual + ", expected: " + expected);
+	}
+
+	/**
+	 * @throws ChecksumMismatchException
+	 *           if a file in the manifest is not among the transferred paths.
+	 */
+	public void verifyAllTransferred(Set<String> paths)
+			throws ChecksumMismatchException {
+		for (String path : getPaths())
+			if (!paths.contains(path))
+				throw new ChecksumMismatchException("File in the checksum manifest "
+						+ "was not transferred: " + path);
+	}
+
+	public String format() {
+		StringBuilder sb = new StringBuilder(HEADER);
+		for (String path : getPaths()) {
+			FileChecksum checksum = get(path);
+			sb.append(RECORD_SEPARATOR);
+			sb.append(checksum.getCrc32()).append(FIELD_SEPARATOR);
+			sb.append(checksum.getSha256()).append(FIELD_SEPARATOR);
+			sb.append(checksum.getLength()).append(FIELD_SEPARATOR);
+			sb.append(path);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the parsed manifest, or null if the text isn't a manifest.
+	 */
+	public static ChecksumManifest parse(String text) {
+		String[] records = text.split(RECORD_SEPARATOR);
+		if (!records[0].equals(HEADER))
+			return null;
+		ChecksumManifest manifest = new ChecksumManifest();
+		for (int i = 1; i < records.length; i++) {
+			String[] fields = records[i].split(FIELD_SEPARATOR, 4);
+			if (fields.length != 4)
+				return null;
+			try {
+				manifest.put(fields[3], new FileChecksum(Long.parseLong(fields[2]),
+						Long.parseLong(fields[0]), fields[1]));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return manifest;
+	}
+}
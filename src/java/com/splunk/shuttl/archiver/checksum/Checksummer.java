@@ -0,0 +1,71 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.checksum;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Computes a {@link FileChecksum} from the bytes of a file as they pass by, so
+ * that the bytes only have to be read once.
+ */
+public class Checksummer {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final CRC32 crc32;
+	private final MessageDigest sha256;
+	private long length;
+
+	public Checksummer() {
+		this.crc32 = new CRC32();
+		this.sha256 = newSha256();
+	}
+
+	private static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every JVM must support SHA-256", e);
+		}
+	}
+
+	public void update(byte[] bytes, int offset, int length) {
+		crc32.update(bytes, offset, length);
+		sha256.update(bytes, offset, length);
+		this.length += length;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the checksum of the bytes so far. Can only be called once.
+	 */
+	public FileChecksum getChecksum() {
+		return new FileChecksum(length, crc32.getValue(), toHex(sha256.digest()));
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+}
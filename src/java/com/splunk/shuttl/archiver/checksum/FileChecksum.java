@@ -0,0 +1,88 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.checksum;
+
+/**
+ * Length, CRC32 and SHA-256 of a file. The CRC32 is a cheap first check, the
+ * SHA-256 catches what the CRC32 can miss.
+ */
+public class FileChecksum {
+
+	private final long length;
+	private final long crc32;
+	private final String sha256;
+
+	/**
+	 * @param sha256
+	 *          lower case hex.
+	 */
+	public FileChecksum(long length, long crc32, String sha256) {
+		this.length = length;
+		this.crc32 = crc32;
+		this.sha256 = sha256;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public long getCrc32() {
+		return crc32;
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+
+	/**
+	 * Generated ->
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (crc32 ^ (crc32 >>> 32));
+		result = prime * result + (int) (length ^ (length >>> 32));
+		result = prime * result + ((sha256 == null) ? 0 : sha256.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FileChecksum other = (FileChecksum) obj;
+		if (crc32 != other.crc32)
+			return false;
+		if (length != other.length)
+			return false;
+		if (sha256 == null) {
+			if (other.sha256 != null)
+				return false;
+		} else if (!sha256.equals(other.sha256))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "FileChecksum [length=" + length + ", crc32=" + crc32
+				+ ", sha256=" + sha256 + "]";
+	}
+}
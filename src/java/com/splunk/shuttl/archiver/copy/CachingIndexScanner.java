@@ -0,0 +1,56 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.copy;
+
+import java.io.File;
+import java.util.Map;
+
+import com.splunk.shuttl.archiver.copy.IndexScanner.UnknownIndexPathException;
+import com.splunk.shuttl.archiver.thaw.SplunkIndexedLayerFactory;
+
+/**
+ * Finds the index of a bucket path like the {@link IndexScanner}, but keeps the
+ * index paths between calls. The paths are only fetched from Splunk again when
+ * a bucket is in an unknown path, which happens when an index is added.
+ */
+public class CachingIndexScanner {
+
+	private final IndexStoragePaths indexPaths;
+	private Map<String, String> cachedPaths;
+
+	public CachingIndexScanner(IndexStoragePaths indexPaths) {
+		this.indexPaths = indexPaths;
+	}
+
+	/**
+	 * @return index of the path to a bucket.
+	 * @throws {@link UnknownIndexPathException} if an index could not be found.
+	 */
+	public synchronized String getIndex(File bucketPath) {
+		String bucketsParent = bucketPath.getParent();
+		if (cachedPaths == null || !cachedPaths.containsKey(bucketsParent))
+			cachedPaths = indexPaths.getIndexPaths();
+
+		if (cachedPaths.containsKey(bucketsParent))
+			return cachedPaths.get(bucketsParent);
+		else
+			throw new UnknownIndexPathException(bucketPath);
+	}
+
+	public static CachingIndexScanner create() {
+		return new CachingIndexScanner(new IndexStoragePaths(
+				SplunkIndexedLayerFactory.create()));
+	}
+}
@@ -17,18 +17,25 @@ package com.splunk.shuttl.archiver.copy;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.ShuttlConstants;
+import com.splunk.shuttl.archiver.http.PooledHttpClientFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.archiver.util.UtilsHttp;
 import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
 import com.splunk.shuttl.server.mbeans.util.EndpointUtils;
+import com.splunk.shuttl.server.model.BucketBatchResult;
 
 /**
  * Calls the REST endpoint for copying buckets, after have locked the bucket.
@@ -67,10 +74,64 @@ public class CallCopyBucketEndpoint {
 		}
 	}
 
+	/**
+	 * Copies all the buckets with one request to the batch copy endpoint.
+	 * 
+	 * @return the buckets that were copied.
+	 * @throws NonSuccessfulBucketCopy
+	 *           if the request failed.
+	 */
+	public List<LocalBucket> callWithBuckets(List<LocalBucket> buckets) {
+		HttpPost copyBucketsRequest = EndpointUtils.createBucketsPostRequest(
+				shuttlMBean.getHttpHost(), shuttlMBean.getHttpPort(),
+				ShuttlConstants.ENDPOINT_BUCKETS_COPY, buckets);
+		HttpResponse response = null;
+		try {
+			response = httpClient.execute(copyBucketsRequest);
+			responseHandler.throwIfResponseWasNot2xx(buckets, response);
+			return getCopiedBuckets(buckets,
+					BucketBatchResult.fromJson(EntityUtils.toString(response
+							.getEntity())));
+		} catch (IOException e) {
+			logger.error(did("Called copy buckets endpoint", e,
+					"to execute without failure", "buckets", buckets));
+			throw new NonSuccessfulBucketCopy(e);
+		} finally {
+			UtilsHttp.consumeResponse(response);
+		}
+	}
+
+	private List<LocalBucket> getCopiedBuckets(List<LocalBucket> buckets,
+			List<BucketBatchResult> results) {
+		Set<String> copiedPaths = new HashSet<String>();
+		for (BucketBatchResult result : results)
+			if (result.isSuccessful())
+				copiedPaths.add(result.getPath());
+			else
+				logger.warn(warn("Copied bucket as part of a batch",
+						"was not successful", "will not create a receipt", "result",
+						result));
+
+		List<LocalBucket> copiedBuckets = new ArrayList<LocalBucket>();
+		for (LocalBucket bucket : buckets)
+			if (copiedPaths.contains(bucket.getDirectory().getAbsolutePath()))
+				copiedBuckets.add(bucket);
+		return copiedBuckets;
+	}
+
 	public static class ResponseHandler {
 
 		public void throwIfResponseWasNot2xx(LocalBucket bucket,
 				HttpResponse response) {
+			throwIfNot2xx(bucket, response);
+		}
+
+		public void throwIfResponseWasNot2xx(List<LocalBucket> buckets,
+				HttpResponse response) {
+			throwIfNot2xx(buckets, response);
+		}
+
+		private void throwIfNot2xx(Object bucket, HttpResponse response) {
 			int statusCode = response.getStatusLine().getStatusCode();
 			if (!isHttpOkStatus(statusCode)) {
 				logger
@@ -102,7 +163,8 @@ public class CallCopyBucketEndpoint {
 	}
 
 	public static CallCopyBucketEndpoint create(ShuttlServerMBean serverMBean) {
-		return new CallCopyBucketEndpoint(new DefaultHttpClient(), serverMBean,
+		return new CallCopyBucketEndpoint(
+				PooledHttpClientFactory.getSharedHttpClient(), serverMBean,
 				new ResponseHandler());
 	}
 
@@ -14,40 +14,152 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.copy;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
  * Copies buckets that has not already been copied that lies in the cold
- * directory of a bucket that was just copied.
+ * directory of a bucket that was just copied. Copy jobs are recorded in the
+ * {@link JobJournal}, so buckets that failed to copy can be retried without
+ * walking the cold directories. Copy jobs are marked as started before
+ * copying, so concurrent copiers do not copy, or fail, each other's buckets.
+ * Many buckets are copied in batches of {@link #BATCH_SIZE}, with one call to
+ * the copy endpoint per batch.
  */
 public class ColdBucketCopier {
 
+	/* package-private */static final int BATCH_SIZE = 25;
+
 	private static final Logger logger = Logger.getLogger(ColdBucketCopier.class);
 
 	private final ColdBucketInterator bucketInterator;
 	private final CopyBucketReceipts receipts;
 	private final LockedBucketCopier lockedCopier;
+	private final JobJournal jobJournal;
 
 	public ColdBucketCopier(ColdBucketInterator bucketInterator,
-			CopyBucketReceipts receipts, LockedBucketCopier lockedCopier) {
+			CopyBucketReceipts receipts, LockedBucketCopier lockedCopier,
+			JobJournal jobJournal) {
 		this.bucketInterator = bucketInterator;
 		this.receipts = receipts;
 		this.lockedCopier = lockedCopier;
+		this.jobJournal = jobJournal;
+	}
+
+	/**
+	 * Enqueues a copy job for the bucket and then copies all pending buckets.
+	 * The bucket's index is walked until one walk has completed.
+	 */
+	public void copyBucketAndPendingBuckets(LocalBucket bucket) {
+		if (!hasWalkedColdBuckets(bucket.getIndex()))
+			tryCopyingColdBuckets(bucket.getIndex());
+		jobJournal.enqueue(JobType.COPY, bucket.getIndex(), bucket.getDirectory());
+		copyPendingBuckets();
+	}
+
+	/**
+	 * Copies the buckets with enqueued or failed copy jobs.
+	 */
+	public void copyPendingBuckets() {
+		try {
+			List<LocalBucket> bucketsToCopy = new ArrayList<LocalBucket>();
+			for (LocalBucket b : jobJournal.startPendingBuckets(JobType.COPY))
+				if (shouldBeCopied(b))
+					bucketsToCopy.add(b);
+				else
+					jobJournal.markCompleted(JobType.COPY, b);
+			copyInBatchesAndRecordOutcomes(bucketsToCopy);
+		} finally {
+			jobJournal.flush();
+		}
+	}
+
+	private void copyInBatchesAndRecordOutcomes(List<LocalBucket> buckets) {
+		for (int i = 0; i < buckets.size(); i += BATCH_SIZE) {
+			List<LocalBucket> batch = buckets.subList(i,
+					Math.min(i + BATCH_SIZE, buckets.size()));
+			Set<File> copied = new HashSet<File>();
+			try {
+				for (LocalBucket b : lockedCopier.copyBuckets(batch))
+					copied.add(b.getDirectory().getAbsoluteFile());
+			} finally {
+				for (LocalBucket b : batch)
+					recordOutcome(b,
+							copied.contains(b.getDirectory().getAbsoluteFile()));
+			}
+		}
+	}
+
+	private void copyAndRecordOutcome(LocalBucket b) {
+		boolean copied = false;
+		try {
+			copied = lockedCopier.copyBucket(b);
+		} finally {
+			recordOutcome(b, copied);
+		}
+	}
+
+	private void recordOutcome(LocalBucket b, boolean copied) {
+		if (copied)
+			jobJournal.markCompleted(JobType.COPY, b);
+		else
+			jobJournal.markFailed(JobType.COPY, b);
+	}
+
+	private void markStarted(List<LocalBucket> buckets) {
+		for (LocalBucket b : buckets)
+			jobJournal.markStarted(JobType.COPY, b);
+		jobJournal.flush();
+	}
+
+	/**
+	 * @return true if the cold buckets of the index have been walked once, so
+	 *         that {@link #copyPendingBuckets()} can be used instead of walking
+	 *         them. The journal existing is not enough, since cold buckets that
+	 *         were never copied before the journal existed are only found by
+	 *         walking.
+	 */
+	public boolean hasWalkedColdBuckets(String index) {
+		return jobJournal.hasWalked(JobType.COPY, index);
 	}
 
 	/**
 	 * Copies buckets that is in the cold directory that hasn't been copied
-	 * already.
+	 * already. The walk is recorded in the journal when all the buckets have
+	 * been tried. Buckets that failed are retried from their journaled jobs.
 	 */
 	public void tryCopyingColdBuckets(String index) {
-		for (LocalBucket b : bucketInterator.coldBucketsAtIndex(index))
-			copyColdBucket(b);
+		try {
+			List<LocalBucket> bucketsToCopy = new ArrayList<LocalBucket>();
+			for (LocalBucket b : bucketInterator.coldBucketsAtIndex(index))
+				if (shouldBeCopied(b))
+					bucketsToCopy.add(b);
+			markStarted(bucketsToCopy);
+			copyInBatchesAndRecordOutcomes(bucketsToCopy);
+			jobJournal.markWalked(JobType.COPY, index);
+		} finally {
+			jobJournal.flush();
+		}
 	}
 
 	void copyColdBucket(LocalBucket b) {
-		if (b.isOriginalBucket() && !receipts.hasReceipt(b))
-			lockedCopier.copyBucket(b);
+		if (shouldBeCopied(b)) {
+			jobJournal.markStarted(JobType.COPY, b);
+			jobJournal.flush();
+			copyAndRecordOutcome(b);
+		}
+	}
+
+	private boolean shouldBeCopied(LocalBucket b) {
+		return b.isOriginalBucket() && !receipts.hasReceipt(b);
 	}
 }
@@ -23,7 +23,10 @@ import java.util.Arrays;
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.RegistersArchiverMBean;
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
 import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
@@ -48,15 +51,18 @@ public class ColdCopyEntryPoint {
 	private static void execute(File bucketDir) throws FileNotFoundException {
 		String indexName = EntryPointUtil.getIndexNameForBucketDir(bucketDir);
 
-		callCopyBucketEndpointWithBucket(indexName);
+		callCopyBucketEndpointWithBucket(indexName, bucketDir);
 	}
 
-	private static void callCopyBucketEndpointWithBucket(String indexName) {
+	private static void callCopyBucketEndpointWithBucket(String indexName,
+			File bucketDir) {
 		RegistersArchiverMBean.create().register();
 
 		ColdBucketCopier coldBucketCopier = createColdBucketCopier();
 
-		coldBucketCopier.tryCopyingColdBuckets(indexName);
+		coldBucketCopier.copyBucketAndPendingBuckets(BucketFactory
+				.createBucketWithIndexDirectoryAndFormat(indexName, bucketDir,
+						BucketFormat.SPLUNK_BUCKET));
 	}
 
 	public static ColdBucketCopier createColdBucketCopier() {
@@ -72,7 +78,7 @@ public class ColdCopyEntryPoint {
 				new ColdBucketInterator(EntryPointUtil.getSplunkService(),
 						new BucketIteratorFactory()), receipts, new LockedBucketCopier(
 						new CopyBucketLocker(fileSystemPaths), callCopyBucketEndpoint,
-						receipts));
+						receipts), JobJournal.create(fileSystemPaths));
 
 		return coldBucketCopier;
 	}
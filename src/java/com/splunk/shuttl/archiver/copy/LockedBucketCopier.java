@@ -16,10 +16,14 @@ package com.splunk.shuttl.archiver.copy;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -44,14 +48,32 @@ public class LockedBucketCopier {
 	/**
 	 * Locks and copies a bucket. Then copies all the buckets that has not
 	 * successfully been copied.
+	 * 
+	 * @return true if the bucket was copied and got a receipt.
+	 */
+	public boolean copyBucket(LocalBucket bucket) {
+		CopyBucketUnderLock copyBucketUnderLock = new CopyBucketUnderLock();
+		bucketLocker.callBucketHandlerUnderSharedLock(bucket, copyBucketUnderLock);
+		return copyBucketUnderLock.copied;
+	}
+
+	/**
+	 * Locks the buckets and copies the locked ones with one call to the batch
+	 * copy endpoint. A receipt is created for every bucket that was copied.
+	 * 
+	 * @return the buckets that were copied and got a receipt.
 	 */
-	public void copyBucket(LocalBucket bucket) {
-		bucketLocker.callBucketHandlerUnderSharedLock(bucket,
-				new CopyBucketUnderLock());
+	public List<LocalBucket> copyBuckets(List<LocalBucket> buckets) {
+		CopyBucketsUnderLock copyBucketsUnderLock = new CopyBucketsUnderLock();
+		bucketLocker.callBucketsHandlerUnderSharedLocks(buckets,
+				copyBucketsUnderLock);
+		return copyBucketsUnderLock.copied;
 	}
 
 	private class CopyBucketUnderLock implements SharedLockBucketHandler {
 
+		private boolean copied = false;
+
 		@Override
 		public void handleSharedLockedBucket(Bucket bucket) {
 			logger.info(will("call copy bucket endpoint", "bucket", bucket));
@@ -60,6 +82,7 @@ public class LockedBucketCopier {
 				endpoint.call(localBucket);
 				logger.info(done("calling copy bucket endpoint", "bucket", bucket));
 				receipts.createReceipt(localBucket);
+				copied = true;
 			} catch (RuntimeException e) {
 				logger.error(did("Call copy endpoint to copy bucket", e,
 						"to copy and then create a copy receipt", "bucket", bucket));
@@ -72,4 +95,33 @@ public class LockedBucketCopier {
 		}
 
 	}
+
+	private class CopyBucketsUnderLock implements SharedLockBucketsHandler {
+
+		private final List<LocalBucket> copied = new ArrayList<LocalBucket>();
+
+		@Override
+		public void handleSharedLockedBuckets(List<Bucket> buckets) {
+			List<LocalBucket> localBuckets = new ArrayList<LocalBucket>();
+			for (Bucket bucket : buckets)
+				localBuckets.add((LocalBucket) bucket);
+
+			logger.info(will("call copy buckets endpoint", "buckets", buckets));
+			try {
+				for (LocalBucket b : endpoint.callWithBuckets(localBuckets)) {
+					receipts.createReceipt(b);
+					copied.add(b);
+				}
+				logger.info(done("calling copy buckets endpoint", "buckets", buckets));
+			} catch (RuntimeException e) {
+				logger.error(did("Call copy buckets endpoint to copy buckets", e,
+						"to copy and then create copy receipts", "buckets", buckets));
+			}
+		}
+
+		@Override
+		public void bucketWasLocked(Bucket bucket) {
+
+		}
+	}
 }
@@ -30,6 +30,7 @@ import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.filesystem.glacier.GlacierArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.s3.S3ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.s3.S3ArchiveFileSystemFactory;
 
 /**
@@ -48,6 +49,7 @@ public class ArchiveFileSystemFactory {
 		supportedBackends.add("hdfs");
 		supportedBackends.add("s3");
 		supportedBackends.add("s3n");
+		supportedBackends.add(S3ArchiveFileSystem.BACKEND_NAME);
 		supportedBackends.add("glacier");
 	}
 
@@ -107,6 +109,8 @@ public class ArchiveFileSystemFactory {
 			return S3ArchiveFileSystemFactory.createS3();
 		else if (backend.equals("s3n"))
 			return S3ArchiveFileSystemFactory.createS3n();
+		else if (backend.equals(S3ArchiveFileSystem.BACKEND_NAME))
+			return S3ArchiveFileSystemFactory.createNative();
 		else if (backend.equals("glacier"))
 			return GlacierArchiveFileSystemFactory.create(localFileSystemPaths);
 		else
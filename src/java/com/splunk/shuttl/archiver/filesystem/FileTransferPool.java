@@ -0,0 +1,100 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * Threads that transfer files to and from the archive file systems. Shared so
+ * that concurrent bucket transfers together don't open more streams than
+ * configured.
+ */
+public class FileTransferPool {
+
+	private static final Logger logger = Logger
+			.getLogger(FileTransferPool.class);
+
+	public static final int DEFAULT_THREADS = 4;
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final ExecutorService executorService;
+	private final int threads;
+
+	public FileTransferPool(ExecutorService executorService, int threads) {
+		this.executorService = executorService;
+		this.threads = threads;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * @return number of threads in the pool.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public static FileTransferPool create(int threads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(
+						"shuttl-file-transfer-"));
+		executor.allowCoreThreadTimeOut(true);
+		return new FileTransferPool(executor, threads);
+	}
+
+	public static FileTransferPool createWithMBean(ShuttlServerMBean serverMBean) {
+		int threads = serverMBean.getTransferThreads();
+		return create(threads > 0 ? threads : DEFAULT_THREADS);
+	}
+
+	private static FileTransferPool sharedInstance;
+
+	/**
+	 * @return the pool shared by the whole JVM, configured with the
+	 *         {@link ShuttlServerMBean} when it is registered.
+	 */
+	public static synchronized FileTransferPool getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createSharedInstance();
+		return sharedInstance;
+	}
+
+	private static FileTransferPool createSharedInstance() {
+		try {
+			return createWithMBean(ShuttlServer.getMBeanProxy());
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlServerMBean", e,
+					"Will create the file transfer pool with default threads",
+					"threads", DEFAULT_THREADS));
+			return create(DEFAULT_THREADS);
+		}
+	}
+}
@@ -36,6 +36,7 @@ public class PathResolver {
 	 */
 	public static final String BUCKET_SIZE_FILE_NAME = "bucket.size";
 	private static final String METADATA_DIR_NAME = "archive_meta";
+	private static final String METADATA_LOGS_DIR_NAME = "archive_meta_logs";
 
 	private final ArchiveConfiguration configuration;
 
@@ -173,4 +174,23 @@ public class PathResolver {
 		return resolveTempPathForBucket(bucket) + SEPARATOR + METADATA_DIR_NAME
 				+ SEPARATOR + metadataFile.getName();
 	}
+
+	/**
+	 * @return Path to where the metadata log segments of an index are stored.
+	 *         The path is outside of the indexes home, so it's never listed as
+	 *         an index or a bucket.
+	 */
+	public String getMetadataLogHome(String index) {
+		return configuration.getArchiveDataPath() + SEPARATOR
+				+ METADATA_LOGS_DIR_NAME + SEPARATOR + configuration.getClusterName()
+				+ SEPARATOR + configuration.getServerName() + SEPARATOR + index;
+	}
+
+	/**
+	 * @return Path to a temporary location for the metadata log segments of an
+	 *         index, where they can be transferred.
+	 */
+	public String resolveTempPathForMetadataLog(String index) {
+		return configuration.getArchiveTempPath() + getMetadataLogHome(index);
+	}
 }
@@ -0,0 +1,43 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link ArchiveFileSystem} that can read parts of a file, without getting
+ * the whole file. Lets a bucket in a container format be read one member at a
+ * time.
+ */
+public interface ReadsFileRanges {
+
+	/**
+	 * @return length of the file in bytes.
+	 * @throws java.io.FileNotFoundException
+	 *           if the file does not exist.
+	 */
+	long getFileLength(String path) throws IOException;
+
+	/**
+	 * @param offset
+	 *          of the first byte to read.
+	 * @param length
+	 *          number of bytes to read.
+	 * @return stream of the bytes in the range. The caller closes it.
+	 */
+	InputStream openRange(String path, long offset, long length)
+			throws IOException;
+}
@@ -0,0 +1,36 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.util.List;
+
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * An {@link ArchiveFileSystem} whose buckets have to be retrieved before they
+ * can be gotten, which can take hours. Requesting the retrieval of all the
+ * buckets to get up front lets the retrievals run at the same time.
+ */
+public interface RequestsBucketRetrieval {
+
+	/**
+	 * Starts retrieving the buckets without waiting for the retrievals. A bucket
+	 * whose retrieval could not be requested is retrieved when it is gotten.
+	 * 
+	 * @param remoteBuckets
+	 *          archived buckets that are about to be gotten.
+	 */
+	void requestRetrieval(List<Bucket> remoteBuckets);
+}
@@ -0,0 +1,35 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.filesystem.transaction.HasFileStructure;
+
+/**
+ * An {@link ArchiveFileSystem} that data can be streamed to, without first
+ * writing the data to a local file.
+ */
+public interface WritesTempOutputStream {
+
+	/**
+	 * @param tempPath
+	 *          path to a file in a temporary location. The caller moves it to its
+	 *          destination with {@link HasFileStructure#rename(String, String)}.
+	 * @return stream that writes to the file. The caller closes it.
+	 */
+	OutputStream openTempOutputStream(String tempPath) throws IOException;
+}
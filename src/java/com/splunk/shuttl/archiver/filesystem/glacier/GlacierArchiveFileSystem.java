@@ -18,67 +18,123 @@ import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.apache.log4j.Logger;
 
-import com.splunk.shuttl.archiver.archive.BucketDeleter;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.RequestsBucketRetrieval;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierClient.WritesArchive;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.BucketTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.FileTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.TransfersFiles;
-import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.StreamingTgzBucket;
+import com.splunk.shuttl.archiver.importexport.tgz.WritesBucketTgz;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
  * The glacier file system is not good for storing multiple files, it will
  * therefore rely on s3 to handle the storing of meta data and file structure.
- * It supports only buckets that contain a single file.
+ * It supports only buckets that contain a single file.<br/>
+ * <br/>
+ * Buckets that are archived as tgz are streamed into glacier while they are
+ * tarred and gzipped, without writing the tgz to local disk first. Buckets
+ * that are about to be thawed can have their retrievals requested up front.
  */
-public class GlacierArchiveFileSystem implements ArchiveFileSystem {
+public class GlacierArchiveFileSystem implements ArchiveFileSystem,
+		WritesTempOutputStream, RequestsBucketRetrieval {
 
 	private final ArchiveFileSystem hadoop;
 	private final GlacierClient glacierClient;
-	private final TgzFormatExporter tgzFormatExporter;
+	private final WritesBucketTgz writesBucketTgz;
 	private final Logger logger;
-	private final BucketDeleter bucketDeleter;
 	private final GlacierArchiveIdStore glacierArchiveIdStore;
 
 	public GlacierArchiveFileSystem(ArchiveFileSystem hadoop,
-			GlacierClient glacierClient, TgzFormatExporter tgzFormatExporter,
-			Logger logger, BucketDeleter bucketDeleter,
-			GlacierArchiveIdStore glacierArchiveIdStore) {
+			GlacierClient glacierClient, WritesBucketTgz writesBucketTgz,
+			Logger logger, GlacierArchiveIdStore glacierArchiveIdStore) {
 		this.hadoop = hadoop;
 		this.glacierClient = glacierClient;
-		this.tgzFormatExporter = tgzFormatExporter;
+		this.writesBucketTgz = writesBucketTgz;
 		this.logger = logger;
-		this.bucketDeleter = bucketDeleter;
 		this.glacierArchiveIdStore = glacierArchiveIdStore;
 	}
 
 	private void putBucket(LocalBucket bucket, String temp, String dst)
 			throws IOException {
-		if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET)) {
-			LocalBucket tgzBucket = exportToTgzBucketWithWarning(bucket);
-			uploadBucket(tgzBucket, dst);
-			bucketDeleter.deleteBucket(tgzBucket);
+		if (bucket instanceof StreamingTgzBucket) {
+			uploadStreamingTgz((StreamingTgzBucket) bucket, dst);
+		} else if (bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET)) {
+			logTgzWarning(bucket);
+			uploadTgzOfBucket(bucket, dst);
 		} else {
 			uploadBucket(bucket, dst);
 		}
 	}
 
-	private LocalBucket exportToTgzBucketWithWarning(LocalBucket localBucket) {
-		LocalBucket bucketToUpload = tgzFormatExporter.exportBucket(localBucket);
-		logger.warn(warn("Exported bucket to tgz because glacier should only "
-				+ "upload one file", "Bucket got exported",
-				"Will upload this tgz bucket. You can prevent this "
+	private void logTgzWarning(LocalBucket localBucket) {
+		logger.warn(warn("Uploading bucket as tgz because glacier should only "
+				+ "upload one file", "Bucket is tarred and gzipped while uploading",
+				"Will upload the tgz of this bucket. You can prevent this "
 						+ "warning by configuring glacier with bucket formats "
-						+ "that already are one file, i.e. CSV and SPLUNK_BUCKET_TGZ",
+						+ "that already are one file, i.e. CSV, SPLUNK_BUCKET_TGZ, "
+						+ "SPLUNK_BUCKET_ZSTD, SPLUNK_BUCKET_LZ4 and "
+						+ "SPLUNK_BUCKET_CONTAINER",
 				"bucket", localBucket));
-		return bucketToUpload;
+	}
+
+	/**
+	 * Uploads the tgz of the source bucket while it is written. The bucket counts
+	 * the written bytes as its size.
+	 */
+	private void uploadStreamingTgz(final StreamingTgzBucket bucket, String dst) {
+		uploadTgz(bucket, dst, new WritesArchive() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				bucket.writeTgz(out);
+			}
+		});
+	}
+
+	private void uploadTgzOfBucket(final LocalBucket bucket, String dst) {
+		uploadTgz(bucket, dst, new WritesArchive() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				writesBucketTgz.writeTgz(bucket, out);
+			}
+		});
+	}
+
+	/**
+	 * Uploads the tgz while it is written, and persists the archiveId for the
+	 * archived bucket.
+	 */
+	private void uploadTgz(LocalBucket archived, String dst,
+			WritesArchive writesTgz) {
+		try {
+			glacierClient.upload(dst, writesTgz);
+		} catch (Exception e) {
+			throw new GlacierArchivingException("Got exception when uploading "
+					+ "tgz of bucket to glacier. Bucket: " + archived
+					+ ", exception: " + e);
+		}
+		persistArchiveId(archived, dst);
+	}
+
+	/**
+	 * Closing the stream completes the archive, which glacier knows by the temp
+	 * path.
+	 */
+	@Override
+	public OutputStream openTempOutputStream(String tempPath) throws IOException {
+		return glacierClient.openUploadStream(tempPath);
 	}
 
 	private void uploadBucket(LocalBucket bucketToUpload, String dst) {
@@ -130,6 +186,20 @@ public class GlacierArchiveFileSystem implements ArchiveFileSystem {
 		}
 	}
 
+	@Override
+	public void requestRetrieval(List<Bucket> remoteBuckets) {
+		for (Bucket remoteBucket : remoteBuckets)
+			try {
+				String path = remoteBucket.getPath();
+				putArchiveIdIfNotPresent(remoteBucket, path);
+				glacierClient.requestRetrieval(path);
+			} catch (Exception e) {
+				logger.warn(warn("Requested glacier retrieval of bucket", e,
+						"will retrieve the bucket when it is gotten", "bucket",
+						remoteBucket));
+			}
+	}
+
 	private void downloadBucketFileFromGlacier(File file, String path) {
 		try {
 			glacierClient.downloadArchiveToFile(path, file);
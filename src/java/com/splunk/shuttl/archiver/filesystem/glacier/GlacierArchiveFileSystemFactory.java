@@ -20,11 +20,9 @@ import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
-import com.splunk.shuttl.archiver.archive.BucketDeleter;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.s3.S3ArchiveFileSystemFactory;
-import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz;
-import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.WritesBucketTgz;
 import com.splunk.shuttl.archiver.metastore.MetadataStore;
 import com.splunk.shuttl.archiver.util.GroupRegex;
 import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
@@ -41,7 +39,8 @@ public class GlacierArchiveFileSystemFactory {
 	public static GlacierArchiveFileSystem create(
 			LocalFileSystemPaths localFileSystemPaths) {
 		AWSCredentialsImpl credentials = AWSCredentialsImpl.create();
-		GlacierClient client = GlacierClient.create(credentials);
+		GlacierClient client = GlacierClient.create(credentials,
+				localFileSystemPaths);
 		ArchiveFileSystem s3 = S3ArchiveFileSystemFactory.createS3n();
 		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
 		return create(localFileSystemPaths, client, s3, config);
@@ -50,16 +49,13 @@ public class GlacierArchiveFileSystemFactory {
 	public static GlacierArchiveFileSystem create(
 			LocalFileSystemPaths localFileSystemPaths, GlacierClient glacierClient,
 			ArchiveFileSystem archiveMetaStore, ArchiveConfiguration config) {
-		TgzFormatExporter tgzFormatExporter = TgzFormatExporter
-				.create(CreatesBucketTgz.create(localFileSystemPaths));
 		Logger logger = Logger.getLogger(GlacierArchiveFileSystem.class);
-		BucketDeleter bucketDeleter = BucketDeleter.create();
 
 		MetadataStore metadataStore = MetadataStore.create(config,
 				archiveMetaStore, localFileSystemPaths);
 
 		return new GlacierArchiveFileSystem(archiveMetaStore, glacierClient,
-				tgzFormatExporter, logger, bucketDeleter, new GlacierArchiveIdStore(
+				WritesBucketTgz.create(), logger, new GlacierArchiveIdStore(
 						metadataStore));
 	}
 
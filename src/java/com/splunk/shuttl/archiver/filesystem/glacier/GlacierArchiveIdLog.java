@@ -0,0 +1,245 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+
+/**
+ * Persists the archive ids of the paths uploaded to glacier, so that they
+ * survive restarts. Every mapping is appended and synced as a line to a log
+ * file, and looked up in an in-memory hash index that is loaded from the log
+ * once. A path that is mapped again gets a new line, and the last line of a
+ * path wins. The index is loaded when the server starts, or on first use.<br/>
+ * <br/>
+ * When most of the lines in the log have been superseded, the log is rewritten
+ * with one line per path, sorted by path. A log file must only be written by
+ * one instance, so instances are shared per log file.
+ */
+public class GlacierArchiveIdLog {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierArchiveIdLog.class);
+
+	private static final String LOG_FILE_NAME = "archive-ids.log";
+	private static final String SEPARATOR = "\t";
+	private static final String ENCODING = "UTF-8";
+
+	private static final Map<File, GlacierArchiveIdLog> sharedInstances = new HashMap<File, GlacierArchiveIdLog>();
+
+	private final File logFile;
+	private final Map<String, String> index;
+	private boolean loaded;
+	private long lines;
+
+	/**
+	 * @param logFile
+	 *          to append the mappings to, or null to only keep them in the
+	 *          index.
+	 * @param index
+	 *          in-memory index of the mappings.
+	 */
+	public GlacierArchiveIdLog(File logFile, Map<String, String> index) {
+		this.logFile = logFile;
+		this.index = index;
+		this.loaded = logFile == null;
+		this.lines = 0;
+	}
+
+	/**
+	 * @return archive id mapped to the path, or null if there is none.
+	 */
+	public synchronized String get(String path) {
+		load();
+		return index.get(path);
+	}
+
+	public void put(String path, String archiveId) {
+		putAll(Collections.singletonMap(path, archiveId));
+	}
+
+	/**
+	 * Appends all the mappings to the log with a single sync, before they are
+	 * put in the index.
+	 * 
+	 * @throws GlacierArchiveIdLogException
+	 *           if the mappings could not be written.
+	 */
+	public synchronized void putAll(Map<String, String> archiveIds) {
+		load();
+		if (logFile != null && !archiveIds.isEmpty())
+			append(archiveIds);
+		index.putAll(archiveIds);
+	}
+
+	/**
+	 * @return number of paths with an archive id.
+	 */
+	public synchronized int size() {
+		load();
+		return index.size();
+	}
+
+	private void append(Map<String, String> archiveIds) {
+		try {
+			RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+			try {
+				log.seek(log.length());
+				log.write(toLines(archiveIds).getBytes(ENCODING));
+				log.getChannel().force(false);
+			} finally {
+				log.close();
+			}
+			lines += archiveIds.size();
+		} catch (IOException e) {
+			logger.error(did("Appended archive ids to log", e, "to write and sync",
+					"log", logFile, "archive_ids", archiveIds.size()));
+			throw new GlacierArchiveIdLogException(e);
+		}
+	}
+
+	private String toLines(Map<String, String> archiveIds) {
+		StringBuilder lines = new StringBuilder();
+		for (Map.Entry<String, String> archiveId : archiveIds.entrySet())
+			lines.append(archiveId.getKey()).append(SEPARATOR)
+					.append(archiveId.getValue()).append('\n');
+		return lines.toString();
+	}
+
+	/**
+	 * Loads the index from the log, unless it is already loaded. Should be run
+	 * when the server starts, so that the first lookup does not wait for it.
+	 * 
+	 * @throws GlacierArchiveIdLogException
+	 *           if the log could not be read.
+	 */
+	public synchronized void load() {
+		if (loaded)
+			return;
+		try {
+			if (logFile.exists()) {
+				truncateIncompleteLine();
+				readLog();
+			}
+			loaded = true;
+			logger.info(done("Loaded glacier archive id log", "log", logFile,
+					"lines", lines, "archive_ids", index.size()));
+			if (lines > 2 * index.size())
+				compact();
+		} catch (IOException e) {
+			logger.error(did("Loaded glacier archive id log", e,
+					"to read the archive ids", "log", logFile));
+			throw new GlacierArchiveIdLogException(e);
+		}
+	}
+
+	/**
+	 * A crash can leave a half written line, which could hold half an archive
+	 * id. Such a line is removed instead of read.
+	 */
+	private void truncateIncompleteLine() throws IOException {
+		RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+		try {
+			long length = log.length();
+			while (length > 0) {
+				log.seek(length - 1);
+				if (log.read() == '\n')
+					break;
+				length--;
+			}
+			if (length < log.length()) {
+				logger.warn(warn("Loaded glacier archive id log",
+						"the last line was incomplete", "removing the line", "log",
+						logFile));
+				log.setLength(length);
+			}
+		} finally {
+			log.close();
+		}
+	}
+
+	private void readLog() throws IOException {
+		LineIterator logLines = FileUtils.lineIterator(logFile, ENCODING);
+		try {
+			while (logLines.hasNext()) {
+				String line = logLines.nextLine();
+				int separator = line.lastIndexOf(SEPARATOR);
+				if (separator > 0 && separator < line.length() - 1) {
+					index.put(line.substring(0, separator),
+							line.substring(separator + 1));
+					lines++;
+				}
+			}
+		} finally {
+			LineIterator.closeQuietly(logLines);
+		}
+	}
+
+	private void compact() throws IOException {
+		File compacted = new File(logFile.getParentFile(), logFile.getName()
+				+ ".compacted");
+		FileUtils.deleteQuietly(compacted);
+		RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+		try {
+			out.write(toLines(new TreeMap<String, String>(index)).getBytes(ENCODING));
+			out.getChannel().force(false);
+		} finally {
+			out.close();
+		}
+		if (!compacted.renameTo(logFile))
+			throw new IOException("Could not replace log " + logFile + " with "
+					+ compacted);
+		logger.info(done("Compacted glacier archive id log", "log", logFile,
+				"superseded_lines", lines - index.size()));
+		lines = index.size();
+	}
+
+	/**
+	 * @return log that only keeps the mappings in the archiveIds map.
+	 */
+	public static GlacierArchiveIdLog createInMemory(
+			Map<String, String> archiveIds) {
+		return new GlacierArchiveIdLog(null, archiveIds);
+	}
+
+	/**
+	 * @return log in the glacier archive ids directory, shared by the JVM.
+	 */
+	public static synchronized GlacierArchiveIdLog getSharedInstance(
+			LocalFileSystemPaths localFileSystemPaths) {
+		File logFile = new File(
+				localFileSystemPaths.getGlacierArchiveIdsDirectory(), LOG_FILE_NAME)
+				.getAbsoluteFile();
+		GlacierArchiveIdLog log = sharedInstances.get(logFile);
+		if (log == null) {
+			log = new GlacierArchiveIdLog(logFile, new HashMap<String, String>());
+			sharedInstances.put(logFile, log);
+		}
+		return log;
+	}
+}
@@ -17,10 +17,16 @@ package com.splunk.shuttl.archiver.filesystem.glacier;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import com.amazonaws.AmazonClientException;
@@ -28,9 +34,12 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.glacier.AmazonGlacierClient;
 import com.amazonaws.services.glacier.transfer.ArchiveTransferManager;
 import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 
 /**
- * Implementation of doing operations to the Amazon Glacier service.
+ * Implementation of doing operations to the Amazon Glacier service. Archives
+ * are uploaded in parallel parts with a {@link GlacierMultipartUploader} when
+ * there is one, and with the {@link ArchiveTransferManager} otherwise.
  */
 public class GlacierClient {
 
@@ -38,30 +47,57 @@ public class GlacierClient {
 
 	private ArchiveTransferManager transferManager;
 	private String vault;
-	// TODO: Better solution with db or flat files?
-	private static final HashMap<String, String> archiveIdCache = new HashMap<String, String>();
-	private final Map<String, String> archiveIds;
+	private final GlacierArchiveIdLog archiveIds;
+	private final GlacierMultipartUploader multipartUploader;
+	private final GlacierRetrievals retrievals;
 
 	/**
-	 * Uses the in-memory static final archiveIdCache.
+	 * Keeps the archiveIds in the map only.
 	 */
-	private GlacierClient(ArchiveTransferManager transferManager, String vault) {
-		this(transferManager, vault, archiveIdCache);
+	public GlacierClient(ArchiveTransferManager transferManager, String vault,
+			Map<String, String> archiveIds) {
+		this(transferManager, vault, archiveIds, null);
 	}
 
+	/**
+	 * Keeps the archiveIds in the map only.
+	 */
 	public GlacierClient(ArchiveTransferManager transferManager, String vault,
-			Map<String, String> archiveIds) {
+			Map<String, String> archiveIds,
+			GlacierMultipartUploader multipartUploader) {
+		this(transferManager, vault, GlacierArchiveIdLog
+				.createInMemory(archiveIds), multipartUploader, null);
+	}
+
+	/**
+	 * @param multipartUploader
+	 *          to upload archives with, or null to upload them with the
+	 *          {@link ArchiveTransferManager}.
+	 * @param retrievals
+	 *          to retrieve archives with in two phases, or null to download
+	 *          them with the {@link ArchiveTransferManager}.
+	 */
+	public GlacierClient(ArchiveTransferManager transferManager, String vault,
+			GlacierArchiveIdLog archiveIds,
+			GlacierMultipartUploader multipartUploader,
+			GlacierRetrievals retrievals) {
 		this.transferManager = transferManager;
 		this.vault = vault;
 		this.archiveIds = archiveIds;
+		this.multipartUploader = multipartUploader;
+		this.retrievals = retrievals;
 	}
 
 	/**
-	 * Uploads a file to glacier and stores the of the transfer archiveId in
-	 * memory.
+	 * Uploads a file to glacier and stores the archiveId of the transfer in the
+	 * archive id log.
 	 */
 	public void upload(File file, String dst) throws AmazonServiceException,
 			AmazonClientException, FileNotFoundException {
+		if (multipartUploader != null) {
+			uploadFileInParts(file, dst);
+			return;
+		}
 		logger.info(will("Use amazon glacier ArchiveTransferManager"
 				+ " to transfer file to a vault", "file", file, "vault", vault,
 				"destination", dst));
@@ -70,11 +106,167 @@ public class GlacierClient {
 		putArchiveId(dst, result.getArchiveId());
 	}
 
+	private void uploadFileInParts(final File file, String dst)
+			throws FileNotFoundException {
+		if (!file.exists())
+			throw new FileNotFoundException("File does not exist: " + file);
+		try {
+			upload(dst, new WritesArchive() {
+
+				@Override
+				public void writeTo(OutputStream out) throws IOException {
+					InputStream in = new FileInputStream(file);
+					try {
+						IOUtils.copyLarge(in, out);
+					} finally {
+						in.close();
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new AmazonClientException("Could not upload file: " + file, e);
+		}
+	}
+
 	/**
-	 * Downloads a file stored in glacier with a path.
+	 * Writes an archive to a stream.
+	 */
+	public interface WritesArchive {
+
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Uploads what the archive writes to glacier, while it is written, and
+	 * stores the archiveId in the log. If writing or uploading fails, the upload
+	 * is aborted.
+	 */
+	public void upload(String dst, WritesArchive archive) throws IOException {
+		logger.info(will("Upload archive to glacier while it is written",
+				"vault", vault, "destination", dst));
+		GlacierUpload upload = openUpload(dst);
+		boolean uploaded = false;
+		try {
+			archive.writeTo(upload);
+			upload.close();
+			uploaded = true;
+		} finally {
+			if (!uploaded)
+				upload.abort();
+		}
+		putArchiveId(dst, upload.getArchiveId());
+		logger.info(done("Uploading archive to glacier.", "destination", dst));
+	}
+
+	/**
+	 * @return stream that uploads an archive to glacier, and stores the
+	 *         archiveId in the log when the stream is closed.
+	 */
+	public OutputStream openUploadStream(final String dst) {
+		final GlacierUpload upload = openUpload(dst);
+		return new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				upload.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				upload.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				upload.close();
+				putArchiveId(dst, upload.getArchiveId());
+			}
+		};
+	}
+
+	private GlacierUpload openUpload(String dst) {
+		if (multipartUploader != null)
+			return multipartUploader.openUpload(vault, dst);
+		else
+			return new UploadsFileOnClose(dst);
+	}
+
+	/**
+	 * Writes the archive to a temporary file, which is uploaded with the
+	 * {@link ArchiveTransferManager} when the stream is closed.
+	 */
+	private class UploadsFileOnClose extends GlacierUpload {
+
+		private final String dst;
+		private final File file;
+		private final OutputStream out;
+		private String archiveId;
+
+		public UploadsFileOnClose(String dst) {
+			this.dst = dst;
+			try {
+				this.file = File.createTempFile("shuttl-glacier-", ".upload");
+				this.out = new FileOutputStream(file);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (archiveId != null)
+				return;
+			out.close();
+			try {
+				archiveId = transferManager.upload(vault, dst, file).getArchiveId();
+			} catch (AmazonClientException e) {
+				throw new IOException(e);
+			} finally {
+				FileUtils.deleteQuietly(file);
+			}
+		}
+
+		@Override
+		public void abort() {
+			IOUtils.closeQuietly(out);
+			FileUtils.deleteQuietly(file);
+		}
+
+		@Override
+		public String getArchiveId() {
+			return archiveId;
+		}
+	}
+
+	/**
+	 * Starts retrieving the archive stored with a path, so that it can be
+	 * downloaded without waiting for a whole retrieval when it is downloaded.
+	 * Does nothing when there are no two phase retrievals.
 	 * 
 	 * @throws GlacierArchiveIdDoesNotExist
-	 *           if the archiveId is not stored in memory.
+	 *           if the archiveId is not stored in the log.
+	 */
+	public void requestRetrieval(String key) {
+		if (retrievals != null)
+			retrievals.start(vault, getArchiveId(key));
+	}
+
+	/**
+	 * Downloads a file stored in glacier with a path. Waits for the retrieval of
+	 * the archive to complete, if it has been requested.
+	 * 
+	 * @throws GlacierArchiveIdDoesNotExist
+	 *           if the archiveId is not stored in the log.
 	 */
 	public void downloadArchiveToFile(String key, File file) {
 		if (file.isDirectory())
@@ -87,10 +279,22 @@ public class GlacierClient {
 	private void doDownloadArchiveToFile(String archiveId, File file) {
 		logger.info(will("Download archive from glacier", "destination", file,
 				"archiveId", archiveId));
-		transferManager.download(vault, archiveId, file);
+		if (retrievals != null && retrievals.isStarted(archiveId))
+			downloadRetrievedArchive(archiveId, file);
+		else
+			transferManager.download(vault, archiveId, file);
 		logger.info(done("Downloaded archive from glacier", "destination", file));
 	}
 
+	private void downloadRetrievedArchive(String archiveId, File file) {
+		try {
+			retrievals.download(vault, archiveId, file);
+		} catch (IOException e) {
+			throw new AmazonClientException("Could not download archive: "
+					+ archiveId, e);
+		}
+	}
+
 	private void makeFilesParentsExist(File file) {
 		if (!file.exists())
 			file.mkdirs();
@@ -101,27 +305,38 @@ public class GlacierClient {
 	 * Get the archiveId mapped to a path.
 	 */
 	public String getArchiveId(String path) {
-		if (!archiveIds.containsKey(path))
+		String archiveId = archiveIds.get(path);
+		if (archiveId == null)
 			throw new GlacierArchiveIdDoesNotExist(
 					"Could not get the archiveId for dst: " + path
 							+ ", which means that we cannot download the archive. "
-							+ "Download the archive inventory and parse out the "
-							+ "description for the path->archiveId mappings.");
-		return archiveIds.get(path);
+							+ "Download the archive inventory and import it with "
+							+ "the glacier inventory import endpoint.");
+		return archiveId;
 	}
 
 	/**
-	 * Map a path to a archiveId.
+	 * Map a path to a archiveId, and persist the mapping in the archive id log.
 	 */
 	public void putArchiveId(String path, String archiveId) {
 		archiveIds.put(path, archiveId);
 	}
 
-	public static GlacierClient create(AWSCredentialsImpl credentials) {
+	public static GlacierClient create(AWSCredentialsImpl credentials,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return create(credentials, GlacierProperties.create(),
+				GlacierArchiveIdLog.getSharedInstance(localFileSystemPaths));
+	}
+
+	public static GlacierClient create(AWSCredentialsImpl credentials,
+			GlacierProperties properties, GlacierArchiveIdLog archiveIdLog) {
 		AmazonGlacierClient amazonGlacierClient = new AmazonGlacierClient(
 				credentials);
 		amazonGlacierClient.setEndpoint(credentials.getGlacierEndpoint());
 		return new GlacierClient(new ArchiveTransferManager(amazonGlacierClient,
-				credentials), credentials.getGlacierVault());
+				credentials), credentials.getGlacierVault(), archiveIdLog,
+				GlacierMultipartUploader.create(amazonGlacierClient,
+						properties.getPartSize()),
+				GlacierRetrievals.create(amazonGlacierClient));
 	}
 }
@@ -0,0 +1,164 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+
+/**
+ * Imports the path to archiveId mappings of a glacier vault inventory into a
+ * {@link GlacierArchiveIdLog}. Archives are uploaded with their path as
+ * description, so the description of an archive is its path. The inventory is
+ * parsed as a stream in one pass, and all mappings are appended to the log
+ * with a single sync. When a path has several archives, the most recently
+ * created one is imported.
+ */
+public class GlacierInventoryImporter {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierInventoryImporter.class);
+
+	private final GlacierArchiveIdLog archiveIdLog;
+	private final JsonFactory jsonFactory;
+
+	public GlacierInventoryImporter(GlacierArchiveIdLog archiveIdLog,
+			JsonFactory jsonFactory) {
+		this.archiveIdLog = archiveIdLog;
+		this.jsonFactory = jsonFactory;
+	}
+
+	/**
+	 * @return number of imported paths.
+	 */
+	public int importInventory(File inventory) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(inventory));
+		try {
+			return importInventory(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param inventory
+	 *          json, as returned by an inventory retrieval job.
+	 * @return number of imported paths.
+	 */
+	public int importInventory(InputStream inventory) throws IOException {
+		logger.info(will("Import glacier vault inventory"));
+		Map<String, InventoryArchive> archives = parseInventory(inventory);
+		Map<String, String> archiveIds = new HashMap<String, String>();
+		for (Map.Entry<String, InventoryArchive> archive : archives.entrySet())
+			archiveIds.put(archive.getKey(), archive.getValue().archiveId);
+		archiveIdLog.putAll(archiveIds);
+		logger.info(done("Imported glacier vault inventory", "archive_ids",
+				archiveIds.size()));
+		return archiveIds.size();
+	}
+
+	private Map<String, InventoryArchive> parseInventory(InputStream inventory)
+			throws IOException {
+		Map<String, InventoryArchive> archives = new HashMap<String, InventoryArchive>();
+		JsonParser parser = jsonFactory.createJsonParser(inventory);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("Inventory is not a json object");
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("ArchiveList".equals(field) && value == JsonToken.START_ARRAY)
+					parseArchiveList(parser, archives);
+				else
+					parser.skipChildren();
+			}
+			return archives;
+		} finally {
+			parser.close();
+		}
+	}
+
+	private void parseArchiveList(JsonParser parser,
+			Map<String, InventoryArchive> archives) throws IOException {
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			InventoryArchive archive = parseArchive(parser);
+			if (archive.isUploadedWithPath())
+				putIfMoreRecent(archives, archive);
+		}
+	}
+
+	private InventoryArchive parseArchive(JsonParser parser) throws IOException {
+		InventoryArchive archive = new InventoryArchive();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("ArchiveId".equals(field))
+				archive.archiveId = parser.getText();
+			else if ("ArchiveDescription".equals(field))
+				archive.path = parser.getText();
+			else if ("CreationDate".equals(field))
+				archive.creationDate = parser.getText();
+			else
+				parser.skipChildren();
+		}
+		return archive;
+	}
+
+	private void putIfMoreRecent(Map<String, InventoryArchive> archives,
+			InventoryArchive archive) {
+		InventoryArchive existing = archives.get(archive.path);
+		if (existing == null || existing.isCreatedBefore(archive))
+			archives.put(archive.path, archive);
+	}
+
+	private static class InventoryArchive {
+
+		private String archiveId;
+		private String path;
+		private String creationDate = "";
+
+		public boolean isUploadedWithPath() {
+			return archiveId != null && !archiveId.isEmpty() && path != null
+					&& !path.isEmpty();
+		}
+
+		/**
+		 * Creation dates are ISO 8601 in UTC, which sort as strings.
+		 */
+		public boolean isCreatedBefore(InventoryArchive other) {
+			return creationDate.compareTo(other.creationDate) < 0;
+		}
+	}
+
+	public static GlacierInventoryImporter create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new GlacierInventoryImporter(
+				GlacierArchiveIdLog.getSharedInstance(localFileSystemPaths),
+				new JsonFactory());
+	}
+}
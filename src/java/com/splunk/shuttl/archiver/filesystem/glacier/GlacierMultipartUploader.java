@@ -0,0 +1,285 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.splunk.shuttl.archiver.filesystem.FileTransferPool;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Uploads archives to glacier as multipart uploads, from streams. What is
+ * written to an upload is cut into parts, and the tree hash of each part and of
+ * the whole archive is computed while it is written. Full parts are uploaded
+ * on the threads of a shared pool, while the next part is written.<br/>
+ * <br/>
+ * Parts are buffered in memory until they are uploaded. The number of parts
+ * waiting for or being uploaded is limited, so that a writer faster than the
+ * uplink blocks instead of filling the heap.
+ */
+public class GlacierMultipartUploader {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierMultipartUploader.class);
+
+	public static final long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+	/* package-private */static final String BACKEND_NAME = "glacier";
+
+	private final AmazonGlacier glacier;
+	private final ExecutorService executorService;
+	private final long partSize;
+	private final Semaphore partsInFlight;
+	private final TransferThrottle throttle;
+
+	/**
+	 * @param partSize
+	 *          a megabyte times a power of two, as glacier requires.
+	 * @param maxPartsInFlight
+	 *          parts that may wait for or be uploaded at once, for all uploads.
+	 */
+	public GlacierMultipartUploader(AmazonGlacier glacier,
+			ExecutorService executorService, long partSize, int maxPartsInFlight,
+			TransferThrottle throttle) {
+		this.glacier = glacier;
+		this.executorService = executorService;
+		this.partSize = partSize;
+		this.partsInFlight = new Semaphore(maxPartsInFlight);
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Initiates a multipart upload of an archive to the vault.
+	 * 
+	 * @param description
+	 *          of the archive, which is listed in the inventory of the vault.
+	 */
+	public GlacierUpload openUpload(String vault, String description) {
+		String uploadId = glacier.initiateMultipartUpload(
+				new InitiateMultipartUploadRequest().withVaultName(vault)
+						.withArchiveDescription(description)
+						.withPartSize(Long.toString(partSize))).getUploadId();
+		return new MultipartUpload(vault, description, uploadId);
+	}
+
+	private class MultipartUpload extends GlacierUpload {
+
+		private final String vault;
+		private final String description;
+		private final String uploadId;
+		private final TreeHash treeHash;
+		private final List<Future<Void>> futures;
+		private volatile boolean partFailed;
+		private volatile boolean aborted;
+		private byte[] part;
+		private int partFill;
+		private long partOffset;
+		private int partFirstChunk;
+		private boolean closed;
+		private String archiveId;
+
+		public MultipartUpload(String vault, String description, String uploadId) {
+			this.vault = vault;
+			this.description = description;
+			this.uploadId = uploadId;
+			this.treeHash = new TreeHash();
+			this.futures = new ArrayList<Future<Void>>();
+			this.partFailed = false;
+			this.aborted = false;
+			this.partFill = 0;
+			this.partOffset = 0;
+			this.partFirstChunk = 0;
+			this.closed = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			if (closed)
+				throw new IOException("Upload is closed: " + description);
+			while (length > 0) {
+				if (part == null)
+					part = new byte[(int) partSize];
+				int n = (int) Math.min(length, partSize - partFill);
+				System.arraycopy(bytes, offset, part, partFill, n);
+				treeHash.update(bytes, offset, n);
+				partFill += n;
+				offset += n;
+				length -= n;
+				if (partFill == partSize)
+					submitPart();
+			}
+		}
+
+		private void submitPart() throws IOException {
+			if (partFailed)
+				waitForAll();
+			treeHash.finishChunk();
+			String checksum = treeHash.getTreeHash(partFirstChunk,
+					treeHash.getChunkCount());
+			acquirePartInFlight();
+			futures.add(executorService.submit(new UploadPart(part, partFill,
+					partOffset, checksum)));
+			partOffset += partFill;
+			partFirstChunk = treeHash.getChunkCount();
+			part = null;
+			partFill = 0;
+		}
+
+		private void acquirePartInFlight() throws InterruptedIOException {
+			try {
+				partsInFlight.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to "
+						+ "upload a part of: " + description);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			if (partFill > 0)
+				submitPart();
+			waitForAll();
+			treeHash.finishChunk();
+			try {
+				archiveId = glacier.completeMultipartUpload(
+						new CompleteMultipartUploadRequest().withVaultName(vault)
+								.withUploadId(uploadId)
+								.withArchiveSize(Long.toString(partOffset))
+								.withChecksum(treeHash.getTreeHash())).getArchiveId();
+			} catch (AmazonClientException e) {
+				throw new IOException(e);
+			}
+		}
+
+		private void waitForAll() throws IOException {
+			Throwable firstException = null;
+			boolean interrupted = false;
+			for (Future<Void> future : futures) {
+				while (true) {
+					try {
+						future.get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					} catch (ExecutionException e) {
+						if (firstException == null)
+							firstException = e.getCause();
+						break;
+					}
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			if (firstException != null)
+				throw new IOException("Failed uploading a part of: " + description,
+						firstException);
+		}
+
+		@Override
+		public void abort() {
+			if (archiveId != null)
+				return;
+			closed = true;
+			aborted = true;
+			try {
+				glacier.abortMultipartUpload(new AbortMultipartUploadRequest()
+						.withVaultName(vault).withUploadId(uploadId));
+			} catch (AmazonClientException e) {
+				logger.warn(warn("Aborted glacier multipart upload", e,
+						"the uploaded parts are kept until glacier expires the upload",
+						"vault", vault, "description", description, "upload_id",
+						uploadId));
+			}
+		}
+
+		@Override
+		public String getArchiveId() {
+			return archiveId;
+		}
+
+		private class UploadPart implements Callable<Void> {
+
+			private final byte[] bytes;
+			private final int length;
+			private final long offset;
+			private final String checksum;
+
+			public UploadPart(byte[] bytes, int length, long offset,
+					String checksum) {
+				this.bytes = bytes;
+				this.length = length;
+				this.offset = offset;
+				this.checksum = checksum;
+			}
+
+			@Override
+			public Void call() {
+				try {
+					if (aborted)
+						return null;
+					glacier.uploadMultipartPart(new UploadMultipartPartRequest()
+							.withVaultName(vault).withUploadId(uploadId)
+							.withChecksum(checksum).withRange(getRange())
+							.withBody(throttle.throttleNetworkRead(new ByteArrayInputStream(
+									bytes, 0, length), BACKEND_NAME)));
+					return null;
+				} catch (RuntimeException e) {
+					partFailed = true;
+					throw e;
+				} finally {
+					partsInFlight.release();
+				}
+			}
+
+			private String getRange() {
+				return "bytes " + offset + "-" + (offset + length - 1) + "/*";
+			}
+		}
+	}
+
+	public static GlacierMultipartUploader create(AmazonGlacier glacier,
+			long partSize) {
+		FileTransferPool pool = FileTransferPool.getSharedInstance();
+		return new GlacierMultipartUploader(glacier, pool.getExecutorService(),
+				partSize, pool.getThreads() + 1, TransferThrottle.getSharedInstance());
+	}
+}
@@ -0,0 +1,89 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Properties for uploading to glacier, read from the same file as the
+ * {@link AWSCredentialsImpl}.
+ */
+public class GlacierProperties {
+
+	private static final long MEGABYTE = 1024 * 1024;
+	/**
+	 * Glacier allows parts of up to 4 GB, but every part is buffered in memory
+	 * while it is uploaded, with up to transferThreads + 1 parts per upload.
+	 */
+	private static final long MAX_PART_SIZE = 256 * MEGABYTE;
+
+	private final long partSize;
+
+	/**
+	 * @param partSize
+	 *          bytes per part of multipart uploads. Zero means that the default
+	 *          is used.
+	 */
+	public GlacierProperties(long partSize) {
+		this.partSize = partSize;
+	}
+
+	/**
+	 * @return bytes per part of multipart uploads.
+	 * @throws InvalidGlacierConfigurationException
+	 *           if the part size is not a megabyte times a power of two, as
+	 *           glacier requires, up to 256 megabytes.
+	 */
+	public long getPartSize() {
+		if (partSize <= 0)
+			return GlacierMultipartUploader.DEFAULT_PART_SIZE;
+		if (!isValidPartSize(partSize))
+			throw new InvalidGlacierConfigurationException("glacier.part.size.mb "
+					+ "has to be a power of two from 1 to 256, was: "
+					+ (double) partSize / MEGABYTE);
+		return partSize;
+	}
+
+	private static boolean isValidPartSize(long size) {
+		return size >= MEGABYTE && size <= MAX_PART_SIZE && size % MEGABYTE == 0
+				&& Long.bitCount(size / MEGABYTE) == 1;
+	}
+
+	public static GlacierProperties create() {
+		return create(AWSCredentialsImpl.getAmazonPropertiesFile());
+	}
+
+	public static GlacierProperties create(File amazonProperties) {
+		Properties properties = loadProperties(amazonProperties);
+		String partSizeMb = properties.getProperty("glacier.part.size.mb");
+		long partSize = partSizeMb == null || partSizeMb.trim().isEmpty() ? 0
+				: Long.parseLong(partSizeMb.trim()) * MEGABYTE;
+		return new GlacierProperties(partSize);
+	}
+
+	private static Properties loadProperties(File amazonProperties) {
+		try {
+			Properties properties = new Properties();
+			properties.load(FileUtils.openInputStream(amazonProperties));
+			return properties;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
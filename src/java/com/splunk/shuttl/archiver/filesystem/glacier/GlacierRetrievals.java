@@ -0,0 +1,196 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.JobParameters;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Retrieves archives from glacier in two phases. Retrieval jobs are started
+ * for many archives up front, and each archive is downloaded when its job has
+ * completed, by polling the job. The downloaded archive is verified against
+ * the tree hash glacier returns with it.
+ */
+public class GlacierRetrievals {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierRetrievals.class);
+
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 5 * 60 * 1000;
+	private static final String ARCHIVE_RETRIEVAL = "archive-retrieval";
+	private static final String FAILED = "Failed";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final AmazonGlacier glacier;
+	private final long pollIntervalMillis;
+	private final TransferThrottle throttle;
+	private final Map<String, String> jobIds;
+
+	public GlacierRetrievals(AmazonGlacier glacier, long pollIntervalMillis,
+			TransferThrottle throttle) {
+		this.glacier = glacier;
+		this.pollIntervalMillis = pollIntervalMillis;
+		this.throttle = throttle;
+		this.jobIds = new HashMap<String, String>();
+	}
+
+	/**
+	 * Starts a retrieval job for the archive, unless one has already been
+	 * started.
+	 */
+	public void start(String vault, String archiveId) {
+		synchronized (jobIds) {
+			if (jobIds.containsKey(archiveId))
+				return;
+		}
+		String jobId = glacier.initiateJob(
+				new InitiateJobRequest().withVaultName(vault).withJobParameters(
+						new JobParameters().withType(ARCHIVE_RETRIEVAL).withArchiveId(
+								archiveId))).getJobId();
+		logger.info(done("Started glacier retrieval job", "vault", vault,
+				"archiveId", archiveId, "job_id", jobId));
+		synchronized (jobIds) {
+			jobIds.put(archiveId, jobId);
+		}
+	}
+
+	/**
+	 * @return true if a retrieval job has been started for the archive.
+	 */
+	public boolean isStarted(String archiveId) {
+		synchronized (jobIds) {
+			return jobIds.containsKey(archiveId);
+		}
+	}
+
+	/**
+	 * Waits for the retrieval job of the archive to complete, and downloads the
+	 * archive to the file. The job is forgotten afterwards, whether the download
+	 * succeeded or not.
+	 * 
+	 * @throws IOException
+	 *           if the job failed, or the archive could not be downloaded.
+	 */
+	public void download(String vault, String archiveId, File file)
+			throws IOException {
+		String jobId;
+		synchronized (jobIds) {
+			jobId = jobIds.get(archiveId);
+		}
+		if (jobId == null)
+			throw new IllegalStateException("No retrieval job for archive: "
+					+ archiveId);
+		try {
+			waitForJob(vault, jobId);
+			downloadJobOutput(vault, jobId, file);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		} finally {
+			synchronized (jobIds) {
+				jobIds.remove(archiveId);
+			}
+		}
+	}
+
+	private void waitForJob(String vault, String jobId) throws IOException {
+		while (true) {
+			DescribeJobResult job = glacier.describeJob(new DescribeJobRequest()
+					.withVaultName(vault).withJobId(jobId));
+			if (FAILED.equals(job.getStatusCode()))
+				throw new IOException("Glacier retrieval job " + jobId + " failed: "
+						+ job.getStatusMessage());
+			if (Boolean.TRUE.equals(job.getCompleted()))
+				return;
+			sleepUntilNextPoll(jobId);
+		}
+	}
+
+	private void sleepUntilNextPoll(String jobId) throws InterruptedIOException {
+		try {
+			Thread.sleep(pollIntervalMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for "
+					+ "glacier retrieval job: " + jobId);
+		}
+	}
+
+	private void downloadJobOutput(String vault, String jobId, File file)
+			throws IOException {
+		logger.info(will("Download glacier retrieval job output", "job_id",
+				jobId, "destination", file));
+		GetJobOutputResult output = glacier.getJobOutput(new GetJobOutputRequest()
+				.withVaultName(vault).withJobId(jobId));
+		InputStream in = throttle.throttleNetworkRead(output.getBody(),
+				GlacierMultipartUploader.BACKEND_NAME);
+		TreeHash treeHash = new TreeHash();
+		try {
+			copyAndHash(in, file, treeHash);
+		} finally {
+			in.close();
+		}
+		treeHash.finishChunk();
+		if (output.getChecksum() != null
+				&& !output.getChecksum().equals(treeHash.getTreeHash())) {
+			FileUtils.deleteQuietly(file);
+			throw new IOException("Tree hash of downloaded archive did not match. "
+					+ "Expected: " + output.getChecksum() + ", was: "
+					+ treeHash.getTreeHash() + ", job: " + jobId);
+		}
+		logger.info(done("Downloaded glacier retrieval job output", "job_id",
+				jobId, "destination", file));
+	}
+
+	private void copyAndHash(InputStream in, File file, TreeHash treeHash)
+			throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				treeHash.update(buffer, 0, n);
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public static GlacierRetrievals create(AmazonGlacier glacier) {
+		return new GlacierRetrievals(glacier, DEFAULT_POLL_INTERVAL_MILLIS,
+				TransferThrottle.getSharedInstance());
+	}
+}
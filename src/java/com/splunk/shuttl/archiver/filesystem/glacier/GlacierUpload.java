@@ -0,0 +1,35 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.io.OutputStream;
+
+/**
+ * Stream that uploads what is written to it as a glacier archive. Closing the
+ * stream completes the archive. Aborting it instead discards what has been
+ * uploaded, so that a failed write doesn't leave a partial archive.
+ */
+public abstract class GlacierUpload extends OutputStream {
+
+	/**
+	 * Discards the upload, unless it has been completed.
+	 */
+	public abstract void abort();
+
+	/**
+	 * @return id of the archive, once the stream is closed.
+	 */
+	public abstract String getArchiveId();
+}
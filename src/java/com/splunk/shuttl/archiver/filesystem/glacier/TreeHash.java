@@ -0,0 +1,124 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the SHA-256 tree hash, that glacier verifies uploads with, from the
+ * bytes as they are written. The hash of every 1 MB chunk is kept, so that the
+ * tree hash of any range of whole chunks, such as a part of a multipart upload,
+ * can be computed without reading the range again.
+ */
+public class TreeHash {
+
+	public static final int CHUNK_SIZE = 1024 * 1024;
+
+	private final MessageDigest digest;
+	private final List<byte[]> chunkHashes;
+	private int chunkFill;
+
+	public TreeHash() {
+		this.digest = createDigest();
+		this.chunkHashes = new ArrayList<byte[]>();
+		this.chunkFill = 0;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void update(byte[] bytes, int offset, int length) {
+		while (length > 0) {
+			int n = Math.min(length, CHUNK_SIZE - chunkFill);
+			digest.update(bytes, offset, n);
+			chunkFill += n;
+			offset += n;
+			length -= n;
+			if (chunkFill == CHUNK_SIZE)
+				finishChunk();
+		}
+	}
+
+	/**
+	 * Ends the current chunk, if anything was written to it. Called at the end
+	 * of a part and at the end of the archive, which are the only places where a
+	 * chunk may be shorter than 1 MB.
+	 */
+	public void finishChunk() {
+		if (chunkFill > 0) {
+			chunkHashes.add(digest.digest());
+			chunkFill = 0;
+		}
+	}
+
+	/**
+	 * @return number of finished chunks.
+	 */
+	public int getChunkCount() {
+		return chunkHashes.size();
+	}
+
+	/**
+	 * @return hex encoded tree hash of the finished chunks from the first chunk,
+	 *         inclusive, to the last chunk, exclusive.
+	 */
+	public String getTreeHash(int firstChunk, int lastChunk) {
+		List<byte[]> level = new ArrayList<byte[]>(chunkHashes.subList(firstChunk,
+				lastChunk));
+		MessageDigest pairDigest = createDigest();
+		if (level.isEmpty())
+			return toHex(pairDigest.digest());
+		while (level.size() > 1) {
+			List<byte[]> parents = new ArrayList<byte[]>();
+			for (int i = 0; i < level.size(); i += 2)
+				if (i + 1 < level.size())
+					parents.add(hashPair(pairDigest, level.get(i), level.get(i + 1)));
+				else
+					parents.add(level.get(i));
+			level = parents;
+		}
+		return toHex(level.get(0));
+	}
+
+	/**
+	 * @return hex encoded tree hash of everything written, once the last chunk
+	 *         is finished.
+	 */
+	public String getTreeHash() {
+		return getTreeHash(0, getChunkCount());
+	}
+
+	private static byte[] hashPair(MessageDigest pairDigest, byte[] left,
+			byte[] right) {
+		pairDigest.update(left);
+		pairDigest.update(right);
+		return pairDigest.digest();
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			hex.append(String.format("%02x", b & 0xff));
+		return hex.toString();
+	}
+}
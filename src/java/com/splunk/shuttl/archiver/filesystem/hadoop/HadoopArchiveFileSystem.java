@@ -17,31 +17,64 @@ package com.splunk.shuttl.archiver.filesystem.hadoop;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.BucketTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
+import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBucketsWithChecksums;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.FileTransactionCleaner;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.TransfersFiles;
+import com.splunk.shuttl.archiver.importexport.tgz.StreamingTgzBucket;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
 
 public class HadoopArchiveFileSystem implements ArchiveFileSystem,
-		TransactionalFileSystem {
+		TransactionalFileSystem, WritesTempOutputStream, ReadsFileRanges {
 
 	private final FileSystem hadoopFileSystem;
+	private final ParallelDirectoryTransferer directoryTransferer;
+	private final TransferThrottle throttle;
 
 	public HadoopArchiveFileSystem(FileSystem hadoopFileSystem) {
+		this(hadoopFileSystem, ParallelDirectoryTransferer
+				.create(hadoopFileSystem), TransferThrottle.getSharedInstance());
+	}
+
+	public HadoopArchiveFileSystem(FileSystem hadoopFileSystem,
+			ParallelDirectoryTransferer directoryTransferer,
+			TransferThrottle throttle) {
 		this.hadoopFileSystem = hadoopFileSystem;
+		this.directoryTransferer = directoryTransferer;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * @return name of the backend that the file system is, as configured with
+	 *         backendName. Used for limiting transfers per backend.
+	 */
+	public static String getBackendName(FileSystem fileSystem) {
+		String scheme = fileSystem.getUri() == null ? null : fileSystem.getUri()
+				.getScheme();
+		if (scheme == null || scheme.equals("file"))
+			return "local";
+		else
+			return scheme;
 	}
 
 	@Override
@@ -54,20 +87,61 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 			return Collections.emptyList();
 	}
 
+	@Override
+	public long getFileLength(String path) throws IOException {
+		return hadoopFileSystem.getFileStatus(new Path(path)).getLen();
+	}
+
+	@Override
+	public InputStream openRange(String path, long offset, long length)
+			throws IOException {
+		FSDataInputStream in = hadoopFileSystem.open(new Path(path));
+		try {
+			in.seek(offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return throttle.throttleNetworkRead(new BoundedInputStream(in, length),
+				getBackendName(hadoopFileSystem));
+	}
+
 	private void putFile(File src, Path temp, Path dst) throws IOException {
+		putFile(src, temp, dst, null);
+	}
+
+	private void putFile(File src, Path temp, Path dst,
+			ChecksumManifest checksums) throws IOException {
+		if (hadoopFileSystem.exists(dst))
+			throw new FileOverwriteException();
+		directoryTransferer.put(src.getAbsoluteFile(), temp, checksums);
+	}
+
+	private void putStreamingTgz(StreamingTgzBucket bucket, Path temp, Path dst)
+			throws IOException {
 		if (hadoopFileSystem.exists(dst))
 			throw new FileOverwriteException();
 		hadoopFileSystem.delete(temp, true);
-		hadoopFileSystem.copyFromLocalFile(new Path(src.getAbsoluteFile().toURI()),
-				temp);
+		bucket.putTgz(this, temp.toString());
+	}
+
+	@Override
+	public OutputStream openTempOutputStream(String tempPath)
+			throws IOException {
+		return throttle.throttleNetworkWrite(
+				hadoopFileSystem.create(new Path(tempPath), false),
+				getBackendName(hadoopFileSystem));
 	}
 
 	private void getFile(Path src, File temp, File dst) throws IOException {
+		getFile(src, temp, dst, null);
+	}
+
+	private void getFile(Path src, File temp, File dst,
+			ChecksumManifest checksums) throws IOException {
 		if (dst.exists())
 			throw new FileOverwriteException();
-		FileUtils.deleteDirectory(temp);
-		hadoopFileSystem.copyToLocalFile(src, new Path(temp.getAbsoluteFile()
-				.toURI()));
+		directoryTransferer.get(src, temp.getAbsoluteFile(), checksums);
 	}
 
 	@Override
@@ -90,6 +164,19 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 		return hadoopFileSystem.exists(new Path(path));
 	}
 
+	/**
+	 * Deletes a temp path, unless it holds a failed transfer that can be resumed.
+	 */
+	private void deleteTempPath(String temp) {
+		try {
+			if (!hadoopFileSystem.exists(new Path(ParallelDirectoryTransferer
+					.getManifestPath(temp))))
+				deletePath(temp);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public void deletePath(String path) {
 		try {
 			hadoopFileSystem.delete(new Path(path), true);
@@ -100,19 +187,40 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 
 	@Override
 	public TransfersBuckets getBucketTransferer() {
-		return new TransfersBuckets() {
+		return new TransfersBucketsWithChecksums() {
 
 			@Override
 			public void put(Bucket bucket, String temp, String dst)
 					throws IOException {
-				LocalBucket localBucket = (LocalBucket) bucket;
-				putFile(localBucket.getDirectory(), new Path(temp), new Path(dst));
+				put(bucket, temp, dst, null);
+			}
+
+			/**
+			 * Streamed tgz buckets are not checksummed.
+			 */
+			@Override
+			public void put(Bucket bucket, String temp, String dst,
+					ChecksumManifest checksums) throws IOException {
+				if (bucket instanceof StreamingTgzBucket) {
+					putStreamingTgz((StreamingTgzBucket) bucket, new Path(temp),
+							new Path(dst));
+				} else {
+					LocalBucket localBucket = (LocalBucket) bucket;
+					putFile(localBucket.getDirectory(), new Path(temp), new Path(dst),
+							checksums);
+				}
 			}
 
 			@Override
 			public void get(Bucket remoteBucket, File temp, File dst)
 					throws IOException {
-				getFile(new Path(remoteBucket.getPath()), temp, dst);
+				get(remoteBucket, temp, dst, null);
+			}
+
+			@Override
+			public void get(Bucket remoteBucket, File temp, File dst,
+					ChecksumManifest checksums) throws IOException {
+				getFile(new Path(remoteBucket.getPath()), temp, dst, checksums);
 			}
 		};
 	}
@@ -141,7 +249,7 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 
 			@Override
 			public void cleanTransaction(Bucket bucket, String temp) {
-				deletePath(temp);
+				deleteTempPath(temp);
 			}
 		};
 	}
@@ -152,7 +260,7 @@ public class HadoopArchiveFileSystem implements ArchiveFileSystem,
 
 			@Override
 			public void cleanTransaction(String file, String temp) {
-				deletePath(temp);
+				deleteTempPath(temp);
 			}
 		};
 	}
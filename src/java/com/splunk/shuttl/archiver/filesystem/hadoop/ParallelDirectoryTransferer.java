@@ -0,0 +1,802 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.checksum.ChecksumMismatchException;
+import com.splunk.shuttl.archiver.checksum.Checksummer;
+import com.splunk.shuttl.archiver.checksum.FileChecksum;
+import com.splunk.shuttl.archiver.filesystem.FileTransferPool;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Transfers directories between the local file system and a hadoop file
+ * system, one file per thread. The directory tree is walked and created once
+ * before any file is transferred, and the largest files are transferred first
+ * so that a large journal doesn't start last and finish long after the rest.<br/>
+ * <br/>
+ * Transfers are resumable. While transferring, a {@link TransferManifest} next
+ * to the destination records what is durable. If a transfer fails, the
+ * manifest and the transferred files are left, and a retried transfer of the
+ * same source only copies what is missing. Large files are checkpointed in
+ * chunks when getting, and when putting to a file system that supports
+ * append. Otherwise they are checkpointed when complete.<br/>
+ * <br/>
+ * Given a {@link ChecksumManifest}, the CRC32 and SHA-256 of every file is
+ * computed from the bytes as they are copied. A put adds the checksums to the
+ * manifest and a get verifies the files against it. Only the part of a file
+ * that an earlier attempt already transferred is read an extra time.
+ */
+public class ParallelDirectoryTransferer {
+
+	private static final Logger logger = Logger
+			.getLogger(ParallelDirectoryTransferer.class);
+
+	public static final long DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+	private static final long CHECKPOINT_INTERVAL_MILLIS = 1000;
+	private static final String MANIFEST_SUFFIX = ".manifest";
+	private static final String MANIFEST_ENCODING = "UTF-8";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileSystem hadoopFileSystem;
+	private final ExecutorService executorService;
+	private final long chunkSize;
+	private final TransferThrottle throttle;
+	private final boolean appendSupported;
+	private final String backendName;
+
+	public ParallelDirectoryTransferer(FileSystem hadoopFileSystem,
+			ExecutorService executorService) {
+		this(hadoopFileSystem, executorService, DEFAULT_CHUNK_SIZE);
+	}
+
+	public ParallelDirectoryTransferer(FileSystem hadoopFileSystem,
+			ExecutorService executorService, long chunkSize) {
+		this(hadoopFileSystem, executorService, chunkSize, TransferThrottle
+				.createUnlimited());
+	}
+
+	public ParallelDirectoryTransferer(FileSystem hadoopFileSystem,
+			ExecutorService executorService, long chunkSize,
+			TransferThrottle throttle) {
+		this.hadoopFileSystem = hadoopFileSystem;
+		this.executorService = executorService;
+		this.chunkSize = chunkSize;
+		this.throttle = throttle;
+		this.appendSupported = isAppendSupported(hadoopFileSystem);
+		this.backendName = HadoopArchiveFileSystem
+				.getBackendName(hadoopFileSystem);
+	}
+
+	private static boolean isAppendSupported(FileSystem fileSystem) {
+		Configuration conf = fileSystem.getConf();
+		return conf != null && conf.getBoolean("dfs.support.append", false);
+	}
+
+	/**
+	 * @return path of the manifest for a transfer to the destination.
+	 */
+	public static String getManifestPath(String dst) {
+		return dst + MANIFEST_SUFFIX;
+	}
+
+	/**
+	 * Put a local file or directory to a path on the hadoop file system. Resumes
+	 * an earlier failed put of the same source to the same path.
+	 */
+	public void put(File src, Path dst) throws IOException {
+		put(src, dst, null);
+	}
+
+	/**
+	 * Put a local file or directory and add the checksum of every file to the
+	 * manifest, by its path relative to the source.
+	 * 
+	 * @param checksums
+	 *          manifest to add the checksums to, or null to not compute any.
+	 */
+	public void put(File src, Path dst, ChecksumManifest checksums)
+			throws IOException {
+		if (!src.exists())
+			throw new FileNotFoundException("File does not exist: " + src);
+		List<Path> directories = new ArrayList<Path>();
+		List<FileCopy> copies = new ArrayList<FileCopy>();
+		if (src.isDirectory())
+			addPutsForDirectory(src, dst, "", directories, copies);
+		else
+			copies.add(new PutFile(src, dst, src.getName()));
+
+		ManifestFile manifestFile = new RemoteManifestFile(new Path(
+				getManifestPath(dst.toString())));
+		TransferManifest manifest = readManifest(manifestFile,
+				src.getAbsolutePath(), copies);
+		if (manifest == null) {
+			hadoopFileSystem.delete(dst, true);
+			manifest = new TransferManifest(src.getAbsolutePath());
+		}
+		for (Path directory : directories)
+			hadoopFileSystem.mkdirs(directory);
+		transfer(copies, new Checkpoint(manifest, manifestFile), checksums);
+	}
+
+	private void addPutsForDirectory(File dir, Path dst, String relativePath,
+			List<Path> directories, List<FileCopy> copies) throws IOException {
+		directories.add(dst);
+		File[] children = dir.listFiles();
+		if (children == null)
+			throw new IOException("Could not list directory: " + dir);
+		for (File child : children) {
+			Path childDst = new Path(dst, child.getName());
+			String childPath = relativePath + "/" + child.getName();
+			if (child.isDirectory())
+				addPutsForDirectory(child, childDst, childPath, directories, copies);
+			else
+				copies.add(new PutFile(child, childDst, childPath));
+		}
+	}
+
+	/**
+	 * Get a file or directory on the hadoop file system to a local path.
+	 * Resumes an earlier failed get of the same source to the same path.
+	 */
+	public void get(Path src, File dst) throws IOException {
+		get(src, dst, null);
+	}
+
+	/**
+	 * Get a file or directory and verify the files against the checksums in the
+	 * manifest. Files that are not in the manifest are not verified.
+	 * 
+	 * @param checksums
+	 *          manifest to verify against, or null to not verify.
+	 * @throws ChecksumMismatchException
+	 *           if a file doesn't match its checksum, or a file in the manifest
+	 *           doesn't exist.
+	 */
+	public void get(Path src, File dst, ChecksumManifest checksums)
+			throws IOException {
+		FileStatus status = hadoopFileSystem.getFileStatus(src);
+		List<File> directories = new ArrayList<File>();
+		List<FileCopy> copies = new ArrayList<FileCopy>();
+		if (status.isDir())
+			addGetsForDirectory(src, dst, "", directories, copies);
+		else
+			copies.add(new GetFile(status, dst, src.getName()));
+
+		ManifestFile manifestFile = new LocalManifestFile(new File(
+				getManifestPath(dst.getAbsolutePath())));
+		TransferManifest manifest = readManifest(manifestFile, src.toString(),
+				copies);
+		if (manifest == null) {
+			FileUtils.deleteQuietly(dst);
+			manifest = new TransferManifest(src.toString());
+		}
+		for (File directory : directories)
+			if (!directory.mkdirs() && !directory.isDirectory())
+				throw new IOException("Could not create directory: " + directory);
+		if (checksums != null)
+			checksums.verifyAllTransferred(getPaths(copies));
+		transfer(copies, new Checkpoint(manifest, manifestFile), checksums);
+	}
+
+	private void addGetsForDirectory(Path dir, File dst, String relativePath,
+			List<File> directories, List<FileCopy> copies) throws IOException {
+		directories.add(dst);
+		FileStatus[] children = hadoopFileSystem.listStatus(dir);
+		if (children == null)
+			throw new IOException("Could not list directory: " + dir);
+		for (FileStatus child : children) {
+			String name = child.getPath().getName();
+			File childDst = new File(dst, name);
+			String childPath = relativePath + "/" + name;
+			if (child.isDir())
+				addGetsForDirectory(child.getPath(), childDst, childPath,
+						directories, copies);
+			else
+				copies.add(new GetFile(child, childDst, childPath));
+		}
+	}
+
+	/**
+	 * @return the manifest of an earlier transfer of the same source and files,
+	 *         or null if the transfer has to start over.
+	 */
+	private TransferManifest readManifest(ManifestFile manifestFile,
+			String source, List<FileCopy> copies) throws IOException {
+		String contents = manifestFile.read();
+		if (contents == null)
+			return null;
+		TransferManifest manifest = TransferManifest.parse(contents);
+		if (manifest == null || !manifest.getSource().equals(source)
+				|| !getPaths(copies).containsAll(manifest.getPaths())) {
+			logger.info(happened("Found a manifest that does not match the transfer."
+					+ " Will transfer everything", "manifest", manifestFile,
+					"source", source));
+			return null;
+		}
+		logger.info(will("Resume transfer", "manifest", manifestFile, "source",
+				source));
+		return manifest;
+	}
+
+	private static Set<String> getPaths(List<FileCopy> copies) {
+		Set<String> paths = new HashSet<String>();
+		for (FileCopy copy : copies)
+			paths.add(copy.path);
+		return paths;
+	}
+
+	private void transfer(List<FileCopy> copies, Checkpoint checkpoint,
+			ChecksumManifest checksums) throws IOException {
+		for (FileCopy copy : copies) {
+			copy.checkpoint = checkpoint;
+			copy.checksums = checksums;
+		}
+		try {
+			if (copies.size() == 1) {
+				copies.get(0).call();
+			} else {
+				Collections.sort(copies, new LargestFirst());
+				List<Future<Void>> futures = new ArrayList<Future<Void>>();
+				for (FileCopy copy : copies)
+					futures.add(executorService.submit(copy));
+				waitForAll(futures);
+			}
+		} catch (IOException e) {
+			checkpoint.saveQuietly();
+			throw e;
+		} catch (RuntimeException e) {
+			checkpoint.saveQuietly();
+			throw e;
+		}
+		checkpoint.delete();
+	}
+
+	private void waitForAll(List<Future<Void>> futures) throws IOException {
+		Throwable firstException = null;
+		boolean interrupted = false;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (firstException == null)
+						firstException = e.getCause();
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (firstException != null)
+			throwAsIOException(firstException);
+	}
+
+	private static void throwAsIOException(Throwable t) throws IOException {
+		if (t instanceof IOException)
+			throw (IOException) t;
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new IOException(t);
+	}
+
+	private static class LargestFirst implements Comparator<FileCopy> {
+
+		@Override
+		public int compare(FileCopy a, FileCopy b) {
+			long x = a.getLength();
+			long y = b.getLength();
+			return x > y ? -1 : (x == y ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Keeps the manifest of a transfer and persists it. Saving is throttled, so
+	 * that a directory of small files doesn't write the manifest once per file.
+	 * A lost update only means that a file is transferred again.
+	 */
+	private static class Checkpoint {
+
+		private final TransferManifest manifest;
+		private final ManifestFile manifestFile;
+		private long lastSaved;
+
+		public Checkpoint(TransferManifest manifest, ManifestFile manifestFile) {
+			this.manifest = manifest;
+			this.manifestFile = manifestFile;
+			this.lastSaved = System.currentTimeMillis();
+		}
+
+		public long getDurableBytes(FileCopy copy) {
+			return manifest.getDurableBytes(copy.path, copy.getLength(),
+					copy.getLastModified());
+		}
+
+		public void setDurableBytes(FileCopy copy, long durableBytes,
+				boolean force) throws IOException {
+			manifest.setDurableBytes(copy.path, copy.getLength(),
+					copy.getLastModified(), durableBytes);
+			synchronized (this) {
+				long now = System.currentTimeMillis();
+				if (force || now - lastSaved >= CHECKPOINT_INTERVAL_MILLIS) {
+					manifestFile.write(manifest.format());
+					lastSaved = now;
+				}
+			}
+		}
+
+		public synchronized void saveQuietly() {
+			if (manifest.getPaths().isEmpty())
+				return;
+			try {
+				manifestFile.write(manifest.format());
+			} catch (IOException e) {
+				logger.warn(warn("Saved transfer manifest", e,
+						"The transfer will resume from the last saved checkpoint",
+						"manifest", manifestFile));
+			}
+		}
+
+		public synchronized void delete() throws IOException {
+			manifestFile.delete();
+		}
+	}
+
+	private static abstract class ManifestFile {
+
+		/**
+		 * @return the contents of the manifest, or null if there is none.
+		 */
+		public abstract String read() throws IOException;
+
+		public abstract void write(String manifest) throws IOException;
+
+		public abstract void delete() throws IOException;
+	}
+
+	private class RemoteManifestFile extends ManifestFile {
+
+		private final Path path;
+
+		public RemoteManifestFile(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public String read() throws IOException {
+			if (!hadoopFileSystem.exists(path))
+				return null;
+			InputStream in = hadoopFileSystem.open(path);
+			try {
+				return IOUtils.toString(in, MANIFEST_ENCODING);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+
+		@Override
+		public void write(String manifest) throws IOException {
+			OutputStream out = hadoopFileSystem.create(path, true);
+			try {
+				out.write(manifest.getBytes(MANIFEST_ENCODING));
+			} finally {
+				out.close();
+			}
+		}
+
+		@Override
+		public void delete() throws IOException {
+			hadoopFileSystem.delete(path, false);
+		}
+
+		@Override
+		public String toString() {
+			return path.toString();
+		}
+	}
+
+	private static class LocalManifestFile extends ManifestFile {
+
+		private final File file;
+
+		public LocalManifestFile(File file) {
+			this.file = file;
+		}
+
+		@Override
+		public String read() throws IOException {
+			if (!file.exists())
+				return null;
+			return FileUtils.readFileToString(file, MANIFEST_ENCODING);
+		}
+
+		@Override
+		public void write(String manifest) throws IOException {
+			File tmp = new File(file.getPath() + ".tmp");
+			FileUtils.forceMkdir(file.getParentFile());
+			FileOutputStream out = new FileOutputStream(tmp);
+			try {
+				out.write(manifest.getBytes(MANIFEST_ENCODING));
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				FileUtils.deleteQuietly(file);
+				if (!tmp.renameTo(file))
+					throw new IOException("Could not write manifest: " + file);
+			}
+		}
+
+		@Override
+		public void delete() throws IOException {
+			FileUtils.deleteQuietly(file);
+		}
+
+		@Override
+		public String toString() {
+			return file.toString();
+		}
+	}
+
+	/**
+	 * Copies one file, from where an earlier attempt left off. A chunked copy
+	 * closes and checkpoints the destination every chunk.
+	 */
+	private abstract class FileCopy implements Callable<Void> {
+
+		protected final String path;
+		protected Checkpoint checkpoint;
+		protected ChecksumManifest checksums;
+
+		protected FileCopy(String path) {
+			this.path = path;
+		}
+
+		protected abstract long getLength();
+
+		protected abstract long getLastModified();
+
+		protected abstract boolean isChunked();
+
+		/**
+		 * @return true if the destination holds exactly the durable bytes.
+		 */
+		protected abstract boolean canResumeAt(long durableBytes)
+				throws IOException;
+
+		protected abstract InputStream openInput(long offset) throws IOException;
+
+		protected abstract OutputStream openOutput(long offset)
+				throws IOException;
+
+		/**
+		 * @return the local side of the copy, for checksumming what an earlier
+		 *         attempt already copied.
+		 */
+		protected abstract File getLocalFile();
+
+		/**
+		 * Called with the checksum of the whole file, once it is copied.
+		 */
+		protected abstract void checksummed(FileChecksum checksum)
+				throws IOException;
+
+		/**
+		 * Make what was written to the stream durable and close it.
+		 */
+		protected void closeDurably(OutputStream out) throws IOException {
+			out.close();
+		}
+
+		@Override
+		public Void call() throws IOException {
+			try {
+				copy();
+				return null;
+			} catch (IOException e) {
+				logger.error(did("Transferred file", e, "To transfer the file",
+						"file", this));
+				throw e;
+			}
+		}
+
+		private void copy() throws IOException {
+			long length = getLength();
+			long offset = checkpoint.getDurableBytes(this);
+			if (length > 0 && offset == length) {
+				if (checksums != null)
+					checksummed(checksumLocalFile(length).getChecksum());
+				return;
+			}
+			if (offset > 0 && !canResumeAt(offset))
+				offset = 0;
+			Checksummer checksummer = checksums == null ? null
+					: checksumLocalFile(offset);
+			InputStream in = openInput(offset);
+			try {
+				do {
+					long toCopy = isChunked() ? Math.min(chunkSize, length - offset)
+							: length - offset;
+					OutputStream out = openOutput(offset);
+					long copied;
+					try {
+						copied = copy(in, out, toCopy, checksummer);
+					} catch (IOException e) {
+						IOUtils.closeQuietly(out);
+						throw e;
+					}
+					closeDurably(out);
+					offset += copied;
+					boolean complete = offset >= length;
+					checkpoint.setDurableBytes(this, offset, isChunked() && !complete);
+				} while (offset < length);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+			if (checksummer != null)
+				checksummed(checksummer.getChecksum());
+		}
+
+		/**
+		 * @return checksummer that has read the first bytes of the local file.
+		 */
+		private Checksummer checksumLocalFile(long bytes) throws IOException {
+			Checksummer checksummer = new Checksummer();
+			if (bytes == 0)
+				return checksummer;
+			InputStream in = throttle.throttleDiskRead(new FileInputStream(
+					getLocalFile()));
+			try {
+				copy(in, null, bytes, checksummer);
+			} finally {
+				in.close();
+			}
+			return checksummer;
+		}
+
+		private long copy(InputStream in, OutputStream out, long length,
+				Checksummer checksummer) throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long copied = 0;
+			while (copied < length) {
+				int read = in.read(buffer, 0,
+						(int) Math.min(buffer.length, length - copied));
+				if (read == -1)
+					throw new IOException("File ended after " + copied + " of "
+							+ length + " bytes: " + this);
+				if (checksummer != null)
+					checksummer.update(buffer, 0, read);
+				if (out != null)
+					out.write(buffer, 0, read);
+				copied += read;
+			}
+			return copied;
+		}
+	}
+
+	private class PutFile extends FileCopy {
+
+		private final File src;
+		private final Path dst;
+		private final long length;
+		private final long lastModified;
+		private FSDataOutputStream out;
+
+		public PutFile(File src, Path dst, String path) {
+			super(path);
+			this.src = src;
+			this.dst = dst;
+			this.length = src.length();
+			this.lastModified = src.lastModified();
+		}
+
+		@Override
+		protected long getLength() {
+			return length;
+		}
+
+		@Override
+		protected long getLastModified() {
+			return lastModified;
+		}
+
+		@Override
+		protected boolean isChunked() {
+			return appendSupported;
+		}
+
+		@Override
+		protected boolean canResumeAt(long durableBytes) throws IOException {
+			try {
+				return appendSupported
+						&& hadoopFileSystem.getFileStatus(dst).getLen() == durableBytes;
+			} catch (FileNotFoundException e) {
+				return false;
+			}
+		}
+
+		@Override
+		protected File getLocalFile() {
+			return src;
+		}
+
+		@Override
+		protected void checksummed(FileChecksum checksum) {
+			checksums.put(path, checksum);
+		}
+
+		@Override
+		protected InputStream openInput(long offset) throws IOException {
+			FileInputStream in = new FileInputStream(src);
+			in.getChannel().position(offset);
+			return throttle.throttleDiskRead(in);
+		}
+
+		@Override
+		protected OutputStream openOutput(long offset) throws IOException {
+			if (offset == 0)
+				out = hadoopFileSystem.create(dst, true);
+			else
+				out = hadoopFileSystem.append(dst);
+			return throttle.throttleNetworkWrite(out, backendName);
+		}
+
+		@Override
+		protected void closeDurably(OutputStream throttled) throws IOException {
+			throttled.flush();
+			out.sync();
+			throttled.close();
+		}
+
+		@Override
+		public String toString() {
+			return src + " -> " + dst;
+		}
+	}
+
+	private class GetFile extends FileCopy {
+
+		private final FileStatus src;
+		private final File dst;
+		private FileOutputStream out;
+
+		public GetFile(FileStatus src, File dst, String path) {
+			super(path);
+			this.src = src;
+			this.dst = dst;
+		}
+
+		@Override
+		protected long getLength() {
+			return src.getLen();
+		}
+
+		@Override
+		protected long getLastModified() {
+			return src.getModificationTime();
+		}
+
+		@Override
+		protected boolean isChunked() {
+			return true;
+		}
+
+		@Override
+		protected boolean canResumeAt(long durableBytes) throws IOException {
+			if (dst.length() < durableBytes)
+				return false;
+			RandomAccessFile file = new RandomAccessFile(dst, "rw");
+			try {
+				file.setLength(durableBytes);
+			} finally {
+				file.close();
+			}
+			return true;
+		}
+
+		@Override
+		protected File getLocalFile() {
+			return dst;
+		}
+
+		/**
+		 * Forgets the copied file if it doesn't match, so that a retry gets it
+		 * again.
+		 */
+		@Override
+		protected void checksummed(FileChecksum checksum) throws IOException {
+			if (checksums.get(path) == null)
+				return;
+			try {
+				checksums.verify(path, checksum);
+			} catch (ChecksumMismatchException e) {
+				checkpoint.setDurableBytes(this, 0, true);
+				throw e;
+			}
+		}
+
+		@Override
+		protected InputStream openInput(long offset) throws IOException {
+			FSDataInputStream in = hadoopFileSystem.open(src.getPath());
+			if (offset > 0)
+				in.seek(offset);
+			return throttle.throttleNetworkRead(in, backendName);
+		}
+
+		@Override
+		protected OutputStream openOutput(long offset) throws IOException {
+			File parent = dst.getParentFile();
+			if (parent != null && !parent.mkdirs() && !parent.isDirectory())
+				throw new IOException("Could not create directory: " + parent);
+			out = new FileOutputStream(dst, offset > 0);
+			return out;
+		}
+
+		@Override
+		protected void closeDurably(OutputStream stream) throws IOException {
+			out.getFD().sync();
+			stream.close();
+		}
+
+		@Override
+		public String toString() {
+			return src.getPath() + " -> " + dst;
+		}
+	}
+
+	public static ParallelDirectoryTransferer create(
+			FileSystem hadoopFileSystem) {
+		return new ParallelDirectoryTransferer(hadoopFileSystem, FileTransferPool
+				.getSharedInstance().getExecutorService(), DEFAULT_CHUNK_SIZE,
+				TransferThrottle.getSharedInstance());
+	}
+}
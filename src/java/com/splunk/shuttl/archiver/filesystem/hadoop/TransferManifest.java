@@ -0,0 +1,135 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records how much of each file in a transfer is durable at the destination,
+ * so that a retried transfer only has to copy what is missing. A file is
+ * identified by its path relative to the transferred directory, together with
+ * the length and modification time it had at the source. If the source file
+ * has changed since, none of it counts as transferred.
+ */
+public class TransferManifest {
+
+	private static final String HEADER = "shuttl-transfer-manifest 1";
+	private static final String SOURCE = "source ";
+	private static final String SEPARATOR = "\t";
+
+	private final String source;
+	private final Map<String, Entry> entries;
+
+	public TransferManifest(String source) {
+		this.source = source;
+		this.entries = new TreeMap<String, Entry>();
+	}
+
+	/**
+	 * @return the source that was transferred.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return number of bytes of the file that are durable at the destination.
+	 *         Zero if the file is not in the manifest or if it has changed.
+	 */
+	public synchronized long getDurableBytes(String path, long length,
+			long lastModified) {
+		Entry entry = entries.get(path);
+		if (entry == null || entry.length != length
+				|| entry.lastModified != lastModified)
+			return 0;
+		else
+			return entry.durableBytes;
+	}
+
+	public synchronized void setDurableBytes(String path, long length,
+			long lastModified, long durableBytes) {
+		entries.put(path, new Entry(length, lastModified, durableBytes));
+	}
+
+	/**
+	 * @return the paths of all the files in the manifest.
+	 */
+	public synchronized Set<String> getPaths() {
+		return new TreeSet<String>(entries.keySet());
+	}
+
+	public synchronized String format() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(HEADER).append('\n');
+		sb.append(SOURCE).append(source).append('\n');
+		for (Map.Entry<String, Entry> e : entries.entrySet()) {
+			Entry entry = e.getValue();
+			sb.append(entry.durableBytes).append(SEPARATOR);
+			sb.append(entry.length).append(SEPARATOR);
+			sb.append(entry.lastModified).append(SEPARATOR);
+			sb.append(e.getKey()).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return manifest parsed from the string, or null if the string is not a
+	 *         complete manifest. A manifest that was cut off while written is
+	 *         treated as no manifest, which only means that more is transferred.
+	 */
+	public static TransferManifest parse(String manifest) {
+		if (!manifest.endsWith("\n"))
+			return null;
+		String[] lines = manifest.split("\n");
+		if (lines.length < 2 || !lines[0].equals(HEADER)
+				|| !lines[1].startsWith(SOURCE))
+			return null;
+		TransferManifest parsed = new TransferManifest(
+				lines[1].substring(SOURCE.length()));
+		for (int i = 2; i < lines.length; i++)
+			if (!parseEntry(parsed, lines[i]))
+				return null;
+		return parsed;
+	}
+
+	private static boolean parseEntry(TransferManifest manifest, String line) {
+		String[] fields = line.split(SEPARATOR, 4);
+		if (fields.length != 4)
+			return false;
+		try {
+			manifest.setDurableBytes(fields[3], Long.parseLong(fields[1]),
+					Long.parseLong(fields[2]), Long.parseLong(fields[0]));
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static class Entry {
+
+		private final long length;
+		private final long lastModified;
+		private final long durableBytes;
+
+		public Entry(long length, long lastModified, long durableBytes) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.durableBytes = durableBytes;
+		}
+	}
+}
@@ -0,0 +1,667 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.splunk.shuttl.archiver.filesystem.FileTransferPool;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Transfers files and directories between the local file system and an S3
+ * bucket, on the threads of a shared pool. Objects larger than the part size
+ * are uploaded with multipart uploads, gotten with ranged gets and copied with
+ * multipart copies, one part per task, so that a single large file is
+ * transferred in parallel too.<br/>
+ * <br/>
+ * A directory is stored as one object per file, keyed by the directory's key
+ * and the file's relative path. Empty directories are stored as empty objects
+ * with keys ending with a slash. When getting, the folder markers of Hadoop's
+ * s3n file system are made into directories as well.
+ */
+public class ParallelS3Transferer {
+
+	private static final Logger logger = Logger
+			.getLogger(ParallelS3Transferer.class);
+
+	public static final long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+	public static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+	/* package-private */static final int MAX_PARTS = 10000;
+	/* package-private */static final String DELIMITER = "/";
+	/* package-private */static final String HADOOP_FOLDER_SUFFIX = "_$folder$";
+	private static final int MAX_KEYS_PER_DELETE = 1000;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final AmazonS3 s3;
+	private final String bucket;
+	private final ExecutorService executorService;
+	private final long partSize;
+	private final TransferThrottle throttle;
+
+	public ParallelS3Transferer(AmazonS3 s3, String bucket,
+			ExecutorService executorService, long partSize,
+			TransferThrottle throttle) {
+		this.s3 = s3;
+		this.bucket = bucket;
+		this.executorService = executorService;
+		this.partSize = partSize;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Put a local file or directory to a key in the bucket.
+	 */
+	public void put(File src, String dst) throws IOException {
+		if (!src.exists())
+			throw new FileNotFoundException("File does not exist: " + src);
+		List<ObjectTransfer> puts = new ArrayList<ObjectTransfer>();
+		if (src.isDirectory())
+			addPutsForDirectory(src, dst, puts);
+		else
+			puts.add(new PutFile(src, dst));
+		try {
+			transfer(puts);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void addPutsForDirectory(File dir, String key,
+			List<ObjectTransfer> puts) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null)
+			throw new IOException("Could not list directory: " + dir);
+		if (files.length == 0)
+			puts.add(new PutDirectoryMarker(key + DELIMITER));
+		for (File file : files)
+			if (file.isDirectory())
+				addPutsForDirectory(file, key + DELIMITER + file.getName(), puts);
+			else
+				puts.add(new PutFile(file, key + DELIMITER + file.getName()));
+	}
+
+	/**
+	 * Get the object or the directory with a key to a local path.
+	 * 
+	 * @throws FileNotFoundException
+	 *           if there is nothing with the key.
+	 */
+	public void get(String src, File dst) throws IOException {
+		try {
+			doGet(src, dst);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void doGet(String src, File dst) throws IOException {
+		List<ObjectTransfer> gets = new ArrayList<ObjectTransfer>();
+		ObjectMetadata metadata = getMetadataOrNull(src);
+		if (metadata != null)
+			gets.add(new GetObject(src, dst, metadata.getContentLength()));
+		else if (!addGetsForDirectory(src, dst, gets))
+			throw new FileNotFoundException("Nothing in bucket: " + bucket
+					+ " with key: " + src);
+		transfer(gets);
+	}
+
+	private boolean addGetsForDirectory(String key, File dst,
+			List<ObjectTransfer> gets) throws IOException {
+		String prefix = key + DELIMITER;
+		List<S3ObjectSummary> summaries = listObjects(prefix);
+		for (S3ObjectSummary summary : summaries) {
+			String relative = summary.getKey().substring(prefix.length());
+			if (relative.isEmpty() || relative.endsWith(DELIMITER))
+				mkdirs(new File(dst, relative));
+			else if (relative.endsWith(HADOOP_FOLDER_SUFFIX))
+				mkdirs(new File(dst, relative.substring(0, relative.length()
+						- HADOOP_FOLDER_SUFFIX.length())));
+			else
+				gets.add(new GetObject(summary.getKey(), new File(dst, relative),
+						summary.getSize()));
+		}
+		return !summaries.isEmpty();
+	}
+
+	private static void mkdirs(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Could not create directory: " + dir);
+	}
+
+	/**
+	 * @return length of the object with the key.
+	 * @throws FileNotFoundException
+	 *           if there is no object with the key.
+	 */
+	public long getLength(String key) throws IOException {
+		try {
+			ObjectMetadata metadata = getMetadataOrNull(key);
+			if (metadata == null)
+				throw new FileNotFoundException("No object in bucket: " + bucket
+						+ " with key: " + key);
+			return metadata.getContentLength();
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return stream of a range of the object with the key, read with a single
+	 *         ranged get.
+	 */
+	public InputStream openRange(String key, long offset, long length)
+			throws IOException {
+		if (length == 0)
+			return new ByteArrayInputStream(new byte[0]);
+		try {
+			GetObjectRequest request = new GetObjectRequest(bucket, key);
+			request.setRange(offset, offset + length - 1);
+			S3Object object = s3.getObject(request);
+			return throttle.throttleNetworkRead(object.getObjectContent(),
+					S3ArchiveFileSystem.BACKEND_NAME);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Moves the object or the directory with a key to another key, by copying
+	 * it within the bucket and deleting the source.
+	 * 
+	 * @throws FileNotFoundException
+	 *           if there is nothing with the key.
+	 */
+	public void move(String src, String dst) throws IOException {
+		try {
+			doMove(src, dst);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void doMove(String src, String dst) throws IOException {
+		List<ObjectTransfer> copies = new ArrayList<ObjectTransfer>();
+		List<String> sources = new ArrayList<String>();
+		ObjectMetadata metadata = getMetadataOrNull(src);
+		if (metadata != null) {
+			copies.add(new CopyObject(src, dst, metadata.getContentLength()));
+			sources.add(src);
+		} else {
+			for (S3ObjectSummary summary : listObjects(src + DELIMITER)) {
+				String key = summary.getKey();
+				copies.add(new CopyObject(key, dst + key.substring(src.length()),
+						summary.getSize()));
+				sources.add(key);
+			}
+		}
+		if (copies.isEmpty())
+			throw new FileNotFoundException("Nothing in bucket: " + bucket
+					+ " with key: " + src);
+		transfer(copies);
+		deleteKeys(sources);
+	}
+
+	/**
+	 * Deletes the object or the directory with a key, if there is one.
+	 */
+	public void delete(String key) throws IOException {
+		try {
+			List<String> keys = new ArrayList<String>();
+			keys.add(key);
+			for (S3ObjectSummary summary : listObjects(key + DELIMITER))
+				keys.add(summary.getKey());
+			deleteKeys(keys);
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void deleteKeys(List<String> keys) {
+		for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_DELETE) {
+			List<KeyVersion> batch = new ArrayList<KeyVersion>();
+			for (String key : keys.subList(i,
+					Math.min(keys.size(), i + MAX_KEYS_PER_DELETE)))
+				batch.add(new KeyVersion(key));
+			s3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(batch));
+		}
+	}
+
+	/**
+	 * @return metadata of the object with the key, or null if there is no such
+	 *         object.
+	 */
+	/* package-private */ObjectMetadata getMetadataOrNull(String key) {
+		if (key.isEmpty())
+			return null;
+		try {
+			return s3.getObjectMetadata(bucket, key);
+		} catch (AmazonServiceException e) {
+			if (e.getStatusCode() == 404)
+				return null;
+			throw e;
+		}
+	}
+
+	/**
+	 * @return all objects with keys starting with the prefix, listed page by
+	 *         page.
+	 */
+	/* package-private */List<S3ObjectSummary> listObjects(String prefix) {
+		List<S3ObjectSummary> summaries = new ArrayList<S3ObjectSummary>();
+		ObjectListing listing = s3.listObjects(new ListObjectsRequest()
+				.withBucketName(bucket).withPrefix(prefix));
+		summaries.addAll(listing.getObjectSummaries());
+		while (listing.isTruncated()) {
+			listing = s3.listNextBatchOfObjects(listing);
+			summaries.addAll(listing.getObjectSummaries());
+		}
+		return summaries;
+	}
+
+	/**
+	 * Starts every transfer, transfers all their parts in parallel and finishes
+	 * them. If anything fails, the transfers that were started are aborted.
+	 */
+	private void transfer(List<ObjectTransfer> transfers) throws IOException {
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		boolean transferred = false;
+		try {
+			for (ObjectTransfer transfer : transfers) {
+				transfer.start();
+				for (Part part : transfer.getParts())
+					futures.add(executorService.submit(part));
+			}
+			waitForAll(futures);
+			for (ObjectTransfer transfer : transfers)
+				transfer.finish();
+			transferred = true;
+		} finally {
+			if (!transferred) {
+				for (Future<Void> future : futures)
+					future.cancel(true);
+				for (ObjectTransfer transfer : transfers)
+					transfer.abortQuietly();
+			}
+		}
+	}
+
+	private void waitForAll(List<Future<Void>> futures) throws IOException {
+		Throwable firstException = null;
+		boolean interrupted = false;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (firstException == null)
+						firstException = e.getCause();
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (firstException != null)
+			throwAsIOException(firstException);
+	}
+
+	private static void throwAsIOException(Throwable t) throws IOException {
+		if (t instanceof IOException)
+			throw (IOException) t;
+		if (t instanceof AmazonClientException)
+			throw new IOException(t);
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new IOException(t);
+	}
+
+	/**
+	 * @return size of the parts of an object, large enough for the object to
+	 *         have no more parts than S3 allows.
+	 */
+	/* package-private */long getPartSize(long length) {
+		return Math.max(partSize, (length + MAX_PARTS - 1) / MAX_PARTS);
+	}
+
+	/**
+	 * A transfer of one object, in one or more parts.
+	 */
+	private abstract class ObjectTransfer {
+
+		protected final long length;
+
+		protected ObjectTransfer(long length) {
+			this.length = length;
+		}
+
+		protected boolean isParted() {
+			return length > partSize;
+		}
+
+		/**
+		 * @return the parts that cover the object, or a single part if the
+		 *         object is not transferred in parts.
+		 */
+		public List<Part> getParts() {
+			List<Part> parts = new ArrayList<Part>();
+			if (!isParted()) {
+				parts.add(new Part(this, 1, 0, length));
+			} else {
+				long size = getPartSize(length);
+				for (long offset = 0; offset < length; offset += size)
+					parts.add(new Part(this, parts.size() + 1, offset, Math.min(size,
+							length - offset)));
+			}
+			return parts;
+		}
+
+		/**
+		 * Called before any part is transferred.
+		 */
+		public abstract void start() throws IOException;
+
+		public abstract void transferPart(int partNumber, long offset, long size)
+				throws IOException;
+
+		/**
+		 * Called once every part is transferred.
+		 */
+		public abstract void finish() throws IOException;
+
+		public abstract void abortQuietly();
+	}
+
+	private static class Part implements Callable<Void> {
+
+		private final ObjectTransfer transfer;
+		private final int partNumber;
+		private final long offset;
+		private final long size;
+
+		public Part(ObjectTransfer transfer, int partNumber, long offset,
+				long size) {
+			this.transfer = transfer;
+			this.partNumber = partNumber;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			transfer.transferPart(partNumber, offset, size);
+			return null;
+		}
+	}
+
+	/**
+	 * A transfer to a key, as a multipart upload when it's transferred in parts.
+	 */
+	private abstract class MultipartTransfer extends ObjectTransfer {
+
+		protected final String key;
+		protected String uploadId;
+		protected PartETag[] partETags;
+
+		protected MultipartTransfer(String key, long length) {
+			super(length);
+			this.key = key;
+		}
+
+		@Override
+		public void start() {
+			if (isParted()) {
+				partETags = new PartETag[getParts().size()];
+				uploadId = s3.initiateMultipartUpload(
+						new InitiateMultipartUploadRequest(bucket, key)).getUploadId();
+			}
+		}
+
+		@Override
+		public void finish() {
+			if (uploadId != null) {
+				s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket,
+						key, uploadId, Arrays.asList(partETags)));
+				uploadId = null;
+			}
+		}
+
+		@Override
+		public void abortQuietly() {
+			if (uploadId == null)
+				return;
+			try {
+				s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key,
+						uploadId));
+			} catch (AmazonClientException e) {
+				logger.warn(warn("Aborted multipart upload", e,
+						"the parts may be stored until the upload is aborted again",
+						"bucket", bucket, "key", key, "upload_id", uploadId));
+			}
+		}
+	}
+
+	private class PutFile extends MultipartTransfer {
+
+		private final File file;
+
+		public PutFile(File file, String key) {
+			super(key, file.length());
+			this.file = file;
+		}
+
+		@Override
+		public void transferPart(int partNumber, long offset, long size)
+				throws IOException {
+			InputStream in = openPart(offset, size);
+			try {
+				if (uploadId == null)
+					s3.putObject(new PutObjectRequest(bucket, key, in,
+							createMetadata(size)));
+				else
+					partETags[partNumber - 1] = s3.uploadPart(
+							new UploadPartRequest().withBucketName(bucket).withKey(key)
+									.withUploadId(uploadId).withPartNumber(partNumber)
+									.withPartSize(size).withInputStream(in)).getPartETag();
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+
+		/**
+		 * Uploads spend from the network budget by how fast the local file is
+		 * read.
+		 */
+		private InputStream openPart(long offset, long size) throws IOException {
+			InputStream in = new FileInputStream(file);
+			try {
+				IOUtils.skipFully(in, offset);
+			} catch (IOException e) {
+				IOUtils.closeQuietly(in);
+				throw e;
+			}
+			return throttle.throttleNetworkRead(
+					throttle.throttleDiskRead(new BoundedInputStream(in, size)),
+					S3ArchiveFileSystem.BACKEND_NAME);
+		}
+	}
+
+	private class PutDirectoryMarker extends MultipartTransfer {
+
+		public PutDirectoryMarker(String key) {
+			super(key, 0);
+		}
+
+		@Override
+		public void transferPart(int partNumber, long offset, long size) {
+			s3.putObject(new PutObjectRequest(bucket, key, new ByteArrayInputStream(
+					new byte[0]), createMetadata(0)));
+		}
+	}
+
+	private static ObjectMetadata createMetadata(long contentLength) {
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength(contentLength);
+		return metadata;
+	}
+
+	private class CopyObject extends MultipartTransfer {
+
+		private final String src;
+
+		public CopyObject(String src, String dst, long length) {
+			super(dst, length);
+			this.src = src;
+		}
+
+		@Override
+		public void transferPart(int partNumber, long offset, long size) {
+			if (uploadId == null) {
+				s3.copyObject(bucket, src, bucket, key);
+			} else {
+				CopyPartResult result = s3.copyPart(new CopyPartRequest()
+						.withSourceBucketName(bucket).withSourceKey(src)
+						.withDestinationBucketName(bucket).withDestinationKey(key)
+						.withUploadId(uploadId).withPartNumber(partNumber)
+						.withFirstByte(offset).withLastByte(offset + size - 1));
+				partETags[partNumber - 1] = new PartETag(result.getPartNumber(),
+						result.getETag());
+			}
+		}
+	}
+
+	/**
+	 * Gets an object to a local file, with one ranged get per part.
+	 */
+	private class GetObject extends ObjectTransfer {
+
+		private final String key;
+		private final File file;
+
+		public GetObject(String key, File file, long length) {
+			super(length);
+			this.key = key;
+			this.file = file;
+		}
+
+		@Override
+		public void start() throws IOException {
+			mkdirs(file.getParentFile());
+			RandomAccessFile out = new RandomAccessFile(file, "rw");
+			try {
+				out.setLength(length);
+			} finally {
+				out.close();
+			}
+		}
+
+		@Override
+		public void transferPart(int partNumber, long offset, long size)
+				throws IOException {
+			if (size == 0)
+				return;
+			GetObjectRequest request = new GetObjectRequest(bucket, key);
+			if (isParted())
+				request.setRange(offset, offset + size - 1);
+			S3Object object = s3.getObject(request);
+			InputStream in = throttle.throttleNetworkRead(object.getObjectContent(),
+					S3ArchiveFileSystem.BACKEND_NAME);
+			try {
+				writeRange(in, offset, size);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+
+		private void writeRange(InputStream in, long offset, long size)
+				throws IOException {
+			RandomAccessFile out = new RandomAccessFile(file, "rw");
+			try {
+				out.seek(offset);
+				byte[] buffer = new byte[BUFFER_SIZE];
+				long remaining = size;
+				while (remaining > 0) {
+					int read = in.read(buffer, 0, (int) Math.min(buffer.length,
+							remaining));
+					if (read == -1)
+						throw new EOFException("Got " + (size - remaining) + " of "
+								+ size + " bytes at offset " + offset + " of key: " + key);
+					out.write(buffer, 0, read);
+					remaining -= read;
+				}
+			} finally {
+				out.close();
+			}
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public void abortQuietly() {
+		}
+	}
+
+	public static ParallelS3Transferer create(AmazonS3 s3, String bucket,
+			long partSize) {
+		return new ParallelS3Transferer(s3, bucket, FileTransferPool
+				.getSharedInstance().getExecutorService(), partSize,
+				TransferThrottle.getSharedInstance());
+	}
+}
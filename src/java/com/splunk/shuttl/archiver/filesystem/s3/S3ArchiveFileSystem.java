@@ -0,0 +1,270 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.archiver.filesystem.s3.ParallelS3Transferer.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
+import com.splunk.shuttl.archiver.filesystem.transaction.bucket.BucketTransactionCleaner;
+import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
+import com.splunk.shuttl.archiver.filesystem.transaction.file.FileTransactionCleaner;
+import com.splunk.shuttl.archiver.filesystem.transaction.file.TransfersFiles;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * {@link ArchiveFileSystem} that talks to S3 with the AWS SDK, instead of
+ * through Hadoop's s3 and s3n file systems. Files are streamed from and to
+ * their local paths in parallel parts by a {@link ParallelS3Transferer},
+ * without being buffered locally first.<br/>
+ * <br/>
+ * Paths are keys in the bucket without the leading slash, which is how s3n
+ * stores them too, so data archived with s3n can be thawed with this back-end.
+ * S3 has no directories, so making directories does nothing and a directory
+ * exists while there are objects in it.<br/>
+ * <br/>
+ * A put of a single object goes straight to the destination key, since S3
+ * only makes an object visible once its put or multipart upload is complete,
+ * and the transaction's commit then has nothing to rename. Directories of many
+ * objects are put to the temp key and copied to the destination on commit, so
+ * that a directory that was only partly put never looks archived.
+ */
+public class S3ArchiveFileSystem implements ArchiveFileSystem,
+		TransactionalFileSystem, ReadsFileRanges {
+
+	public static final String BACKEND_NAME = "s3native";
+
+	private final AmazonS3 s3;
+	private final String bucket;
+	private final ParallelS3Transferer transferer;
+
+	public S3ArchiveFileSystem(AmazonS3 s3, String bucket,
+			ParallelS3Transferer transferer) {
+		this.s3 = s3;
+		this.bucket = bucket;
+		this.transferer = transferer;
+	}
+
+	/* package-private */static String toKey(String path) {
+		String key = path;
+		while (key.startsWith(DELIMITER))
+			key = key.substring(1);
+		while (key.endsWith(DELIMITER))
+			key = key.substring(0, key.length() - 1);
+		return key;
+	}
+
+	private static String toPath(String key) {
+		return DELIMITER + toKey(key);
+	}
+
+	private static String toDirectoryPrefix(String key) {
+		return key.isEmpty() ? key : key + DELIMITER;
+	}
+
+	@Override
+	public List<String> listPath(String pathToBeListed) throws IOException {
+		String key = toKey(pathToBeListed);
+		try {
+			if (transferer.getMetadataOrNull(key) != null)
+				return Collections.singletonList(toPath(key));
+			return new ArrayList<String>(listChildren(key));
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private Set<String> listChildren(String key) {
+		String prefix = toDirectoryPrefix(key);
+		Set<String> children = new LinkedHashSet<String>();
+		ObjectListing listing = s3.listObjects(new ListObjectsRequest()
+				.withBucketName(bucket).withPrefix(prefix).withDelimiter(DELIMITER));
+		while (true) {
+			for (String commonPrefix : listing.getCommonPrefixes())
+				children.add(toPath(commonPrefix));
+			for (S3ObjectSummary summary : listing.getObjectSummaries())
+				addChild(children, prefix, summary.getKey());
+			if (!listing.isTruncated())
+				return children;
+			listing = s3.listNextBatchOfObjects(listing);
+		}
+	}
+
+	private void addChild(Set<String> children, String prefix, String childKey) {
+		if (childKey.equals(prefix))
+			return;
+		if (childKey.endsWith(HADOOP_FOLDER_SUFFIX))
+			children.add(toPath(childKey.substring(0, childKey.length()
+					- HADOOP_FOLDER_SUFFIX.length())));
+		else
+			children.add(toPath(childKey));
+	}
+
+	/**
+	 * Does nothing, since keys don't need their parents to exist.
+	 */
+	@Override
+	public void mkdirs(String path) throws IOException {
+	}
+
+	@Override
+	public void rename(String from, String to) throws IOException {
+		transferer.move(toKey(from), toKey(to));
+	}
+
+	@Override
+	public boolean exists(String path) throws IOException {
+		String key = toKey(path);
+		try {
+			if (transferer.getMetadataOrNull(key) != null)
+				return true;
+			ObjectListing listing = s3.listObjects(new ListObjectsRequest()
+					.withBucketName(bucket).withPrefix(toDirectoryPrefix(key))
+					.withMaxKeys(1));
+			return !listing.getObjectSummaries().isEmpty();
+		} catch (AmazonClientException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public long getFileLength(String path) throws IOException {
+		return transferer.getLength(toKey(path));
+	}
+
+	@Override
+	public InputStream openRange(String path, long offset, long length)
+			throws IOException {
+		return transferer.openRange(toKey(path), offset, length);
+	}
+
+	private void putFile(File src, String temp, String dst) throws IOException {
+		if (exists(dst))
+			throw new FileOverwriteException();
+		if (isOneObject(src)) {
+			transferer.put(src.getAbsoluteFile(), toKey(dst));
+		} else {
+			transferer.delete(toKey(temp));
+			transferer.put(src.getAbsoluteFile(), toKey(temp));
+		}
+	}
+
+	/**
+	 * @return true if the file, or the only file in the directory tree, is put
+	 *         as one object.
+	 */
+	private static boolean isOneObject(File src) {
+		if (src.isFile())
+			return true;
+		File[] children = src.listFiles();
+		return children != null && children.length == 1
+				&& isOneObject(children[0]);
+	}
+
+	private void getFile(String src, File temp, File dst) throws IOException {
+		if (dst.exists())
+			throw new FileOverwriteException();
+		transferer.get(toKey(src), temp.getAbsoluteFile());
+	}
+
+	private void deleteTempPath(String temp) {
+		try {
+			transferer.delete(toKey(temp));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public TransfersBuckets getBucketTransferer() {
+		return new TransfersBuckets() {
+
+			@Override
+			public void put(Bucket bucket, String temp, String dst)
+					throws IOException {
+				putFile(((LocalBucket) bucket).getDirectory(), temp, dst);
+			}
+
+			@Override
+			public void get(Bucket remoteBucket, File temp, File dst)
+					throws IOException {
+				getFile(remoteBucket.getPath(), temp, dst);
+			}
+		};
+	}
+
+	@Override
+	public TransfersFiles getFileTransferer() {
+		return new TransfersFiles() {
+
+			@Override
+			public void put(String localData, String temp, String dst)
+					throws IOException {
+				putFile(new File(localData), temp, dst);
+			}
+
+			@Override
+			public void get(String remoteData, File temp, File dst)
+					throws IOException {
+				getFile(remoteData, temp, dst);
+			}
+		};
+	}
+
+	@Override
+	public BucketTransactionCleaner getBucketTransactionCleaner() {
+		return new BucketTransactionCleaner() {
+
+			@Override
+			public void cleanTransaction(Bucket bucket, String temp) {
+				deleteTempPath(temp);
+			}
+		};
+	}
+
+	@Override
+	public FileTransactionCleaner getFileTransactionCleaner() {
+		return new FileTransactionCleaner() {
+
+			@Override
+			public void cleanTransaction(String file, String temp) {
+				deleteTempPath(temp);
+			}
+		};
+	}
+
+	public static S3ArchiveFileSystem create(AmazonS3 s3, String bucket,
+			long partSize) {
+		return new S3ArchiveFileSystem(s3, bucket, ParallelS3Transferer.create(
+				s3, bucket, partSize));
+	}
+}
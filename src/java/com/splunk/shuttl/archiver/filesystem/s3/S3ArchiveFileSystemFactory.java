@@ -25,12 +25,14 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.log4j.Logger;
 
+import com.amazonaws.services.s3.AmazonS3Client;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.glacier.AWSCredentialsImpl;
 import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
 
 /**
- * Factory for creating an AWS S3 or S3n back-end.
+ * Factory for creating an AWS S3 or S3n back-end, either through Hadoop or
+ * natively with the AWS SDK.
  */
 public class S3ArchiveFileSystemFactory {
 
@@ -51,6 +53,23 @@ public class S3ArchiveFileSystemFactory {
 		return create("s3n");
 	}
 
+	/**
+	 * @return back-end running S3 with the AWS SDK, configured with the amazon
+	 *         properties file.
+	 */
+	public static ArchiveFileSystem createNative() {
+		return createNative(AWSCredentialsImpl.create(), S3Properties.create());
+	}
+
+	public static S3ArchiveFileSystem createNative(
+			AWSCredentialsImpl credentials, S3Properties properties) {
+		AmazonS3Client s3 = new AmazonS3Client(credentials);
+		if (properties.getEndpoint() != null)
+			s3.setEndpoint(properties.getEndpoint());
+		return S3ArchiveFileSystem.create(s3, credentials.getS3Bucket(),
+				properties.getPartSize());
+	}
+
 	private static ArchiveFileSystem create(String scheme) {
 		AWSCredentialsImpl credentials = AWSCredentialsImpl.create();
 		URI s3Uri = createS3UriForHadoopFileSystem(scheme, credentials);
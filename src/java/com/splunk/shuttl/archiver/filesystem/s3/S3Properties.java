@@ -0,0 +1,92 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+
+import com.splunk.shuttl.archiver.filesystem.glacier.AWSCredentialsImpl;
+
+/**
+ * Properties for the native S3 back-end, read from the same file as the
+ * {@link AWSCredentialsImpl}.
+ */
+public class S3Properties {
+
+	private static final long MEGABYTE = 1024 * 1024;
+
+	private final String endpoint;
+	private final long partSize;
+
+	/**
+	 * @param endpoint
+	 *          of the S3 service, or null for the AWS default.
+	 * @param partSize
+	 *          bytes per part of multipart uploads and ranged gets. Zero means
+	 *          that the default is used.
+	 */
+	public S3Properties(String endpoint, long partSize) {
+		this.endpoint = endpoint;
+		this.partSize = partSize;
+	}
+
+	/**
+	 * @return endpoint of the S3 service, or null for the AWS default.
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return bytes per part, never less than the minimum part size of S3.
+	 */
+	public long getPartSize() {
+		if (partSize <= 0)
+			return ParallelS3Transferer.DEFAULT_PART_SIZE;
+		return Math.max(partSize, ParallelS3Transferer.MIN_PART_SIZE);
+	}
+
+	public static S3Properties create() {
+		return create(AWSCredentialsImpl.getAmazonPropertiesFile());
+	}
+
+	public static S3Properties create(File amazonProperties) {
+		Properties properties = loadProperties(amazonProperties);
+		String endpoint = emptyToNull(properties.getProperty("s3.endpoint"));
+		String partSizeMb = emptyToNull(properties.getProperty("s3.part.size.mb"));
+		long partSize = partSizeMb == null ? 0 : Long.parseLong(partSizeMb.trim())
+				* MEGABYTE;
+		return new S3Properties(endpoint, partSize);
+	}
+
+	private static String emptyToNull(String value) {
+		if (value == null || value.trim().isEmpty())
+			return null;
+		return value.trim();
+	}
+
+	private static Properties loadProperties(File amazonProperties) {
+		try {
+			Properties properties = new Properties();
+			properties.load(FileUtils.openInputStream(amazonProperties));
+			return properties;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -28,7 +28,7 @@ public abstract class AbstractTransaction<T> implements Transaction {
 	private static final Logger logger = Logger
 			.getLogger(AbstractTransaction.class);
 
-	private final HasFileStructure hasFileStructure;
+	private HasFileStructure hasFileStructure;
 	private final TransactionCleaner<T> transactionCleaner;
 	private final T data;
 	private final String temp;
@@ -139,6 +139,18 @@ public abstract class AbstractTransaction<T> implements Transaction {
 		return true;
 	}
 
+	/**
+	 * Used by {@link TransactionExecuter} to route file structure calls through
+	 * a {@link CoalescedFileStructure} while a batch of transactions executes.
+	 */
+	HasFileStructure getHasFileStructure() {
+		return hasFileStructure;
+	}
+
+	void setHasFileStructure(HasFileStructure hasFileStructure) {
+		this.hasFileStructure = hasFileStructure;
+	}
+
 	public T getData() {
 		return data;
 	}
@@ -0,0 +1,126 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Wraps a {@link HasFileStructure} for the duration of one batch of
+ * transactions, so that the transactions in the batch don't ask the archive
+ * for the same thing twice. Remembers paths it has created and paths it has
+ * seen missing. A path under a missing path is also missing, a path that has
+ * been created doesn't have to be created again, and a renamed path takes the
+ * paths under it along.<br/>
+ * <br/>
+ * Data transfers don't go through this class, so it should not outlive the
+ * batch it was created for.
+ */
+class CoalescedFileStructure implements HasFileStructure {
+
+	private static final String SEPARATOR = "/";
+
+	private final HasFileStructure hasFileStructure;
+	private final Set<String> existingPaths;
+	private final Set<String> missingPaths;
+
+	public CoalescedFileStructure(HasFileStructure hasFileStructure) {
+		this.hasFileStructure = hasFileStructure;
+		this.existingPaths = new HashSet<String>();
+		this.missingPaths = new HashSet<String>();
+	}
+
+	@Override
+	public void mkdirs(String path) throws IOException {
+		if (!existingPaths.contains(path)) {
+			hasFileStructure.mkdirs(path);
+			markExisting(path);
+		}
+	}
+
+	private void markExisting(String path) {
+		for (String p = path; p != null; p = parentOf(p)) {
+			existingPaths.add(p);
+			missingPaths.remove(p);
+		}
+	}
+
+	private static String parentOf(String path) {
+		int lastSeparator = path.lastIndexOf(SEPARATOR);
+		if (lastSeparator <= 0)
+			return null;
+		else
+			return path.substring(0, lastSeparator);
+	}
+
+	@Override
+	public void rename(String from, String to) throws IOException {
+		hasFileStructure.rename(from, to);
+		Set<String> moved = new HashSet<String>();
+		for (Iterator<String> it = existingPaths.iterator(); it.hasNext();) {
+			String path = it.next();
+			if (isSameOrUnder(path, from)) {
+				moved.add(to + path.substring(from.length()));
+				it.remove();
+			}
+		}
+		missingPaths.clear();
+		markExisting(to);
+		existingPaths.addAll(moved);
+		missingPaths.add(from);
+	}
+
+	private static boolean isSameOrUnder(String path, String parent) {
+		return path.equals(parent) || path.startsWith(parent + SEPARATOR);
+	}
+
+	@Override
+	public boolean exists(String path) throws IOException {
+		if (existingPaths.contains(path))
+			return true;
+		if (isUnderMissingPath(path))
+			return false;
+		boolean exists = hasFileStructure.exists(path);
+		if (exists)
+			markExisting(path);
+		else
+			missingPaths.add(path);
+		return exists;
+	}
+
+	private boolean isUnderMissingPath(String path) {
+		for (String p = path; p != null; p = parentOf(p))
+			if (missingPaths.contains(p))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Forget the paths that were seen missing, so that they are asked for again.
+	 * Done before committing, since that's when the destination check matters.
+	 */
+	public void forgetMissingPaths() {
+		missingPaths.clear();
+	}
+
+	/**
+	 * @return the wrapped file structure.
+	 */
+	public HasFileStructure getHasFileStructure() {
+		return hasFileStructure;
+	}
+}
@@ -16,6 +16,11 @@ package com.splunk.shuttl.archiver.filesystem.transaction;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 
 /**
@@ -54,4 +59,99 @@ public class TransactionExecuter {
 			transaction.clean();
 		}
 	}
+
+	/**
+	 * Execute transactions as one batch. All transactions are prepared in the
+	 * given order before any of them are committed, and all of them are cleaned
+	 * last, even if any other step throws exception.<br/>
+	 * <br/>
+	 * Calls for the same paths, made by the transactions in the batch, are only
+	 * made once against the file system. A transaction that puts data within
+	 * another transaction's temp path, should therefore be given after that
+	 * transaction.
+	 */
+	public void execute(Transaction... transactions) {
+		Map<HasFileStructure, CoalescedFileStructure> coalesced;
+		coalesced = coalesceFileStructures(transactions);
+		try {
+			prepareAll(transactions);
+			for (CoalescedFileStructure fileStructure : coalesced.values())
+				fileStructure.forgetMissingPaths();
+			commitAll(transactions);
+		} catch (RuntimeException e) {
+			logger.error(did("Executed transactions", e,
+					"Transactions to prepare and commit", "transactions",
+					transactions.length));
+			throw e;
+		} finally {
+			try {
+				cleanAll(transactions);
+			} finally {
+				restoreFileStructures(transactions);
+			}
+		}
+	}
+
+	private Map<HasFileStructure, CoalescedFileStructure> coalesceFileStructures(
+			Transaction[] transactions) {
+		Map<HasFileStructure, CoalescedFileStructure> coalesced;
+		coalesced = new IdentityHashMap<HasFileStructure, CoalescedFileStructure>();
+		for (Transaction transaction : transactions) {
+			if (transaction instanceof AbstractTransaction) {
+				AbstractTransaction<?> t = (AbstractTransaction<?>) transaction;
+				HasFileStructure fileStructure = t.getHasFileStructure();
+				CoalescedFileStructure c = coalesced.get(fileStructure);
+				if (c == null) {
+					c = new CoalescedFileStructure(fileStructure);
+					coalesced.put(fileStructure, c);
+				}
+				t.setHasFileStructure(c);
+			}
+		}
+		return coalesced;
+	}
+
+	private void prepareAll(Transaction[] transactions) {
+		for (Transaction transaction : transactions) {
+			logger.info(will("Prepare transaction", "transaction", transaction));
+			transaction.prepare();
+			logger.info(done("Preparing transaction", "transaction", transaction));
+		}
+	}
+
+	private void commitAll(Transaction[] transactions) {
+		for (Transaction transaction : transactions) {
+			logger.info(will("Commit transaction", "transaction", transaction));
+			transaction.commit();
+			logger.info(done("Commit transaction", "transaction", transaction));
+		}
+	}
+
+	private void cleanAll(Transaction[] transactions) {
+		List<RuntimeException> exceptions = new ArrayList<RuntimeException>();
+		for (Transaction transaction : transactions) {
+			try {
+				transaction.clean();
+			} catch (RuntimeException e) {
+				logger.warn(warn("Cleaned transaction", e,
+						"Will continue cleaning the other transactions", "transaction",
+						transaction));
+				exceptions.add(e);
+			}
+		}
+		if (!exceptions.isEmpty())
+			throw exceptions.get(0);
+	}
+
+	private void restoreFileStructures(Transaction[] transactions) {
+		for (Transaction transaction : transactions) {
+			if (transaction instanceof AbstractTransaction) {
+				AbstractTransaction<?> t = (AbstractTransaction<?>) transaction;
+				HasFileStructure fileStructure = t.getHasFileStructure();
+				if (fileStructure instanceof CoalescedFileStructure)
+					t.setHasFileStructure(((CoalescedFileStructure) fileStructure)
+							.getHasFileStructure());
+			}
+		}
+	}
 }
@@ -17,6 +17,7 @@ package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
 import java.io.File;
 import java.io.IOException;
 
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.HasFileStructure;
 import com.splunk.shuttl.archiver.filesystem.transaction.LocalTransactionalFileSystemFactory;
@@ -29,25 +30,45 @@ import com.splunk.shuttl.archiver.model.Bucket;
 public class GetBucketTransaction extends AbstractTransaction<Bucket> {
 
 	private final TransfersBuckets transfersData;
+	private final ChecksumManifest checksums;
 
 	private GetBucketTransaction(TransfersBuckets transfersData,
 			HasFileStructure hasFileStructure,
 			BucketTransactionCleaner transactionCleaner, Bucket data, String temp,
-			String dst) {
+			String dst, ChecksumManifest checksums) {
 		super(hasFileStructure, transactionCleaner, data, temp, dst);
 		this.transfersData = transfersData;
+		this.checksums = checksums;
 	}
 
+	/**
+	 * Verifies the bucket's files against the manifest, if the file system can
+	 * verify them while transferring.
+	 */
 	@Override
 	protected void doTransferData(Bucket data, String temp, String dst)
 			throws IOException {
-		transfersData.get(data, new File(temp), new File(dst));
+		if (checksums != null
+				&& transfersData instanceof TransfersBucketsWithChecksums)
+			((TransfersBucketsWithChecksums) transfersData).get(data, new File(
+					temp), new File(dst), checksums);
+		else
+			transfersData.get(data, new File(temp), new File(dst));
 	}
 
 	public static GetBucketTransaction create(TransactionalFileSystem fs,
 			Bucket src, String temp, String dst) {
+		return create(fs, src, temp, dst, null);
+	}
+
+	/**
+	 * @param checksums
+	 *          manifest to verify the bucket's files against, or null.
+	 */
+	public static GetBucketTransaction create(TransactionalFileSystem fs,
+			Bucket src, String temp, String dst, ChecksumManifest checksums) {
 		return new GetBucketTransaction(fs.getBucketTransferer(),
 				LocalTransactionalFileSystemFactory.create(),
-				fs.getBucketTransactionCleaner(), src, temp, dst);
+				fs.getBucketTransactionCleaner(), src, temp, dst, checksums);
 	}
 }
@@ -16,6 +16,7 @@ package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
 
 import java.io.IOException;
 
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.HasFileStructure;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionalFileSystem;
@@ -27,24 +28,44 @@ import com.splunk.shuttl.archiver.model.Bucket;
 public class PutBucketTransaction extends AbstractTransaction<Bucket> {
 
 	private TransfersBuckets transfersBuckets;
+	private final ChecksumManifest checksums;
 
 	private PutBucketTransaction(TransfersBuckets transfersBuckets,
 			HasFileStructure hasFileStructure,
 			BucketTransactionCleaner transactionCleaner, Bucket data, String temp,
-			String dst) {
+			String dst, ChecksumManifest checksums) {
 		super(hasFileStructure, transactionCleaner, data, temp, dst);
 		this.transfersBuckets = transfersBuckets;
+		this.checksums = checksums;
 	}
 
+	/**
+	 * Adds the checksums of the bucket's files to the manifest, if the file
+	 * system can compute them while transferring.
+	 */
 	@Override
 	protected void doTransferData(Bucket data, String temp, String dst)
 			throws IOException {
-		transfersBuckets.put(data, temp, dst);
+		if (checksums != null
+				&& transfersBuckets instanceof TransfersBucketsWithChecksums)
+			((TransfersBucketsWithChecksums) transfersBuckets).put(data, temp, dst,
+					checksums);
+		else
+			transfersBuckets.put(data, temp, dst);
 	}
 
 	public static PutBucketTransaction create(TransactionalFileSystem fs,
 			Bucket src, String temp, String dst) {
+		return create(fs, src, temp, dst, null);
+	}
+
+	/**
+	 * @param checksums
+	 *          manifest that the checksums of the bucket's files are added to.
+	 */
+	public static PutBucketTransaction create(TransactionalFileSystem fs,
+			Bucket src, String temp, String dst, ChecksumManifest checksums) {
 		return new PutBucketTransaction(fs.getBucketTransferer(), fs,
-				fs.getBucketTransactionCleaner(), src, temp, dst);
+				fs.getBucketTransactionCleaner(), src, temp, dst, checksums);
 	}
 }
@@ -0,0 +1,45 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.transaction.bucket;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.checksum.ChecksumMismatchException;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Transfers buckets and checksums their files while transferring them, without
+ * reading the files an extra time.
+ */
+public interface TransfersBucketsWithChecksums extends TransfersBuckets {
+
+	/**
+	 * Puts the bucket and adds the checksum of each of its files to the
+	 * manifest.
+	 */
+	void put(Bucket localBucket, String temp, String dst,
+			ChecksumManifest checksums) throws IOException;
+
+	/**
+	 * Gets the bucket and verifies its files against the manifest.
+	 * 
+	 * @throws ChecksumMismatchException
+	 *           if a file doesn't match its checksum.
+	 */
+	void get(Bucket remoteBucket, File temp, File dst,
+			ChecksumManifest checksums) throws IOException;
+}
@@ -0,0 +1,51 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.http;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+
+/**
+ * Creates the {@link HttpClient} shared by the callers of the Shuttl REST
+ * endpoints. Connections are pooled and kept alive between requests, instead
+ * of every caller opening a new connection for every bucket.
+ */
+public class PooledHttpClientFactory {
+
+	/* package-private */static final int MAX_CONNECTIONS = 20;
+
+	private static HttpClient sharedHttpClient;
+
+	/**
+	 * @return HttpClient that is safe to use from multiple threads. Every
+	 *         response must be consumed to release its connection to the pool.
+	 */
+	public static synchronized HttpClient getSharedHttpClient() {
+		if (sharedHttpClient == null)
+			sharedHttpClient = createPooledHttpClient(MAX_CONNECTIONS);
+		return sharedHttpClient;
+	}
+
+	/**
+	 * @return new HttpClient with a pool of at most maxConnections connections.
+	 */
+	public static HttpClient createPooledHttpClient(int maxConnections) {
+		ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		return new DefaultHttpClient(connectionManager);
+	}
+}
@@ -25,7 +25,6 @@ import org.apache.log4j.Logger;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.UnknownBucketFormatException;
 import com.splunk.shuttl.archiver.importexport.csv.CsvExporter;
-import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
@@ -100,10 +99,29 @@ public class BucketExportController {
 	 * @return an instance of the {@link BucketExportController}
 	 */
 	public static BucketExportController create(CsvExporter csvExporter,
-			TgzFormatExporter tgzFormatExporter) {
+			BucketExporter tgzExporter) {
 		Map<BucketFormat, BucketExporter> formatChangers = new HashMap<BucketFormat, BucketExporter>();
 		formatChangers.put(BucketFormat.CSV, csvExporter);
-		formatChangers.put(BucketFormat.SPLUNK_BUCKET_TGZ, tgzFormatExporter);
+		formatChangers.put(BucketFormat.SPLUNK_BUCKET_TGZ, tgzExporter);
+
+		return new BucketExportController(formatChangers);
+	}
+
+	/**
+	 * @return an instance of the {@link BucketExportController} that also
+	 *         exports to the zstd and lz4 compressed tar formats, and to the
+	 *         bucket container format.
+	 */
+	public static BucketExportController create(CsvExporter csvExporter,
+			BucketExporter tgzExporter, BucketExporter zstdExporter,
+			BucketExporter lz4Exporter, BucketExporter containerExporter) {
+		Map<BucketFormat, BucketExporter> formatChangers = new HashMap<BucketFormat, BucketExporter>();
+		formatChangers.put(BucketFormat.CSV, csvExporter);
+		formatChangers.put(BucketFormat.SPLUNK_BUCKET_TGZ, tgzExporter);
+		formatChangers.put(BucketFormat.SPLUNK_BUCKET_ZSTD, zstdExporter);
+		formatChangers.put(BucketFormat.SPLUNK_BUCKET_LZ4, lz4Exporter);
+		formatChangers.put(BucketFormat.SPLUNK_BUCKET_CONTAINER,
+				containerExporter);
 
 		return new BucketExportController(formatChangers);
 	}
@@ -110,4 +110,16 @@ public class BucketFileCreator {
 		return new BucketFileCreator(BucketFormat.SPLUNK_BUCKET_TGZ, "tgz");
 	}
 
+	public static BucketFileCreator createForZstd() {
+		return new BucketFileCreator(BucketFormat.SPLUNK_BUCKET_ZSTD, "tzst");
+	}
+
+	public static BucketFileCreator createForLz4() {
+		return new BucketFileCreator(BucketFormat.SPLUNK_BUCKET_LZ4, "tlz4");
+	}
+
+	public static BucketFileCreator createForContainer() {
+		return new BucketFileCreator(BucketFormat.SPLUNK_BUCKET_CONTAINER, "sbc");
+	}
+
 }
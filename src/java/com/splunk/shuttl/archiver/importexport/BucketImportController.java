@@ -18,7 +18,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.container.ContainerImporter;
 import com.splunk.shuttl.archiver.importexport.csv.CsvImporter;
+import com.splunk.shuttl.archiver.importexport.tgz.TarImporter;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzImporter;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
@@ -61,6 +63,10 @@ public class BucketImportController {
 		Map<BucketFormat, BucketImporter> importers = new HashMap<BucketFormat, BucketImporter>();
 		importers.put(BucketFormat.CSV, CsvImporter.create());
 		importers.put(BucketFormat.SPLUNK_BUCKET_TGZ, TgzImporter.create());
+		importers.put(BucketFormat.SPLUNK_BUCKET_ZSTD, TarImporter.createForZstd());
+		importers.put(BucketFormat.SPLUNK_BUCKET_LZ4, TarImporter.createForLz4());
+		importers.put(BucketFormat.SPLUNK_BUCKET_CONTAINER,
+				ContainerImporter.create());
 
 		return new BucketImportController(importers);
 	}
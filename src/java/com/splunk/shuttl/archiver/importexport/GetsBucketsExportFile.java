@@ -38,8 +38,15 @@ public class GetsBucketsExportFile {
 		return getExportFile(bucket, "csv");
 	}
 
+	/**
+	 * @return not yet existing file unique for the {@link Bucket} and extension.
+	 *         Each extension gets its own directory, so that exports of the same
+	 *         bucket to different formats can run at the same time.
+	 */
 	public File getExportFile(Bucket bucket, String extension) {
-		File exportDir = localFileSystemPaths.getExportDirectory(bucket);
+		File exportDir = new File(localFileSystemPaths.getExportDirectory(bucket),
+				extension);
+		exportDir.mkdirs();
 		File file = new File(exportDir, bucket.getName() + "." + extension);
 		if (file.exists())
 			file.delete();
@@ -0,0 +1,44 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+
+/**
+ * A bucket container in the archive, read with ranged reads.
+ */
+public class ArchiveContainerSource implements ContainerSource {
+
+	private final ReadsFileRanges archive;
+	private final String path;
+
+	public ArchiveContainerSource(ReadsFileRanges archive, String path) {
+		this.archive = archive;
+		this.path = path;
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		return archive.getFileLength(path);
+	}
+
+	@Override
+	public InputStream openRange(long offset, long length) throws IOException {
+		return archive.openRange(path, offset, length);
+	}
+}
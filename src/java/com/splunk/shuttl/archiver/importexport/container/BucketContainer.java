@@ -0,0 +1,46 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+/**
+ * Layout of a {@link BucketFormat#SPLUNK_BUCKET_CONTAINER} file. A container
+ * holds all the files of a bucket in one file, so a bucket is one object in
+ * the archive, while each file can still be read without reading the others:
+ * 
+ * <pre>
+ * header:    magic
+ * members:   the bytes of each file, deflated or stored on its own
+ * directory: number of entries, then one {@link ContainerEntry} per file and
+ *            directory, with where its bytes are
+ * trailer:   directory offset, directory length, directory CRC-32, magic
+ * </pre>
+ * 
+ * The directory is written after the members, so a container is written in
+ * one pass. A reader reads the fixed size trailer at the end, then the
+ * directory, and then only the ranges of the members it needs.
+ */
+final class BucketContainer {
+
+	static final String EXTENSION = "sbc";
+
+	static final byte[] MAGIC = { 'S', 'H', 'T', 'L', 'B', 'K', 'T', '1' };
+
+	static final int TRAILER_LENGTH = 8 + 8 + 4 + MAGIC.length;
+
+	private BucketContainer() {
+	}
+}
@@ -0,0 +1,389 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+
+/**
+ * Reads a bucket container from a {@link ContainerSource}. Only the trailer,
+ * the directory and the entries that are asked for are read, so a part of a
+ * bucket can be restored without reading all of it.
+ * 
+ * @see BucketContainer
+ */
+public class BucketContainerReader {
+
+	/**
+	 * Entries closer to each other than this are read with one range, instead
+	 * of one range each.
+	 */
+	static final long MAX_SKIPPED_BYTES = 1024 * 1024;
+
+	/**
+	 * Bytes read from the end of the container at first, so that the directory
+	 * of most containers is read together with the trailer.
+	 */
+	static final int TAIL_LENGTH = 64 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ContainerSource source;
+	private List<ContainerEntry> entries;
+
+	public BucketContainerReader(ContainerSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return entries of the container, in the order they were written.
+	 * @throws IOException
+	 *           if the container could not be read or is corrupt.
+	 */
+	public List<ContainerEntry> getEntries() throws IOException {
+		if (entries == null)
+			entries = Collections.unmodifiableList(readDirectory());
+		return entries;
+	}
+
+	/**
+	 * @return entries with names that start with the prefix, like "rawdata/".
+	 */
+	public List<ContainerEntry> getEntriesUnder(String prefix)
+			throws IOException {
+		List<ContainerEntry> under = new ArrayList<ContainerEntry>();
+		for (ContainerEntry entry : getEntries())
+			if (entry.getName().startsWith(prefix))
+				under.add(entry);
+		return under;
+	}
+
+	/**
+	 * @return stream of the entry's file, which is verified against the entry's
+	 *         size and CRC-32 when it is read to the end.
+	 */
+	public InputStream openEntry(ContainerEntry entry) throws IOException {
+		if (entry.isDirectory())
+			throw new IOException("Entry is a directory: " + entry.getName());
+		return new EntryInputStream(entry, source.openRange(entry.getOffset(),
+				entry.getCompressedSize()));
+	}
+
+	/**
+	 * Extracts all the entries to the directory.
+	 */
+	public void extractTo(File directory) throws IOException {
+		extract(getEntries(), directory);
+	}
+
+	/**
+	 * Extracts the entries to the directory. Entries near each other in the
+	 * container are read with one range.
+	 */
+	public void extract(List<ContainerEntry> toExtract, File directory)
+			throws IOException {
+		List<ContainerEntry> files = new ArrayList<ContainerEntry>();
+		List<ContainerEntry> directories = new ArrayList<ContainerEntry>();
+		for (ContainerEntry entry : toExtract) {
+			verifyName(entry.getName());
+			if (entry.isDirectory())
+				directories.add(entry);
+			else
+				files.add(entry);
+		}
+		for (ContainerEntry dir : directories)
+			mkdirs(new File(directory, dir.getName()));
+
+		Collections.sort(files, new Comparator<ContainerEntry>() {
+			@Override
+			public int compare(ContainerEntry e1, ContainerEntry e2) {
+				return Long.valueOf(e1.getOffset()).compareTo(e2.getOffset());
+			}
+		});
+		int i = 0;
+		while (i < files.size()) {
+			int end = endOfGroup(files, i);
+			extractGroup(files.subList(i, end), directory);
+			i = end;
+		}
+
+		for (int j = directories.size() - 1; j >= 0; j--) {
+			ContainerEntry dir = directories.get(j);
+			new File(directory, dir.getName()).setLastModified(dir
+					.getLastModified());
+		}
+	}
+
+	private int endOfGroup(List<ContainerEntry> files, int start) {
+		int end = start + 1;
+		while (end < files.size() && gapBetween(files.get(end - 1),
+				files.get(end)) <= MAX_SKIPPED_BYTES)
+			end++;
+		return end;
+	}
+
+	private long gapBetween(ContainerEntry previous, ContainerEntry next) {
+		return next.getOffset() - previous.getEnd();
+	}
+
+	private void extractGroup(List<ContainerEntry> group, File directory)
+			throws IOException {
+		long start = group.get(0).getOffset();
+		long end = group.get(group.size() - 1).getEnd();
+		InputStream range = source.openRange(start, end - start);
+		try {
+			long position = start;
+			for (ContainerEntry entry : group) {
+				skipFully(range, entry.getOffset() - position);
+				BoundedInputStream member = new BoundedInputStream(range,
+						entry.getCompressedSize());
+				member.setPropagateClose(false);
+				extractFile(new EntryInputStream(entry, member), entry, directory);
+				position = entry.getEnd();
+			}
+		} finally {
+			range.close();
+		}
+	}
+
+	private void extractFile(EntryInputStream in, ContainerEntry entry,
+			File directory) throws IOException {
+		File file = new File(directory, entry.getName());
+		mkdirs(file.getParentFile());
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file),
+					BUFFER_SIZE);
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					out.write(buffer, 0, read);
+			} finally {
+				out.close();
+			}
+			in.drain();
+		} finally {
+			in.close();
+		}
+		file.setLastModified(entry.getLastModified());
+	}
+
+	private void mkdirs(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Could not create directory: " + dir);
+	}
+
+	private void verifyName(String name) throws IOException {
+		if (name.length() == 0 || name.startsWith("/")
+				|| Arrays.asList(name.split("/")).contains(".."))
+			throw new IOException("Entry would be extracted outside of the "
+					+ "directory: " + name);
+	}
+
+	private List<ContainerEntry> readDirectory() throws IOException {
+		long length = source.getLength();
+		int minimumLength = BucketContainer.MAGIC.length
+				+ BucketContainer.TRAILER_LENGTH + 4;
+		if (length < minimumLength)
+			throw new IOException("Too short to be a bucket container. Length: "
+					+ length);
+		int tailLength = (int) Math.min(length, TAIL_LENGTH);
+		long tailOffset = length - tailLength;
+		byte[] tail = readRange(tailOffset, tailLength);
+
+		DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(
+				tail, tailLength - BucketContainer.TRAILER_LENGTH,
+				BucketContainer.TRAILER_LENGTH));
+		long directoryOffset = trailer.readLong();
+		long directoryLength = trailer.readLong();
+		long directoryCrc = trailer.readInt() & 0xffffffffL;
+		byte[] magic = new byte[BucketContainer.MAGIC.length];
+		trailer.readFully(magic);
+		if (!Arrays.equals(magic, BucketContainer.MAGIC))
+			throw new IOException("Not a bucket container. No magic at the end.");
+		long directoryEnd = length - BucketContainer.TRAILER_LENGTH;
+		if (directoryOffset < BucketContainer.MAGIC.length
+				|| directoryLength < 4 || directoryLength > Integer.MAX_VALUE
+				|| directoryOffset + directoryLength != directoryEnd)
+			throw new IOException("Corrupt bucket container trailer. Directory "
+					+ "offset: " + directoryOffset + ", length: " + directoryLength);
+
+		byte[] directory;
+		if (directoryOffset >= tailOffset)
+			directory = Arrays.copyOfRange(tail,
+					(int) (directoryOffset - tailOffset),
+					(int) (directoryEnd - tailOffset));
+		else
+			directory = readRange(directoryOffset, (int) directoryLength);
+		CRC32 crc = new CRC32();
+		crc.update(directory);
+		if (crc.getValue() != directoryCrc)
+			throw new IOException("Corrupt bucket container directory. "
+					+ "CRC-32 does not match.");
+		return parseDirectory(directory, directoryOffset);
+	}
+
+	private List<ContainerEntry> parseDirectory(byte[] directory,
+			long directoryOffset) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				directory));
+		int count = in.readInt();
+		if (count < 0)
+			throw new IOException("Corrupt bucket container directory. Entries: "
+					+ count);
+		List<ContainerEntry> read = new ArrayList<ContainerEntry>();
+		for (int i = 0; i < count; i++) {
+			ContainerEntry entry = ContainerEntry.readFrom(in);
+			if (entry.getOffset() < BucketContainer.MAGIC.length
+					|| entry.getCompressedSize() < 0 || entry.getSize() < 0
+					|| entry.getEnd() > directoryOffset)
+				throw new IOException("Corrupt bucket container entry: " + entry);
+			read.add(entry);
+		}
+		return read;
+	}
+
+	private byte[] readRange(long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		DataInputStream in = new DataInputStream(source.openRange(offset, length));
+		try {
+			in.readFully(bytes);
+		} finally {
+			in.close();
+		}
+		return bytes;
+	}
+
+	private static void skipFully(InputStream in, long bytes) throws IOException {
+		long remaining = bytes;
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				if (in.read() == -1)
+					throw new EOFException("Bucket container ended while skipping.");
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * Inflates an entry if it was deflated, and verifies its size and CRC-32
+	 * when the end is reached.
+	 */
+	private static class EntryInputStream extends InputStream {
+
+		private final ContainerEntry entry;
+		private final InputStream raw;
+		private final Inflater inflater;
+		private final InputStream in;
+		private final CRC32 crc = new CRC32();
+		private long count = 0;
+		private boolean verified = false;
+
+		public EntryInputStream(ContainerEntry entry, InputStream raw) {
+			this.entry = entry;
+			this.raw = raw;
+			if (entry.getMethod() == ContainerEntry.DEFLATED) {
+				this.inflater = new Inflater();
+				this.in = new InflaterInputStream(raw, inflater, BUFFER_SIZE);
+			} else {
+				this.inflater = null;
+				this.in = raw;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int read = read(b, 0, 1);
+			return read == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = in.read(b, off, len);
+			if (read == -1) {
+				verify();
+				return -1;
+			}
+			crc.update(b, off, read);
+			count += read;
+			if (count > entry.getSize())
+				throw corrupt();
+			return read;
+		}
+
+		private void verify() throws IOException {
+			if (!verified) {
+				if (count != entry.getSize() || crc.getValue() != entry.getCrc())
+					throw corrupt();
+				verified = true;
+			}
+		}
+
+		private IOException corrupt() {
+			return new IOException("Corrupt bucket container entry: "
+					+ entry.getName() + ". Size or CRC-32 does not match.");
+		}
+
+		/**
+		 * Reads the rest of the entry's bytes in the container, so that the next
+		 * entry in the same range can be read.
+		 */
+		void drain() throws IOException {
+			while (raw.read() != -1)
+				;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				in.close();
+			} finally {
+				if (inflater != null)
+					inflater.end();
+			}
+		}
+	}
+
+	public static BucketContainerReader create(File container) {
+		return new BucketContainerReader(new LocalContainerSource(container));
+	}
+
+	public static BucketContainerReader create(ReadsFileRanges archive,
+			String path) {
+		return new BucketContainerReader(new ArchiveContainerSource(archive, path));
+	}
+}
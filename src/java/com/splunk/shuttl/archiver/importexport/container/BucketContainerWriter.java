@@ -0,0 +1,180 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Writes the files of a directory to a stream as a bucket container, in one
+ * pass. Each file is deflated on its own, so it can be read without the
+ * others. Files that are already compressed, like the rawdata journal, are
+ * stored as they are.
+ * 
+ * @see BucketContainer
+ */
+class BucketContainerWriter {
+
+	private static final String[] COMPRESSED_EXTENSIONS = { ".gz", ".zst",
+			".lz4" };
+
+	private final CountingOutputStream out;
+	private final TransferThrottle throttle;
+	private final int level;
+	private final byte[] buffer = new byte[64 * 1024];
+	private final List<ContainerEntry> entries = new ArrayList<ContainerEntry>();
+	private boolean headerWritten = false;
+
+	BucketContainerWriter(OutputStream out) {
+		this(out, TransferThrottle.createUnlimited(), Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param level
+	 *          of the {@link Deflater}.
+	 */
+	BucketContainerWriter(OutputStream out, TransferThrottle throttle, int level) {
+		this.out = new CountingOutputStream(out);
+		this.throttle = throttle;
+		this.level = level;
+	}
+
+	/**
+	 * Puts everything in the directory. Entries are named relative to the
+	 * directory, so the directory itself is not an entry.
+	 */
+	void putDirectory(File directory) throws IOException {
+		writeHeaderOnce();
+		putChildren(directory, "");
+	}
+
+	private void putChildren(File directory, String prefix) throws IOException {
+		for (File child : listSorted(directory))
+			if (child.isDirectory()) {
+				String name = prefix + child.getName() + "/";
+				entries.add(ContainerEntry.createDirectory(name,
+						out.getByteCount(), child.lastModified()));
+				putChildren(child, name);
+			} else {
+				putFile(child, prefix + child.getName());
+			}
+	}
+
+	private File[] listSorted(File directory) throws IOException {
+		File[] children = directory.listFiles();
+		if (children == null)
+			throw new IOException("Could not list directory: " + directory);
+		Arrays.sort(children);
+		return children;
+	}
+
+	private void putFile(File file, String name) throws IOException {
+		boolean store = isCompressed(name);
+		long offset = out.getByteCount();
+		CheckedInputStream in = new CheckedInputStream(
+				throttle.throttleDiskRead(new FileInputStream(file)), new CRC32());
+		long size;
+		try {
+			size = store ? copy(in, out) : deflate(in);
+		} finally {
+			in.close();
+		}
+		entries.add(new ContainerEntry(name, store ? ContainerEntry.STORED
+				: ContainerEntry.DEFLATED, offset, out.getByteCount() - offset, size,
+				in.getChecksum().getValue(), file.lastModified()));
+	}
+
+	private boolean isCompressed(String name) {
+		for (String extension : COMPRESSED_EXTENSIONS)
+			if (name.endsWith(extension))
+				return true;
+		return false;
+	}
+
+	private long deflate(InputStream in) throws IOException {
+		Deflater deflater = new Deflater(level);
+		try {
+			DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater,
+					buffer.length);
+			long size = copy(in, deflated);
+			deflated.finish();
+			return size;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private long copy(InputStream in, OutputStream to) throws IOException {
+		long size = 0;
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			to.write(buffer, 0, read);
+			size += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the directory and the trailer. Does not close the stream.
+	 */
+	void finish() throws IOException {
+		writeHeaderOnce();
+		long directoryOffset = out.getByteCount();
+		byte[] directory = serializeDirectory();
+		CRC32 crc = new CRC32();
+		crc.update(directory);
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.write(directory);
+		data.writeLong(directoryOffset);
+		data.writeLong(directory.length);
+		data.writeInt((int) crc.getValue());
+		data.write(BucketContainer.MAGIC);
+		data.flush();
+	}
+
+	private byte[] serializeDirectory() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(entries.size());
+		for (ContainerEntry entry : entries)
+			entry.writeTo(data);
+		data.flush();
+		return bytes.toByteArray();
+	}
+
+	private void writeHeaderOnce() throws IOException {
+		if (!headerWritten) {
+			out.write(BucketContainer.MAGIC);
+			headerWritten = true;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A file or directory in a bucket container, and where its bytes are in the
+ * container. Names are relative to the bucket's directory, separated with '/',
+ * and the names of directories end with '/'.
+ */
+public class ContainerEntry {
+
+	public static final byte DIRECTORY = 0;
+	public static final byte STORED = 1;
+	public static final byte DEFLATED = 2;
+
+	private final String name;
+	private final byte method;
+	private final long offset;
+	private final long compressedSize;
+	private final long size;
+	private final long crc;
+	private final long lastModified;
+
+	/**
+	 * @param method
+	 *          {@link #DIRECTORY}, {@link #STORED} or {@link #DEFLATED}.
+	 * @param offset
+	 *          of the entry's bytes in the container.
+	 * @param compressedSize
+	 *          number of bytes in the container.
+	 * @param size
+	 *          number of bytes in the file.
+	 * @param crc
+	 *          CRC-32 of the file.
+	 */
+	public ContainerEntry(String name, byte method, long offset,
+			long compressedSize, long size, long crc, long lastModified) {
+		this.name = name;
+		this.method = method;
+		this.offset = offset;
+		this.compressedSize = compressedSize;
+		this.size = size;
+		this.crc = crc;
+		this.lastModified = lastModified;
+	}
+
+	public static ContainerEntry createDirectory(String name, long offset,
+			long lastModified) {
+		return new ContainerEntry(name, DIRECTORY, offset, 0, 0, 0, lastModified);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public byte getMethod() {
+		return method;
+	}
+
+	public boolean isDirectory() {
+		return method == DIRECTORY;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	/**
+	 * @return offset of the first byte after the entry's bytes.
+	 */
+	public long getEnd() {
+		return offset + compressedSize;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getCrc() {
+		return crc;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	void writeTo(DataOutput out) throws IOException {
+		out.writeUTF(name);
+		out.writeByte(method);
+		out.writeLong(offset);
+		out.writeLong(compressedSize);
+		out.writeLong(size);
+		out.writeInt((int) crc);
+		out.writeLong(lastModified);
+	}
+
+	static ContainerEntry readFrom(DataInput in) throws IOException {
+		String name = in.readUTF();
+		byte method = in.readByte();
+		if (method != DIRECTORY && method != STORED && method != DEFLATED)
+			throw new IOException("Unknown method " + method + " of entry: " + name);
+		return new ContainerEntry(name, method, in.readLong(), in.readLong(),
+				in.readLong(), in.readInt() & 0xffffffffL, in.readLong());
+	}
+
+	@Override
+	public String toString() {
+		return "ContainerEntry [name=" + name + ", method=" + method
+				+ ", offset=" + offset + ", compressedSize=" + compressedSize
+				+ ", size=" + size + "]";
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.File;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.importexport.BucketFileCreator;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Changes the format of a bucket to
+ * {@link BucketFormat#SPLUNK_BUCKET_CONTAINER}.
+ */
+public class ContainerFormatExporter implements BucketExporter {
+
+	private final CreatesBucketContainer createsBucketContainer;
+	private final BucketFileCreator bucketFileCreator;
+
+	public ContainerFormatExporter(
+			CreatesBucketContainer createsBucketContainer,
+			BucketFileCreator bucketFileCreator) {
+		this.createsBucketContainer = createsBucketContainer;
+		this.bucketFileCreator = bucketFileCreator;
+	}
+
+	@Override
+	public LocalBucket exportBucket(LocalBucket b) {
+		File container = createsBucketContainer.createContainer(b);
+		return bucketFileCreator.createBucketWithFile(container, b);
+	}
+
+	public static ContainerFormatExporter create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new ContainerFormatExporter(
+				CreatesBucketContainer.create(localFileSystemPaths),
+				BucketFileCreator.createForContainer());
+	}
+}
@@ -0,0 +1,74 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketImporter;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.UtilsBucket;
+
+/**
+ * Imports buckets in {@link BucketFormat#SPLUNK_BUCKET_CONTAINER} to
+ * {@link BucketFormat#SPLUNK_BUCKET}, by extracting the container in the
+ * bucket's directory.
+ */
+public class ContainerImporter implements BucketImporter {
+
+	private static final Logger logger = Logger
+			.getLogger(ContainerImporter.class);
+
+	@Override
+	public LocalBucket importBucket(LocalBucket bucket) {
+		File container = UtilsBucket.getFileWithExtension(bucket,
+				BucketContainer.EXTENSION);
+		extractContainer(bucket, container);
+		container.delete();
+		return BucketFactory.createBucketWithIndexDirectoryAndFormat(
+				bucket.getIndex(), bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET);
+	}
+
+	private void extractContainer(LocalBucket bucket, File container) {
+		try {
+			BucketContainerReader.create(container).extractTo(
+					bucket.getDirectory());
+		} catch (IOException e) {
+			logger.error(did("Extracted bucket container", e,
+					"to import the bucket", "bucket", bucket, "container", container));
+			throw new ContainerImportFailedException("Failed to import bucket: "
+					+ bucket);
+		}
+	}
+
+	public static class ContainerImportFailedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public ContainerImportFailedException(String message) {
+			super(message);
+		}
+	}
+
+	public static ContainerImporter create() {
+		return new ContainerImporter();
+	}
+}
@@ -0,0 +1,34 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Where a bucket container is read from, a range of bytes at a time.
+ */
+public interface ContainerSource {
+
+	/**
+	 * @return length of the container in bytes.
+	 */
+	long getLength() throws IOException;
+
+	/**
+	 * @return stream of the bytes in the range. The caller closes it.
+	 */
+	InputStream openRange(long offset, long length) throws IOException;
+}
@@ -0,0 +1,108 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Creates a bucket container file from a bucket.
+ * 
+ * @see BucketContainer
+ */
+public class CreatesBucketContainer {
+
+	private static final Logger logger = Logger
+			.getLogger(CreatesBucketContainer.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public static class ContainerCreationFailedException extends
+			RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public ContainerCreationFailedException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private final TransferThrottle throttle;
+	private final GetsBucketsExportFile getsBucketsExportFile;
+
+	/**
+	 * @param throttle
+	 *          limits reading the bucket's files from disk.
+	 */
+	public CreatesBucketContainer(TransferThrottle throttle,
+			GetsBucketsExportFile getsBucketsExportFile) {
+		this.throttle = throttle;
+		this.getsBucketsExportFile = getsBucketsExportFile;
+	}
+
+	/**
+	 * Creates a container file with the files of a bucket.
+	 */
+	public File createContainer(LocalBucket bucket) {
+		File container = getsBucketsExportFile.getExportFile(bucket,
+				BucketContainer.EXTENSION);
+		try {
+			writeContainer(bucket.getDirectory(), container);
+		} catch (IOException e) {
+			logger.error(did("Wrote bucket to container", e,
+					"to create the container", "bucket", bucket, "container",
+					container));
+			container.delete();
+			throw new ContainerCreationFailedException(e);
+		} catch (RuntimeException e) {
+			container.delete();
+			throw e;
+		}
+		return container;
+	}
+
+	private void writeContainer(File bucketDirectory, File container)
+			throws IOException {
+		OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(container), BUFFER_SIZE);
+		try {
+			BucketContainerWriter writer = new BucketContainerWriter(out, throttle,
+					Deflater.DEFAULT_COMPRESSION);
+			writer.putDirectory(bucketDirectory);
+			writer.finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	public static CreatesBucketContainer create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new CreatesBucketContainer(TransferThrottle.getSharedInstance(),
+				new GetsBucketsExportFile(localFileSystemPaths));
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * A bucket container in a local file.
+ */
+public class LocalContainerSource implements ContainerSource {
+
+	private final File file;
+
+	public LocalContainerSource(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		if (!file.isFile())
+			throw new IOException("Container does not exist: " + file);
+		return file.length();
+	}
+
+	@Override
+	public InputStream openRange(long offset, long length) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			in.getChannel().position(offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return new BoundedInputStream(in, length);
+	}
+}
@@ -0,0 +1,102 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * Threads that deflate and inflate the blocks of tgz buckets. Every stream
+ * limits how many of its blocks are in the pool at once, so one large bucket
+ * cannot queue up all of its data in memory.
+ */
+public class CompressorPool {
+
+	private static final Logger logger = Logger.getLogger(CompressorPool.class);
+
+	private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final ExecutorService executorService;
+	private final int threads;
+
+	public CompressorPool(ExecutorService executorService, int threads) {
+		this.executorService = executorService;
+		this.threads = threads;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * @return how many blocks a single stream may have in the pool at once.
+	 */
+	public int getBlocksInFlight() {
+		return threads * BLOCKS_IN_FLIGHT_PER_THREAD;
+	}
+
+	public static int getDefaultThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public static CompressorPool create(int threads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(
+						"shuttl-compressor-"));
+		executor.allowCoreThreadTimeOut(true);
+		return new CompressorPool(executor, threads);
+	}
+
+	public static CompressorPool createWithMBean(ShuttlServerMBean serverMBean) {
+		int threads = serverMBean.getCompressorThreads();
+		return create(threads > 0 ? threads : getDefaultThreads());
+	}
+
+	private static CompressorPool sharedInstance;
+
+	/**
+	 * @return the pool shared by the whole JVM, configured with the
+	 *         {@link ShuttlServerMBean} when it is registered.
+	 */
+	public static synchronized CompressorPool getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createSharedInstance();
+		return sharedInstance;
+	}
+
+	private static CompressorPool createSharedInstance() {
+		try {
+			return createWithMBean(ShuttlServer.getMBeanProxy());
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlServerMBean", e,
+					"Will create the compressor pool with one thread per processor"));
+			return create(getDefaultThreads());
+		}
+	}
+}
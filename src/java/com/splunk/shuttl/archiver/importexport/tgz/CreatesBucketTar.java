@@ -0,0 +1,121 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Creates a tar file from a bucket, compressed with a {@link TarCodec}.
+ */
+public class CreatesBucketTar {
+
+	private static final Logger logger = Logger.getLogger(CreatesBucketTar.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public static class TarBucketCreationFailedException extends
+			RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public TarBucketCreationFailedException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private final TarCodec codec;
+	private final TransferThrottle throttle;
+	private final GetsBucketsExportFile getsBucketsExportFile;
+
+	/**
+	 * @param throttle
+	 *          limits reading the bucket's files from disk.
+	 */
+	public CreatesBucketTar(TarCodec codec, TransferThrottle throttle,
+			GetsBucketsExportFile getsBucketsExportFile) {
+		this.codec = codec;
+		this.throttle = throttle;
+		this.getsBucketsExportFile = getsBucketsExportFile;
+	}
+
+	public TarCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Creates a compressed tar file from a bucket.
+	 */
+	public File createTar(LocalBucket bucket) {
+		File tar = getsBucketsExportFile.getExportFile(bucket,
+				codec.getExtension());
+		try {
+			writeTar(bucket.getDirectory(), tar);
+		} catch (IOException e) {
+			logger.error(did("Wrote bucket to compressed tar", e,
+					"to create the tar", "bucket", bucket, "tar", tar));
+			tar.delete();
+			throw new TarBucketCreationFailedException(e);
+		} catch (RuntimeException e) {
+			tar.delete();
+			throw e;
+		}
+		return tar;
+	}
+
+	private void writeTar(File bucketDirectory, File tar) throws IOException {
+		OutputStream compressed = compress(new FileOutputStream(tar));
+		try {
+			BufferedOutputStream buffered = new BufferedOutputStream(compressed,
+					BUFFER_SIZE);
+			TarWriter tarWriter = new TarWriter(buffered, throttle);
+			tarWriter.putDirectory(bucketDirectory);
+			tarWriter.finish();
+			buffered.flush();
+		} finally {
+			compressed.close();
+		}
+	}
+
+	private OutputStream compress(FileOutputStream out) throws IOException {
+		try {
+			return codec.compress(out);
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		} catch (RuntimeException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	public static CreatesBucketTar create(TarCodec codec,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new CreatesBucketTar(codec, TransferThrottle.getSharedInstance(),
+				new GetsBucketsExportFile(localFileSystemPaths));
+	}
+}
@@ -14,14 +14,17 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.importexport.tgz;
 
-import static java.util.Arrays.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
@@ -30,18 +33,27 @@ import com.splunk.shuttl.archiver.model.LocalBucket;
  */
 public class CreatesBucketTgz {
 
+	private static final Logger logger = Logger.getLogger(CreatesBucketTgz.class);
+
 	public static class TgzBucketCreationFailedException extends RuntimeException {
 
 		private static final long serialVersionUID = 1L;
 
+		public TgzBucketCreationFailedException() {
+			super();
+		}
+
+		public TgzBucketCreationFailedException(Throwable cause) {
+			super(cause);
+		}
 	}
 
-	private final ShellExecutor shellExecutor;
+	private final WritesBucketTgz writesBucketTgz;
 	private GetsBucketsExportFile getsBucketsExportFile;
 
-	public CreatesBucketTgz(ShellExecutor shellExecutor,
+	public CreatesBucketTgz(WritesBucketTgz writesBucketTgz,
 			GetsBucketsExportFile getsBucketsExportFile) {
-		this.shellExecutor = shellExecutor;
+		this.writesBucketTgz = writesBucketTgz;
 		this.getsBucketsExportFile = getsBucketsExportFile;
 	}
 
@@ -60,28 +72,27 @@ public class CreatesBucketTgz {
 	}
 
 	private void createTgzFileFromBucket(LocalBucket bucket, File tgz) {
-		String[] command = buildTgzCommand(bucket, tgz);
-		executeCommand(command);
-	}
-
-	private String[] buildTgzCommand(LocalBucket bucket, File tgz) {
-		File bucketDir = bucket.getDirectory();
-		String parentPath = bucketDir.getParentFile().getAbsolutePath();
-		String tgzCmd = "tar -C " + parentPath + " -c " + bucketDir.getName()
-				+ " | gzip -c > " + tgz.getAbsolutePath();
-		return new String[] { "/bin/sh", "-c", tgzCmd };
+		try {
+			writeTgz(bucket, tgz);
+		} catch (IOException e) {
+			logger.error(did("Wrote bucket to tgz", e, "to create the tgz",
+					"bucket", bucket, "tgz", tgz));
+			throw new TgzBucketCreationFailedException(e);
+		}
 	}
 
-	private void executeCommand(String[] cmd) {
-		HashMap<String, String> emptyMap = new HashMap<String, String>();
-		int exit = shellExecutor.executeCommand(emptyMap, asList(cmd));
-		if (exit != 0)
-			throw new TgzBucketCreationFailedException();
+	private void writeTgz(LocalBucket bucket, File tgz) throws IOException {
+		OutputStream out = new FileOutputStream(tgz);
+		try {
+			writesBucketTgz.writeTgz(bucket, out);
+		} finally {
+			out.close();
+		}
 	}
 
 	public static CreatesBucketTgz create(
 			LocalFileSystemPaths localFileSystemPaths) {
-		return new CreatesBucketTgz(ShellExecutor.getInstance(),
+		return new CreatesBucketTgz(WritesBucketTgz.create(),
 				new GetsBucketsExportFile(localFileSystemPaths));
 	}
 }
@@ -0,0 +1,55 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Gunzips and untars a .tgz in the JVM. Tgz files written by
+ * {@link WritesBucketTgz} are gunzipped in parallel on the
+ * {@link CompressorPool}, other tgz files in the calling thread.
+ */
+public class ExtractsBucketTgz {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final CompressorPool compressorPool;
+
+	public ExtractsBucketTgz(CompressorPool compressorPool) {
+		this.compressorPool = compressorPool;
+	}
+
+	/**
+	 * Extracts the tgz into the directory, like {@code tar -xzf tgz -C
+	 * directory} does.
+	 */
+	public void extractTgz(File tgz, File directory) throws IOException {
+		InputStream in = new ParallelGzipInputStream(new BufferedInputStream(
+				new FileInputStream(tgz), BUFFER_SIZE), compressorPool);
+		try {
+			new TarReader(in).extractTo(directory);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static ExtractsBucketTgz create() {
+		return new ExtractsBucketTgz(CompressorPool.getSharedInstance());
+	}
+}
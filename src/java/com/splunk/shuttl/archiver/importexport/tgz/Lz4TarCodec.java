@@ -0,0 +1,64 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * LZ4 frame compression of bucket tars, with lz4-java. Compresses and
+ * decompresses faster than gzip, at a lower ratio.
+ */
+public class Lz4TarCodec implements TarCodec {
+
+	@Override
+	public BucketFormat getFormat() {
+		return BucketFormat.SPLUNK_BUCKET_LZ4;
+	}
+
+	@Override
+	public String getExtension() {
+		return "tlz4";
+	}
+
+	/**
+	 * @return true, since lz4-java falls back to pure Java without its native
+	 *         library.
+	 */
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public OutputStream compress(OutputStream out) throws IOException {
+		return new LZ4FrameOutputStream(out);
+	}
+
+	@Override
+	public InputStream decompress(InputStream in) throws IOException {
+		return new LZ4FrameInputStream(in);
+	}
+
+	public static Lz4TarCodec create() {
+		return new Lz4TarCodec();
+	}
+}
@@ -0,0 +1,215 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.importexport.tgz.ParallelGzipOutputStream.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads gzip streams written by {@link ParallelGzipOutputStream}, inflating
+ * its members in parallel. Gzip streams from other compressors, such as the
+ * gzip command, are read with a {@link GZIPInputStream} in the calling thread.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final PushbackInputStream in;
+	private final ExecutorService executorService;
+	private final int blocksInFlight;
+	private final LinkedList<Future<byte[]>> inflatingBlocks = new LinkedList<Future<byte[]>>();
+
+	private byte[] block = EMPTY;
+	private int position = 0;
+	private boolean noMoreMembers = false;
+	private InputStream sequentialStream;
+
+	public ParallelGzipInputStream(InputStream in,
+			ExecutorService executorService, int blocksInFlight) {
+		this.in = new PushbackInputStream(in, HEADER_SIZE);
+		this.executorService = executorService;
+		this.blocksInFlight = Math.max(1, blocksInFlight);
+	}
+
+	public ParallelGzipInputStream(InputStream in, CompressorPool pool) {
+		this(in, pool.getExecutorService(), pool.getBlocksInFlight());
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int n = read(b, 0, 1);
+		return n == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		while (position == block.length) {
+			if (!nextBlock())
+				return sequentialStream != null ? sequentialStream.read(b, off, len)
+						: -1;
+		}
+		int n = Math.min(len, block.length - position);
+		System.arraycopy(block, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	private boolean nextBlock() throws IOException {
+		while (!noMoreMembers && inflatingBlocks.size() < blocksInFlight)
+			readMember();
+		if (inflatingBlocks.isEmpty())
+			return false;
+		block = waitForBlock(inflatingBlocks.removeFirst());
+		position = 0;
+		return true;
+	}
+
+	private void readMember() throws IOException {
+		byte[] header = new byte[HEADER_SIZE];
+		int read = readFully(header, 0, HEADER_SIZE);
+		if (read == 0) {
+			noMoreMembers = true;
+		} else if (read == HEADER_SIZE && isParallelGzipHeader(header)) {
+			submitMember(header);
+		} else {
+			in.unread(header, 0, read);
+			noMoreMembers = true;
+			sequentialStream = new GZIPInputStream(in);
+		}
+	}
+
+	private boolean isParallelGzipHeader(byte[] h) {
+		return (h[0] & 0xff) == 0x1f && (h[1] & 0xff) == 0x8b && h[2] == 8
+				&& h[3] == 4 && h[10] == 8 && h[11] == 0 && h[12] == SUBFIELD_ID1
+				&& h[13] == SUBFIELD_ID2 && h[14] == 4 && h[15] == 0;
+	}
+
+	private void submitMember(byte[] header) throws IOException {
+		long memberSize = getInt(header, 16) + 1;
+		if (memberSize < HEADER_SIZE + TRAILER_SIZE
+				|| memberSize > 2 * BLOCK_SIZE + HEADER_SIZE + TRAILER_SIZE)
+			throw new ZipException("Invalid gzip block size: " + memberSize);
+		byte[] member = new byte[(int) memberSize];
+		System.arraycopy(header, 0, member, 0, HEADER_SIZE);
+		int rest = member.length - HEADER_SIZE;
+		if (readFully(member, HEADER_SIZE, rest) != rest)
+			throw new ZipException("Unexpected end of gzip block");
+		inflatingBlocks.add(executorService.submit(new InflatesBlock(member)));
+	}
+
+	private int readFully(byte[] b, int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int n = in.read(b, off + total, len - total);
+			if (n == -1)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	private byte[] waitForBlock(Future<byte[]> inflatingBlock)
+			throws IOException {
+		try {
+			return inflatingBlock.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while decompressing");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Could not decompress block", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Future<byte[]> inflatingBlock : inflatingBlocks)
+			inflatingBlock.cancel(false);
+		inflatingBlocks.clear();
+		in.close();
+	}
+
+	/**
+	 * Inflates one gzip member and verifies its checksum and size.
+	 */
+	private static class InflatesBlock implements Callable<byte[]> {
+
+		private final byte[] member;
+
+		public InflatesBlock(byte[] member) {
+			this.member = member;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			int trailer = member.length - TRAILER_SIZE;
+			long expectedCrc = getInt(member, trailer);
+			long size = getInt(member, trailer + 4);
+			if (size > BLOCK_SIZE)
+				throw new ZipException("Invalid gzip block length: " + size);
+			byte[] data = inflate(trailer, (int) size);
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			if (crc.getValue() != expectedCrc)
+				throw new ZipException("Corrupt gzip block, checksum mismatch");
+			return data;
+		}
+
+		private byte[] inflate(int trailer, int size) throws ZipException {
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(member, HEADER_SIZE, trailer - HEADER_SIZE);
+				byte[] data = new byte[size];
+				int length = 0;
+				while (length < size && !inflater.finished()) {
+					int n = inflater.inflate(data, length, size - length);
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					length += n;
+				}
+				if (length != size || !inflater.finished() && !finishesEmpty(inflater))
+					throw new ZipException("Corrupt gzip block, wrong length");
+				return data;
+			} catch (DataFormatException e) {
+				throw new ZipException("Corrupt gzip block: " + e.getMessage());
+			} finally {
+				inflater.end();
+			}
+		}
+
+		private boolean finishesEmpty(Inflater inflater)
+				throws DataFormatException {
+			return inflater.inflate(new byte[1]) == 0 && inflater.finished();
+		}
+	}
+}
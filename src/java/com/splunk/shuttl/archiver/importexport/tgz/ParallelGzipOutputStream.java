@@ -0,0 +1,226 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream that deflates blocks of data in parallel, like pigz. Every block
+ * is written as its own gzip member, and concatenated members are a valid gzip
+ * stream that gzip, tar and {@link java.util.zip.GZIPInputStream} can read.<br/>
+ * <br/>
+ * Each member has the compressed size of the member in an extra header field,
+ * so that {@link ParallelGzipInputStream} can find the members without
+ * inflating them and inflate them in parallel as well.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1024 * 1024;
+
+	static final int HEADER_SIZE = 20;
+	static final int TRAILER_SIZE = 8;
+	static final byte SUBFIELD_ID1 = 'S';
+	static final byte SUBFIELD_ID2 = 'H';
+
+	private static final int GZIP_MAGIC1 = 0x1f;
+	private static final int GZIP_MAGIC2 = 0x8b;
+	private static final int DEFLATE_METHOD = 8;
+	private static final int FLAG_EXTRA = 4;
+	private static final int OS_UNKNOWN = 255;
+
+	private final OutputStream out;
+	private final ExecutorService executorService;
+	private final int blocksInFlight;
+	private final LinkedList<Future<byte[]>> compressingBlocks = new LinkedList<Future<byte[]>>();
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private boolean hasWrittenBlock = false;
+	private boolean finished = false;
+
+	public ParallelGzipOutputStream(OutputStream out,
+			ExecutorService executorService, int blocksInFlight) {
+		this.out = out;
+		this.executorService = executorService;
+		this.blocksInFlight = Math.max(1, blocksInFlight);
+	}
+
+	public ParallelGzipOutputStream(OutputStream out, CompressorPool pool) {
+		this(out, pool.getExecutorService(), pool.getBlocksInFlight());
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		block[blockLength++] = (byte) b;
+		if (blockLength == BLOCK_SIZE)
+			submitBlock();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			len -= n;
+			if (blockLength == BLOCK_SIZE)
+				submitBlock();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		compressingBlocks.add(executorService.submit(new CompressesBlock(block,
+				blockLength)));
+		block = new byte[BLOCK_SIZE];
+		blockLength = 0;
+		while (compressingBlocks.size() >= blocksInFlight)
+			writeFirstCompressedBlock();
+	}
+
+	private void writeFirstCompressedBlock() throws IOException {
+		out.write(waitForBlock(compressingBlocks.removeFirst()));
+		hasWrittenBlock = true;
+	}
+
+	private byte[] waitForBlock(Future<byte[]> compressingBlock)
+			throws IOException {
+		try {
+			return compressingBlock.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Could not compress block", e.getCause());
+		}
+	}
+
+	/**
+	 * Writes all remaining data as compressed blocks, without closing the
+	 * underlying stream.
+	 */
+	public void finish() throws IOException {
+		if (finished)
+			return;
+		if (blockLength > 0 || !hasWrittenBlock && compressingBlocks.isEmpty())
+			submitBlock();
+		while (!compressingBlocks.isEmpty())
+			writeFirstCompressedBlock();
+		out.flush();
+		finished = true;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compresses one block into a complete gzip member.
+	 */
+	private static class CompressesBlock implements Callable<byte[]> {
+
+		private final byte[] data;
+		private final int length;
+
+		public CompressesBlock(byte[] data, int length) {
+			this.data = data;
+			this.length = length;
+		}
+
+		@Override
+		public byte[] call() {
+			ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2
+					+ HEADER_SIZE + TRAILER_SIZE);
+			member.write(new byte[HEADER_SIZE], 0, HEADER_SIZE);
+			deflate(member);
+			writeTrailer(member);
+			byte[] bytes = member.toByteArray();
+			writeHeader(bytes);
+			return bytes;
+		}
+
+		private void deflate(ByteArrayOutputStream member) {
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(data, 0, length);
+				deflater.finish();
+				byte[] buffer = new byte[64 * 1024];
+				while (!deflater.finished()) {
+					int n = deflater.deflate(buffer);
+					member.write(buffer, 0, n);
+				}
+			} finally {
+				deflater.end();
+			}
+		}
+
+		private void writeTrailer(ByteArrayOutputStream member) {
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			byte[] trailer = new byte[TRAILER_SIZE];
+			putInt(trailer, 0, crc.getValue());
+			putInt(trailer, 4, length);
+			member.write(trailer, 0, TRAILER_SIZE);
+		}
+
+		private void writeHeader(byte[] member) {
+			member[0] = (byte) GZIP_MAGIC1;
+			member[1] = (byte) GZIP_MAGIC2;
+			member[2] = DEFLATE_METHOD;
+			member[3] = FLAG_EXTRA;
+			member[9] = (byte) OS_UNKNOWN;
+			member[10] = 8;
+			member[12] = SUBFIELD_ID1;
+			member[13] = SUBFIELD_ID2;
+			member[14] = 4;
+			putInt(member, 16, member.length - 1);
+		}
+	}
+
+	/**
+	 * Puts a little endian unsigned 32 bit integer.
+	 */
+	static void putInt(byte[] b, int offset, long value) {
+		for (int i = 0; i < 4; i++)
+			b[offset + i] = (byte) (value >>> (8 * i));
+	}
+
+	static long getInt(byte[] b, int offset) {
+		long value = 0;
+		for (int i = 3; i >= 0; i--)
+			value = (value << 8) | (b[offset + i] & 0xff);
+		return value;
+	}
+}
@@ -0,0 +1,96 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
+import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * A {@link BucketFormat#SPLUNK_BUCKET_TGZ} bucket whose .tgz is not written to
+ * local disk. The tgz is created from the source bucket while it is written to
+ * the archive. The directory of this bucket is an empty placeholder, which is
+ * deleted as any other exported bucket. The size of the bucket is the size of
+ * the written .tgz, as it is for an exported .tgz on disk.
+ */
+public class StreamingTgzBucket extends LocalBucket {
+
+	private final LocalBucket sourceBucket;
+	private final WritesBucketTgz writesBucketTgz;
+	private volatile Long tgzSize;
+
+	public StreamingTgzBucket(File placeholderDirectory,
+			LocalBucket sourceBucket, WritesBucketTgz writesBucketTgz)
+			throws FileNotFoundException, FileNotDirectoryException {
+		super(placeholderDirectory, sourceBucket.getIndex(), sourceBucket
+				.getName(), BucketFormat.SPLUNK_BUCKET_TGZ, null);
+		this.sourceBucket = sourceBucket;
+		this.writesBucketTgz = writesBucketTgz;
+	}
+
+	/**
+	 * Writes the .tgz of the source bucket to a file in the temp directory, so
+	 * that the temp directory looks like this bucket would, had it been exported
+	 * to disk.
+	 */
+	public void putTgz(WritesTempOutputStream archive, String tempDirectory)
+			throws IOException {
+		OutputStream out = archive.openTempOutputStream(tempDirectory
+				+ PathResolver.SEPARATOR + getTgzFileName());
+		try {
+			writeTgz(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the .tgz of the source bucket to the stream, and counts the bytes
+	 * written as the size of this bucket.
+	 */
+	public void writeTgz(OutputStream out) throws IOException {
+		CountingOutputStream countingOut = new CountingOutputStream(out);
+		writesBucketTgz.writeTgz(sourceBucket, countingOut);
+		tgzSize = countingOut.getByteCount();
+	}
+
+	/**
+	 * @return bytes of the .tgz that was written. The size of the source bucket,
+	 *         until the .tgz has been written.
+	 */
+	@Override
+	public Long getSize() {
+		Long size = tgzSize;
+		return size != null ? size : sourceBucket.getSize();
+	}
+
+	public String getTgzFileName() {
+		return getName()
+				+ BucketFormat.extensionOfFormat(BucketFormat.SPLUNK_BUCKET_TGZ);
+	}
+
+	public LocalBucket getSourceBucket() {
+		return sourceBucket;
+	}
+}
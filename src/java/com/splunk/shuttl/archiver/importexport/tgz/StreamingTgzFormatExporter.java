@@ -0,0 +1,68 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
+import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Exports buckets to {@link StreamingTgzBucket}s, for archives that are
+ * {@link WritesTempOutputStream}. Unlike the {@link TgzFormatExporter}, no
+ * .tgz is created on local disk and the export dir does not need free space
+ * for the compressed bucket.
+ */
+public class StreamingTgzFormatExporter implements BucketExporter {
+
+	private static final Logger logger = Logger
+			.getLogger(StreamingTgzFormatExporter.class);
+
+	private final GetsBucketsExportFile getsBucketsExportFile;
+	private final WritesBucketTgz writesBucketTgz;
+
+	public StreamingTgzFormatExporter(
+			GetsBucketsExportFile getsBucketsExportFile,
+			WritesBucketTgz writesBucketTgz) {
+		this.getsBucketsExportFile = getsBucketsExportFile;
+		this.writesBucketTgz = writesBucketTgz;
+	}
+
+	@Override
+	public LocalBucket exportBucket(LocalBucket b) {
+		File placeholder = getsBucketsExportFile.getExportFile(b, "tgz-stream");
+		placeholder.mkdirs();
+		try {
+			return new StreamingTgzBucket(placeholder, b, writesBucketTgz);
+		} catch (Exception e) {
+			logger.error(did("Created streaming tgz bucket", e,
+					"to create the bucket", "bucket", b, "placeholder", placeholder));
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static StreamingTgzFormatExporter create(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new StreamingTgzFormatExporter(new GetsBucketsExportFile(
+				localFileSystemPaths), WritesBucketTgz.create());
+	}
+}
@@ -0,0 +1,54 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+/**
+ * Compression of a bucket tar, for the bucket formats that store a tar stream
+ * compressed with something other than gzip.
+ */
+public interface TarCodec {
+
+	/**
+	 * @return the bucket format of tars compressed with this codec.
+	 */
+	BucketFormat getFormat();
+
+	/**
+	 * @return extension of the compressed tar, without the dot.
+	 */
+	String getExtension();
+
+	/**
+	 * @return true if the codec can compress and decompress in this JVM.
+	 */
+	boolean isAvailable();
+
+	/**
+	 * @return stream that compresses into the output stream. Closing it ends the
+	 *         compressed stream and closes the output stream.
+	 */
+	OutputStream compress(OutputStream out) throws IOException;
+
+	/**
+	 * @return stream that decompresses the input stream.
+	 */
+	InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,50 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+
+/**
+ * The {@link TarCodec}s of the bucket formats that are compressed with a
+ * library that may not work on every platform. The codecs are configured
+ * with the server's compression settings.
+ */
+public class TarCodecs {
+
+	private final Map<BucketFormat, TarCodec> codecs;
+
+	public TarCodecs(Map<BucketFormat, TarCodec> codecs) {
+		this.codecs = codecs;
+	}
+
+	/**
+	 * @return false if the format needs a codec that is not available in this
+	 *         JVM, true otherwise.
+	 */
+	public boolean isAvailable(BucketFormat format) {
+		TarCodec codec = codecs.get(format);
+		return codec == null || codec.isAvailable();
+	}
+
+	public static TarCodecs create() {
+		Map<BucketFormat, TarCodec> codecs = new HashMap<BucketFormat, TarCodec>();
+		codecs.put(BucketFormat.SPLUNK_BUCKET_ZSTD, ZstdTarCodec.create());
+		codecs.put(BucketFormat.SPLUNK_BUCKET_LZ4, Lz4TarCodec.create());
+		return new TarCodecs(codecs);
+	}
+}
@@ -0,0 +1,57 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.importexport.BucketExporter;
+import com.splunk.shuttl.archiver.importexport.BucketFileCreator;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Changes the format of a bucket to a tar compressed with a {@link TarCodec}.
+ */
+public class TarFormatExporter implements BucketExporter {
+
+	private final CreatesBucketTar createsBucketTar;
+	private final BucketFileCreator bucketFileCreator;
+
+	public TarFormatExporter(CreatesBucketTar createsBucketTar,
+			BucketFileCreator bucketFileCreator) {
+		this.createsBucketTar = createsBucketTar;
+		this.bucketFileCreator = bucketFileCreator;
+	}
+
+	@Override
+	public LocalBucket exportBucket(LocalBucket b) {
+		File tar = createsBucketTar.createTar(b);
+		return bucketFileCreator.createBucketWithFile(tar, b);
+	}
+
+	public static TarFormatExporter createForZstd(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new TarFormatExporter(CreatesBucketTar.create(
+				ZstdTarCodec.create(), localFileSystemPaths),
+				BucketFileCreator.createForZstd());
+	}
+
+	public static TarFormatExporter createForLz4(
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new TarFormatExporter(CreatesBucketTar.create(
+				Lz4TarCodec.create(), localFileSystemPaths),
+				BucketFileCreator.createForLz4());
+	}
+}
@@ -0,0 +1,98 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketImporter;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.util.UtilsBucket;
+
+/**
+ * Imports buckets that are tars compressed with a {@link TarCodec} to
+ * {@link BucketFormat#SPLUNK_BUCKET}
+ */
+public class TarImporter implements BucketImporter {
+
+	private static final Logger logger = Logger.getLogger(TarImporter.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final TarCodec codec;
+
+	public TarImporter(TarCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	public LocalBucket importBucket(LocalBucket bucket) {
+		File tar = UtilsBucket.getFileWithExtension(bucket, codec.getExtension());
+		extractTar(bucket, tar);
+		tar.delete();
+		return BucketFactory.createBucketWithIndexDirectoryAndFormat(
+				bucket.getIndex(), bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET);
+	}
+
+	private void extractTar(LocalBucket bucket, File tar) {
+		File bucketParent = bucket.getDirectory().getParentFile();
+		try {
+			extractTo(tar, bucketParent);
+		} catch (IOException e) {
+			logger.error(did("Extracted compressed tar", e, "to import the bucket",
+					"bucket", bucket, "tar", tar));
+			throw new TarImportFailedException("Failed to import bucket: " + bucket);
+		}
+	}
+
+	private void extractTo(File tar, File directory) throws IOException {
+		InputStream file = new BufferedInputStream(new FileInputStream(tar),
+				BUFFER_SIZE);
+		InputStream in = file;
+		try {
+			in = codec.decompress(file);
+			new TarReader(new BufferedInputStream(in, BUFFER_SIZE))
+					.extractTo(directory);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static class TarImportFailedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public TarImportFailedException(String message) {
+			super(message);
+		}
+	}
+
+	public static TarImporter createForZstd() {
+		return new TarImporter(ZstdTarCodec.create());
+	}
+
+	public static TarImporter createForLz4() {
+		return new TarImporter(Lz4TarCodec.create());
+	}
+}
@@ -0,0 +1,248 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Extracts files and directories from a tar stream, so that a bucket can be
+ * thawed without calling the tar command. Reads what {@link TarWriter} and GNU
+ * tar write: ustar and GNU headers, GNU long names and pax paths and sizes.
+ * Links and other special entries are skipped.
+ */
+class TarReader {
+
+	private static final int BLOCK_SIZE = 512;
+
+	private static final byte TYPE_FILE = '0';
+	private static final byte TYPE_OLD_FILE = 0;
+	private static final byte TYPE_CONTIGUOUS_FILE = '7';
+	private static final byte TYPE_DIRECTORY = '5';
+	private static final byte TYPE_LONG_NAME = 'L';
+	private static final byte TYPE_PAX_HEADER = 'x';
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[64 * 1024];
+
+	TarReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Extracts all entries into the directory.
+	 * 
+	 * @throws IOException
+	 *           if the stream is not a valid tar or an entry would end up outside
+	 *           of the directory.
+	 */
+	void extractTo(File directory) throws IOException {
+		byte[] header = new byte[BLOCK_SIZE];
+		String nextName = null;
+		Long nextSize = null;
+		while (readBlock(header) && !isZeroBlock(header)) {
+			verifyChecksum(header);
+			byte type = header[156];
+			long size = nextSize != null ? nextSize : parseSize(header);
+			String name = nextName != null ? nextName : parseName(header);
+			nextName = null;
+			nextSize = null;
+
+			if (type == TYPE_LONG_NAME) {
+				nextName = trimNul(new String(readData(size), "UTF-8"));
+			} else if (type == TYPE_PAX_HEADER) {
+				String pax = new String(readData(size), "UTF-8");
+				nextName = getPaxValue(pax, "path");
+				String paxSize = getPaxValue(pax, "size");
+				nextSize = paxSize == null ? null : Long.parseLong(paxSize);
+			} else if (type == TYPE_DIRECTORY) {
+				mkdirs(resolve(directory, name));
+				skipData(size);
+			} else if (type == TYPE_FILE || type == TYPE_OLD_FILE
+					|| type == TYPE_CONTIGUOUS_FILE) {
+				extractFile(resolve(directory, name), size, parseOctal(header, 136, 12));
+			} else {
+				skipData(size);
+			}
+		}
+	}
+
+	private boolean readBlock(byte[] block) throws IOException {
+		int read = readFully(block, 0, BLOCK_SIZE);
+		if (read == 0)
+			return false;
+		if (read != BLOCK_SIZE)
+			throw new IOException("Unexpected end of tar header");
+		return true;
+	}
+
+	private int readFully(byte[] b, int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int n = in.read(b, off + total, len - total);
+			if (n == -1)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	private boolean isZeroBlock(byte[] block) {
+		for (byte b : block)
+			if (b != 0)
+				return false;
+		return true;
+	}
+
+	private void verifyChecksum(byte[] header) throws IOException {
+		long expected = parseOctal(header, 148, 8);
+		long checksum = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++)
+			checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+		if (checksum != expected)
+			throw new IOException("Invalid tar header checksum");
+	}
+
+	private String parseName(byte[] header) throws IOException {
+		String name = parseString(header, 0, 100);
+		boolean isUstar = header[257] == 'u' && header[258] == 's'
+				&& header[259] == 't' && header[260] == 'a' && header[261] == 'r';
+		boolean isGnu = isUstar && header[262] == ' ';
+		if (isUstar && !isGnu) {
+			String prefix = parseString(header, 345, 155);
+			if (prefix.length() > 0)
+				name = prefix + "/" + name;
+		}
+		return name;
+	}
+
+	private String parseString(byte[] header, int offset, int length)
+			throws IOException {
+		int end = offset;
+		while (end < offset + length && header[end] != 0)
+			end++;
+		return new String(header, offset, end - offset, "UTF-8");
+	}
+
+	private long parseSize(byte[] header) {
+		if ((header[124] & 0x80) != 0) {
+			long size = 0;
+			for (int i = 125; i < 136; i++)
+				size = (size << 8) | (header[i] & 0xff);
+			return size;
+		}
+		return parseOctal(header, 124, 12);
+	}
+
+	private long parseOctal(byte[] header, int offset, int length) {
+		long value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			byte b = header[i];
+			if (b >= '0' && b <= '7')
+				value = (value << 3) + (b - '0');
+			else if (b == 0 || (b == ' ' && value > 0))
+				break;
+		}
+		return value;
+	}
+
+	private String trimNul(String s) {
+		int nul = s.indexOf('\0');
+		return nul == -1 ? s : s.substring(0, nul);
+	}
+
+	/**
+	 * @return value of the key in pax records, which are of the form
+	 *         "length key=value\n".
+	 */
+	private String getPaxValue(String pax, String key) {
+		for (String record : pax.split("\n")) {
+			int space = record.indexOf(' ');
+			int equals = record.indexOf('=');
+			if (space != -1 && equals > space
+					&& record.substring(space + 1, equals).equals(key))
+				return record.substring(equals + 1);
+		}
+		return null;
+	}
+
+	private File resolve(File directory, String name) throws IOException {
+		if (name.startsWith("/"))
+			throw new IOException("Absolute path in tar: " + name);
+		for (String part : name.split("/"))
+			if (part.equals(".."))
+				throw new IOException("Path outside of directory in tar: " + name);
+		return new File(directory, name);
+	}
+
+	private void mkdirs(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Could not create directory: " + dir);
+	}
+
+	private void extractFile(File file, long size, long mtimeSeconds)
+			throws IOException {
+		mkdirs(file.getParentFile());
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file),
+				buffer.length);
+		try {
+			copyData(size, out);
+		} finally {
+			out.close();
+		}
+		if (mtimeSeconds > 0)
+			file.setLastModified(mtimeSeconds * 1000);
+	}
+
+	private byte[] readData(long size) throws IOException {
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Tar header entry too large: " + size);
+		byte[] data = new byte[(int) size];
+		if (readFully(data, 0, data.length) != data.length)
+			throw new IOException("Unexpected end of tar entry");
+		skipPadding(size);
+		return data;
+	}
+
+	private void skipData(long size) throws IOException {
+		copyData(size, null);
+	}
+
+	private void copyData(long size, OutputStream out) throws IOException {
+		long remaining = size;
+		while (remaining > 0) {
+			int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (n == -1)
+				throw new IOException("Unexpected end of tar entry");
+			if (out != null)
+				out.write(buffer, 0, n);
+			remaining -= n;
+		}
+		skipPadding(size);
+	}
+
+	private void skipPadding(long size) throws IOException {
+		int remainder = (int) (size % BLOCK_SIZE);
+		if (remainder != 0) {
+			int padding = BLOCK_SIZE - remainder;
+			if (readFully(buffer, 0, padding) != padding)
+				throw new IOException("Unexpected end of tar entry");
+		}
+	}
+}
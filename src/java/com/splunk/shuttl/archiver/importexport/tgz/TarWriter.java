@@ -0,0 +1,216 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Writes files and directories to a stream in the tar format, so that a bucket
+ * can be archived without calling the tar command. Entries use the POSIX ustar
+ * header, with GNU extensions for long names and for files larger than 8GB.
+ */
+class TarWriter {
+
+	private static final int BLOCK_SIZE = 512;
+	private static final int NAME_LENGTH = 100;
+	private static final int PREFIX_LENGTH = 155;
+	private static final long MAX_OCTAL_SIZE = 077777777777L;
+	private static final String LONG_LINK_NAME = "././@LongLink";
+
+	private static final byte TYPE_FILE = '0';
+	private static final byte TYPE_DIRECTORY = '5';
+	private static final byte TYPE_LONG_NAME = 'L';
+
+	private static final int FILE_MODE = 0644;
+	private static final int DIRECTORY_MODE = 0755;
+
+	private final OutputStream out;
+	private final TransferThrottle throttle;
+	private final byte[] buffer = new byte[64 * 1024];
+
+	TarWriter(OutputStream out) {
+		this(out, TransferThrottle.createUnlimited());
+	}
+
+	TarWriter(OutputStream out, TransferThrottle throttle) {
+		this.out = out;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Puts the directory and everything in it. Entries are named relative to the
+	 * directory's parent, like {@code tar -C parent -c name} does.
+	 */
+	void putDirectory(File directory) throws IOException {
+		putDirectoryWithName(directory, directory.getName() + "/");
+	}
+
+	private void putDirectoryWithName(File directory, String entryName)
+			throws IOException {
+		writeHeader(entryName, TYPE_DIRECTORY, DIRECTORY_MODE, 0,
+				directory.lastModified());
+		for (File child : listSorted(directory))
+			if (child.isDirectory())
+				putDirectoryWithName(child, entryName + child.getName() + "/");
+			else
+				putFile(child, entryName + child.getName());
+	}
+
+	private File[] listSorted(File directory) throws IOException {
+		File[] children = directory.listFiles();
+		if (children == null)
+			throw new IOException("Could not list directory: " + directory);
+		Arrays.sort(children);
+		return children;
+	}
+
+	private void putFile(File file, String entryName) throws IOException {
+		long size = file.length();
+		writeHeader(entryName, TYPE_FILE, FILE_MODE, size, file.lastModified());
+		InputStream in = throttle.throttleDiskRead(new FileInputStream(file));
+		try {
+			copyExactly(in, size, file);
+		} finally {
+			in.close();
+		}
+		writePadding(size);
+	}
+
+	private void copyExactly(InputStream in, long size, File file)
+			throws IOException {
+		long remaining = size;
+		while (remaining > 0) {
+			int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (read == -1)
+				throw new IOException("File got shorter while it was written to "
+						+ "the tar. File: " + file);
+			out.write(buffer, 0, read);
+			remaining -= read;
+		}
+	}
+
+	private void writeHeader(String entryName, byte type, int mode, long size,
+			long lastModified) throws IOException {
+		byte[] name = entryName.getBytes("UTF-8");
+		byte[] prefix = new byte[0];
+		if (name.length > NAME_LENGTH) {
+			int split = findPrefixSplit(name);
+			if (split < 0) {
+				writeLongName(name);
+				name = Arrays.copyOf(name, NAME_LENGTH);
+			} else {
+				prefix = Arrays.copyOfRange(name, 0, split);
+				name = Arrays.copyOfRange(name, split + 1, name.length);
+			}
+		}
+		byte[] header = createHeader(name, prefix, type, mode, size, lastModified);
+		out.write(header);
+	}
+
+	/**
+	 * @return index of the '/' that splits the name into a ustar prefix and name,
+	 *         or -1 if the name cannot be split.
+	 */
+	private int findPrefixSplit(byte[] name) {
+		for (int i = Math.min(PREFIX_LENGTH, name.length - 1); i > 0; i--)
+			if (name[i] == '/' && name.length - i - 1 <= NAME_LENGTH
+					&& name.length - i - 1 > 0)
+				return i;
+		return -1;
+	}
+
+	private void writeLongName(byte[] name) throws IOException {
+		long size = name.length + 1;
+		out.write(createHeader(LONG_LINK_NAME.getBytes("UTF-8"), new byte[0],
+				TYPE_LONG_NAME, FILE_MODE, size, 0));
+		out.write(name);
+		out.write(0);
+		writePadding(size);
+	}
+
+	private byte[] createHeader(byte[] name, byte[] prefix, byte type, int mode,
+			long size, long lastModified) {
+		byte[] header = new byte[BLOCK_SIZE];
+		System.arraycopy(name, 0, header, 0, name.length);
+		putOctal(header, 100, 8, mode);
+		putOctal(header, 108, 8, 0);
+		putOctal(header, 116, 8, 0);
+		putSize(header, size);
+		putOctal(header, 136, 12, lastModified / 1000);
+		header[156] = type;
+		putAscii(header, 257, "ustar\0");
+		putAscii(header, 263, "00");
+		System.arraycopy(prefix, 0, header, 345, prefix.length);
+		putChecksum(header);
+		return header;
+	}
+
+	private void putSize(byte[] header, long size) {
+		if (size <= MAX_OCTAL_SIZE) {
+			putOctal(header, 124, 12, size);
+		} else {
+			header[124] = (byte) 0x80;
+			for (int i = 135; i > 124; i--, size >>>= 8)
+				header[i] = (byte) size;
+		}
+	}
+
+	private void putChecksum(byte[] header) {
+		Arrays.fill(header, 148, 156, (byte) ' ');
+		long checksum = 0;
+		for (byte b : header)
+			checksum += b & 0xff;
+		putOctal(header, 148, 7, checksum);
+	}
+
+	/**
+	 * Puts the value as zero padded octal digits followed by a NUL byte.
+	 */
+	private static void putOctal(byte[] header, int offset, int length,
+			long value) {
+		String octal = Long.toOctalString(value);
+		int digits = length - 1;
+		for (int i = 0; i < digits - octal.length(); i++)
+			header[offset + i] = '0';
+		putAscii(header, offset + digits - octal.length(), octal);
+		header[offset + digits] = 0;
+	}
+
+	private static void putAscii(byte[] header, int offset, String value) {
+		for (int i = 0; i < value.length(); i++)
+			header[offset + i] = (byte) value.charAt(i);
+	}
+
+	private void writePadding(long size) throws IOException {
+		int remainder = (int) (size % BLOCK_SIZE);
+		if (remainder != 0)
+			out.write(new byte[BLOCK_SIZE - remainder]);
+	}
+
+	/**
+	 * Writes the end of archive marker. Does not close the stream.
+	 */
+	void finish() throws IOException {
+		out.write(new byte[BLOCK_SIZE * 2]);
+		out.flush();
+	}
+}
@@ -14,15 +14,15 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.importexport.tgz;
 
-import static java.util.Arrays.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.importexport.BucketImporter;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
-import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.archiver.util.UtilsBucket;
@@ -32,40 +32,32 @@ import com.splunk.shuttl.archiver.util.UtilsBucket;
  */
 public class TgzImporter implements BucketImporter {
 
-	private ShellExecutor shellExecutor;
+	private static final Logger logger = Logger.getLogger(TgzImporter.class);
+
+	private final ExtractsBucketTgz extractsBucketTgz;
 
-	public TgzImporter(ShellExecutor shellExecutor) {
-		this.shellExecutor = shellExecutor;
+	public TgzImporter(ExtractsBucketTgz extractsBucketTgz) {
+		this.extractsBucketTgz = extractsBucketTgz;
 	}
 
 	@Override
 	public LocalBucket importBucket(LocalBucket bucket) {
 		File tgzFile = UtilsBucket.getTgzFile(bucket);
-		int exit = executeCommand(buildCommand(bucket, tgzFile));
-		deleteOnSuccess(bucket, tgzFile, exit);
+		extractTgz(bucket, tgzFile);
+		tgzFile.delete();
 		return BucketFactory.createBucketWithIndexDirectoryAndFormat(
 				bucket.getIndex(), bucket.getDirectory(), BucketFormat.SPLUNK_BUCKET);
 	}
 
-	private String[] buildCommand(LocalBucket b, File tgzFile) {
-		String tgzPath = tgzFile.getAbsolutePath();
-		String bucketParentPath = b.getDirectory().getParentFile()
-				.getAbsolutePath();
-		String extractCmd = "tar -xf " + tgzPath + " -C " + bucketParentPath;
-		return new String[] { "/bin/sh", "-c", extractCmd };
-	}
-
-	private int executeCommand(String[] command) {
-		int exit = shellExecutor.executeCommand(new HashMap<String, String>(),
-				asList(command));
-		return exit;
-	}
-
-	private void deleteOnSuccess(Bucket bucket, File tgzFile, int exit) {
-		if (exit == 0)
-			tgzFile.delete();
-		else
+	private void extractTgz(LocalBucket bucket, File tgzFile) {
+		File bucketParent = bucket.getDirectory().getParentFile();
+		try {
+			extractsBucketTgz.extractTgz(tgzFile, bucketParent);
+		} catch (IOException e) {
+			logger.error(did("Extracted tgz", e, "to import the bucket", "bucket",
+					bucket, "tgz", tgzFile));
 			throw new TgzImportFailedException("Failed to import bucket: " + bucket);
+		}
 	}
 
 	public static class TgzImportFailedException extends RuntimeException {
@@ -79,6 +71,6 @@ public class TgzImporter implements BucketImporter {
 	}
 
 	public static TgzImporter create() {
-		return new TgzImporter(ShellExecutor.getInstance());
+		return new TgzImporter(ExtractsBucketTgz.create());
 	}
 }
@@ -0,0 +1,79 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+/**
+ * Tars and gzips a bucket directory in the JVM, straight into an
+ * {@link OutputStream}. The tar is gzipped in parallel on the
+ * {@link CompressorPool}.
+ */
+public class WritesBucketTgz {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final CompressorPool compressorPool;
+	private final TransferThrottle throttle;
+
+	public WritesBucketTgz(CompressorPool compressorPool) {
+		this(compressorPool, TransferThrottle.createUnlimited());
+	}
+
+	/**
+	 * @param throttle
+	 *          limits reading the bucket's files from disk.
+	 */
+	public WritesBucketTgz(CompressorPool compressorPool,
+			TransferThrottle throttle) {
+		this.compressorPool = compressorPool;
+		this.throttle = throttle;
+	}
+
+	/**
+	 * Writes the bucket as a .tgz to the stream. Finishes the gzip stream but
+	 * does not close the stream.
+	 */
+	public void writeTgz(LocalBucket bucket, OutputStream out)
+			throws IOException {
+		writeTgz(bucket.getDirectory(), out);
+	}
+
+	/**
+	 * @see #writeTgz(LocalBucket, OutputStream)
+	 */
+	public void writeTgz(File bucketDirectory, OutputStream out)
+			throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				compressorPool);
+		BufferedOutputStream buffered = new BufferedOutputStream(gzip,
+				BUFFER_SIZE);
+		TarWriter tarWriter = new TarWriter(buffered, throttle);
+		tarWriter.putDirectory(bucketDirectory);
+		tarWriter.finish();
+		gzip.finish();
+	}
+
+	public static WritesBucketTgz create() {
+		return new WritesBucketTgz(CompressorPool.getSharedInstance(),
+				TransferThrottle.getSharedInstance());
+	}
+}
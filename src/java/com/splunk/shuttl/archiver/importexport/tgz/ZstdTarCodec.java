@@ -0,0 +1,126 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * Zstandard compression of bucket tars, with zstd-jni. Compresses with zstd's
+ * own worker threads.
+ */
+public class ZstdTarCodec implements TarCodec {
+
+	private static final Logger logger = Logger.getLogger(ZstdTarCodec.class);
+
+	public static final int DEFAULT_LEVEL = 3;
+	public static final int MAX_LEVEL = 22;
+
+	private final int level;
+	private final int workers;
+
+	/**
+	 * @param level
+	 *          zstd compression level, 1 to 22.
+	 * @param workers
+	 *          threads compressing each tar. One or less compresses in the
+	 *          calling thread.
+	 */
+	public ZstdTarCodec(int level, int workers) {
+		if (level < 1 || level > MAX_LEVEL)
+			throw new IllegalArgumentException("Zstd level must be 1 to "
+					+ MAX_LEVEL + ", was: " + level);
+		this.level = level;
+		this.workers = workers;
+	}
+
+	@Override
+	public BucketFormat getFormat() {
+		return BucketFormat.SPLUNK_BUCKET_ZSTD;
+	}
+
+	@Override
+	public String getExtension() {
+		return "tzst";
+	}
+
+	/**
+	 * @return false if zstd-jni has no native library for this platform.
+	 */
+	@Override
+	public boolean isAvailable() {
+		try {
+			Native.load();
+			return true;
+		} catch (LinkageError e) {
+			logger.warn(warn("Loaded zstd native library", e,
+					"zstd compressed buckets will not be used"));
+			return false;
+		}
+	}
+
+	@Override
+	public OutputStream compress(OutputStream out) throws IOException {
+		ZstdOutputStream zstd = new ZstdOutputStream(out, level);
+		if (workers > 1)
+			zstd.setWorkers(workers);
+		return zstd;
+	}
+
+	@Override
+	public InputStream decompress(InputStream in) throws IOException {
+		return new ZstdInputStream(in);
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public static ZstdTarCodec createWithMBean(ShuttlServerMBean serverMBean) {
+		int level = serverMBean.getZstdCompressionLevel();
+		int threads = serverMBean.getCompressorThreads();
+		return new ZstdTarCodec(level > 0 ? level : DEFAULT_LEVEL,
+				threads > 0 ? threads : CompressorPool.getDefaultThreads());
+	}
+
+	public static ZstdTarCodec create() {
+		try {
+			return createWithMBean(ShuttlServer.getMBeanProxy());
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlServerMBean", e,
+					"Will use the default zstd level", "level", DEFAULT_LEVEL));
+			return new ZstdTarCodec(DEFAULT_LEVEL,
+					CompressorPool.getDefaultThreads());
+		}
+	}
+}
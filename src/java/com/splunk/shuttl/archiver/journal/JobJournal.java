@@ -0,0 +1,544 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.journal;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Append-only journal of archive and copy jobs. Every state change of a job is
+ * appended as a line and the last line for a bucket decides the state of its
+ * job, so pending jobs are listed by reading the journal instead of walking
+ * bucket directories.<br/>
+ * <br/>
+ * Enqueued jobs are written and synced right away, since they are written
+ * ahead of the work. Other state changes are buffered and synced in batches.
+ * The journal is shared by the server and the scripts' JVMs, so the journal
+ * file is only touched while holding a lock on a separate lock file.<br/>
+ * <br/>
+ * The latest state of the jobs that are not completed is kept in memory and
+ * only the lines appended since the last read are read. When the journal has
+ * grown past a number of lines and most of them are stale, it is compacted.
+ * Every compaction bumps a generation number in the lock file, so other
+ * instances know to read the compacted journal from the start.
+ */
+public class JobJournal {
+
+	private static final Logger logger = Logger.getLogger(JobJournal.class);
+
+	public static final int DEFAULT_SYNC_BATCH_SIZE = 64;
+	public static final int DEFAULT_COMPACT_AFTER_LINES = 10000;
+	private static final String JOURNAL_FILE_NAME = "jobs.journal";
+	private static final String LOCK_FILE_NAME = "jobs.lock";
+	private static final String WALKED_SUFFIX = ".walked";
+	private static final String SEPARATOR = "\t";
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * File locks are held by the JVM, so threads in the same JVM are kept apart
+	 * with this lock.
+	 */
+	private static final Object JVM_LOCK = new Object();
+
+	private final File journalFile;
+	private final File lockFile;
+	private final int syncBatchSize;
+	private final int compactAfterLines;
+	private final List<Job> unsyncedJobs;
+
+	/** Latest state of the jobs that are not completed, in journal order. */
+	private final Map<String, Job> latestJobs;
+	private long readPosition;
+	private int linesRead;
+	private long generation;
+
+	public JobJournal(File journalFile, File lockFile, int syncBatchSize) {
+		this(journalFile, lockFile, syncBatchSize, DEFAULT_COMPACT_AFTER_LINES);
+	}
+
+	/**
+	 * @param compactAfterLines
+	 *          number of lines the journal can grow to before it is compacted.
+	 */
+	public JobJournal(File journalFile, File lockFile, int syncBatchSize,
+			int compactAfterLines) {
+		this.journalFile = journalFile;
+		this.lockFile = lockFile;
+		this.syncBatchSize = syncBatchSize;
+		this.compactAfterLines = compactAfterLines;
+		this.unsyncedJobs = new ArrayList<Job>();
+		this.latestJobs = new LinkedHashMap<String, Job>();
+	}
+
+	/**
+	 * Records that work on a bucket is about to be done. Returns when the entry
+	 * is synced to disk.
+	 * 
+	 * @param bucketDirectory
+	 *          where the bucket will be when the work is done. Does not have to
+	 *          exist yet.
+	 */
+	public synchronized void enqueue(JobType type, String index,
+			File bucketDirectory) {
+		unsyncedJobs.add(new Job(JobState.ENQUEUED, type, index, bucketDirectory));
+		flush();
+	}
+
+	public void markStarted(JobType type, LocalBucket bucket) {
+		record(JobState.STARTED, type, bucket);
+	}
+
+	public void markCompleted(JobType type, LocalBucket bucket) {
+		record(JobState.COMPLETED, type, bucket);
+	}
+
+	public void markFailed(JobType type, LocalBucket bucket) {
+		record(JobState.FAILED, type, bucket);
+	}
+
+	private synchronized void record(JobState state, JobType type,
+			LocalBucket bucket) {
+		unsyncedJobs.add(new Job(state, type, bucket.getIndex(), bucket
+				.getDirectory()));
+		if (unsyncedJobs.size() >= syncBatchSize)
+			flush();
+	}
+
+	/**
+	 * Writes and syncs all buffered entries with a single fsync. Compacts the
+	 * journal if it has grown too large.
+	 * 
+	 * @throws JobJournalException
+	 *           if the entries could not be written.
+	 */
+	public synchronized void flush() {
+		if (unsyncedJobs.isEmpty())
+			return;
+		synchronized (JVM_LOCK) {
+			RandomAccessFile lock = lockJournal();
+			try {
+				appendJobs(unsyncedJobs);
+				unsyncedJobs.clear();
+				readNewJobs(lock);
+				if (shouldCompact())
+					compact(lock, new ArrayList<Job>(latestJobs.values()));
+			} catch (IOException e) {
+				logger.error(did("Appended jobs to journal", e, "to write and sync",
+						"journal", journalFile, "jobs", unsyncedJobs));
+				throw new JobJournalException(e);
+			} finally {
+				IOUtils.closeQuietly(lock);
+			}
+		}
+	}
+
+	/**
+	 * Compacting is worth it when most of the lines are for jobs that are done
+	 * or have newer lines.
+	 */
+	private boolean shouldCompact() {
+		return linesRead >= compactAfterLines
+				&& linesRead > 2 * latestJobs.size();
+	}
+
+	private void appendJobs(List<Job> jobs) throws IOException {
+		RandomAccessFile journal = new RandomAccessFile(journalFile, "rw");
+		try {
+			long length = journal.length();
+			journal.seek(length);
+			if (length > 0 && !endsWithNewLine(journal, length))
+				journal.write('\n');
+			journal.write(toLines(jobs).getBytes(ENCODING));
+			journal.getChannel().force(false);
+		} finally {
+			journal.close();
+		}
+	}
+
+	/**
+	 * A crash can leave a half written line. The next entry must not be glued
+	 * to it.
+	 */
+	private boolean endsWithNewLine(RandomAccessFile journal, long length)
+			throws IOException {
+		journal.seek(length - 1);
+		boolean endsWithNewLine = journal.read() == '\n';
+		journal.seek(length);
+		return endsWithNewLine;
+	}
+
+	private String toLines(List<Job> jobs) {
+		StringBuilder lines = new StringBuilder();
+		for (Job job : jobs)
+			lines.append(job.toLine()).append('\n');
+		return lines.toString();
+	}
+
+	private RandomAccessFile lockJournal() {
+		RandomAccessFile lock = null;
+		try {
+			lockFile.getParentFile().mkdirs();
+			lock = new RandomAccessFile(lockFile, "rw");
+			lock.getChannel().lock();
+			return lock;
+		} catch (IOException e) {
+			IOUtils.closeQuietly(lock);
+			logger.error(did("Locked job journal", e, "to get the lock",
+					"lock_file", lockFile));
+			throw new JobJournalException(e);
+		}
+	}
+
+	/**
+	 * @return buckets with jobs of the type that are enqueued or have failed and
+	 *         whose directories exist. Jobs that have been started are being
+	 *         worked on and are not included.
+	 */
+	public synchronized List<LocalBucket> getPendingBuckets(JobType type) {
+		flush();
+		synchronized (JVM_LOCK) {
+			RandomAccessFile lock = lockJournal();
+			try {
+				readNewJobs(lock);
+				return toBuckets(pendingJobs(type));
+			} catch (IOException e) {
+				logger.error(did("Read job journal", e, "to read the jobs",
+						"journal", journalFile));
+				throw new JobJournalException(e);
+			} finally {
+				IOUtils.closeQuietly(lock);
+			}
+		}
+	}
+
+	/**
+	 * Marks the pending jobs of the type as started and syncs them, while
+	 * holding the journal lock. Journals in other JVMs will therefore not list
+	 * the same jobs as pending.
+	 * 
+	 * @return buckets of the jobs that were started, as listed by
+	 *         {@link #getPendingBuckets(JobType)}.
+	 */
+	public synchronized List<LocalBucket> startPendingBuckets(JobType type) {
+		flush();
+		synchronized (JVM_LOCK) {
+			RandomAccessFile lock = lockJournal();
+			List<Job> startedJobs = new ArrayList<Job>();
+			try {
+				readNewJobs(lock);
+				for (Job job : pendingJobs(type))
+					startedJobs.add(job.withState(JobState.STARTED));
+				if (!startedJobs.isEmpty()) {
+					appendJobs(startedJobs);
+					readNewJobs(lock);
+				}
+				return toBuckets(startedJobs);
+			} catch (IOException e) {
+				logger.error(did("Started pending jobs", e,
+						"to mark the jobs started and sync them", "journal",
+						journalFile, "jobs", startedJobs));
+				throw new JobJournalException(e);
+			} finally {
+				IOUtils.closeQuietly(lock);
+			}
+		}
+	}
+
+	private List<Job> pendingJobs(JobType type) {
+		List<Job> pending = new ArrayList<Job>();
+		for (Job job : latestJobs.values())
+			if (job.type == type && isRetryable(job.state)
+					&& job.bucketDirectory.isDirectory())
+				pending.add(job);
+		return pending;
+	}
+
+	private boolean isRetryable(JobState state) {
+		return state == JobState.ENQUEUED || state == JobState.FAILED;
+	}
+
+	private List<LocalBucket> toBuckets(List<Job> jobs) {
+		List<LocalBucket> buckets = new ArrayList<LocalBucket>();
+		for (Job job : jobs)
+			buckets.add(BucketFactory.createBucketWithIndexDirectoryAndFormat(
+					job.index, job.bucketDirectory, BucketFormat.SPLUNK_BUCKET));
+		return buckets;
+	}
+
+	/**
+	 * Folds the complete lines that were appended since the last read into the
+	 * latest jobs. Reads the whole journal if it has been compacted or replaced
+	 * since then. Must be called while holding the journal lock.
+	 */
+	private void readNewJobs(RandomAccessFile lock) throws IOException {
+		long currentGeneration = readGeneration(lock);
+		if (currentGeneration != generation
+				|| journalFile.length() < readPosition) {
+			forgetJobs();
+			generation = currentGeneration;
+		}
+		if (!journalFile.exists())
+			return;
+		RandomAccessFile journal = new RandomAccessFile(journalFile, "r");
+		try {
+			byte[] newBytes = new byte[(int) (journal.length() - readPosition)];
+			journal.seek(readPosition);
+			journal.readFully(newBytes);
+			int completeLength = lastIndexOfNewLine(newBytes) + 1;
+			foldLines(new String(newBytes, 0, completeLength, ENCODING));
+			readPosition += completeLength;
+		} finally {
+			journal.close();
+		}
+	}
+
+	private void forgetJobs() {
+		latestJobs.clear();
+		readPosition = 0;
+		linesRead = 0;
+	}
+
+	private int lastIndexOfNewLine(byte[] bytes) {
+		for (int i = bytes.length - 1; i >= 0; i--)
+			if (bytes[i] == '\n')
+				return i;
+		return -1;
+	}
+
+	private void foldLines(String lines) {
+		if (lines.isEmpty())
+			return;
+		for (String line : lines.split("\n")) {
+			linesRead++;
+			Job job = Job.parse(line);
+			if (job != null) {
+				latestJobs.remove(job.getKey());
+				if (job.state != JobState.COMPLETED)
+					latestJobs.put(job.getKey(), job);
+			}
+		}
+	}
+
+	private long readGeneration(RandomAccessFile lock) throws IOException {
+		if (lock.length() < 8)
+			return 0;
+		lock.seek(0);
+		return lock.readLong();
+	}
+
+	/**
+	 * Rewrites the journal with the jobs and bumps the generation, so that other
+	 * instances read the new journal from the start.
+	 */
+	private void compact(RandomAccessFile lock, List<Job> jobs)
+			throws IOException {
+		rewriteJournal(jobs);
+		long newGeneration = readGeneration(lock) + 1;
+		lock.seek(0);
+		lock.writeLong(newGeneration);
+		lock.getChannel().force(false);
+		readNewJobs(lock);
+	}
+
+	/**
+	 * Replays the journal and rewrites it with only the jobs that are still
+	 * pending. Jobs that were started when the server went down are enqueued
+	 * again, and jobs whose bucket directory is gone are dropped. Should be run
+	 * when the server starts.
+	 */
+	public synchronized void replay() {
+		flush();
+		synchronized (JVM_LOCK) {
+			RandomAccessFile lock = lockJournal();
+			try {
+				readNewJobs(lock);
+				compact(lock, pendingJobsAfterRestart());
+			} catch (IOException e) {
+				logger.error(did("Rewrote job journal", e,
+						"to compact the journal with the pending jobs", "journal",
+						journalFile));
+				throw new JobJournalException(e);
+			} finally {
+				IOUtils.closeQuietly(lock);
+			}
+		}
+	}
+
+	private List<Job> pendingJobsAfterRestart() {
+		List<Job> pendingJobs = new ArrayList<Job>();
+		for (Job job : latestJobs.values())
+			if (job.state != JobState.COMPLETED && job.bucketDirectory.isDirectory())
+				pendingJobs.add(job.state == JobState.STARTED ? job
+						.withState(JobState.ENQUEUED) : job);
+		logger.info(done("Replayed job journal", "journal", journalFile,
+				"unfinished_jobs", latestJobs.size(), "pending_jobs",
+				pendingJobs.size()));
+		return pendingJobs;
+	}
+
+	private void rewriteJournal(List<Job> jobs) throws IOException {
+		File compacted = new File(journalFile.getParentFile(),
+				journalFile.getName() + ".compacted");
+		FileUtils.deleteQuietly(compacted);
+		RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+		try {
+			out.write(toLines(jobs).getBytes(ENCODING));
+			out.getChannel().force(false);
+		} finally {
+			out.close();
+		}
+		if (!compacted.renameTo(journalFile))
+			throw new IOException("Could not replace journal " + journalFile
+					+ " with " + compacted);
+	}
+
+	/**
+	 * @return true if any job has ever been written to the journal.
+	 */
+	public boolean exists() {
+		return journalFile.exists();
+	}
+
+	/**
+	 * Records that the buckets of the index have been walked for jobs of the
+	 * type. Buckets that existed before the journal did are only found by such a
+	 * walk, so callers walk until the walk is recorded.
+	 */
+	public void markWalked(JobType type, String index) {
+		File marker = getWalkedMarker(type, index);
+		try {
+			FileUtils.touch(marker);
+		} catch (IOException e) {
+			logger.warn(warn("Created walked marker", e,
+					"the buckets will be walked again", "marker", marker));
+		}
+	}
+
+	/**
+	 * @return true if {@link #markWalked(JobType, String)} has been called for
+	 *         the type and index.
+	 */
+	public boolean hasWalked(JobType type, String index) {
+		return getWalkedMarker(type, index).exists();
+	}
+
+	private File getWalkedMarker(JobType type, String index) {
+		return new File(journalFile.getParentFile(), type + "-" + index
+				+ WALKED_SUFFIX);
+	}
+
+	/**
+	 * Flushes buffered entries periodically on a daemon thread, so entries are
+	 * synced even when there are fewer of them than a batch.
+	 */
+	public Timer flushPeriodically(long periodMillis) {
+		Timer timer = new Timer("job-journal-flusher", true);
+		timer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				try {
+					flush();
+				} catch (RuntimeException e) {
+					logger.warn(warn("Flushed job journal", e, "will try again",
+							"journal", journalFile));
+				}
+			}
+		}, periodMillis, periodMillis);
+		return timer;
+	}
+
+	private static class Job {
+
+		private final JobState state;
+		private final JobType type;
+		private final String index;
+		private final File bucketDirectory;
+
+		public Job(JobState state, JobType type, String index,
+				File bucketDirectory) {
+			this.state = state;
+			this.type = type;
+			this.index = index;
+			this.bucketDirectory = bucketDirectory.getAbsoluteFile();
+		}
+
+		public String getKey() {
+			return type + SEPARATOR + bucketDirectory.getPath();
+		}
+
+		public Job withState(JobState newState) {
+			return new Job(newState, type, index, bucketDirectory);
+		}
+
+		public String toLine() {
+			return state + SEPARATOR + type + SEPARATOR + index + SEPARATOR
+					+ bucketDirectory.getPath();
+		}
+
+		/**
+		 * @return job, or null if the line is not a complete entry.
+		 */
+		public static Job parse(String line) {
+			String[] fields = line.split(SEPARATOR, 4);
+			if (fields.length != 4)
+				return null;
+			try {
+				return new Job(JobState.valueOf(fields[0]),
+						JobType.valueOf(fields[1]), fields[2], new File(fields[3]));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return toLine();
+		}
+	}
+
+	public static class JobJournalException extends RuntimeException {
+
+		public JobJournalException(Throwable cause) {
+			super(cause);
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static JobJournal create(LocalFileSystemPaths localFileSystemPaths) {
+		File journalDirectory = localFileSystemPaths.getJobJournalDirectory();
+		return new JobJournal(new File(journalDirectory, JOURNAL_FILE_NAME),
+				new File(journalDirectory, LOCK_FILE_NAME), DEFAULT_SYNC_BATCH_SIZE);
+	}
+}
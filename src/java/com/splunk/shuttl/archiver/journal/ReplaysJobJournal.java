@@ -0,0 +1,61 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.journal;
+
+import java.io.File;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Replays the {@link JobJournal} when the server starts. Buckets that were
+ * moved to the safe location before there was a journal are enqueued the first
+ * time, which is the only time the safe location is walked.
+ */
+public class ReplaysJobJournal {
+
+	private final JobJournal jobJournal;
+	private final IndexPreservingBucketMover safeBucketsMover;
+
+	/**
+	 * @param safeBucketsMover
+	 *          that lists moved buckets by walking the safe location.
+	 */
+	public ReplaysJobJournal(JobJournal jobJournal,
+			IndexPreservingBucketMover safeBucketsMover) {
+		this.jobJournal = jobJournal;
+		this.safeBucketsMover = safeBucketsMover;
+	}
+
+	public void replay() {
+		if (!jobJournal.exists())
+			enqueueBucketsInSafeLocation();
+		jobJournal.replay();
+	}
+
+	private void enqueueBucketsInSafeLocation() {
+		for (Bucket bucket : safeBucketsMover.getBucketsInMoveLocation())
+			jobJournal.enqueue(JobType.ARCHIVE, bucket.getIndex(),
+					new File(bucket.getPath()));
+	}
+
+	public static ReplaysJobJournal create() {
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
+		return new ReplaysJobJournal(JobJournal.create(localFileSystemPaths),
+				IndexPreservingBucketMover.create(localFileSystemPaths
+						.getSafeDirectory()));
+	}
+}
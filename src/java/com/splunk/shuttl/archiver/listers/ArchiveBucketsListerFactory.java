@@ -28,8 +28,15 @@ public class ArchiveBucketsListerFactory {
 	 * @return instance configured with the configuration.
 	 */
 	public static ArchiveBucketsLister create(ArchiveConfiguration config) {
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getWithConfiguration(config);
+		return create(config,
+				ArchiveFileSystemFactory.getWithConfiguration(config));
+	}
+
+	/**
+	 * @return instance listing buckets in an already created file system.
+	 */
+	public static ArchiveBucketsLister create(ArchiveConfiguration config,
+			ArchiveFileSystem archiveFileSystem) {
 		PathResolver pathResolver = new PathResolver(config);
 
 		ArchivedIndexesLister indexesLister = new ArchivedIndexesLister(
@@ -15,6 +15,8 @@
 package com.splunk.shuttl.archiver.listers;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
 import com.splunk.shuttl.archiver.thaw.BucketFilter;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolver;
 import com.splunk.shuttl.archiver.thaw.BucketFormatResolverFactory;
@@ -29,11 +31,20 @@ public class ListsBucketsFilteredFactory {
 	 *         config.
 	 */
 	public static ListsBucketsFiltered create(ArchiveConfiguration config) {
-		ArchiveBucketsLister bucketsLister = ArchiveBucketsListerFactory
-				.create(config);
+		return create(config,
+				ArchiveFileSystemFactory.getWithConfiguration(config));
+	}
+
+	/**
+	 * @return instance listing buckets in an already created file system.
+	 */
+	public static ListsBucketsFiltered create(ArchiveConfiguration config,
+			ArchiveFileSystem archiveFileSystem) {
+		ArchiveBucketsLister bucketsLister = ArchiveBucketsListerFactory.create(
+				config, archiveFileSystem);
 		BucketFilter bucketFilter = new BucketFilter();
 		BucketFormatResolver bucketFormatResolver = BucketFormatResolverFactory
-				.create(config);
+				.create(config, archiveFileSystem);
 		return new ListsBucketsFiltered(bucketsLister, bucketFilter,
 				bucketFormatResolver);
 	}
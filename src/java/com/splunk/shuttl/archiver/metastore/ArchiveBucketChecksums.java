@@ -0,0 +1,82 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.DeferredMetadata;
+import com.splunk.shuttl.archiver.model.Bucket;
+
+/**
+ * Puts and gets the {@link ChecksumManifest} of an archived {@link Bucket}'s
+ * files. It is stored next to the bucket size, and is used to verify the
+ * bucket's files when it's thawed.
+ */
+public class ArchiveBucketChecksums {
+
+	public static final String FILE_NAME = "bucket.checksums";
+
+	private final MetadataStore metadataStore;
+
+	public ArchiveBucketChecksums(MetadataStore metadataStore) {
+		this.metadataStore = metadataStore;
+	}
+
+	/**
+	 * @return the checksums of an archived bucket's files, or null if the
+	 *         bucket was archived without checksums.
+	 */
+	public ChecksumManifest readChecksums(Bucket bucket) {
+		try {
+			return ChecksumManifest.parse(metadataStore.read(bucket, FILE_NAME));
+		} catch (CouldNotReadMetadataException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param checksums
+	 *          manifest that the bucket's transaction fills in. Nothing is
+	 *          persisted if the manifest is still empty when this transaction
+	 *          executes.
+	 * @return transaction that persists the checksums, when executed after the
+	 *         bucket's transaction.
+	 */
+	public Transaction getPersistChecksumsTransaction(Bucket bucket,
+			final ChecksumManifest checksums) {
+		return metadataStore.getDeferredPutTransaction(bucket, FILE_NAME,
+				new DeferredMetadata() {
+
+					@Override
+					public String getData() {
+						return checksums.isEmpty() ? null : checksums.format();
+					}
+				});
+	}
+
+	public static ArchiveBucketChecksums create(PathResolver pathResolver,
+			ArchiveFileSystem archiveFileSystem,
+			LocalFileSystemPaths localFileSystemPaths) {
+		return new ArchiveBucketChecksums(new MetadataStore(pathResolver,
+				new FlatFileStorage(localFileSystemPaths), archiveFileSystem,
+				new TransactionExecuter(), localFileSystemPaths,
+				MetadataLogs.getSharedInstance(localFileSystemPaths)));
+	}
+}
@@ -17,8 +17,10 @@ package com.splunk.shuttl.archiver.metastore;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.DeferredMetadata;
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
@@ -71,6 +73,25 @@ public class ArchiveBucketSize {
 		metadataStore.put(bucket, getSizeMetadataFileName(), "" + bucket.getSize());
 	}
 
+	/**
+	 * @param bucket
+	 *          to persist bucket size for.
+	 * @return transaction that persists the bucket size, when executed after the
+	 *         bucket's transaction. The size is read when the transaction is
+	 *         prepared, since buckets that are streamed to the archive only know
+	 *         their size once they have been written.
+	 */
+	public Transaction getPersistBucketSizeTransaction(final Bucket bucket) {
+		return metadataStore.getDeferredPutTransaction(bucket,
+				getSizeMetadataFileName(), new DeferredMetadata() {
+
+					@Override
+					public String getData() {
+						return "" + bucket.getSize();
+					}
+				});
+	}
+
 	/**
 	 * Instance with path resolver and archive file system.
 	 * 
@@ -81,6 +102,7 @@ public class ArchiveBucketSize {
 			LocalFileSystemPaths localFileSystemPaths) {
 		return new ArchiveBucketSize(new MetadataStore(pathResolver,
 				new FlatFileStorage(localFileSystemPaths), archiveFileSystem,
-				new TransactionExecuter(), localFileSystemPaths));
+				new TransactionExecuter(), localFileSystemPaths,
+				MetadataLogs.getSharedInstance(localFileSystemPaths)));
 	}
 }
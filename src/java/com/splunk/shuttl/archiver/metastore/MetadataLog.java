@@ -0,0 +1,648 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
+import com.splunk.shuttl.archiver.filesystem.transaction.file.GetFileTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.file.PutFileTransaction;
+import com.splunk.shuttl.archiver.util.UtilsPath;
+
+/**
+ * Append-only log with the metadata of all the buckets in an index, so that
+ * the archive gets a few segment files per index, instead of a few files per
+ * bucket.<br/>
+ * <br/>
+ * Records are appended and synced to a local pending file, and looked up in an
+ * in-memory index of where the last record of each key is. The pending file is
+ * put in the archive as a new segment when it has enough records, or when the
+ * log is flushed. Segments in the archive that are not local, like the ones put
+ * by other servers, are gotten when a key is missing, at most once per refresh
+ * interval. A record in a segment with a newer name wins.<br/>
+ * <br/>
+ * When there are too many segments, the newer and smaller segments are merged
+ * into one, so the log is not rewritten every time it's compacted. Segments
+ * are immutable, which is what makes the log work on archives that can't
+ * append to files.
+ */
+public class MetadataLog {
+
+	private static final Logger logger = Logger.getLogger(MetadataLog.class);
+
+	public static final int DEFAULT_FLUSH_RECORDS = 1000;
+	public static final int DEFAULT_MAX_SEGMENTS = 32;
+	public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 60 * 1000;
+
+	static final String PENDING_FILE_NAME = "pending.log";
+	static final String REMOTE_PATHS_FILE_NAME = "remote";
+	private static final String SEGMENTS_DIR_NAME = "segments";
+	private static final String TRANSFERS_DIR_NAME = "transfers";
+	private static final String REMOVED_DIR_NAME = "removed";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final char SEPARATOR = '\t';
+	private static final String ENCODING = "UTF-8";
+
+	private final File directory;
+	private final String home;
+	private final String temp;
+	private final TransactionExecuter transactionExecuter;
+	private final int flushRecords;
+	private final int maxSegments;
+	private final long refreshIntervalMillis;
+	private final Map<String, Record> index;
+	private final SortedMap<String, Segment> segments;
+	private ArchiveFileSystem archiveFileSystem;
+	private Segment pending;
+	private int pendingRecords;
+	private boolean loaded;
+	private long lastRefreshMillis;
+
+	/**
+	 * @param directory
+	 *          local directory of the log.
+	 * @param home
+	 *          where the segments are stored on the archive.
+	 * @param temp
+	 *          where the segments are transferred on the archive.
+	 * @param flushRecords
+	 *          number of pending records that flushes the log.
+	 * @param maxSegments
+	 *          number of segments that compacts the log.
+	 * @param refreshIntervalMillis
+	 *          minimum time between listing the segments in the archive.
+	 */
+	public MetadataLog(File directory, String home, String temp,
+			ArchiveFileSystem archiveFileSystem,
+			TransactionExecuter transactionExecuter, int flushRecords,
+			int maxSegments, long refreshIntervalMillis) {
+		this.directory = directory;
+		this.home = home;
+		this.temp = temp;
+		this.archiveFileSystem = archiveFileSystem;
+		this.transactionExecuter = transactionExecuter;
+		this.flushRecords = flushRecords;
+		this.maxSegments = maxSegments;
+		this.refreshIntervalMillis = refreshIntervalMillis;
+		this.index = new HashMap<String, Record>();
+		this.segments = new TreeMap<String, Segment>();
+	}
+
+	/**
+	 * The archive file system to transfer the segments with. The path of the
+	 * log is the same for all archive file systems of an archive path.
+	 */
+	public synchronized void setArchiveFileSystem(
+			ArchiveFileSystem archiveFileSystem) {
+		this.archiveFileSystem = archiveFileSystem;
+	}
+
+	/**
+	 * Appends and syncs a record locally, before it is put in the index. The
+	 * key must not contain tabs and neither key nor data may contain newlines.
+	 * Flushes the log if it has enough pending records, but failing to flush is
+	 * only logged, since the records are flushed again later.
+	 * 
+	 * @throws MetadataLogException
+	 *           if the record could not be written.
+	 */
+	public synchronized void put(String key, String data) {
+		load();
+		try {
+			long offset = append(pending.file, key + SEPARATOR + data + '\n');
+			index.put(key, new Record(pending, offset));
+			pendingRecords++;
+		} catch (IOException e) {
+			logger.error(did("Appended record to metadata log", e,
+					"to write and sync", "log", pending.file, "key", key));
+			throw new MetadataLogException(e);
+		}
+		if (pendingRecords >= flushRecords)
+			flushQuietly();
+	}
+
+	private long append(File file, String line) throws IOException {
+		RandomAccessFile log = new RandomAccessFile(file, "rw");
+		try {
+			long offset = log.length();
+			log.seek(offset);
+			log.write(line.getBytes(ENCODING));
+			log.getChannel().force(false);
+			return offset;
+		} finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * @return data of the last record of the key, or null if there is none.
+	 * @throws MetadataLogException
+	 *           if the record could not be read.
+	 */
+	public synchronized String get(String key) {
+		load();
+		Record record = index.get(key);
+		if (record == null && isTimeToRefresh()) {
+			refreshQuietly();
+			record = index.get(key);
+		}
+		if (record == null)
+			return null;
+		try {
+			return readData(record);
+		} catch (IOException e) {
+			logger.error(did("Read record from metadata log", e, "to read it",
+					"segment", record.segment.file, "key", key));
+			throw new MetadataLogException(e);
+		}
+	}
+
+	private boolean isTimeToRefresh() {
+		long sinceRefresh = System.currentTimeMillis() - lastRefreshMillis;
+		return sinceRefresh >= refreshIntervalMillis;
+	}
+
+	private String readData(Record record) throws IOException {
+		RandomAccessFile segment = new RandomAccessFile(record.segment.file, "r");
+		try {
+			segment.seek(record.offset);
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int end = -1;
+			int read;
+			while (end < 0 && (read = segment.read(buffer)) != -1) {
+				end = indexOfNewline(buffer, read);
+				line.write(buffer, 0, end < 0 ? read : end);
+			}
+			String text = line.toString(ENCODING);
+			return text.substring(text.indexOf(SEPARATOR) + 1);
+		} finally {
+			segment.close();
+		}
+	}
+
+	private int indexOfNewline(byte[] buffer, int length) {
+		for (int i = 0; i < length; i++)
+			if (buffer[i] == '\n')
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @return number of records that are not in the archive yet.
+	 */
+	public synchronized int getPendingRecords() {
+		load();
+		return pendingRecords;
+	}
+
+	/**
+	 * @return number of segments of the log, that are in the archive.
+	 */
+	public synchronized int getSegments() {
+		load();
+		return segments.size();
+	}
+
+	/**
+	 * Puts the pending records in the archive as a new segment, and compacts
+	 * the log if it has too many segments.
+	 * 
+	 * @throws MetadataLogException
+	 *           if the segment could not be put in the archive.
+	 */
+	public synchronized void flush() {
+		load();
+		if (pendingRecords == 0)
+			return;
+		try {
+			String name = createSegmentName(System.currentTimeMillis());
+			File segmentFile = new File(getSegmentsDirectory(), name);
+			putSegment(pending.file, name, segmentFile);
+			pending.name = name;
+			pending.file = segmentFile;
+			segments.put(name, pending);
+			logger.info(done("Flushed metadata log", "log", directory, "segment",
+					name, "records", pendingRecords));
+			pending = new Segment(null, new File(directory, PENDING_FILE_NAME));
+			pendingRecords = 0;
+		} catch (IOException e) {
+			throw flushFailed(e);
+		} catch (TransactionException e) {
+			throw flushFailed(e);
+		}
+		compactIfNeeded();
+	}
+
+	private MetadataLogException flushFailed(Exception e) {
+		logger.error(did("Flushed metadata log", e,
+				"to put the pending records in the archive", "log", directory,
+				"records", pendingRecords));
+		return new MetadataLogException(e);
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (MetadataLogException e) {
+			logger.warn(warn("Flushed metadata log", e,
+					"Will flush the records later", "log", directory));
+		}
+	}
+
+	private String createSegmentName(long millis) {
+		return String.format("%013d-%s%s", millis, UUID.randomUUID(),
+				SEGMENT_SUFFIX);
+	}
+
+	private long getMillis(String segmentName) {
+		return Long.parseLong(segmentName.substring(0, segmentName.indexOf('-')));
+	}
+
+	private void putSegment(File local, String name, File segmentFile)
+			throws IOException {
+		transactionExecuter.execute(PutFileTransaction.create(archiveFileSystem,
+				local.getAbsolutePath(), temp + PathResolver.SEPARATOR + name, home
+						+ PathResolver.SEPARATOR + name));
+		if (!local.renameTo(segmentFile))
+			throw new IOException("Could not move " + local + " to " + segmentFile);
+	}
+
+	/**
+	 * Loads the index from the local segments and pending file, unless it is
+	 * already loaded, and gets the segments that are only in the archive.
+	 * 
+	 * @throws MetadataLogException
+	 *           if the local log could not be read.
+	 */
+	public synchronized void load() {
+		if (loaded)
+			return;
+		try {
+			writeRemotePaths();
+			for (File file : getSegmentsDirectory().listFiles())
+				if (file.getName().endsWith(SEGMENT_SUFFIX))
+					segments.put(file.getName(), new Segment(file.getName(), file));
+			pending = new Segment(null, new File(directory, PENDING_FILE_NAME));
+			if (pending.file.exists())
+				truncateIncompleteLine(pending.file);
+			indexAll();
+			loaded = true;
+			logger.info(done("Loaded metadata log", "log", directory, "segments",
+					segments.size(), "pending_records", pendingRecords));
+		} catch (IOException e) {
+			logger.error(did("Loaded metadata log", e, "to read the local log",
+					"log", directory));
+			throw new MetadataLogException(e);
+		}
+		refreshQuietly();
+	}
+
+	private void writeRemotePaths() throws IOException {
+		File remotePaths = new File(directory, REMOTE_PATHS_FILE_NAME);
+		if (!remotePaths.exists())
+			FileUtils.writeStringToFile(remotePaths, home + '\n' + temp + '\n',
+					ENCODING);
+	}
+
+	/**
+	 * @return the home and temp paths of the log in the directory.
+	 */
+	static List<String> readRemotePaths(File directory) throws IOException {
+		return FileUtils.readLines(new File(directory, REMOTE_PATHS_FILE_NAME),
+				ENCODING);
+	}
+
+	/**
+	 * A crash can leave a half written record, which is removed instead of
+	 * read.
+	 */
+	private void truncateIncompleteLine(File file) throws IOException {
+		RandomAccessFile log = new RandomAccessFile(file, "rw");
+		try {
+			long length = log.length();
+			while (length > 0) {
+				log.seek(length - 1);
+				if (log.read() == '\n')
+					break;
+				length--;
+			}
+			if (length < log.length()) {
+				logger.warn(warn("Loaded metadata log", "the last record was "
+						+ "incomplete", "removing the record", "log", file));
+				log.setLength(length);
+			}
+		} finally {
+			log.close();
+		}
+	}
+
+	private void indexAll() throws IOException {
+		index.clear();
+		for (Segment segment : segments.values())
+			indexRecords(segment);
+		pendingRecords = pending.file.exists() ? indexRecords(pending) : 0;
+	}
+
+	private int indexRecords(final Segment segment) throws IOException {
+		final int[] records = { 0 };
+		readRecords(segment.file, new RecordVisitor() {
+
+			@Override
+			public void visit(String key, String line, long offset) {
+				Record record = index.get(key);
+				if (record == null || segment.isNewerThan(record.segment))
+					index.put(key, new Record(segment, offset));
+				records[0]++;
+			}
+		});
+		return records[0];
+	}
+
+	private interface RecordVisitor {
+
+		void visit(String key, String line, long offset) throws IOException;
+	}
+
+	private void readRecords(File file, RecordVisitor visitor)
+			throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			long offset = 0;
+			long lineOffset = 0;
+			int b;
+			while ((b = in.read()) != -1) {
+				offset++;
+				if (b != '\n') {
+					line.write(b);
+				} else {
+					String text = line.toString(ENCODING);
+					int separator = text.indexOf(SEPARATOR);
+					if (separator > 0)
+						visitor.visit(text.substring(0, separator), text, lineOffset);
+					line.reset();
+					lineOffset = offset;
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (IOException e) {
+			refreshFailed(e);
+		} catch (TransactionException e) {
+			refreshFailed(e);
+		}
+	}
+
+	private void refreshFailed(Exception e) {
+		logger.warn(warn("Refreshed metadata log from the archive", e,
+				"Will only use the local segments until next refresh", "log",
+				directory, "home", home));
+	}
+
+	/**
+	 * Drops the local segments that have been compacted away in the archive, and
+	 * gets the segments that are only in the archive.
+	 */
+	private void refresh() throws IOException {
+		lastRefreshMillis = System.currentTimeMillis();
+		Map<String, String> remoteSegments = listRemoteSegments();
+		if (!remoteSegments.keySet().containsAll(segments.keySet()))
+			dropSegmentsNotIn(remoteSegments);
+		for (Map.Entry<String, String> remote : remoteSegments.entrySet())
+			if (!segments.containsKey(remote.getKey()))
+				getSegment(remote.getKey(), remote.getValue());
+	}
+
+	private Map<String, String> listRemoteSegments() throws IOException {
+		Map<String, String> remoteSegments = new HashMap<String, String>();
+		for (String path : archiveFileSystem.listPath(home)) {
+			String name = UtilsPath.getNameOfPath(path);
+			if (name.endsWith(SEGMENT_SUFFIX))
+				remoteSegments.put(name, path);
+		}
+		return remoteSegments;
+	}
+
+	private void dropSegmentsNotIn(Map<String, String> remoteSegments)
+			throws IOException {
+		for (String name : new ArrayList<String>(segments.keySet()))
+			if (!remoteSegments.containsKey(name))
+				FileUtils.deleteQuietly(segments.remove(name).file);
+		indexAll();
+	}
+
+	private void getSegment(String name, String path) throws IOException {
+		File segmentFile = new File(getSegmentsDirectory(), name);
+		File transferFile = new File(getTransfersDirectory(), name);
+		FileUtils.deleteQuietly(segmentFile);
+		transactionExecuter.execute(GetFileTransaction.create(archiveFileSystem,
+				path, transferFile.getAbsolutePath(), segmentFile.getAbsolutePath()));
+		Segment segment = new Segment(name, segmentFile);
+		segments.put(name, segment);
+		indexRecords(segment);
+	}
+
+	private void compactIfNeeded() {
+		try {
+			if (segments.size() > maxSegments)
+				refresh();
+			if (segments.size() > maxSegments)
+				compact(getSegmentsToMerge());
+		} catch (IOException e) {
+			compactionFailed(e);
+		} catch (TransactionException e) {
+			compactionFailed(e);
+		}
+	}
+
+	private void compactionFailed(Exception e) {
+		logger.warn(warn("Compacted metadata log", e,
+				"Will compact on a later flush", "log", directory));
+	}
+
+	/**
+	 * The oldest segments that are larger than all the newer segments together
+	 * are left alone, so that the large segments are not rewritten on every
+	 * compaction.
+	 */
+	private List<Segment> getSegmentsToMerge() {
+		List<Segment> oldestFirst = new ArrayList<Segment>(segments.values());
+		long newerSize = 0;
+		for (Segment segment : oldestFirst)
+			newerSize += segment.file.length();
+		int first = 0;
+		while (first < oldestFirst.size() - 2) {
+			long size = oldestFirst.get(first).file.length();
+			newerSize -= size;
+			if (size <= newerSize)
+				break;
+			first++;
+		}
+		return oldestFirst.subList(first, oldestFirst.size());
+	}
+
+	/**
+	 * Writes the records of the segments that are still in the index to a new
+	 * segment, puts it in the archive and removes the merged segments.
+	 */
+	private void compact(List<Segment> merged) throws IOException {
+		Segment newest = merged.get(merged.size() - 1);
+		String name = createSegmentName(getMillis(newest.name));
+		File compacted = new File(getTransfersDirectory(), name);
+		Map<String, Long> offsets = writeCompacted(merged, compacted);
+		Segment segment = new Segment(name, new File(getSegmentsDirectory(),
+				name));
+		putSegment(compacted, name, segment.file);
+		segments.put(name, segment);
+		for (Map.Entry<String, Long> offset : offsets.entrySet())
+			index.put(offset.getKey(), new Record(segment, offset.getValue()));
+		for (Segment old : merged) {
+			removeRemoteSegment(old.name);
+			segments.remove(old.name);
+			FileUtils.deleteQuietly(old.file);
+		}
+		logger.info(done("Compacted metadata log", "log", directory,
+				"merged_segments", merged.size(), "segment", name, "records",
+				offsets.size()));
+	}
+
+	private Map<String, Long> writeCompacted(List<Segment> merged, File compacted)
+			throws IOException {
+		final Map<String, Long> offsets = new HashMap<String, Long>();
+		final FileOutputStream file = new FileOutputStream(compacted);
+		try {
+			final BufferedOutputStream out = new BufferedOutputStream(file);
+			final long[] position = { 0 };
+			for (final Segment segment : merged)
+				readRecords(segment.file, new RecordVisitor() {
+
+					@Override
+					public void visit(String key, String line, long offset)
+							throws IOException {
+						Record record = index.get(key);
+						if (record.segment == segment && record.offset == offset) {
+							byte[] bytes = (line + '\n').getBytes(ENCODING);
+							offsets.put(key, position[0]);
+							out.write(bytes);
+							position[0] += bytes.length;
+						}
+					}
+				});
+			out.flush();
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+		return offsets;
+	}
+
+	/**
+	 * Moves the segment to a temp path and cleans it like a transaction. The
+	 * segment might have been removed by another server compacting the same
+	 * log, which is fine.
+	 */
+	private void removeRemoteSegment(String name) {
+		String removed = temp + PathResolver.SEPARATOR + REMOVED_DIR_NAME
+				+ PathResolver.SEPARATOR + UUID.randomUUID();
+		try {
+			archiveFileSystem.rename(home + PathResolver.SEPARATOR + name, removed
+					+ PathResolver.SEPARATOR + name);
+			archiveFileSystem.getFileTransactionCleaner().cleanTransaction(null,
+					removed);
+		} catch (IOException e) {
+			logger.debug(warn("Removed compacted metadata log segment", e,
+					"Another server might have removed it", "segment", name));
+		}
+	}
+
+	private File getSegmentsDirectory() {
+		return createDirectory(SEGMENTS_DIR_NAME);
+	}
+
+	private File getTransfersDirectory() {
+		return createDirectory(TRANSFERS_DIR_NAME);
+	}
+
+	private File createDirectory(String name) {
+		File dir = new File(directory, name);
+		dir.mkdirs();
+		return dir;
+	}
+
+	/**
+	 * A segment file of the log. The pending segment has no name until it's
+	 * flushed, and is newer than all other segments.
+	 */
+	private static class Segment {
+
+		private String name;
+		private File file;
+
+		public Segment(String name, File file) {
+			this.name = name;
+			this.file = file;
+		}
+
+		public boolean isNewerThan(Segment other) {
+			if (name == null)
+				return true;
+			if (other.name == null)
+				return false;
+			return name.compareTo(other.name) >= 0;
+		}
+	}
+
+	private static class Record {
+
+		private final Segment segment;
+		private final long offset;
+
+		public Record(Segment segment, long offset) {
+			this.segment = segment;
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+
+/**
+ * The {@link MetadataLog}s in a local directory, one for each index of an
+ * archive path. A log must only be written by one instance, so the instances
+ * are shared per directory. The shared instances flush their logs in the
+ * background, so that the records of an index that archives few buckets are
+ * put in the archive too.
+ */
+public class MetadataLogs {
+
+	private static final Logger logger = Logger.getLogger(MetadataLogs.class);
+
+	private static final long FLUSH_INTERVAL_SECONDS = 60;
+	private static final String ENCODING = "UTF-8";
+
+	private static final Map<File, MetadataLogs> sharedInstances = new HashMap<File, MetadataLogs>();
+
+	private final File directory;
+	private final TransactionExecuter transactionExecuter;
+	private final Map<String, MetadataLog> logs;
+	private boolean openedPendingLogs;
+
+	public MetadataLogs(File directory, TransactionExecuter transactionExecuter) {
+		this.directory = directory;
+		this.transactionExecuter = transactionExecuter;
+		this.logs = new HashMap<String, MetadataLog>();
+	}
+
+	/**
+	 * The first call also opens the logs with records that were not flushed
+	 * before a restart, so that they are flushed with the archive file system.
+	 * 
+	 * @return log for the index in the archive of the path resolver.
+	 */
+	public synchronized MetadataLog getLog(ArchiveFileSystem archiveFileSystem,
+			PathResolver pathResolver, String index) {
+		if (!openedPendingLogs)
+			openPendingLogs(archiveFileSystem);
+		String home = pathResolver.getMetadataLogHome(index);
+		MetadataLog log = logs.get(home);
+		if (log == null) {
+			log = createLog(home, pathResolver.resolveTempPathForMetadataLog(index),
+					archiveFileSystem);
+			logs.put(home, log);
+		} else {
+			log.setArchiveFileSystem(archiveFileSystem);
+		}
+		return log;
+	}
+
+	private MetadataLog createLog(String home, String temp,
+			ArchiveFileSystem archiveFileSystem) {
+		return new MetadataLog(getLogDirectory(home), home, temp,
+				archiveFileSystem, transactionExecuter,
+				MetadataLog.DEFAULT_FLUSH_RECORDS, MetadataLog.DEFAULT_MAX_SEGMENTS,
+				MetadataLog.DEFAULT_REFRESH_INTERVAL_MILLIS);
+	}
+
+	private File getLogDirectory(String home) {
+		try {
+			return new File(directory, URLEncoder.encode(home, ENCODING));
+		} catch (IOException e) {
+			throw new MetadataLogException(e);
+		}
+	}
+
+	private void openPendingLogs(ArchiveFileSystem archiveFileSystem) {
+		openedPendingLogs = true;
+		File[] logDirectories = directory.listFiles();
+		if (logDirectories == null)
+			return;
+		for (File logDirectory : logDirectories)
+			if (new File(logDirectory, MetadataLog.PENDING_FILE_NAME).length() > 0)
+				openPendingLog(logDirectory, archiveFileSystem);
+	}
+
+	private void openPendingLog(File logDirectory,
+			ArchiveFileSystem archiveFileSystem) {
+		try {
+			List<String> remotePaths = MetadataLog.readRemotePaths(logDirectory);
+			String home = remotePaths.get(0);
+			logs.put(home, createLog(home, remotePaths.get(1), archiveFileSystem));
+			logger.info(happened("Opened metadata log with pending records", "log",
+					logDirectory));
+		} catch (IOException e) {
+			logger.warn(warn("Opened metadata log with pending records", e,
+					"Will not flush the pending records", "log", logDirectory));
+		}
+	}
+
+	/**
+	 * Flushes all the logs. A log that fails to flush is flushed again later.
+	 */
+	public void flushAll() {
+		for (MetadataLog log : getLogs())
+			try {
+				log.flush();
+			} catch (MetadataLogException e) {
+				logger.warn(warn("Flushed metadata log", e,
+						"Will flush the records later"));
+			}
+	}
+
+	private synchronized List<MetadataLog> getLogs() {
+		return new ArrayList<MetadataLog>(logs.values());
+	}
+
+	/**
+	 * @return logs in the metadata logs directory, shared by the JVM.
+	 */
+	public static synchronized MetadataLogs getSharedInstance(
+			LocalFileSystemPaths localFileSystemPaths) {
+		File directory = localFileSystemPaths.getMetadataLogsDirectory()
+				.getAbsoluteFile();
+		MetadataLogs logs = sharedInstances.get(directory);
+		if (logs == null) {
+			logs = new MetadataLogs(directory, new TransactionExecuter());
+			scheduleFlushes(logs);
+			sharedInstances.put(directory, logs);
+		}
+		return logs;
+	}
+
+	private static void scheduleFlushes(final MetadataLogs logs) {
+		ScheduledExecutorService flusher = Executors
+				.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+						"shuttl-metadata-logs-"));
+		flusher.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					logs.flushAll();
+				} catch (RuntimeException e) {
+					logger.warn(warn("Flushed metadata logs", e,
+							"Will flush the logs again later"));
+				}
+			}
+		}, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+}
@@ -35,7 +35,10 @@ import com.splunk.shuttl.archiver.metastore.FlatFileStorage.FlatFileReadExceptio
 import com.splunk.shuttl.archiver.model.Bucket;
 
 /**
- * Puts and gets metadata that's unique for a bucket.
+ * Puts and gets metadata that's unique for a bucket. With {@link MetadataLogs},
+ * the metadata is put in the log of the bucket's index instead of in files
+ * next to the bucket, to keep the number of files in the archive down. The
+ * metadata of buckets archived without a log is still read from their files.
  */
 public class MetadataStore {
 
@@ -46,25 +49,43 @@ public class MetadataStore {
 	private final ArchiveFileSystem archiveFileSystem;
 	private final TransactionExecuter transactionExecuter;
 	private final LocalFileSystemPaths localFileSystemPaths;
+	private final MetadataLogs metadataLogs;
 
 	public MetadataStore(PathResolver pathResolver,
 			FlatFileStorage flatFileStorage, ArchiveFileSystem archiveFileSystem,
 			TransactionExecuter transactionExecuter,
 			LocalFileSystemPaths localFileSystemPaths) {
+		this(pathResolver, flatFileStorage, archiveFileSystem,
+				transactionExecuter, localFileSystemPaths, null);
+	}
+
+	/**
+	 * @param metadataLogs
+	 *          to put the metadata in, or null to put it in a file per bucket
+	 *          and filename.
+	 */
+	public MetadataStore(PathResolver pathResolver,
+			FlatFileStorage flatFileStorage, ArchiveFileSystem archiveFileSystem,
+			TransactionExecuter transactionExecuter,
+			LocalFileSystemPaths localFileSystemPaths, MetadataLogs metadataLogs) {
 		this.pathResolver = pathResolver;
 		this.flatFileStorage = flatFileStorage;
 		this.archiveFileSystem = archiveFileSystem;
 		this.transactionExecuter = transactionExecuter;
 		this.localFileSystemPaths = localFileSystemPaths;
+		this.metadataLogs = metadataLogs;
 	}
 
 	/**
 	 * Put metadata for a bucket with a filename as identifier.
 	 */
 	public void put(Bucket bucket, String fileName, String data) {
+		if (metadataLogs != null) {
+			putInLog(bucket, fileName, data);
+			return;
+		}
 		try {
-			transactionExecuter.execute(putBucketSizeTransaction(bucket, fileName,
-					data));
+			transactionExecuter.execute(getPutTransaction(bucket, fileName, data));
 		} catch (TransactionException e) {
 			logger.error(did("Tried to transactionally transfer"
 					+ " the bucketSize metadata to the archive.", e,
@@ -73,8 +94,37 @@ public class MetadataStore {
 		}
 	}
 
-	private Transaction putBucketSizeTransaction(Bucket bucket, String fileName,
+	private void putInLog(Bucket bucket, String fileName, String data) {
+		try {
+			getLog(bucket).put(getLogKey(bucket, fileName), data);
+		} catch (MetadataLogException e) {
+			logger.error(did("Tried putting metadata in the metadata log", e,
+					"To write the metadata", "bucket", bucket, "file_name", fileName));
+			throw new FailedToArchiveBucketException(e);
+		}
+	}
+
+	private MetadataLog getLog(Bucket bucket) {
+		return metadataLogs.getLog(archiveFileSystem, pathResolver,
+				bucket.getIndex());
+	}
+
+	private String getLogKey(Bucket bucket, String fileName) {
+		return bucket.getName() + PathResolver.SEPARATOR + bucket.getFormat()
+				+ PathResolver.SEPARATOR + fileName;
+	}
+
+	/**
+	 * Writes the metadata locally and returns the transaction that puts it in
+	 * the archive, for executing it together with other transactions. The
+	 * metadata's temp path is within the bucket's temp path, so the transaction
+	 * should be executed after the bucket's transaction. With a metadata log,
+	 * the metadata is put in the log when the transaction commits.
+	 */
+	public Transaction getPutTransaction(Bucket bucket, String fileName,
 			String data) {
+		if (metadataLogs != null)
+			return new LogPutTransaction(bucket, fileName, data);
 		flatFileStorage.writeFlatFile(bucket, fileName, data);
 		File fileWithBucketSize = flatFileStorage.getFlatFile(bucket, fileName);
 		String temp = pathResolver.resolveTempPathForBucketMetadata(bucket,
@@ -86,10 +136,106 @@ public class MetadataStore {
 				fileWithBucketSize.getAbsolutePath(), temp, bucketSizeFilePath);
 	}
 
+	/**
+	 * Metadata that is produced while the transactions before it execute.
+	 */
+	public interface DeferredMetadata {
+
+		/**
+		 * @return the metadata, or null if there is none to put.
+		 */
+		String getData();
+	}
+
+	/**
+	 * Like {@link #getPutTransaction(Bucket, String, String)}, but the metadata
+	 * is written when the transaction is prepared. When there is no metadata by
+	 * then, the transaction does nothing.
+	 */
+	public Transaction getDeferredPutTransaction(final Bucket bucket,
+			final String fileName, final DeferredMetadata metadata) {
+		if (metadataLogs != null)
+			return new LogPutTransaction(bucket, fileName, null) {
+
+				@Override
+				public void prepare() {
+					data = metadata.getData();
+				}
+			};
+		File metadataFile = flatFileStorage.getFlatFile(bucket, fileName);
+		String temp = pathResolver.resolveTempPathForBucketMetadata(bucket,
+				metadataFile);
+		String dst = pathResolver.resolvePathForBucketMetadata(bucket,
+				metadataFile);
+
+		return new PutFileTransaction(archiveFileSystem.getFileTransferer(),
+				archiveFileSystem, archiveFileSystem.getFileTransactionCleaner(),
+				metadataFile.getAbsolutePath(), temp, dst) {
+
+			private boolean written;
+
+			@Override
+			public void prepare() {
+				String data = metadata.getData();
+				if (data != null) {
+					flatFileStorage.writeFlatFile(bucket, fileName, data);
+					written = true;
+					super.prepare();
+				}
+			}
+
+			@Override
+			public void commit() {
+				if (written)
+					super.commit();
+			}
+		};
+	}
+
+	/**
+	 * Puts metadata in the log of the bucket's index when committed, so that
+	 * the log only has metadata of buckets that made it to the archive.
+	 */
+	private class LogPutTransaction implements Transaction {
+
+		private final Bucket bucket;
+		private final String fileName;
+		protected String data;
+
+		public LogPutTransaction(Bucket bucket, String fileName, String data) {
+			this.bucket = bucket;
+			this.fileName = fileName;
+			this.data = data;
+		}
+
+		@Override
+		public void prepare() {
+			// Nothing to prepare.
+		}
+
+		@Override
+		public void commit() {
+			if (data != null)
+				try {
+					getLog(bucket).put(getLogKey(bucket, fileName), data);
+				} catch (MetadataLogException e) {
+					throw new TransactionException(e);
+				}
+		}
+
+		@Override
+		public void clean() {
+			// Nothing to clean.
+		}
+	}
+
 	/**
 	 * Read metadata stored with bucket and filename identifiers.
 	 */
 	public String read(Bucket bucket, String fileName) {
+		String logged = readFromLog(bucket, fileName);
+		if (logged != null)
+			return logged;
 		File metadataFile = flatFileStorage.getFlatFile(bucket, fileName);
 		getRemoteFileIfNeeded(bucket, metadataFile);
 
@@ -100,6 +246,19 @@ public class MetadataStore {
 			return data;
 	}
 
+	private String readFromLog(Bucket bucket, String fileName) {
+		if (metadataLogs == null)
+			return null;
+		try {
+			return getLog(bucket).get(getLogKey(bucket, fileName));
+		} catch (MetadataLogException e) {
+			logger.warn(warn("Tried reading metadata from the metadata log", e,
+					"Will read the metadata file instead", "bucket", bucket,
+					"file_name", fileName));
+			return null;
+		}
+	}
+
 	private void getRemoteFileIfNeeded(Bucket bucket, File metadataFile) {
 		if (!metadataFile.exists() || readLocalMetadataFile(metadataFile) == null) {
 			FileUtils.deleteQuietly(metadataFile);
@@ -150,6 +309,7 @@ public class MetadataStore {
 			LocalFileSystemPaths localFileSystemPaths) {
 		return new MetadataStore(new PathResolver(config), new FlatFileStorage(
 				localFileSystemPaths), archiveFileSystem, new TransactionExecuter(),
-				localFileSystemPaths);
+				localFileSystemPaths,
+				MetadataLogs.getSharedInstance(localFileSystemPaths));
 	}
 }
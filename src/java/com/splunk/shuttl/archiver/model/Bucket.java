@@ -17,14 +17,20 @@ package com.splunk.shuttl.archiver.model;
 
 import java.io.FileNotFoundException;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 
 /**
- * Model representing a Splunk bucket
+ * Model representing a Splunk bucket. Index names are shared between buckets,
+ * since there are many buckets but few indexes.
  */
 public class Bucket {
 
+	private static final ConcurrentMap<String, String> INDEX_NAMES =
+			new ConcurrentHashMap<String, String>();
+
 	private final BucketFormat format;
 	private final String indexName;
 	private final BucketName bucketName;
@@ -53,12 +59,19 @@ public class Bucket {
 	public Bucket(String path, String index, String bucketName,
 			BucketFormat format, Long size) {
 		this.path = path;
-		this.indexName = index;
+		this.indexName = internIndexName(index);
 		this.bucketName = new BucketName(bucketName);
 		this.format = format;
 		this.size = size;
 	}
 
+	private static String internIndexName(String index) {
+		if (index == null)
+			return null;
+		String interned = INDEX_NAMES.putIfAbsent(index, index);
+		return interned == null ? index : interned;
+	}
+
 	/**
 	 * @return The name of this bucket.
 	 */
@@ -120,7 +133,14 @@ public class Bucket {
 	 * @return {@link Date} with earliest time of indexed data in the bucket.
 	 */
 	public Date getEarliest() {
-		return new Date(toMillis(bucketName.getEarliest()));
+		return new Date(getEarliestMillis());
+	}
+
+	/**
+	 * @return earliest time of indexed data in the bucket, in milliseconds.
+	 */
+	public long getEarliestMillis() {
+		return toMillis(bucketName.getEarliest());
 	}
 
 	private long toMillis(long l) {
@@ -131,7 +151,14 @@ public class Bucket {
 	 * @return {@link Date} with latest time of indexed data in the bucket.
 	 */
 	public Date getLatest() {
-		return new Date(toMillis(bucketName.getLatest()));
+		return new Date(getLatestMillis());
+	}
+
+	/**
+	 * @return latest time of indexed data in the bucket, in milliseconds.
+	 */
+	public long getLatestMillis() {
+		return toMillis(bucketName.getLatest());
 	}
 
 	public Long getSize() {
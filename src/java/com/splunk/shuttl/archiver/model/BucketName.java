@@ -14,26 +14,35 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.model;
 
-import com.splunk.shuttl.archiver.util.GroupRegex;
 import com.splunk.shuttl.archiver.util.IllegalRegexGroupException;
 
 /**
- * Bucket name with db-name, earliest time, latest time and bucket index.
+ * Bucket name with db-name, earliest time, latest time and bucket index. The
+ * name is parsed once, in a single pass, when the {@link BucketName} is
+ * created. A name is legal when it matches {@link #LEGAL_NAME_REGEX}, with
+ * {@link #GUID_ADDITION} when the name has 4 underscores.
  */
 public class BucketName {
 
 	public static final String LEGAL_NAME_REGEX = "([A-Za-z0-9]+?)_(\\d+?)_(\\d+?)_(.+)";
 	public static final String GUID_ADDITION = "_(.+)";
 
-	private static final int DB_GROUP = 1;
-	private static final int LATEST_GROUP = 2;
-	private static final int EARLIEST_GROUP = 3;
-	private static final int INDEX_GROUP = 4;
-	private static final int GUID_GROUP = 5;
+	private static final String DB = "db";
+	private static final String RB = "rb";
 
 	private final String name;
+	private final int underscores;
+	private final boolean legal;
 
-	private GroupRegex groupRegex;
+	/* Where the parts of a legal name end. */
+	private final int dbEnd;
+	private final int latestEnd;
+	private final int earliestEnd;
+	private final int indexEnd;
+	private final boolean hasGuid;
+
+	private final long latest;
+	private final long earliest;
 
 	/**
 	 * @param name
@@ -41,22 +50,129 @@ public class BucketName {
 	 */
 	public BucketName(String name) {
 		this.name = name;
-		String regex = LEGAL_NAME_REGEX;
-		if (getUnderscoresInName() == 4)
-			regex += GUID_ADDITION;
-		this.groupRegex = new GroupRegex(regex, name);
+		this.underscores = countUnderscoresLikeSplit(name);
+
+		int length = name == null ? 0 : name.length();
+		int i = skipLettersAndDigits(0);
+		dbEnd = i;
+		boolean legalSoFar = i > 0 && isUnderscore(i);
+
+		i = skipDigits(++i);
+		latestEnd = i;
+		legalSoFar &= i > dbEnd + 1 && isUnderscore(i);
+
+		i = skipDigits(++i);
+		earliestEnd = i;
+		legalSoFar &= i > latestEnd + 1 && isUnderscore(i);
+
+		int indexStart = i + 1;
+		legalSoFar &= indexStart < length && !hasLineTerminator(indexStart);
+
+		int guidSeparator = -1;
+		if (legalSoFar && underscores == 4) {
+			guidSeparator = name.lastIndexOf('_', length - 2);
+			legalSoFar &= guidSeparator > indexStart;
+		}
+		this.hasGuid = guidSeparator != -1;
+		this.indexEnd = hasGuid ? guidSeparator : length;
+		this.legal = legalSoFar;
+
+		this.latest = legal ? parseLong(dbEnd + 1, latestEnd) : -1;
+		this.earliest = legal ? parseLong(latestEnd + 1, earliestEnd) : -1;
 	}
 
-	private int getUnderscoresInName() {
-		return name == null ? 0 : name.split("_").length - 1;
+	/**
+	 * Counts underscores the way {@code name.split("_").length - 1} does, which
+	 * does not count the separators of trailing empty parts.
+	 */
+	private static int countUnderscoresLikeSplit(String name) {
+		if (name == null)
+			return 0;
+		int underscores = 0;
+		int partsToLastNonEmptyPart = 0;
+		boolean partIsEmpty = true;
+		for (int i = 0; i < name.length(); i++)
+			if (name.charAt(i) == '_') {
+				underscores++;
+				partIsEmpty = true;
+			} else if (partIsEmpty) {
+				partIsEmpty = false;
+				partsToLastNonEmptyPart = underscores + 1;
+			}
+		if (underscores == 0)
+			return 0;
+		return partsToLastNonEmptyPart - 1;
+	}
+
+	private int skipLettersAndDigits(int i) {
+		while (i < length() && isLetterOrDigit(name.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static boolean isLetterOrDigit(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || isDigit(c);
+	}
+
+	private int skipDigits(int i) {
+		while (i < length() && isDigit(name.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private boolean isUnderscore(int i) {
+		return i < length() && name.charAt(i) == '_';
+	}
+
+	private int length() {
+		return name == null ? 0 : name.length();
+	}
+
+	/**
+	 * The . in the regex does not match line terminators.
+	 */
+	private boolean hasLineTerminator(int from) {
+		for (int i = from; i < name.length(); i++)
+			switch (name.charAt(i)) {
+			case '\n':
+			case '\r':
+			case '\u0085':
+			case '\u2028':
+			case '\u2029':
+				return true;
+			}
+		return false;
+	}
+
+	/**
+	 * @return the number, or -1 if it does not fit in a long.
+	 */
+	private long parseLong(int start, int end) {
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = name.charAt(i) - '0';
+			if (value > (Long.MAX_VALUE - digit) / 10)
+				return -1;
+			value = value * 10 + digit;
+		}
+		return value;
 	}
 
 	private void validateBucketName() {
-		int underscoresInName = getUnderscoresInName();
-		if (underscoresInName > 4 || underscoresInName < 3)
+		if (underscores > 4 || underscores < 3)
 			throw new IllegalBucketNameException(
 					"Underscores in the bucket name must be 3 or 4. Was: "
-							+ underscoresInName + ", name: " + name);
+							+ underscores + ", name: " + name);
+	}
+
+	private void throwIfNotLegal() {
+		if (!legal)
+			throw new IllegalRegexGroupException("regex: " + LEGAL_NAME_REGEX
+					+ (underscores == 4 ? GUID_ADDITION : "") + ", value: " + name);
 	}
 
 	/**
@@ -66,7 +182,13 @@ public class BucketName {
 	 */
 	public String getDB() {
 		validateBucketName();
-		return groupRegex.getValue(DB_GROUP);
+		throwIfNotLegal();
+		if (dbEnd == 2 && name.startsWith(DB))
+			return DB;
+		else if (dbEnd == 2 && name.startsWith(RB))
+			return RB;
+		else
+			return name.substring(0, dbEnd);
 	}
 
 	/**
@@ -76,7 +198,9 @@ public class BucketName {
 	 * @return earliest time of the {@link Bucket}'s name.
 	 */
 	public long getEarliest() {
-		return Long.parseLong(groupRegex.getValue(EARLIEST_GROUP));
+		throwIfNotLegal();
+		return earliest != -1 ? earliest : Long.parseLong(name.substring(
+				latestEnd + 1, earliestEnd));
 	}
 
 	/**
@@ -86,7 +210,9 @@ public class BucketName {
 	 * @return time of the {@link BucketName}
 	 */
 	public long getLatest() {
-		return Long.parseLong(groupRegex.getValue(LATEST_GROUP));
+		throwIfNotLegal();
+		return latest != -1 ? latest : Long.parseLong(name.substring(dbEnd + 1,
+				latestEnd));
 	}
 
 	/**
@@ -97,7 +223,8 @@ public class BucketName {
 	 */
 	public String getIndex() {
 		validateBucketName();
-		return groupRegex.getValue(INDEX_GROUP);
+		throwIfNotLegal();
+		return name.substring(earliestEnd + 1, indexEnd);
 	}
 
 	/*
@@ -121,7 +248,10 @@ public class BucketName {
 	 * @return the bucket's GUID, if it has one. Throws otherwise.
 	 */
 	public String getGuid() {
-		return groupRegex.getValue(GUID_GROUP);
+		throwIfNotLegal();
+		if (!hasGuid)
+			throw new IllegalRegexGroupException("Bucket name has no guid: " + name);
+		return name.substring(indexEnd + 1);
 	}
 
 	public static class IllegalBucketNameException extends RuntimeException {
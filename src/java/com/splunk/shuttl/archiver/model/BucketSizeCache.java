@@ -0,0 +1,199 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+
+/**
+ * Caches the sizes of bucket directories, so that listing the same buckets
+ * again does not stat every file of every bucket. Java 6 can not read inodes,
+ * so a size is kept for a path and is used as long as the modification times
+ * of the directory and of its sub directories have not changed.<br/>
+ * <br/>
+ * Sizes that are not cached are computed by walking the entries of the
+ * directory in parallel.
+ */
+public class BucketSizeCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+	/* package-private */static final int MIN_ENTRIES_PER_WALK = 16;
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final Map<String, CachedSize> sizes;
+	private final ExecutorService executorService;
+	private final int walkers;
+
+	/**
+	 * @param walkers
+	 *          number of parts that the entries of a directory are split into,
+	 *          and walked in parallel.
+	 */
+	public BucketSizeCache(final int maxEntries,
+			ExecutorService executorService, int walkers) {
+		this.sizes = new LinkedHashMap<String, CachedSize>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedSize> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		this.executorService = executorService;
+		this.walkers = walkers;
+	}
+
+	/**
+	 * @return size in bytes of the files in the directory.
+	 * @throws DirectoryDidNotExistException
+	 *           if the directory does not exist, since its size is unknown.
+	 */
+	public long getSize(File directory) {
+		File[] entries = directory.listFiles();
+		if (entries == null)
+			throw new DirectoryDidNotExistException("Cannot get the size of: "
+					+ directory.getAbsolutePath()
+					+ ", because directory did not exist.");
+		String key = directory.getAbsolutePath();
+		long modified = getModificationStamp(directory, entries);
+		synchronized (sizes) {
+			CachedSize cached = sizes.get(key);
+			if (cached != null && cached.modified == modified)
+				return cached.size;
+		}
+		long size = walkInParallel(entries);
+		synchronized (sizes) {
+			sizes.put(key, new CachedSize(modified, size));
+		}
+		return size;
+	}
+
+	/**
+	 * Adding or removing a file changes the modification time of the directory
+	 * it is in, and bucket data is written to the rawdata sub directory.
+	 */
+	private long getModificationStamp(File directory, File[] entries) {
+		long stamp = directory.lastModified();
+		for (File entry : entries)
+			if (entry.isDirectory())
+				stamp = 31 * stamp + entry.lastModified();
+		return stamp;
+	}
+
+	private long walkInParallel(File[] entries) {
+		int parts = Math.min(walkers, entries.length / MIN_ENTRIES_PER_WALK);
+		if (parts <= 1)
+			return sizeOf(Arrays.asList(entries));
+
+		List<Future<Long>> walks = new ArrayList<Future<Long>>();
+		int partSize = (entries.length + parts - 1) / parts;
+		for (int i = partSize; i < entries.length; i += partSize)
+			walks.add(executorService.submit(new Walk(Arrays.asList(entries)
+					.subList(i, Math.min(i + partSize, entries.length)))));
+
+		long size = sizeOf(Arrays.asList(entries).subList(0, partSize));
+		for (Future<Long> walk : walks)
+			size += waitForWalk(walk);
+		return size;
+	}
+
+	private long waitForWalk(Future<Long> walk) {
+		boolean interrupted = false;
+		try {
+			while (true)
+				try {
+					return walk.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private static long sizeOf(List<File> entries) {
+		long size = 0;
+		for (File entry : entries)
+			if (entry.exists())
+				size += FileUtils.sizeOf(entry);
+		return size;
+	}
+
+	private static class Walk implements Callable<Long> {
+
+		private final List<File> entries;
+
+		public Walk(List<File> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public Long call() {
+			return sizeOf(entries);
+		}
+	}
+
+	private static class CachedSize {
+
+		private final long modified;
+		private final long size;
+
+		public CachedSize(long modified, long size) {
+			this.modified = modified;
+			this.size = size;
+		}
+	}
+
+	public static BucketSizeCache create(int maxEntries, int walkers) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(walkers, walkers,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(
+						"shuttl-size-walker-"));
+		executor.allowCoreThreadTimeOut(true);
+		return new BucketSizeCache(maxEntries, executor, walkers);
+	}
+
+	private static BucketSizeCache sharedInstance;
+
+	/**
+	 * @return the cache shared by the whole JVM, walking with one thread per
+	 *         processor.
+	 */
+	public static synchronized BucketSizeCache getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = create(DEFAULT_MAX_ENTRIES, Runtime.getRuntime()
+					.availableProcessors());
+		return sharedInstance;
+	}
+}
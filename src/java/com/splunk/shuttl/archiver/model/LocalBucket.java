@@ -28,6 +28,7 @@ import com.splunk.shuttl.archiver.archive.BucketFormat;
 public class LocalBucket extends Bucket {
 
 	private final File directory;
+	private volatile Long computedSize;
 
 	public LocalBucket(File directory, String index, BucketFormat format)
 			throws FileNotFoundException, FileNotDirectoryException {
@@ -43,14 +44,10 @@ public class LocalBucket extends Bucket {
 			BucketFormat format, Long size) throws FileNotFoundException,
 			FileNotDirectoryException {
 		super(verifyDirectory(directory).getAbsolutePath(), index, bucketName,
-				format, setSizeOnNullSizedLocalBucket(directory, size));
+				format, size);
 		this.directory = directory;
 	}
 
-	private static Long setSizeOnNullSizedLocalBucket(File directory, Long size) {
-		return size == null ? FileUtils.sizeOfDirectory(directory) : size;
-	}
-
 	private static File verifyDirectory(File directory)
 			throws FileNotFoundException, FileNotDirectoryException {
 		if (!directory.exists())
@@ -70,12 +67,45 @@ public class LocalBucket extends Bucket {
 	}
 
 	/**
-	 * Deletes the bucket from the file system.
+	 * @return the size that the bucket was created with. Otherwise the size of
+	 *         the directory, which is computed the first time it is asked for.
+	 * @throws DirectoryDidNotExistException
+	 *           if the size was never computed and the directory is gone.
+	 */
+	@Override
+	public Long getSize() {
+		if (size != null)
+			return size;
+		if (computedSize == null)
+			computedSize = BucketSizeCache.getSharedInstance().getSize(directory);
+		return computedSize;
+	}
+
+	/**
+	 * Does not compute the size of the directory, since buckets are logged
+	 * often.
+	 */
+	private Long getSizeIfKnown() {
+		return size != null ? size : computedSize;
+	}
+
+	/**
+	 * Computes the size now, if the directory still exists, so that the size is
+	 * known after the directory has been moved or deleted.
+	 */
+	public void captureSize() {
+		if (getSizeIfKnown() == null && directory.isDirectory())
+			getSize();
+	}
+
+	/**
+	 * Deletes the bucket from the file system. The size is captured first.
 	 * 
 	 * @throws IOException
 	 *           if it's not possible to delete the directory
 	 */
 	public void deleteBucket() throws IOException {
+		captureSize();
 		FileUtils.deleteDirectory(getDirectory());
 	}
 
@@ -85,7 +115,7 @@ public class LocalBucket extends Bucket {
 				+ getName() + ", getIndex()=" + getIndex() + ", getFormat()="
 				+ getFormat() + ", getPath()=" + getPath() + ", getEarliest()="
 				+ getEarliest() + ", getLatest()=" + getLatest() + ", getSize()="
-				+ getSize() + "]";
+				+ getSizeIfKnown() + "]";
 	}
 
 	@Override
@@ -45,10 +45,11 @@ public class MovesBuckets {
 		File originDirectory = bucket.getDirectory();
 		File newDirectory = new File(destinationDirectory,
 				originDirectory.getName());
+		bucket.captureSize();
 		if (!originDirectory.renameTo(newDirectory))
 			logMoveFailureAndThrowException(bucket, destinationDirectory);
-		return BucketFactory.createBucketWithIndexDirectoryAndFormat(
-				bucket.getIndex(), newDirectory, bucket.getFormat());
+		return BucketFactory.createBucketWithIndexDirectoryAndSize(
+				bucket.getIndex(), newDirectory, bucket.getFormat(), bucket.getSize());
 	}
 
 	private static void verifyValidityOfDestination(File destinationDirectory) {
@@ -22,9 +22,11 @@ import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveRestHandler;
 import com.splunk.shuttl.archiver.archive.RegistersArchiverMBean;
 import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLocker;
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketRetryScheduler;
 import com.splunk.shuttl.archiver.archive.recovery.FailedBucketsArchiver;
 import com.splunk.shuttl.archiver.archive.recovery.IndexPreservingBucketMover;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
+import com.splunk.shuttl.archiver.journal.JobJournal;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
 
 /**
@@ -56,17 +58,24 @@ public class ColdToFrozenRetrier implements Runnable {
 	}
 
 	public static void main(String[] args) throws InterruptedException {
-		createRetrier().run();
+		create().run();
 	}
 
-	private static ColdToFrozenRetrier createRetrier() {
+	/**
+	 * @return retrier that needs the Archiver MBean, which is registered if it
+	 *         isn't already.
+	 */
+	public static ColdToFrozenRetrier create() {
 		RegistersArchiverMBean.create().register();
 
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
 		IndexPreservingBucketMover bucketMover = IndexPreservingBucketMover
-				.create(LocalFileSystemPaths.create().getSafeDirectory());
+				.createWithJournal(localFileSystemPaths.getSafeDirectory(),
+						JobJournal.create(localFileSystemPaths));
 		BucketLocker bucketLocker = new ArchiveBucketLocker();
 		FailedBucketsArchiver failedBucketsArchiver = new FailedBucketsArchiver(
-				bucketMover, bucketLocker);
+				bucketMover, bucketLocker,
+				FailedBucketRetryScheduler.create(localFileSystemPaths));
 		ArchiveRestHandler archiveRestHandler = ArchiveRestHandler.create();
 
 		return new ColdToFrozenRetrier(failedBucketsArchiver, archiveRestHandler);
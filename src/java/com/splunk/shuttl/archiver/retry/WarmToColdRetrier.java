@@ -18,6 +18,7 @@ import com.splunk.Service;
 import com.splunk.WarmToColdIndex;
 import com.splunk.WarmToColdIndexCollection;
 import com.splunk.shuttl.archiver.archive.RegistersArchiverMBean;
+import com.splunk.shuttl.archiver.copy.ColdBucketCopier;
 import com.splunk.shuttl.archiver.copy.ColdCopyEntryPoint;
 import com.splunk.shuttl.archiver.thaw.SplunkIndexedLayerFactory;
 import com.splunk.shuttl.server.mbeans.JMXSplunk;
@@ -25,7 +26,9 @@ import com.splunk.shuttl.server.mbeans.JMXSplunkMBean;
 import com.splunk.shuttl.server.mbeans.util.RegistersMBeans;
 
 /**
- * Retries to copy any buckets that has failed to be transferred.
+ * Retries to copy any buckets that has failed to be transferred. The pending
+ * copy jobs are read from the job journal. The cold buckets of an index are
+ * walked until one walk of the index has completed.
  */
 public class WarmToColdRetrier implements Runnable {
 
@@ -37,17 +40,21 @@ public class WarmToColdRetrier implements Runnable {
 
 	@Override
 	public void run() {
-		retryAllIndexesWithShuttlsWarmToColdScriptSet();
+		ColdBucketCopier coldBucketCopier = ColdCopyEntryPoint
+				.createColdBucketCopier();
+		walkIndexesWithShuttlsWarmToColdScriptSet(coldBucketCopier);
+		coldBucketCopier.copyPendingBuckets();
 	}
 
-	private void retryAllIndexesWithShuttlsWarmToColdScriptSet() {
+	private void walkIndexesWithShuttlsWarmToColdScriptSet(
+			ColdBucketCopier coldBucketCopier) {
 		WarmToColdIndexCollection indexCollection = new WarmToColdIndexCollection(
 				service);
 
 		for (WarmToColdIndex index : indexCollection.values())
-			if (isWarmToColdScriptConfiguredToBeShuttlsScript(index))
-				ColdCopyEntryPoint.createColdBucketCopier().tryCopyingColdBuckets(
-						index.getName());
+			if (isWarmToColdScriptConfiguredToBeShuttlsScript(index)
+					&& !coldBucketCopier.hasWalkedColdBuckets(index.getName()))
+				coldBucketCopier.tryCopyingColdBuckets(index.getName());
 	}
 
 	private boolean isWarmToColdScriptConfiguredToBeShuttlsScript(
@@ -61,17 +61,25 @@ public class BucketFilter {
 	private static List<Bucket> filterBucketsWithinTimeRange(
 			List<? extends Bucket> buckets, Date earliest, Date latest) {
 		ArrayList<Bucket> filteredBuckets = new ArrayList<Bucket>();
+		long earliestMillis = earliest.getTime();
+		long latestMillis = latest.getTime();
 		for (Bucket bucket : buckets)
-			if (isBucketWithinTimeRange(bucket, earliest, latest))
+			if (isBucketWithinTimeRange(bucket, earliestMillis, latestMillis))
 				filteredBuckets.add(bucket);
 		return filteredBuckets;
 	}
 
 	public static boolean isBucketWithinTimeRange(Bucket bucket, Date earliest,
 			Date latest) {
-		if (bucket.getLatest().before(earliest))
+		return isBucketWithinTimeRange(bucket, earliest.getTime(),
+				latest.getTime());
+	}
+
+	private static boolean isBucketWithinTimeRange(Bucket bucket,
+			long earliestMillis, long latestMillis) {
+		if (bucket.getLatestMillis() < earliestMillis)
 			return false;
-		if (bucket.getEarliest().after(latest))
+		if (bucket.getEarliestMillis() > latestMillis)
 			return false;
 		return true;
 	}
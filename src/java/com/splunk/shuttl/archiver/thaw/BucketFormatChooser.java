@@ -16,6 +16,7 @@ package com.splunk.shuttl.archiver.thaw;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +25,7 @@ import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.tgz.TarCodecs;
 
 /**
  * Selects a {@link BucketFormat} given a {@link Set} of {@link BucketFormat}s
@@ -36,12 +38,23 @@ public class BucketFormatChooser {
 	public static final BucketFormat DEFAULT_FORMAT_WHEN_NO_PRIORITIZING = BucketFormat.SPLUNK_BUCKET;
 
 	private final ArchiveConfiguration configuration;
+	private final TarCodecs tarCodecs;
 
 	/**
 	 * @param configuration
 	 */
 	public BucketFormatChooser(ArchiveConfiguration configuration) {
+		this(configuration, TarCodecs.create());
+	}
+
+	/**
+	 * @param tarCodecs
+	 *          for skipping formats that cannot be imported in this JVM.
+	 */
+	public BucketFormatChooser(ArchiveConfiguration configuration,
+			TarCodecs tarCodecs) {
 		this.configuration = configuration;
+		this.tarCodecs = tarCodecs;
 	}
 
 	/**
@@ -55,7 +68,24 @@ public class BucketFormatChooser {
 		else if (formats.size() == 1)
 			return formats.iterator().next();
 		else
-			return chooseFormatBasedOnPrioritizingOrDefaults(formats);
+			return chooseFormatBasedOnPrioritizingOrDefaults(
+					importableFormats(formats));
+	}
+
+	/**
+	 * @return the formats that can be imported in this JVM, or all formats if
+	 *         none of them can, so that the import fails with a clear error.
+	 */
+	private List<BucketFormat> importableFormats(List<BucketFormat> formats) {
+		List<BucketFormat> importable = new ArrayList<BucketFormat>();
+		for (BucketFormat format : formats)
+			if (tarCodecs.isAvailable(format))
+				importable.add(format);
+			else
+				logger.debug(warn("Chose bucket format", "Format needs a codec "
+						+ "that is not available", "Skipping the format", "format",
+						format));
+		return importable.isEmpty() ? formats : importable;
 	}
 
 	private BucketFormat unknownBucketFormatWithLogWarning() {
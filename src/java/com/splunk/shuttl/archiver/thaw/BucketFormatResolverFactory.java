@@ -28,8 +28,15 @@ public class BucketFormatResolverFactory {
 	 * @return instance configured with specified config.
 	 */
 	public static BucketFormatResolver create(ArchiveConfiguration config) {
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getWithConfiguration(config);
+		return create(config,
+				ArchiveFileSystemFactory.getWithConfiguration(config));
+	}
+
+	/**
+	 * @return instance resolving formats in an already created file system.
+	 */
+	public static BucketFormatResolver create(ArchiveConfiguration config,
+			ArchiveFileSystem archiveFileSystem) {
 		PathResolver pathResolver = new PathResolver(config);
 		BucketFormatChooser bucketFormatChooser = new BucketFormatChooser(config);
 		return new BucketFormatResolver(pathResolver, archiveFileSystem,
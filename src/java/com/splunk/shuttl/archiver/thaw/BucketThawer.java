@@ -17,20 +17,29 @@ package com.splunk.shuttl.archiver.thaw;
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
 
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
-import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 
 /**
  * Interacts with the archive to thaw buckets within the users needs, which is
- * currently only a time range.
+ * currently only a time range.<br/>
+ * <br/>
+ * Thawing is done in two phases. The retrieval of all the buckets to thaw is
+ * requested up front, and then the buckets are gotten concurrently, so that
+ * archives with slow retrievals, like glacier, retrieve all the buckets at the
+ * same time.
  */
 public class BucketThawer {
 
@@ -42,6 +51,7 @@ public class BucketThawer {
 	private final List<Bucket> skippedBuckets;
 	private final List<FailedBucket> failedBuckets;
 	private final BucketLocker thawBucketLocker;
+	private final Executor executor;
 
 	private LocalBucketStorage localBuckets;
 
@@ -66,18 +76,41 @@ public class BucketThawer {
 	 *          for getting the location on local disk for the thawed bucket.
 	 * @param thawBucketLocker
 	 *          to handle parallel thawing synchronization.
+	 * @param executor
+	 *          to get the buckets from the archive on.
 	 */
 	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
 			GetsBucketsFromArchive getsBucketsFromArchive,
-			LocalBucketStorage localBuckets, BucketLocker thawBucketLocker) {
+			LocalBucketStorage localBuckets, BucketLocker thawBucketLocker,
+			Executor executor) {
 		this.listsBucketsFiltered = listsBucketsFiltered;
 		this.getsBucketsFromArchive = getsBucketsFromArchive;
 		this.localBuckets = localBuckets;
 		this.thawBucketLocker = thawBucketLocker;
+		this.executor = executor;
+
+		this.successfulThawedBuckets = Collections
+				.synchronizedList(new ArrayList<LocalBucket>());
+		this.skippedBuckets = Collections
+				.synchronizedList(new ArrayList<Bucket>());
+		this.failedBuckets = Collections
+				.synchronizedList(new ArrayList<FailedBucket>());
+	}
 
-		this.successfulThawedBuckets = new ArrayList<LocalBucket>();
-		this.skippedBuckets = new ArrayList<Bucket>();
-		this.failedBuckets = new ArrayList<FailedBucket>();
+	/**
+	 * Gets the buckets from the archive one at a time, in the thawing thread.
+	 */
+	public BucketThawer(ListsBucketsFiltered listsBucketsFiltered,
+			GetsBucketsFromArchive getsBucketsFromArchive,
+			LocalBucketStorage localBuckets, BucketLocker thawBucketLocker) {
+		this(listsBucketsFiltered, getsBucketsFromArchive, localBuckets,
+				thawBucketLocker, new Executor() {
+
+					@Override
+					public void execute(Runnable command) {
+						command.run();
+					}
+				});
 	}
 
 	/**
@@ -93,11 +126,11 @@ public class BucketThawer {
 	public void thawBuckets(String index, Date earliestTime, Date latestTime) {
 		List<Bucket> bucketsToThaw = getFilteredBuckets(index, earliestTime,
 				latestTime);
+		List<Bucket> bucketsNotThawed = new ArrayList<Bucket>();
 		for (Bucket bucket : bucketsToThaw)
 			try {
 				if (!localBuckets.hasBucket(bucket)) {
-					thawBucketLocker.callBucketHandlerUnderSharedLock(bucket,
-							new ThawBucketFromArchive());
+					bucketsNotThawed.add(bucket);
 				} else {
 					skippedBuckets.add(bucket);
 				}
@@ -105,6 +138,8 @@ public class BucketThawer {
 				logExceptionFromCheckingIfBucketWasThawed(bucket, e);
 				failedBuckets.add(new FailedBucket(bucket, e));
 			}
+		thawBucketLocker.callBucketsHandlerUnderSharedLocks(bucketsNotThawed,
+				new ThawBucketsFromArchive());
 	}
 
 	private List<Bucket> getFilteredBuckets(String index, Date earliestTime,
@@ -124,15 +159,26 @@ public class BucketThawer {
 	}
 
 	/**
-	 * Class to call from the {@link BucketLocker}. Thaws bucket from archive
-	 * during bucket lock. It simply calls a method in this class. It is all
-	 * synchronous and not asynchronous as it might seem.
+	 * Class to call from the {@link BucketLocker}. Thaws the buckets from the
+	 * archive while they are locked. Returns when all the buckets are thawed, so
+	 * that the locks are held until then.
 	 */
-	private class ThawBucketFromArchive implements SharedLockBucketHandler {
+	private class ThawBucketsFromArchive implements SharedLockBucketsHandler {
 
 		@Override
-		public void handleSharedLockedBucket(Bucket bucket) {
-			BucketThawer.this.thawBucketFromArchive(bucket);
+		public void handleSharedLockedBuckets(List<Bucket> buckets) {
+			getsBucketsFromArchive.requestRetrieval(buckets);
+			CompletionService<Void> thaws = new ExecutorCompletionService<Void>(
+					executor);
+			for (final Bucket bucket : buckets)
+				thaws.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						thawBucketFromArchive(bucket);
+					}
+				}, null);
+			waitForThaws(thaws, buckets.size());
 		}
 
 		@Override
@@ -142,6 +188,19 @@ public class BucketThawer {
 
 	}
 
+	private void waitForThaws(CompletionService<Void> thaws, int count) {
+		boolean interrupted = false;
+		for (int i = 0; i < count; i++)
+			try {
+				thaws.take();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				i--;
+			}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
 	private void thawBucketFromArchive(Bucket bucket) {
 		try {
 			LocalBucket thawedBucket = getsBucketsFromArchive
@@ -153,6 +212,9 @@ public class BucketThawer {
 		} catch (ImportThawedBucketFailException e) {
 			logImportException(bucket, e);
 			failedBuckets.add(new FailedBucket(bucket, e));
+		} catch (RuntimeException e) {
+			logExceptionFromCheckingIfBucketWasThawed(bucket, e);
+			failedBuckets.add(new FailedBucket(bucket, e));
 		}
 	}
 
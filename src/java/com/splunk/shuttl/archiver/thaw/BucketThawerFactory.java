@@ -14,24 +14,35 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.copy.IndexStoragePaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.FileTransferPool;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.importexport.BucketImportController;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
 
 /**
  * Factory for getting {@link BucketThawer}
  */
 public class BucketThawerFactory {
 
+	private static final long KEEP_ALIVE_SECONDS = 60;
+	private static ExecutorService thawExecutor;
+
 	/**
 	 * Default {@link BucketThawer} as configured with .conf files.
 	 */
@@ -62,11 +73,12 @@ public class BucketThawerFactory {
 		ThawLocationProvider thawLocationProvider = new ThawLocationProvider(
 				splunkIndexesLayer, localFileSystemPaths);
 
+		PathResolver pathResolver = new PathResolver(configuration);
 		ThawBucketTransferer thawBucketTransferer = getThawBucketTransferer(
-				archiveFileSystem, thawLocationProvider);
+				archiveFileSystem, thawLocationProvider, ArchiveBucketChecksums
+						.create(pathResolver, archiveFileSystem, localFileSystemPaths));
 		ListsBucketsFiltered listsBucketsFiltered = ListsBucketsFilteredFactory
-				.create(configuration);
-		PathResolver pathResolver = new PathResolver(configuration);
+				.create(configuration, archiveFileSystem);
 		BucketSizeResolver bucketSizeResolver = new BucketSizeResolver(
 				ArchiveBucketSize.create(pathResolver, archiveFileSystem,
 						localFileSystemPaths));
@@ -75,15 +87,34 @@ public class BucketThawerFactory {
 				bucketSizeResolver);
 		return new BucketThawer(listsBucketsFiltered, getsBucketsFromArchive,
 				new LocalBucketStorage(new IndexStoragePaths(splunkIndexesLayer)),
-				new ThawBucketLocker(localFileSystemPaths));
+				new ThawBucketLocker(localFileSystemPaths), getThawExecutor());
+	}
+
+	/**
+	 * Buckets are gotten on as many threads as there are file transfer threads.
+	 * The threads mostly wait for the archive to retrieve the buckets, so they
+	 * are not taken from the {@link FileTransferPool}.
+	 */
+	private static synchronized ExecutorService getThawExecutor() {
+		if (thawExecutor == null) {
+			int threads = FileTransferPool.getSharedInstance().getThreads();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+					KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(
+							"shuttl-thaw-"));
+			executor.allowCoreThreadTimeOut(true);
+			thawExecutor = executor;
+		}
+		return thawExecutor;
 	}
 
 	private static ThawBucketTransferer getThawBucketTransferer(
 			ArchiveFileSystem archiveFileSystem,
-			ThawLocationProvider thawLocationProvider) {
+			ThawLocationProvider thawLocationProvider,
+			ArchiveBucketChecksums archiveBucketChecksums) {
 		ThawBucketTransferer thawBucketTransferer = new ThawBucketTransferer(
 				thawLocationProvider, archiveFileSystem, new BucketFactory(),
-				new TransactionExecuter());
+				archiveBucketChecksums, new TransactionExecuter());
 		return thawBucketTransferer;
 	}
 }
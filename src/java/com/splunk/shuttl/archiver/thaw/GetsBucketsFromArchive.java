@@ -16,6 +16,8 @@ package com.splunk.shuttl.archiver.thaw;
 
 import static com.splunk.shuttl.archiver.LogFormatter.*;
 
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import com.splunk.shuttl.archiver.importexport.BucketImportController;
@@ -48,6 +50,14 @@ public class GetsBucketsFromArchive {
 		this.bucketSizeResolver = bucketSizeResolver;
 	}
 
+	/**
+	 * Requests the retrieval of all the buckets that are about to be gotten, so
+	 * that slow retrievals run at the same time.
+	 */
+	public void requestRetrieval(List<Bucket> buckets) {
+		thawBucketTransferer.requestRetrieval(buckets);
+	}
+
 	/**
 	 * @return thawed bucket.
 	 * @throws ThawTransferFailException
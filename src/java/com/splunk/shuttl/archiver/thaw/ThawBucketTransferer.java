@@ -16,11 +16,20 @@ package com.splunk.shuttl.archiver.thaw;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+import com.splunk.shuttl.archiver.filesystem.RequestsBucketRetrieval;
 import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.GetBucketTransaction;
+import com.splunk.shuttl.archiver.importexport.container.BucketContainerReader;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
@@ -33,31 +42,86 @@ public class ThawBucketTransferer {
 	private final ThawLocationProvider thawLocationProvider;
 	private final ArchiveFileSystem archiveFileSystem;
 	private final BucketFactory bucketFactory;
+	private final ArchiveBucketChecksums archiveBucketChecksums;
 	private TransactionExecuter transactionExecuter;
 
 	public ThawBucketTransferer(ThawLocationProvider thawLocationProvider,
 			ArchiveFileSystem archiveFileSystem, BucketFactory bucketFactory,
+			ArchiveBucketChecksums archiveBucketChecksums,
 			TransactionExecuter transactionExecuter) {
 		this.thawLocationProvider = thawLocationProvider;
 		this.archiveFileSystem = archiveFileSystem;
 		this.bucketFactory = bucketFactory;
+		this.archiveBucketChecksums = archiveBucketChecksums;
 		this.transactionExecuter = transactionExecuter;
 	}
 
+	/**
+	 * Requests the retrieval of buckets that are about to be transferred, if the
+	 * archive has to retrieve buckets before they can be transferred.
+	 */
+	public void requestRetrieval(List<Bucket> buckets) {
+		if (archiveFileSystem instanceof RequestsBucketRetrieval)
+			((RequestsBucketRetrieval) archiveFileSystem).requestRetrieval(buckets);
+	}
+
 	/**
 	 * Transfers an archived bucket in the thaw directory of the bucket's index.
+	 * The bucket's files are verified against their checksums while they are
+	 * transferred, if the bucket was archived with checksums. <br/>
+	 * A bucket container is extracted straight from the archive, if the archive
+	 * can read ranges of files. Its files are then verified against the CRC-32s
+	 * in the container instead.
 	 * 
 	 * @return the transferred bucket.
 	 */
 	public LocalBucket transferBucketToThaw(Bucket bucket) throws IOException {
 		File temp = thawLocationProvider.getThawTransferLocation(bucket);
 		File dst = thawLocationProvider.getLocationInThawForBucket(bucket);
+		if (canExtractFromArchive(bucket))
+			return extractContainerToThaw(bucket, temp, dst);
+
+		ChecksumManifest checksums = archiveBucketChecksums.readChecksums(bucket);
 		Transaction getBucketTransaction = GetBucketTransaction.create(
 				archiveFileSystem, bucket, temp.getAbsolutePath(),
-				dst.getAbsolutePath());
+				dst.getAbsolutePath(), checksums);
 		transactionExecuter.execute(getBucketTransaction);
 
-		return bucketFactory.createWithIndexDirectoryAndSize(bucket.getIndex(),
-				dst, bucket.getFormat(), bucket.getSize());
+		return createThawedBucket(bucket, dst, bucket.getFormat(),
+				bucket.getSize());
+	}
+
+	/**
+	 * The thawed bucket's directory is moved or deleted when it is imported, so
+	 * its size is captured right away. A null size is computed from the
+	 * directory.
+	 */
+	private LocalBucket createThawedBucket(Bucket bucket, File dst,
+			BucketFormat format, Long size) {
+		LocalBucket thawedBucket = bucketFactory.createWithIndexDirectoryAndSize(
+				bucket.getIndex(), dst, format, size);
+		thawedBucket.captureSize();
+		return thawedBucket;
+	}
+
+	private boolean canExtractFromArchive(Bucket bucket) {
+		return bucket.getFormat().equals(BucketFormat.SPLUNK_BUCKET_CONTAINER)
+				&& archiveFileSystem instanceof ReadsFileRanges;
+	}
+
+	private LocalBucket extractContainerToThaw(Bucket bucket, File temp,
+			File dst) throws IOException {
+		if (!dst.exists()) {
+			FileUtils.deleteDirectory(temp);
+			BucketContainerReader.create((ReadsFileRanges) archiveFileSystem,
+					getContainerPath(bucket)).extractTo(temp);
+			FileUtils.moveDirectory(temp, dst);
+		}
+		return createThawedBucket(bucket, dst, BucketFormat.SPLUNK_BUCKET, null);
+	}
+
+	private String getContainerPath(Bucket bucket) {
+		return bucket.getPath() + "/" + bucket.getName()
+				+ BucketFormat.extensionOfFormat(bucket.getFormat());
 	}
 }
@@ -0,0 +1,146 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time-of-day windows when the transfer limits apply. Outside the windows,
+ * transfers run at full speed. Without any windows, the limits always apply.<br/>
+ * <br/>
+ * A window is written as {@code [day[-day]] HH:mm-HH:mm}, for example
+ * {@code Mon-Fri 08:00-18:00} or {@code 22:00-06:00}. A window that ends before
+ * it starts continues past midnight, and counts as the day it started.
+ */
+public class ThrottleSchedule {
+
+	private static final Pattern WINDOW = Pattern
+			.compile("^\\s*(?:(\\w{3})(?:-(\\w{3}))?\\s+)?"
+					+ "(\\d{1,2}):(\\d{2})-(\\d{1,2}):(\\d{2})\\s*$");
+	private static final List<String> DAYS = Arrays.asList("sun", "mon", "tue",
+			"wed", "thu", "fri", "sat");
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	private final List<Window> windows;
+
+	private ThrottleSchedule(List<Window> windows) {
+		this.windows = windows;
+	}
+
+	/**
+	 * @return true if the limits apply at the time.
+	 */
+	public boolean isThrottled(Calendar time) {
+		if (windows.isEmpty())
+			return true;
+		int day = time.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY;
+		int minute = time.get(Calendar.HOUR_OF_DAY) * 60
+				+ time.get(Calendar.MINUTE);
+		for (Window window : windows)
+			if (window.contains(day, minute))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @throws InvalidThrottleScheduleException
+	 *           if a window can not be parsed.
+	 */
+	public static ThrottleSchedule parse(List<String> windows) {
+		if (windows == null)
+			return new ThrottleSchedule(Collections.<Window> emptyList());
+		List<Window> parsed = new ArrayList<Window>();
+		for (String window : windows)
+			parsed.add(parseWindow(window));
+		return new ThrottleSchedule(parsed);
+	}
+
+	private static Window parseWindow(String window) {
+		Matcher m = WINDOW.matcher(window);
+		if (!m.matches())
+			throw new InvalidThrottleScheduleException(window);
+		int firstDay = m.group(1) == null ? 0 : parseDay(m.group(1), window);
+		int lastDay = m.group(1) == null ? DAYS.size() - 1
+				: (m.group(2) == null ? firstDay : parseDay(m.group(2), window));
+		int start = parseMinute(m.group(3), m.group(4), window);
+		int end = parseMinute(m.group(5), m.group(6), window);
+		return new Window(firstDay, lastDay, start, end);
+	}
+
+	private static int parseDay(String day, String window) {
+		int index = DAYS.indexOf(day.toLowerCase());
+		if (index < 0)
+			throw new InvalidThrottleScheduleException(window);
+		return index;
+	}
+
+	private static int parseMinute(String hours, String minutes, String window) {
+		int minute = Integer.parseInt(hours) * 60 + Integer.parseInt(minutes);
+		if (minute > MINUTES_PER_DAY || Integer.parseInt(minutes) > 59)
+			throw new InvalidThrottleScheduleException(window);
+		return minute;
+	}
+
+	private static class Window {
+
+		private final int firstDay;
+		private final int lastDay;
+		private final int start;
+		private final int end;
+
+		public Window(int firstDay, int lastDay, int start, int end) {
+			this.firstDay = firstDay;
+			this.lastDay = lastDay;
+			this.start = start;
+			this.end = end;
+		}
+
+		public boolean contains(int day, int minute) {
+			if (start <= end)
+				return isDay(day) && start <= minute && minute < end;
+			else
+				return (isDay(day) && start <= minute)
+						|| (isDay(previous(day)) && minute < end);
+		}
+
+		private boolean isDay(int day) {
+			if (firstDay <= lastDay)
+				return firstDay <= day && day <= lastDay;
+			else
+				return day >= firstDay || day <= lastDay;
+		}
+
+		private static int previous(int day) {
+			return (day + DAYS.size() - 1) % DAYS.size();
+		}
+	}
+
+	public static class InvalidThrottleScheduleException extends
+			RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public InvalidThrottleScheduleException(String window) {
+			super("Invalid throttle window: " + window
+					+ ". Expected [day[-day]] HH:mm-HH:mm");
+		}
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Spends the bytes read from the stream from a number of budgets.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+	private final TransferBudget[] budgets;
+
+	public ThrottledInputStream(InputStream in, TransferBudget... budgets) {
+		super(in);
+		this.budgets = budgets;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1)
+			spend(1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0)
+			spend(read);
+		return read;
+	}
+
+	private void spend(int bytes) throws IOException {
+		for (TransferBudget budget : budgets)
+			budget.acquire(bytes);
+	}
+}
@@ -0,0 +1,57 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Spends the bytes written to the stream from a number of budgets. Large
+ * writes are split up, so that a throttled stream sends at an even pace.
+ */
+public class ThrottledOutputStream extends FilterOutputStream {
+
+	private static final int MAX_WRITE = 64 * 1024;
+
+	private final TransferBudget[] budgets;
+
+	public ThrottledOutputStream(OutputStream out, TransferBudget... budgets) {
+		super(out);
+		this.budgets = budgets;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		spend(1);
+		out.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, MAX_WRITE);
+			spend(n);
+			out.write(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void spend(int bytes) throws IOException {
+		for (TransferBudget budget : budgets)
+			budget.acquire(bytes);
+	}
+}
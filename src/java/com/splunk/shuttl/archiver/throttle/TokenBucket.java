@@ -0,0 +1,102 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits a rate of permits per second. Up to one second's worth of unused
+ * permits can be saved up for a burst. Permits larger than that are allowed,
+ * but the callers after it have to wait until the permits are paid back.
+ */
+public class TokenBucket {
+
+	private static final long NANOS_PER_SECOND = 1000L * 1000 * 1000;
+
+	private long permitsPerSecond;
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * @param permitsPerSecond
+	 *          rate to limit to. Zero or less means unlimited.
+	 */
+	public TokenBucket(long permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.tokens = Math.max(0, permitsPerSecond);
+		this.lastRefill = nanoTime();
+	}
+
+	/**
+	 * Takes permits from the bucket, waiting for them if the rate has been used
+	 * up.
+	 */
+	public void acquire(long permits) throws InterruptedIOException {
+		long waitNanos = reserve(permits);
+		if (waitNanos > 0)
+			sleep(waitNanos);
+	}
+
+	private synchronized long reserve(long permits) {
+		if (permitsPerSecond <= 0)
+			return 0;
+		refill();
+		tokens -= permits;
+		if (tokens >= 0)
+			return 0;
+		else
+			return (long) (-tokens * NANOS_PER_SECOND / permitsPerSecond);
+	}
+
+	private void refill() {
+		long now = nanoTime();
+		double refilled = (double) (now - lastRefill) * permitsPerSecond
+				/ NANOS_PER_SECOND;
+		tokens = Math.min(permitsPerSecond, tokens + refilled);
+		lastRefill = now;
+	}
+
+	/**
+	 * Changes the rate. Takes effect for the permits acquired after the change.
+	 */
+	public synchronized void setPermitsPerSecond(long permitsPerSecond) {
+		if (permitsPerSecond == this.permitsPerSecond)
+			return;
+		if (this.permitsPerSecond > 0)
+			refill();
+		else
+			tokens = 0;
+		this.permitsPerSecond = permitsPerSecond;
+		tokens = Math.min(tokens, Math.max(0, permitsPerSecond));
+		lastRefill = nanoTime();
+	}
+
+	public synchronized long getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	protected void sleep(long nanos) throws InterruptedIOException {
+		try {
+			Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while throttled");
+		}
+	}
+}
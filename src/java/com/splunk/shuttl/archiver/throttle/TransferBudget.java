@@ -0,0 +1,60 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import java.io.InterruptedIOException;
+
+/**
+ * A budget of bytes per second and operations per second. Every read or write
+ * call on a throttled stream is one operation.
+ */
+public class TransferBudget {
+
+	private final TokenBucket bytes;
+	private final TokenBucket operations;
+
+	public TransferBudget(TokenBucket bytes, TokenBucket operations) {
+		this.bytes = bytes;
+		this.operations = operations;
+	}
+
+	/**
+	 * Spend one operation of the given number of bytes.
+	 */
+	public void acquire(int byteCount) throws InterruptedIOException {
+		operations.acquire(1);
+		bytes.acquire(byteCount);
+	}
+
+	/**
+	 * Zero means unlimited.
+	 */
+	public void setLimits(long bytesPerSecond, long operationsPerSecond) {
+		bytes.setPermitsPerSecond(bytesPerSecond);
+		operations.setPermitsPerSecond(operationsPerSecond);
+	}
+
+	public long getBytesPerSecond() {
+		return bytes.getPermitsPerSecond();
+	}
+
+	public long getOperationsPerSecond() {
+		return operations.getPermitsPerSecond();
+	}
+
+	public static TransferBudget createUnlimited() {
+		return new TransferBudget(new TokenBucket(0), new TokenBucket(0));
+	}
+}
@@ -0,0 +1,246 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.throttle.ThrottleSchedule.InvalidThrottleScheduleException;
+import com.splunk.shuttl.archiver.util.DaemonThreadFactory;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiver;
+import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
+
+/**
+ * Limits the rate of archive transfers, so that archiving doesn't starve
+ * splunkd of disk and network. Reads of local bucket files spend from the disk
+ * budget. Transfers to and from a backend spend from the network budget and
+ * from that backend's budget.<br/>
+ * <br/>
+ * The limits are read from the {@link ShuttlArchiverMBean} on every refresh,
+ * so they can be changed while transfers are running. Outside of the
+ * configured {@link ThrottleSchedule} windows, transfers are not limited.
+ */
+public class TransferThrottle {
+
+	private static final Logger logger = Logger
+			.getLogger(TransferThrottle.class);
+
+	private static final long REFRESH_INTERVAL_SECONDS = 5;
+	private static final String BACKEND_LIMIT_SEPARATOR = "=";
+
+	private final ShuttlArchiverMBean archiverMBean;
+	private final TransferBudget diskRead;
+	private final TransferBudget network;
+	private final ConcurrentMap<String, TransferBudget> backends;
+	private volatile Map<String, Long> backendLimits;
+	private volatile boolean throttled;
+
+	/**
+	 * @param archiverMBean
+	 *          to read the limits from. Null means unlimited.
+	 */
+	public TransferThrottle(ShuttlArchiverMBean archiverMBean) {
+		this.archiverMBean = archiverMBean;
+		this.diskRead = TransferBudget.createUnlimited();
+		this.network = TransferBudget.createUnlimited();
+		this.backends = new ConcurrentHashMap<String, TransferBudget>();
+		this.backendLimits = Collections.emptyMap();
+		this.throttled = false;
+	}
+
+	/**
+	 * @return stream reading a local file, limited by the disk budget.
+	 */
+	public InputStream throttleDiskRead(InputStream in) {
+		return new ThrottledInputStream(in, diskRead);
+	}
+
+	/**
+	 * @return stream reading from the backend, limited by the network budget
+	 *         and the backend's budget.
+	 */
+	public InputStream throttleNetworkRead(InputStream in, String backend) {
+		return new ThrottledInputStream(in, network, getBackendBudget(backend));
+	}
+
+	/**
+	 * @return stream writing to the backend, limited by the network budget and
+	 *         the backend's budget.
+	 */
+	public OutputStream throttleNetworkWrite(OutputStream out, String backend) {
+		return new ThrottledOutputStream(out, network, getBackendBudget(backend));
+	}
+
+	private TransferBudget getBackendBudget(String backend) {
+		TransferBudget budget = backends.get(backend);
+		if (budget == null) {
+			TransferBudget created = TransferBudget.createUnlimited();
+			budget = backends.putIfAbsent(backend, created);
+			if (budget == null) {
+				budget = created;
+				setBackendLimit(backend, budget);
+			}
+		}
+		return budget;
+	}
+
+	private void setBackendLimit(String backend, TransferBudget budget) {
+		Long limit = backendLimits.get(backend);
+		budget.setLimits(throttled && limit != null ? limit : 0, 0);
+	}
+
+	/**
+	 * Reads the limits and the schedule, and applies them for the current time.
+	 */
+	public void refresh() {
+		refresh(Calendar.getInstance());
+	}
+
+	/**
+	 * Reads the limits and the schedule, and applies them for the time.
+	 */
+	public synchronized void refresh(Calendar now) {
+		if (archiverMBean == null)
+			return;
+		throttled = isThrottled(now);
+		backendLimits = parseBackendLimits(archiverMBean.getBackendNetworkLimits());
+		if (throttled) {
+			diskRead.setLimits(
+					unlimitedIfNotSet(archiverMBean.getDiskReadBytesPerSecond()),
+					unlimitedIfNotSet(archiverMBean.getDiskReadOperationsPerSecond()));
+			network.setLimits(
+					unlimitedIfNotSet(archiverMBean.getNetworkBytesPerSecond()), 0);
+		} else {
+			diskRead.setLimits(0, 0);
+			network.setLimits(0, 0);
+		}
+		for (Map.Entry<String, TransferBudget> backend : backends.entrySet())
+			setBackendLimit(backend.getKey(), backend.getValue());
+	}
+
+	private long unlimitedIfNotSet(Long limit) {
+		return limit == null ? 0 : limit;
+	}
+
+	private boolean isThrottled(Calendar now) {
+		try {
+			return ThrottleSchedule.parse(archiverMBean.getThrottleWindows())
+					.isThrottled(now);
+		} catch (InvalidThrottleScheduleException e) {
+			logger.warn(warn("Parsed the throttle windows", e,
+					"Will apply the limits at all times"));
+			return true;
+		}
+	}
+
+	private static Map<String, Long> parseBackendLimits(List<String> limits) {
+		Map<String, Long> parsed = new HashMap<String, Long>();
+		if (limits == null)
+			return parsed;
+		for (String limit : limits) {
+			String[] nameAndLimit = limit.split(BACKEND_LIMIT_SEPARATOR);
+			try {
+				if (nameAndLimit.length != 2)
+					throw new NumberFormatException();
+				parsed.put(nameAndLimit[0].trim(),
+						Long.parseLong(nameAndLimit[1].trim()));
+			} catch (NumberFormatException e) {
+				logger.warn(warn("Parsed a backend network limit", e,
+						"Will ignore the limit. Expected backend=bytesPerSecond",
+						"limit", limit));
+			}
+		}
+		return parsed;
+	}
+
+	TransferBudget getDiskReadBudget() {
+		return diskRead;
+	}
+
+	TransferBudget getNetworkBudget() {
+		return network;
+	}
+
+	TransferBudget getBudgetForBackend(String backend) {
+		return getBackendBudget(backend);
+	}
+
+	/**
+	 * @return throttle that never limits.
+	 */
+	public static TransferThrottle createUnlimited() {
+		return new TransferThrottle(null);
+	}
+
+	private static TransferThrottle sharedInstance;
+
+	/**
+	 * @return the throttle shared by the whole JVM. It refreshes itself from the
+	 *         {@link ShuttlArchiverMBean} when it is registered.
+	 */
+	public static synchronized TransferThrottle getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createSharedInstance();
+		return sharedInstance;
+	}
+
+	private static TransferThrottle createSharedInstance() {
+		try {
+			TransferThrottle throttle = new TransferThrottle(
+					ShuttlArchiver.getMBeanProxy());
+			throttle.refresh();
+			scheduleRefreshes(throttle);
+			return throttle;
+		} catch (InstanceNotFoundException e) {
+			logger.debug(warn("Tried getting the ShuttlArchiverMBean", e,
+					"Will not limit transfers"));
+			return createUnlimited();
+		}
+	}
+
+	private static void scheduleRefreshes(final TransferThrottle throttle) {
+		ScheduledExecutorService refresher = Executors
+				.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+						"shuttl-throttle-"));
+		refresher.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					throttle.refresh();
+				} catch (RuntimeException e) {
+					logger.warn(warn("Refreshed transfer limits", e,
+							"Will keep the current limits until next refresh"));
+				}
+			}
+		}, REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+}
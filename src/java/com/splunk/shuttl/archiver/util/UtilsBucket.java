@@ -60,4 +60,13 @@ public class UtilsBucket {
 	public static File getTgzFile(LocalBucket realTgzBucket) {
 		return getFileFromBucket(realTgzBucket, "tgz");
 	}
+
+	/**
+	 * @return the file with the extension in a bucket, which has a single file
+	 *         bucket format.
+	 * @throws {@link NoFileFoundException} when no such file was found.
+	 */
+	public static File getFileWithExtension(LocalBucket bucket, String extension) {
+		return getFileFromBucket(bucket, extension);
+	}
 }
@@ -22,8 +22,13 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.eclipse.jetty.xml.XmlConfiguration;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.StartUpCleaner;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierArchiveIdLog;
+import com.splunk.shuttl.archiver.journal.ReplaysJobJournal;
+import com.splunk.shuttl.server.handoff.BucketHandoffServer;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.rest.ArchiveWorkerPool;
 
 /**
  * Main class that starts the integrated Jetty server
@@ -32,8 +37,10 @@ import com.splunk.shuttl.server.mbeans.ShuttlServer;
  * 
  */
 public class ShuttlJettyServer {
+
+	private static final Logger logger = Logger.getLogger("ShuttlServer");
+
 	public static void main(String args[]) {
-		org.apache.log4j.Logger logger = Logger.getLogger("ShuttlServer");
 		try {
 			Server server = new Server();
 
@@ -55,10 +62,34 @@ public class ShuttlJettyServer {
 				}
 			}
 			StartUpCleaner.create().clean();
+			ReplaysJobJournal.create().replay();
+			GlacierArchiveIdLog.getSharedInstance(LocalFileSystemPaths.create())
+					.load();
+			stopOnShutdown(server);
 			server.start();
+			BucketHandoffServer.start(servermbean);
 		} catch (Exception e) {
 			logger.error("Error during startup", e);
 			System.exit(1);
 		}
 	}
+
+	/**
+	 * Stops the server and the archive workers when the JVM shuts down, so that
+	 * the job journal is flushed after the last jobs.
+	 */
+	private static void stopOnShutdown(final Server server) {
+		Runtime.getRuntime().addShutdownHook(new Thread("shuttl-shutdown") {
+			@Override
+			public void run() {
+				try {
+					server.stop();
+				} catch (Exception e) {
+					logger.warn("Error while stopping the server", e);
+				} finally {
+					ArchiveWorkerPool.shutdownSharedInstance();
+				}
+			}
+		});
+	}
 }
@@ -0,0 +1,57 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a task without a bucket in the background, such as the retry scripts.
+ * A hand over is skipped while the task from an earlier hand over is still
+ * running, since the scripts are run periodically by Splunk.
+ */
+public class BackgroundHandoff implements BucketHandoffCommand {
+
+	private final Runnable task;
+	private final Executor executor;
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public BackgroundHandoff(Runnable task, Executor executor) {
+		this.task = task;
+		this.executor = executor;
+	}
+
+	@Override
+	public void handOff(File bucketDir) {
+		if (!running.compareAndSet(false, true))
+			return;
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						running.set(false);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			running.set(false);
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import com.splunk.shuttl.archiver.ConfigurationPaths;
+
+/**
+ * Launcher used by the bucket scripts. Hands the bucket over to the running
+ * Shuttl server over a local socket and returns as soon as the server has
+ * acknowledged it, so that a script doesn't have to start a full JVM with the
+ * whole classpath for every bucket. <br/>
+ * <br/>
+ * The class must only use java.* classes, since it is run with nothing but the
+ * Shuttl jar on the classpath. When the hand over fails, the scripts fall back
+ * to running the work in a JVM of their own.
+ */
+public class BucketHandoffClient {
+
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_NOT_HANDED_OFF = 1;
+	public static final int EXIT_INCORRECT_ARGUMENTS = 2;
+
+	public static final String REPLY_OK = "OK";
+	public static final String REPLY_ERROR = "ERROR";
+	public static final String ENCODING = "UTF-8";
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+	private static final int REPLY_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+	private final File portFile;
+	private final int connectTimeout;
+	private final int replyTimeout;
+
+	public BucketHandoffClient(File portFile, int connectTimeout,
+			int replyTimeout) {
+		this.portFile = portFile;
+		this.connectTimeout = connectTimeout;
+		this.replyTimeout = replyTimeout;
+	}
+
+	/**
+	 * @param command
+	 *          to run on the server.
+	 * @param bucketPath
+	 *          path to the bucket, or null for commands without a bucket.
+	 * @return {@link #EXIT_OK} if the server acknowledged the hand over,
+	 *         {@link #EXIT_NOT_HANDED_OFF} otherwise.
+	 */
+	public int handOff(String command, String bucketPath) {
+		try {
+			String reply = send(createRequest(command, bucketPath));
+			if (REPLY_OK.equals(reply))
+				return EXIT_OK;
+			System.err.println("Shuttl server did not take the hand over: " + reply);
+		} catch (Exception e) {
+			System.err.println("Could not hand over to the Shuttl server: " + e);
+		}
+		return EXIT_NOT_HANDED_OFF;
+	}
+
+	private String createRequest(String command, String bucketPath) {
+		if (bucketPath == null)
+			return command;
+		else
+			return command + " " + new File(bucketPath).getAbsolutePath();
+	}
+
+	private String send(String request) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null),
+					readPort()), connectTimeout);
+			socket.setSoTimeout(replyTimeout);
+
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(),
+					ENCODING);
+			writer.write(request + "\n");
+			writer.flush();
+
+			return new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), ENCODING)).readLine();
+		} finally {
+			socket.close();
+		}
+	}
+
+	private int readPort() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(portFile), ENCODING));
+		try {
+			return Integer.parseInt(reader.readLine().trim());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Usage: BucketHandoffClient &lt;command&gt; [bucket]
+	 */
+	public static void main(String... args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("usage: BucketHandoffClient <command> [bucket]");
+			System.exit(EXIT_INCORRECT_ARGUMENTS);
+		}
+		String bucketPath = args.length == 2 ? args[1] : null;
+		BucketHandoffClient client = new BucketHandoffClient(
+				ConfigurationPaths.getHandoffPortFile(), CONNECT_TIMEOUT_MILLIS,
+				REPLY_TIMEOUT_MILLIS);
+		System.exit(client.handOff(args[0], bucketPath));
+	}
+}
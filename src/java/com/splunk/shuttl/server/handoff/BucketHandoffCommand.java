@@ -0,0 +1,36 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import java.io.File;
+
+/**
+ * Something that a bucket script hands over to the running server, instead of
+ * starting a JVM of its own. The hand over is acknowledged when this method
+ * returns, so anything the script must wait for has to be done before
+ * returning. The rest can be done in the background.
+ */
+public interface BucketHandoffCommand {
+
+	/**
+	 * @param bucketDir
+	 *          the bucket directory given to the script, or null for commands
+	 *          without a bucket.
+	 * @throws RuntimeException
+	 *           if the hand over failed and the script should do the work
+	 *           itself.
+	 */
+	void handOff(File bucketDir);
+}
@@ -0,0 +1,109 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketFreezerProvider;
+import com.splunk.shuttl.archiver.copy.CachingIndexScanner;
+import com.splunk.shuttl.archiver.retry.ColdToFrozenRetrier;
+import com.splunk.shuttl.archiver.retry.WarmToColdRetrier;
+import com.splunk.shuttl.archiver.thaw.SplunkIndexedLayerFactory;
+
+/**
+ * Answers the one line requests sent by the {@link BucketHandoffClient}. A
+ * request is a command, optionally followed by a space and a bucket path. The
+ * reply is {@link BucketHandoffClient#REPLY_OK} when the command took the hand
+ * over, and {@link BucketHandoffClient#REPLY_ERROR} followed by a message
+ * otherwise.
+ */
+public class BucketHandoffProtocol {
+
+	private static final Logger logger = Logger
+			.getLogger(BucketHandoffProtocol.class);
+
+	public static final String FREEZE = "freeze";
+	public static final String COPY = "copy";
+	public static final String RETRY_FREEZE = "retry-freeze";
+	public static final String RETRY_COPY = "retry-copy";
+
+	private final Map<String, BucketHandoffCommand> commands;
+
+	public BucketHandoffProtocol(Map<String, BucketHandoffCommand> commands) {
+		this.commands = commands;
+	}
+
+	/**
+	 * @return reply to the request.
+	 */
+	public String respond(String request) {
+		if (request == null)
+			return error("no request");
+
+		int space = request.indexOf(' ');
+		String commandName = space < 0 ? request : request.substring(0, space);
+		File bucketDir = space < 0 ? null : new File(request.substring(space + 1));
+
+		BucketHandoffCommand command = commands.get(commandName);
+		if (command == null)
+			return error("unknown command " + commandName);
+
+		try {
+			command.handOff(bucketDir);
+			return BucketHandoffClient.REPLY_OK;
+		} catch (RuntimeException e) {
+			logger.warn(warn("Handed over bucket script command", e,
+					"the script will do the work itself", "request", request));
+			return error(e.getMessage());
+		}
+	}
+
+	private String error(String message) {
+		return BucketHandoffClient.REPLY_ERROR + " "
+				+ String.valueOf(message).replace('\n', ' ');
+	}
+
+	/**
+	 * @return protocol with the commands of the four bucket scripts. Needs the
+	 *         Archiver MBean to be registered.
+	 */
+	public static BucketHandoffProtocol create() {
+		ExecutorService background = Executors.newCachedThreadPool();
+		CachingIndexScanner indexScanner = CachingIndexScanner.create();
+
+		Map<String, BucketHandoffCommand> commands = new HashMap<String, BucketHandoffCommand>();
+		commands.put(FREEZE, new FreezeBucketHandoff(indexScanner,
+				new BucketFreezerProvider().getConfiguredBucketFreezer(), background));
+		commands.put(COPY, new CopyBucketHandoff(indexScanner, background));
+		commands.put(RETRY_FREEZE, new BackgroundHandoff(
+				ColdToFrozenRetrier.create(), background));
+		commands.put(RETRY_COPY, new BackgroundHandoff(new Runnable() {
+			@Override
+			public void run() {
+				new WarmToColdRetrier(
+						SplunkIndexedLayerFactory.getLoggedInSplunkService()).run();
+			}
+		}, background));
+		return new BucketHandoffProtocol(commands);
+	}
+}
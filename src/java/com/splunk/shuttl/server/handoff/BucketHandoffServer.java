@@ -0,0 +1,159 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.ConfigurationPaths;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+/**
+ * Listens on a local port for bucket scripts that hand their work over to the
+ * running server with the {@link BucketHandoffClient}. Only the loopback
+ * interface is bound.
+ */
+public class BucketHandoffServer implements Runnable {
+
+	private static final Logger logger = Logger
+			.getLogger(BucketHandoffServer.class);
+
+	private static final int REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+
+	private final ServerSocket serverSocket;
+	private final BucketHandoffProtocol protocol;
+	private final ExecutorService connectionExecutor;
+
+	public BucketHandoffServer(ServerSocket serverSocket,
+			BucketHandoffProtocol protocol, ExecutorService connectionExecutor) {
+		this.serverSocket = serverSocket;
+		this.protocol = protocol;
+		this.connectionExecutor = connectionExecutor;
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void run() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				connectionExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(socket);
+					}
+				});
+			} catch (IOException e) {
+				if (!serverSocket.isClosed())
+					logger.warn(warn("Accepted bucket hand over connection", e,
+							"will keep accepting connections", "port", getPort()));
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try {
+			socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+			String request = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), BucketHandoffClient.ENCODING)).readLine();
+
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(),
+					BucketHandoffClient.ENCODING);
+			writer.write(protocol.respond(request) + "\n");
+			writer.flush();
+		} catch (IOException e) {
+			logger.warn(warn("Answered bucket hand over request", e,
+					"the script will do the work itself"));
+		} finally {
+			IOUtils.closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * Stops accepting hand overs.
+	 */
+	public void stop() {
+		IOUtils.closeQuietly(serverSocket);
+		connectionExecutor.shutdown();
+	}
+
+	/**
+	 * Starts the hand over server on the port configured in the server MBean and
+	 * writes the port to {@link ConfigurationPaths#getHandoffPortFile()}, where
+	 * the {@link BucketHandoffClient} reads it.
+	 * 
+	 * @return the started server, or null if the hand over is turned off or
+	 *         could not be started, in which case the scripts start their own
+	 *         JVMs.
+	 */
+	public static BucketHandoffServer start(ShuttlServerMBean serverMBean) {
+		int port = serverMBean.getHandoffPort();
+		if (port < 0) {
+			logger.info(done("Skipped starting bucket hand over server", "port",
+					port));
+			return null;
+		}
+		try {
+			BucketHandoffServer server = new BucketHandoffServer(
+					bindLoopback(port), BucketHandoffProtocol.create(),
+					Executors.newCachedThreadPool());
+			writePortFile(server.getPort());
+
+			Thread thread = new Thread(server, "bucket-handoff");
+			thread.setDaemon(true);
+			thread.start();
+			logger.info(done("Started bucket hand over server", "port",
+					server.getPort()));
+			return server;
+		} catch (Exception e) {
+			logger.warn(warn("Started bucket hand over server", e,
+					"bucket scripts will start their own JVMs", "port", port));
+			return null;
+		}
+	}
+
+	private static ServerSocket bindLoopback(int port) throws IOException {
+		ServerSocket serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(InetAddress.getByName(null),
+				port));
+		return serverSocket;
+	}
+
+	private static void writePortFile(int port) throws IOException {
+		File portFile = ConfigurationPaths.getHandoffPortFile();
+		FileUtils.writeStringToFile(portFile, Integer.toString(port));
+		portFile.deleteOnExit();
+	}
+}
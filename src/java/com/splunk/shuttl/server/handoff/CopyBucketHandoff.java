@@ -0,0 +1,71 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.copy.CachingIndexScanner;
+import com.splunk.shuttl.archiver.copy.ColdCopyEntryPoint;
+import com.splunk.shuttl.archiver.model.BucketFactory;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+
+/**
+ * Copies a bucket for the warmToColdScript. The script has already moved the
+ * bucket to the cold path, so the copy is done in the background once the
+ * index of the bucket is known.
+ */
+public class CopyBucketHandoff implements BucketHandoffCommand {
+
+	private static final Logger logger = Logger
+			.getLogger(CopyBucketHandoff.class);
+
+	private final CachingIndexScanner indexScanner;
+	private final Executor executor;
+
+	public CopyBucketHandoff(CachingIndexScanner indexScanner, Executor executor) {
+		this.indexScanner = indexScanner;
+		this.executor = executor;
+	}
+
+	@Override
+	public void handOff(File bucketDir) {
+		if (bucketDir == null)
+			throw new BucketHandoffFailedException("no bucket to copy");
+
+		final LocalBucket bucket = BucketFactory
+				.createBucketWithIndexDirectoryAndFormat(
+						indexScanner.getIndex(bucketDir), bucketDir,
+						BucketFormat.SPLUNK_BUCKET);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ColdCopyEntryPoint.createColdBucketCopier()
+							.copyBucketAndPendingBuckets(bucket);
+				} catch (RuntimeException e) {
+					logger.error(did("Copied handed over bucket", e,
+							"to eventually call copy bucket REST endpoint", "bucket",
+							bucket));
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,61 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import com.splunk.shuttl.archiver.archive.BucketFreezer;
+import com.splunk.shuttl.archiver.copy.CachingIndexScanner;
+
+/**
+ * Freezes a bucket for the coldToFrozenScript. Splunk removes the bucket as
+ * soon as the script exits, so the bucket is moved before the hand over is
+ * acknowledged. Recovering failed archiving attempts is done in the
+ * background.
+ */
+public class FreezeBucketHandoff implements BucketHandoffCommand {
+
+	private final CachingIndexScanner indexScanner;
+	private final BucketFreezer bucketFreezer;
+	private final Executor executor;
+
+	public FreezeBucketHandoff(CachingIndexScanner indexScanner,
+			BucketFreezer bucketFreezer, Executor executor) {
+		this.indexScanner = indexScanner;
+		this.bucketFreezer = bucketFreezer;
+		this.executor = executor;
+	}
+
+	@Override
+	public void handOff(File bucketDir) {
+		if (bucketDir == null)
+			throw new BucketHandoffFailedException("no bucket to freeze");
+
+		String index = indexScanner.getIndex(bucketDir);
+		int exitCode = bucketFreezer.moveBucketToArchive(index,
+				bucketDir.getPath());
+		if (exitCode != BucketFreezer.EXIT_OK)
+			throw new BucketHandoffFailedException("freezing bucket "
+					+ bucketDir + " exited with " + exitCode);
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				bucketFreezer.archiveFailedBuckets();
+			}
+		});
+	}
+}
@@ -121,6 +121,56 @@ public class ShuttlArchiver extends MBeanBase<ArchiverConf> implements
 		conf.setArchivePath(archivePath);
 	}
 
+	@Override
+	public Long getDiskReadBytesPerSecond() {
+		return conf.getDiskReadBytesPerSecond();
+	}
+
+	@Override
+	public void setDiskReadBytesPerSecond(Long bytesPerSecond) {
+		conf.setDiskReadBytesPerSecond(bytesPerSecond);
+	}
+
+	@Override
+	public Long getDiskReadOperationsPerSecond() {
+		return conf.getDiskReadOperationsPerSecond();
+	}
+
+	@Override
+	public void setDiskReadOperationsPerSecond(Long operationsPerSecond) {
+		conf.setDiskReadOperationsPerSecond(operationsPerSecond);
+	}
+
+	@Override
+	public Long getNetworkBytesPerSecond() {
+		return conf.getNetworkBytesPerSecond();
+	}
+
+	@Override
+	public void setNetworkBytesPerSecond(Long bytesPerSecond) {
+		conf.setNetworkBytesPerSecond(bytesPerSecond);
+	}
+
+	@Override
+	public List<String> getBackendNetworkLimits() {
+		return conf.getBackendNetworkLimits();
+	}
+
+	@Override
+	public void setBackendNetworkLimits(List<String> limits) {
+		conf.setBackendNetworkLimits(limits);
+	}
+
+	@Override
+	public List<String> getThrottleWindows() {
+		return conf.getThrottleWindows();
+	}
+
+	@Override
+	public void setThrottleWindows(List<String> windows) {
+		conf.setThrottleWindows(windows);
+	}
+
 	@Override
 	protected ArchiverConf getConfObject() {
 		return this.conf;
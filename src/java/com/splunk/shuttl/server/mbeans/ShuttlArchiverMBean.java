@@ -52,4 +52,43 @@ public interface ShuttlArchiverMBean {
 
 	public void setArchivePath(String archivePath);
 
+	/**
+	 * @return bytes per second that archiving may read from local disk. Null or
+	 *         zero means unlimited.
+	 */
+	public Long getDiskReadBytesPerSecond();
+
+	public void setDiskReadBytesPerSecond(Long bytesPerSecond);
+
+	/**
+	 * @return reads per second that archiving may do from local disk. Null or
+	 *         zero means unlimited.
+	 */
+	public Long getDiskReadOperationsPerSecond();
+
+	public void setDiskReadOperationsPerSecond(Long operationsPerSecond);
+
+	/**
+	 * @return bytes per second that may be transferred to and from all backends
+	 *         together. Null or zero means unlimited.
+	 */
+	public Long getNetworkBytesPerSecond();
+
+	public void setNetworkBytesPerSecond(Long bytesPerSecond);
+
+	/**
+	 * @return limits for single backends, as backend=bytesPerSecond.
+	 */
+	public List<String> getBackendNetworkLimits();
+
+	public void setBackendNetworkLimits(List<String> limits);
+
+	/**
+	 * @return windows, as [day[-day]] HH:mm-HH:mm, when the limits apply. The
+	 *         limits always apply when there are no windows.
+	 */
+	public List<String> getThrottleWindows();
+
+	public void setThrottleWindows(List<String> windows);
+
 }
@@ -79,6 +79,116 @@ public class ShuttlServer extends MBeanBase<ServerConf> implements
 		this.conf.setHttpPort(port);
 	}
 
+	@Override
+	public int getArchiveWorkerThreads() {
+		return this.conf.getArchiveWorkerThreads();
+	}
+
+	@Override
+	public void setArchiveWorkerThreads(int threads) {
+		this.conf.setArchiveWorkerThreads(threads);
+	}
+
+	@Override
+	public int getArchiveQueueSize() {
+		return this.conf.getArchiveQueueSize();
+	}
+
+	@Override
+	public void setArchiveQueueSize(int queueSize) {
+		this.conf.setArchiveQueueSize(queueSize);
+	}
+
+	@Override
+	public int getCompressorThreads() {
+		return this.conf.getCompressorThreads();
+	}
+
+	@Override
+	public void setCompressorThreads(int threads) {
+		this.conf.setCompressorThreads(threads);
+	}
+
+	@Override
+	public int getTransferThreads() {
+		return this.conf.getTransferThreads();
+	}
+
+	@Override
+	public void setTransferThreads(int threads) {
+		this.conf.setTransferThreads(threads);
+	}
+
+	@Override
+	public int getZstdCompressionLevel() {
+		return this.conf.getZstdCompressionLevel();
+	}
+
+	@Override
+	public void setZstdCompressionLevel(int level) {
+		this.conf.setZstdCompressionLevel(level);
+	}
+
+	@Override
+	public int getHandoffPort() {
+		return this.conf.getHandoffPort();
+	}
+
+	@Override
+	public void setHandoffPort(int port) {
+		this.conf.setHandoffPort(port);
+	}
+
+	@Override
+	public int getExportThreads() {
+		return this.conf.getExportThreads();
+	}
+
+	@Override
+	public void setExportThreads(int threads) {
+		this.conf.setExportThreads(threads);
+	}
+
+	@Override
+	public int getUploadThreads() {
+		return this.conf.getUploadThreads();
+	}
+
+	@Override
+	public void setUploadThreads(int threads) {
+		this.conf.setUploadThreads(threads);
+	}
+
+	@Override
+	public int getDeleteThreads() {
+		return this.conf.getDeleteThreads();
+	}
+
+	@Override
+	public void setDeleteThreads(int threads) {
+		this.conf.setDeleteThreads(threads);
+	}
+
+	@Override
+	public int getStageQueueSize() {
+		return this.conf.getStageQueueSize();
+	}
+
+	@Override
+	public void setStageQueueSize(int queueSize) {
+		this.conf.setStageQueueSize(queueSize);
+	}
+
+	@Override
+	public int getTrashDeletesPerSecond() {
+		return this.conf.getTrashDeletesPerSecond();
+	}
+
+	@Override
+	public void setTrashDeletesPerSecond(int deletesPerSecond) {
+		this.conf.setTrashDeletesPerSecond(deletesPerSecond);
+	}
+
 	@Override
 	protected ServerConf getConfObject() {
 		return conf;
@@ -51,4 +51,95 @@ public interface ShuttlServerMBean {
 	 */
 	public void setHttpPort(int port);
 
+	/**
+	 * @return number of threads that archive buckets in the background. Zero
+	 *         means that the default is used.
+	 */
+	public int getArchiveWorkerThreads();
+
+	public void setArchiveWorkerThreads(int threads);
+
+	/**
+	 * @return number of archive jobs that can wait for a worker thread before new
+	 *         jobs are rejected. Zero means that the default is used.
+	 */
+	public int getArchiveQueueSize();
+
+	public void setArchiveQueueSize(int queueSize);
+
+	/**
+	 * @return number of threads that compress and decompress tgz buckets. Zero
+	 *         means that the number of processors is used.
+	 */
+	public int getCompressorThreads();
+
+	public void setCompressorThreads(int threads);
+
+	/**
+	 * @return number of files that are transferred at once when a directory is
+	 *         put to or got from the archive. Zero means that the default is
+	 *         used.
+	 */
+	public int getTransferThreads();
+
+	public void setTransferThreads(int threads);
+
+	/**
+	 * @return zstd level, 1 to 22, of buckets archived as SPLUNK_BUCKET_ZSTD.
+	 *         Zero means that the default is used.
+	 */
+	public int getZstdCompressionLevel();
+
+	public void setZstdCompressionLevel(int level);
+
+	/**
+	 * @return local port where the bucket scripts hand buckets over to the
+	 *         running server. Zero means that a free port is picked, and a
+	 *         negative port turns the hand over off.
+	 */
+	public int getHandoffPort();
+
+	public void setHandoffPort(int port);
+
+	/**
+	 * @return number of threads in the export stage of the archive pipeline.
+	 *         Zero means that the default is used.
+	 */
+	public int getExportThreads();
+
+	public void setExportThreads(int threads);
+
+	/**
+	 * @return number of threads in the upload stage of the archive pipeline.
+	 *         Zero means that the default is used.
+	 */
+	public int getUploadThreads();
+
+	public void setUploadThreads(int threads);
+
+	/**
+	 * @return number of threads in the delete stage of the archive pipeline.
+	 *         Zero means that the default is used.
+	 */
+	public int getDeleteThreads();
+
+	public void setDeleteThreads(int threads);
+
+	/**
+	 * @return number of buckets that can wait between two stages of the archive
+	 *         pipeline before the earlier stage waits. Zero means that the
+	 *         default is used.
+	 */
+	public int getStageQueueSize();
+
+	public void setStageQueueSize(int queueSize);
+
+	/**
+	 * @return number of files per second that are deleted when the trash is
+	 *         emptied. Zero means that the default is used.
+	 */
+	public int getTrashDeletesPerSecond();
+
+	public void setTrashDeletesPerSecond(int deletesPerSecond);
+
 }
@@ -21,12 +21,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -34,7 +37,6 @@ import org.apache.log4j.Logger;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
 import com.splunk.shuttl.archiver.archive.BucketShuttler;
-import com.splunk.shuttl.archiver.archive.BucketShuttlerFactory;
 import com.splunk.shuttl.archiver.archive.recovery.ArchiveBucketLocker;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
@@ -47,12 +49,22 @@ public class ArchiveBucketEndpoint {
 
 	private static Logger logger = Logger.getLogger(ArchiveBucketEndpoint.class);
 
+	/**
+	 * Locks the bucket and queues it for archiving.
+	 * 
+	 * @return 202 Accepted with the archive job id as entity, 204 No Content when
+	 *         there was nothing to archive and 503 Service Unavailable when the
+	 *         archive queue is full.
+	 */
 	@POST
 	@Produces(MediaType.TEXT_PLAIN)
-	public void archiveBucket(@FormParam("path") String path,
+	public Response archiveBucket(@FormParam("path") String path,
 			@FormParam("index") String index) {
 		try {
-			ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
+			ArchiveComponentRegistry registry = ArchiveComponentRegistry
+					.getSharedInstance();
+			ArchiveConfiguration config = registry.getConfiguredComponents()
+					.getConfiguration();
 
 			if (isPathReplicatedBucketWithRawdataOnly(path)) {
 				try {
@@ -60,13 +72,17 @@ public class ArchiveBucketEndpoint {
 				} catch (IOException e) {
 					logDeleteException(path, index, e);
 				}
+				return Response.noContent().build();
 			} else {
-				ShuttlBucketEndpointHelper.shuttlBucket(path, index,
-						new BucketArchiverProvider(),
+				String jobId = ShuttlBucketEndpointHelper.shuttlBucket(path, index,
+						new BucketArchiverProvider(registry),
 						ConfigProviderForBothNormalAndReplicatedBuckets.create(config),
 						new RenamesReplicatedBucketAsNormalBucket(),
-						new ArchiveBucketLocker());
+						new ArchiveBucketLocker(), ArchiveWorkerPool.getSharedInstance());
+				return Response.status(Status.ACCEPTED).entity(jobId).build();
 			}
+		} catch (RejectedExecutionException e) {
+			return Response.status(Status.SERVICE_UNAVAILABLE).build();
 		} catch (Throwable t) {
 			logger.error(did("Tried archiving bucket", t, "to archive the bucket",
 					"path", path, "index", index));
@@ -127,11 +143,20 @@ public class ArchiveBucketEndpoint {
 						"bucket_path", path, "index", index));
 	}
 
+	/**
+	 * Provides the archiver shared by all buckets with the same configuration.
+	 */
 	private static class BucketArchiverProvider implements ShuttlProvider {
 
+		private final ArchiveComponentRegistry registry;
+
+		public BucketArchiverProvider(ArchiveComponentRegistry registry) {
+			this.registry = registry;
+		}
+
 		@Override
 		public BucketShuttler createWithConfig(ArchiveConfiguration config) {
-			return BucketShuttlerFactory.createWithConfig(config);
+			return registry.getComponents(config).getBucketShuttler();
 		}
 	}
 
@@ -0,0 +1,62 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+
+import java.util.List;
+
+import javax.ws.rs.FormParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.splunk.shuttl.server.mbeans.rest.BucketBatchHelper.CallsBucketEndpoint;
+import com.splunk.shuttl.server.model.BucketBatchResult;
+
+/**
+ * Archives many buckets with one request. Every bucket is handled like a call
+ * to the {@link ArchiveBucketEndpoint}.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_BUCKETS_ARCHIVE)
+public class ArchiveBucketsEndpoint {
+
+	/**
+	 * @param paths
+	 *          to the buckets, paired with the indexes by their order.
+	 * @return JSON with the status that {@link ArchiveBucketEndpoint} responded
+	 *         with for each bucket, along with any archive job id.
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	public String archiveBuckets(@FormParam("path") List<String> paths,
+			@FormParam("index") List<String> indexes) {
+		final ArchiveBucketEndpoint archiveBucketEndpoint = new ArchiveBucketEndpoint();
+		return BucketBatchHelper.callWithEachBucket(paths, indexes,
+				new CallsBucketEndpoint() {
+
+					@Override
+					public BucketBatchResult call(String path, String index) {
+						Response response = archiveBucketEndpoint.archiveBucket(path,
+								index);
+						Object jobId = response.getEntity();
+						return new BucketBatchResult(path, index, response.getStatus(),
+								jobId == null ? null : jobId.toString());
+					}
+				});
+	}
+}
@@ -0,0 +1,110 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+
+/**
+ * Registry of {@link ArchiveComponents}, shared by all REST calls to the
+ * server. The components are created the first time a configuration is used
+ * and reused until the configuration in the MBean changes. Then all components
+ * are dropped, including the ones for configurations derived from the old
+ * configuration, such as configurations with the server name of a replicated
+ * bucket.
+ */
+public class ArchiveComponentRegistry {
+
+	/**
+	 * Creates the components for a configuration.
+	 */
+	public static interface ComponentsFactory {
+		ArchiveComponents create(ArchiveConfiguration config);
+	}
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveComponentRegistry.class);
+
+	private final ComponentsFactory componentsFactory;
+	private final Map<ArchiveConfiguration, ArchiveComponents> componentsByConfig;
+	private ArchiveConfiguration configured;
+
+	public ArchiveComponentRegistry(ComponentsFactory componentsFactory) {
+		this.componentsFactory = componentsFactory;
+		this.componentsByConfig = new HashMap<ArchiveConfiguration,
+				ArchiveComponents>();
+	}
+
+	/**
+	 * @return components for the configuration in the MBean.
+	 */
+	public ArchiveComponents getConfiguredComponents() {
+		return getConfiguredComponents(ArchiveConfiguration
+				.getRefreshedSharedInstance());
+	}
+
+	/**
+	 * @return components for the configured configuration. All components are
+	 *         dropped if it differs from the previously configured one.
+	 */
+	public synchronized ArchiveComponents getConfiguredComponents(
+			ArchiveConfiguration config) {
+		if (!config.equals(configured)) {
+			if (configured != null)
+				logger.info(happened("Archive configuration changed",
+						"dropped_components", componentsByConfig.size()));
+			componentsByConfig.clear();
+			configured = config;
+		}
+		return getComponents(config);
+	}
+
+	/**
+	 * @return components for any configuration, such as one derived from the
+	 *         configured one. They are created if they don't exist.
+	 */
+	public synchronized ArchiveComponents getComponents(
+			ArchiveConfiguration config) {
+		ArchiveComponents components = componentsByConfig.get(config);
+		if (components == null) {
+			components = componentsFactory.create(config);
+			componentsByConfig.put(config, components);
+		}
+		return components;
+	}
+
+	private static ArchiveComponentRegistry sharedInstance;
+
+	/**
+	 * @return the registry shared by the whole server.
+	 */
+	public static synchronized ArchiveComponentRegistry getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = new ArchiveComponentRegistry(new ComponentsFactory() {
+
+				@Override
+				public ArchiveComponents create(ArchiveConfiguration config) {
+					return ArchiveComponents.create(config);
+				}
+			});
+		return sharedInstance;
+	}
+}
@@ -0,0 +1,128 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketShuttler;
+import com.splunk.shuttl.archiver.archive.BucketShuttlerFactory;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
+import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
+import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
+import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
+import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
+import com.splunk.shuttl.archiver.thaw.BucketThawer;
+import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
+import com.splunk.shuttl.archiver.thaw.SplunkIndexesLayer;
+
+/**
+ * The thread safe components that are built from one
+ * {@link ArchiveConfiguration}. They share one {@link ArchiveFileSystem}, so
+ * that a REST call doesn't connect to the archive for every component it uses.
+ * 
+ * @see ArchiveComponentRegistry
+ */
+public class ArchiveComponents {
+
+	private final ArchiveConfiguration config;
+	private final LocalFileSystemPaths localFileSystemPaths;
+	private final ArchiveFileSystem archiveFileSystem;
+	private final ArchivedIndexesLister archivedIndexesLister;
+	private final ListsBucketsFiltered listsBucketsFiltered;
+	private final BucketSizeResolver bucketSizeResolver;
+	private BucketShuttler bucketShuttler;
+
+	public ArchiveComponents(ArchiveConfiguration config,
+			LocalFileSystemPaths localFileSystemPaths,
+			ArchiveFileSystem archiveFileSystem,
+			ArchivedIndexesLister archivedIndexesLister,
+			ListsBucketsFiltered listsBucketsFiltered,
+			BucketSizeResolver bucketSizeResolver) {
+		this.config = config;
+		this.localFileSystemPaths = localFileSystemPaths;
+		this.archiveFileSystem = archiveFileSystem;
+		this.archivedIndexesLister = archivedIndexesLister;
+		this.listsBucketsFiltered = listsBucketsFiltered;
+		this.bucketSizeResolver = bucketSizeResolver;
+	}
+
+	public ArchiveConfiguration getConfiguration() {
+		return config;
+	}
+
+	public ArchiveFileSystem getArchiveFileSystem() {
+		return archiveFileSystem;
+	}
+
+	public ArchivedIndexesLister getArchivedIndexesLister() {
+		return archivedIndexesLister;
+	}
+
+	public ListsBucketsFiltered getListsBucketsFiltered() {
+		return listsBucketsFiltered;
+	}
+
+	public BucketSizeResolver getBucketSizeResolver() {
+		return bucketSizeResolver;
+	}
+
+	/**
+	 * The shuttler is created the first time it's needed, since it creates the
+	 * exporters and the archive pipeline, which list calls never use.
+	 * 
+	 * @return {@link BucketShuttler} that archives to the shared file system.
+	 */
+	public synchronized BucketShuttler getBucketShuttler() {
+		if (bucketShuttler == null)
+			bucketShuttler = BucketShuttlerFactory.createPipelinedArchiver(config,
+					archiveFileSystem, localFileSystemPaths);
+		return bucketShuttler;
+	}
+
+	/**
+	 * A {@link BucketThawer} keeps the result of one thaw, so a new one is
+	 * created for every thaw.
+	 * 
+	 * @return {@link BucketThawer} that thaws from the shared file system.
+	 */
+	public BucketThawer createThawer(SplunkIndexesLayer splunkIndexesLayer) {
+		return BucketThawerFactory.create(config, splunkIndexesLayer,
+				localFileSystemPaths, archiveFileSystem);
+	}
+
+	/**
+	 * @return components for the configuration.
+	 */
+	public static ArchiveComponents create(ArchiveConfiguration config) {
+		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths
+				.create(config);
+		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
+				.getWithConfiguration(config);
+		PathResolver pathResolver = new PathResolver(config);
+		ArchivedIndexesLister archivedIndexesLister = new ArchivedIndexesLister(
+				pathResolver, archiveFileSystem);
+		ListsBucketsFiltered listsBucketsFiltered = ListsBucketsFilteredFactory
+				.create(config, archiveFileSystem);
+		BucketSizeResolver bucketSizeResolver = new BucketSizeResolver(
+				ArchiveBucketSize.create(pathResolver, archiveFileSystem,
+						localFileSystemPaths));
+		return new ArchiveComponents(config, localFileSystemPaths,
+				archiveFileSystem, archivedIndexesLister, listsBucketsFiltered,
+				bucketSizeResolver);
+	}
+}
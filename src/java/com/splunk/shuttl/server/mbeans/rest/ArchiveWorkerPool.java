@@ -0,0 +1,186 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceNotFoundException;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketShuttlerRunner;
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlExecutor;
+
+/**
+ * Bounded pool of worker threads that archives buckets in the background, so
+ * the archive endpoint can respond as soon as the bucket is locked and queued.
+ * When all workers are busy and the queue is full, jobs are rejected with a
+ * {@link RejectedExecutionException}.<br/>
+ * <br/>
+ * Started, completed and failed jobs are recorded in the {@link JobJournal}.
+ */
+public class ArchiveWorkerPool implements ShuttlExecutor {
+
+	private static final Logger logger = Logger
+			.getLogger(ArchiveWorkerPool.class);
+
+	public static final int DEFAULT_WORKER_THREADS = 4;
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+	private static final long JOURNAL_FLUSH_PERIOD_MILLIS = 1000;
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private final ExecutorService executorService;
+	private final JobJournal jobJournal;
+
+	public ArchiveWorkerPool(ExecutorService executorService,
+			JobJournal jobJournal) {
+		this.executorService = executorService;
+		this.jobJournal = jobJournal;
+	}
+
+	@Override
+	public String executeShuttling(BucketShuttlerRunner runner) {
+		String jobId = UUID.randomUUID().toString();
+		executorService.execute(new ArchiveJob(jobId, runner, jobJournal));
+		return jobId;
+	}
+
+	private static class ArchiveJob implements Runnable {
+
+		private final String jobId;
+		private final BucketShuttlerRunner runner;
+		private final JobJournal jobJournal;
+
+		public ArchiveJob(String jobId, BucketShuttlerRunner runner,
+				JobJournal jobJournal) {
+			this.jobId = jobId;
+			this.runner = runner;
+			this.jobJournal = jobJournal;
+		}
+
+		@Override
+		public void run() {
+			LocalBucket bucket = runner.getBucket();
+			try {
+				jobJournal.markStarted(JobType.ARCHIVE, bucket);
+				runner.run();
+				jobJournal.markCompleted(JobType.ARCHIVE, bucket);
+				logger.info(done("Ran archive job", "job_id", jobId));
+			} catch (Throwable e) {
+				logger.error(did("Ran archive job", e, "to archive the bucket. "
+						+ "The bucket will be archived on a later retry", "job_id", jobId,
+						"bucket", bucket));
+				markFailed(bucket);
+			}
+		}
+
+		private void markFailed(LocalBucket bucket) {
+			try {
+				jobJournal.markFailed(JobType.ARCHIVE, bucket);
+			} catch (RuntimeException e) {
+				logger.warn(warn("Marked archive job as failed", e,
+						"the job is retried when it is found pending", "job_id", jobId));
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting jobs, waits a while for the running and queued jobs to
+	 * finish and then flushes the journal. Jobs that did not finish are found
+	 * pending in the journal when the server starts again.
+	 */
+	public void shutdown() {
+		executorService.shutdown();
+		try {
+			if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS,
+					TimeUnit.SECONDS))
+				logger.warn(warn("Waited for archive jobs to finish",
+						"Jobs were still running after the timeout",
+						"The jobs will be retried when they are found pending",
+						"timeout_seconds", SHUTDOWN_TIMEOUT_SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			jobJournal.flush();
+		}
+	}
+
+	public static ArchiveWorkerPool create(int workerThreads, int queueSize,
+			JobJournal jobJournal) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads,
+				workerThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize));
+		return new ArchiveWorkerPool(executor, jobJournal);
+	}
+
+	public static ArchiveWorkerPool createWithMBean(ShuttlServerMBean serverMBean,
+			JobJournal jobJournal) {
+		return create(
+				valueOrDefault(serverMBean.getArchiveWorkerThreads(),
+						DEFAULT_WORKER_THREADS),
+				valueOrDefault(serverMBean.getArchiveQueueSize(), DEFAULT_QUEUE_SIZE),
+				jobJournal);
+	}
+
+	private static int valueOrDefault(int value, int defaultValue) {
+		return value > 0 ? value : defaultValue;
+	}
+
+	private static ArchiveWorkerPool sharedInstance;
+
+	/**
+	 * @return the pool shared by the whole server, configured with the
+	 *         {@link ShuttlServerMBean}.
+	 */
+	public static synchronized ArchiveWorkerPool getSharedInstance() {
+		if (sharedInstance == null)
+			sharedInstance = createSharedInstance();
+		return sharedInstance;
+	}
+
+	/**
+	 * Shuts down the shared pool, if it has been created. Called when the server
+	 * stops.
+	 */
+	public static synchronized void shutdownSharedInstance() {
+		if (sharedInstance != null)
+			sharedInstance.shutdown();
+	}
+
+	private static ArchiveWorkerPool createSharedInstance() {
+		JobJournal jobJournal = JobJournal.create(LocalFileSystemPaths.create());
+		jobJournal.flushPeriodically(JOURNAL_FLUSH_PERIOD_MILLIS);
+		try {
+			return createWithMBean(ShuttlServer.getMBeanProxy(), jobJournal);
+		} catch (InstanceNotFoundException e) {
+			logger.warn(warn("Tried getting the ShuttlServerMBean", e,
+					"Will create the archive worker pool with default values"));
+			return create(DEFAULT_WORKER_THREADS, DEFAULT_QUEUE_SIZE, jobJournal);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.server.model.BucketBatchResult;
+
+/**
+ * Calls an endpoint for a single bucket with every path and index pair of a
+ * batch request, and collects the result of each bucket.
+ */
+public class BucketBatchHelper {
+
+	private static final Logger logger = Logger
+			.getLogger(BucketBatchHelper.class);
+
+	public static interface CallsBucketEndpoint {
+		/**
+		 * @return result of calling the endpoint with the bucket.
+		 * @throws RuntimeException
+		 *           when the call failed.
+		 */
+		BucketBatchResult call(String path, String index);
+	}
+
+	/**
+	 * @return JSON with a result for each path. The paths and indexes are paired
+	 *         by their order.
+	 */
+	public static String callWithEachBucket(List<String> paths,
+			List<String> indexes, CallsBucketEndpoint endpoint) {
+		List<BucketBatchResult> results = new ArrayList<BucketBatchResult>();
+		for (int i = 0; i < paths.size(); i++)
+			results.add(callWithBucket(paths.get(i), getIndex(indexes, i), endpoint));
+		return BucketBatchResult.toJson(results);
+	}
+
+	private static String getIndex(List<String> indexes, int i) {
+		return i < indexes.size() ? indexes.get(i) : null;
+	}
+
+	private static BucketBatchResult callWithBucket(String path, String index,
+			CallsBucketEndpoint endpoint) {
+		if (index == null)
+			return new BucketBatchResult(path, index,
+					Status.BAD_REQUEST.getStatusCode(), "index must be specified");
+		try {
+			return endpoint.call(path, index);
+		} catch (RuntimeException e) {
+			logger.error(did("Called bucket endpoint as part of a batch", e,
+					"to call it without failure", "path", path, "index", index));
+			return new BucketBatchResult(path, index,
+					Status.INTERNAL_SERVER_ERROR.getStatusCode(), String.valueOf(e
+							.getMessage()));
+		}
+	}
+}
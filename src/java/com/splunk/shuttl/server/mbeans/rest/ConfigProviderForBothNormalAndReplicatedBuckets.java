@@ -41,7 +41,7 @@ public class ConfigProviderForBothNormalAndReplicatedBuckets implements
 			.getLogger(ConfigProviderForBothNormalAndReplicatedBuckets.class);
 
 	private final ArchiveConfiguration config;
-	private final GetsServerNameForBucket getsServerNameForBucket;
+	private GetsServerNameForBucket getsServerNameForBucket;
 	private final BucketDeleter bucketDeleter;
 
 	public ConfigProviderForBothNormalAndReplicatedBuckets(
@@ -69,7 +69,7 @@ public class ConfigProviderForBothNormalAndReplicatedBuckets implements
 	private ArchiveConfiguration configWithChangedServerNameForReplicatedBucket(
 			LocalBucket bucket, ArchiveConfiguration configuration) {
 		try {
-			String serverName = getsServerNameForBucket.getServerName(bucket);
+			String serverName = getGetsServerNameForBucket().getServerName(bucket);
 			return configuration.newConfigWithServerName(serverName);
 		} catch (Exception e) {
 			logDeletionOfReplicatedBucket(bucket, e);
@@ -77,6 +77,16 @@ public class ConfigProviderForBothNormalAndReplicatedBuckets implements
 		}
 	}
 
+	/**
+	 * Creating a {@link GetsServerNameForBucket} logs in to Splunk, which is
+	 * only needed when there is a replicated bucket.
+	 */
+	private GetsServerNameForBucket getGetsServerNameForBucket() {
+		if (getsServerNameForBucket == null)
+			getsServerNameForBucket = GetsServerNameForBucket.create(config);
+		return getsServerNameForBucket;
+	}
+
 	private void logDeletionOfReplicatedBucket(LocalBucket bucket, Exception e) {
 		bucketDeleter.deleteBucket(bucket);
 		logger.warn(warn(
@@ -86,7 +96,7 @@ public class ConfigProviderForBothNormalAndReplicatedBuckets implements
 
 	public static ConfigProviderForBothNormalAndReplicatedBuckets create(
 			ArchiveConfiguration config) {
-		return new ConfigProviderForBothNormalAndReplicatedBuckets(config,
-				GetsServerNameForBucket.create(config), BucketDeleter.create());
+		return new ConfigProviderForBothNormalAndReplicatedBuckets(config, null,
+				BucketDeleter.create());
 	}
 }
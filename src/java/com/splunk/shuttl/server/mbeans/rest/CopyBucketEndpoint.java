@@ -29,10 +29,12 @@ import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketShuttler;
 import com.splunk.shuttl.archiver.archive.BucketShuttlerFactory;
+import com.splunk.shuttl.archiver.archive.BucketShuttlerRunner;
 import com.splunk.shuttl.archiver.copy.CopyBucketLocker;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.BucketModifier;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ConfigProvider;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlExecutor;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlProvider;
 
 @Path(ENDPOINT_ARCHIVER + ENDPOINT_BUCKET_COPY)
@@ -51,7 +53,8 @@ public class CopyBucketEndpoint {
 		ShuttlBucketEndpointHelper.shuttlBucket(path, index,
 				new BucketCopierProvider(), new NormalSharedConfigProvider(),
 				new NoOpBucketModifier(),
-				new CopyBucketLocker(LocalFileSystemPaths.create()));
+				new CopyBucketLocker(LocalFileSystemPaths.create()),
+				new RunsShuttlerInCallingThread());
 	}
 
 	private static class BucketCopierProvider implements ShuttlProvider {
@@ -77,4 +80,17 @@ public class CopyBucketEndpoint {
 			return bucket;
 		}
 	}
+
+	/**
+	 * Copying is done before the endpoint returns, since the caller creates a
+	 * copy receipt as soon as it gets a successful response.
+	 */
+	private static class RunsShuttlerInCallingThread implements ShuttlExecutor {
+
+		@Override
+		public String executeShuttling(BucketShuttlerRunner runner) {
+			runner.run();
+			return null;
+		}
+	}
 }
@@ -0,0 +1,61 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+
+import java.util.List;
+
+import javax.ws.rs.FormParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import com.splunk.shuttl.server.mbeans.rest.BucketBatchHelper.CallsBucketEndpoint;
+import com.splunk.shuttl.server.model.BucketBatchResult;
+
+/**
+ * Copies many buckets with one request. Every bucket is copied like a call to
+ * the {@link CopyBucketEndpoint}, one after the other, before the endpoint
+ * returns.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_BUCKETS_COPY)
+public class CopyBucketsEndpoint {
+
+	/**
+	 * @param paths
+	 *          to the buckets, paired with the indexes by their order.
+	 * @return JSON with 204 No Content for each copied bucket and 500 Internal
+	 *         Server Error for each bucket that failed to copy.
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	public String copyBuckets(@FormParam("path") List<String> paths,
+			@FormParam("index") List<String> indexes) {
+		final CopyBucketEndpoint copyBucketEndpoint = new CopyBucketEndpoint();
+		return BucketBatchHelper.callWithEachBucket(paths, indexes,
+				new CallsBucketEndpoint() {
+
+					@Override
+					public BucketBatchResult call(String path, String index) {
+						copyBucketEndpoint.copyBucket(path, index);
+						return new BucketBatchResult(path, index,
+								Status.NO_CONTENT.getStatusCode(), null);
+					}
+				});
+	}
+}
@@ -0,0 +1,65 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static com.splunk.shuttl.ShuttlConstants.*;
+import static com.splunk.shuttl.archiver.LogFormatter.*;
+import static java.util.Arrays.*;
+
+import java.io.File;
+
+import javax.ws.rs.FormParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.log4j.Logger;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierInventoryImporter;
+import com.splunk.shuttl.archiver.util.JsonUtils;
+import com.splunk.shuttl.server.mbeans.util.JsonObjectNames;
+
+/**
+ * Imports a glacier vault inventory, which is a file on the server, into the
+ * glacier archive id log.
+ */
+@Path(ENDPOINT_ARCHIVER + ENDPOINT_GLACIER_INVENTORY_IMPORT)
+public class GlacierInventoryImportEndpoint {
+
+	private static final Logger logger = Logger
+			.getLogger(GlacierInventoryImportEndpoint.class);
+
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	public String importInventory(@FormParam("path") String path) {
+		logger.info(happened("Received REST request to import glacier inventory",
+				"endpoint", ENDPOINT_GLACIER_INVENTORY_IMPORT, "path", path));
+		try {
+			if (path == null)
+				throw new IllegalArgumentException("path to inventory is required");
+			int imported = GlacierInventoryImporter.create(
+					LocalFileSystemPaths.create()).importInventory(new File(path));
+			return JsonUtils.writeKeyValueAsJson(
+					JsonObjectNames.IMPORTED_ARCHIVE_IDS, imported).toString();
+		} catch (Exception e) {
+			logger.error(did("Imported glacier inventory", e,
+					"to import the archive ids", "path", path));
+			return JsonUtils.writeKeyValueAsJson(JsonObjectNames.ERRORS, asList(e))
+					.toString();
+		}
+	}
+}
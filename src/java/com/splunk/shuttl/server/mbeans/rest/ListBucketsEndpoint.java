@@ -35,15 +35,8 @@ import com.amazonaws.util.json.JSONArray;
 import com.amazonaws.util.json.JSONException;
 import com.amazonaws.util.json.JSONObject;
 import com.splunk.shuttl.ShuttlConstants;
-import com.splunk.shuttl.archiver.LocalFileSystemPaths;
-import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
-import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystemFactory;
-import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.listers.ArchivedIndexesLister;
 import com.splunk.shuttl.archiver.listers.ListsBucketsFiltered;
-import com.splunk.shuttl.archiver.listers.ListsBucketsFilteredFactory;
-import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.thaw.BucketSizeResolver;
 import com.splunk.shuttl.archiver.util.JsonUtils;
@@ -67,13 +60,8 @@ public class ListBucketsEndpoint {
 		logger.info(happened("Received REST request to list indexes", "endpoint",
 				ENDPOINT_LIST_INDEXES));
 
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getConfiguredArchiveFileSystem();
-		ArchiveConfiguration archiveConfiguration = ArchiveConfiguration
-				.getSharedInstance();
-		PathResolver pathResolver = new PathResolver(archiveConfiguration);
-		ArchivedIndexesLister indexesLister = new ArchivedIndexesLister(
-				pathResolver, archiveFileSystem);
+		ArchivedIndexesLister indexesLister = getConfiguredComponents()
+				.getArchivedIndexesLister();
 
 		JSONObject json = JsonUtils.writeKeyValueAsJson(
 				JsonObjectNames.INDEX_COLLECTION, indexesLister.listIndexes());
@@ -116,13 +104,15 @@ public class ListBucketsEndpoint {
 			throws JSONException {
 		Date fromDate = RestUtil.getValidFromDate(from);
 		Date toDate = RestUtil.getValidToDate(to);
+		ArchiveComponents components = getConfiguredComponents();
 
-		List<Bucket> filteredBucketsAtIndex = getFilteredBucketsAtIndex(index,
-				fromDate, toDate);
+		List<Bucket> filteredBucketsAtIndex = getFilteredBucketsAtIndex(
+				components.getListsBucketsFiltered(), index, fromDate, toDate);
 
+		BucketSizeResolver bucketSizeResolver = components.getBucketSizeResolver();
 		List<Bucket> bucketsWithSize = new java.util.ArrayList<Bucket>();
 		for (Bucket b : filteredBucketsAtIndex)
-			bucketsWithSize.add(getBucketWithSize(b));
+			bucketsWithSize.add(bucketSizeResolver.resolveBucketSize(b));
 
 		JSONObject jsonObject = JsonUtils.writeKeyValueAsJson(
 				JsonObjectNames.BUCKET_COLLECTION, bucketsWithSize);
@@ -137,9 +127,9 @@ public class ListBucketsEndpoint {
 				.put(JsonObjectNames.EXCEPTIONS, peerResponse.exceptions).toString();
 	}
 
-	private List<Bucket> getFilteredBucketsAtIndex(String index, Date fromDate,
+	private List<Bucket> getFilteredBucketsAtIndex(
+			ListsBucketsFiltered listsBucketsFiltered, String index, Date fromDate,
 			Date toDate) {
-		ListsBucketsFiltered listsBucketsFiltered = getListsBucketsFiltered();
 		if (index == null)
 			return listsBucketsFiltered.listFilteredBuckets(fromDate, toDate);
 		else
@@ -147,23 +137,9 @@ public class ListBucketsEndpoint {
 					toDate);
 	}
 
-	private ListsBucketsFiltered getListsBucketsFiltered() {
-		return ListsBucketsFilteredFactory.create(ArchiveConfiguration
-				.getSharedInstance());
-	}
-
-	private static Bucket getBucketWithSize(Bucket bucket) {
-		BucketSizeResolver bucketSizeResolver = getBucketSizeResolver();
-		return bucketSizeResolver.resolveBucketSize(bucket);
-	}
-
-	private static BucketSizeResolver getBucketSizeResolver() {
-		ArchiveConfiguration config = ArchiveConfiguration.getSharedInstance();
-		ArchiveFileSystem archiveFileSystem = ArchiveFileSystemFactory
-				.getWithConfiguration(config);
-		LocalFileSystemPaths localFileSystemPaths = LocalFileSystemPaths.create();
-		return new BucketSizeResolver(ArchiveBucketSize.create(new PathResolver(
-				config), archiveFileSystem, localFileSystemPaths));
+	private static ArchiveComponents getConfiguredComponents() {
+		return ArchiveComponentRegistry.getSharedInstance()
+				.getConfiguredComponents();
 	}
 
 }
@@ -19,6 +19,7 @@ import static java.util.Arrays.*;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.log4j.Logger;
 
@@ -47,6 +48,20 @@ public class ShuttlBucketEndpoint {
 		LocalBucket modifyLocalBucket(LocalBucket bucket);
 	}
 
+	/**
+	 * Runs the {@link BucketShuttlerRunner}, either in the calling thread or
+	 * queued on worker threads. The runner owns the bucket locks once it has
+	 * been accepted.
+	 */
+	public static interface ShuttlExecutor {
+		/**
+		 * @return id of the shuttling job, or null if the job was run directly.
+		 * @throws RejectedExecutionException
+		 *           if the job could not be accepted.
+		 */
+		String executeShuttling(BucketShuttlerRunner runner);
+	}
+
 	private static final Logger logger = Logger
 			.getLogger(ShuttlBucketEndpoint.class);
 
@@ -55,21 +70,33 @@ public class ShuttlBucketEndpoint {
 	private BucketModifier bucketModifier;
 	private BucketFactory bucketFactory;
 	private BucketLocker bucketLocker;
+	private ShuttlExecutor shuttlExecutor;
 
 	public ShuttlBucketEndpoint(ShuttlProvider shuttlProvider,
 			ConfigProvider configProvider, BucketModifier bucketModifier,
-			BucketFactory bucketFactory, BucketLocker bucketLocker) {
+			BucketFactory bucketFactory, BucketLocker bucketLocker,
+			ShuttlExecutor shuttlExecutor) {
 		this.shuttlProvider = shuttlProvider;
 		this.configProvider = configProvider;
 		this.bucketModifier = bucketModifier;
 		this.bucketFactory = bucketFactory;
 		this.bucketLocker = bucketLocker;
+		this.shuttlExecutor = shuttlExecutor;
 	}
 
-	public void shuttlBucket(String path, String index) {
+	/**
+	 * @return id of the shuttling job, or null if the bucket was shuttled
+	 *         synchronously.
+	 */
+	public String shuttlBucket(String path, String index) {
 		verifyPathAndIndex(path, index);
 		try {
-			createAndRunBucketShuttling(path, index);
+			return createAndRunBucketShuttling(path, index);
+		} catch (RejectedExecutionException e) {
+			logger.warn(warn("Tried queuing bucket for shuttling", e,
+					"Will not shuttl the bucket now", "index", index, "bucket_path",
+					path));
+			throw e;
 		} catch (Throwable e) {
 			logger.error(did("Tried archiving a bucket", e, "To archive the bucket",
 					"index", index, "bucket_path", path));
@@ -88,27 +115,51 @@ public class ShuttlBucketEndpoint {
 		}
 	}
 
-	private void createAndRunBucketShuttling(String path, String index) {
+	private String createAndRunBucketShuttling(String path, String index) {
 		LocalBucket bucket = createBucket(path, index);
 		List<BucketLock> bucketLocks = createBucketLocks(bucket);
-		shuttlWithLocks(bucket, bucketLocks);
+		return shuttlWithLocks(bucket, bucketLocks);
 	}
 
-	private void shuttlWithLocks(LocalBucket bucket, List<BucketLock> bucketLocks) {
+	/**
+	 * The locks are handed over to the {@link BucketShuttlerRunner}, which
+	 * releases them when it is done. They are only closed here if the runner
+	 * was never created or the executor rejected it, since a runner that ran and
+	 * failed has already closed them.
+	 */
+	private String shuttlWithLocks(LocalBucket bucket,
+			List<BucketLock> bucketLocks) {
+		BucketShuttlerRunner runner;
 		try {
-			BucketShuttler bucketShuttler = createShuttler(bucket);
-			bucket = bucketModifier.modifyLocalBucket(bucket);
-
-			runShuttlerOnASeparateThread(bucket, bucketLocks, bucketShuttler);
-		} finally {
+			runner = createRunner(bucket, bucketLocks);
+		} catch (RuntimeException e) {
+			BucketLockCleaner.closeLocks(bucketLocks);
+			throw e;
+		}
+		try {
+			return executeShuttler(runner);
+		} catch (RejectedExecutionException e) {
 			BucketLockCleaner.closeLocks(bucketLocks);
+			throw e;
 		}
 	}
 
-	private void runShuttlerOnASeparateThread(LocalBucket bucket,
-			List<BucketLock> bucketLock, BucketShuttler bucketShuttler) {
-		Runnable r = new BucketShuttlerRunner(bucketShuttler, bucket, bucketLock);
-		new Thread(r).run();
+	/**
+	 * The bucket is modified when the runner shuttles it, so that a bucket whose
+	 * job is rejected is left as it was.
+	 */
+	private BucketShuttlerRunner createRunner(LocalBucket bucket,
+			List<BucketLock> bucketLocks) {
+		BucketShuttler bucketShuttler = new ModifiesBucketBeforeShuttling(
+				createShuttler(bucket), bucketModifier);
+		return new BucketShuttlerRunner(bucketShuttler, bucket, bucketLocks);
+	}
+
+	private String executeShuttler(BucketShuttlerRunner runner) {
+		String jobId = shuttlExecutor.executeShuttling(runner);
+		logger.info(done("Handed bucket over for shuttling", "bucket",
+				runner.getBucket(), "job_id", jobId));
+		return jobId;
 	}
 
 	private BucketShuttler createShuttler(LocalBucket bucket) {
@@ -136,4 +187,22 @@ public class ShuttlBucketEndpoint {
 
 		return asList(bucketLock, transferLock);
 	}
+
+	private static class ModifiesBucketBeforeShuttling implements
+			BucketShuttler {
+
+		private final BucketShuttler bucketShuttler;
+		private final BucketModifier bucketModifier;
+
+		public ModifiesBucketBeforeShuttling(BucketShuttler bucketShuttler,
+				BucketModifier bucketModifier) {
+			this.bucketShuttler = bucketShuttler;
+			this.bucketModifier = bucketModifier;
+		}
+
+		@Override
+		public void shuttlBucket(LocalBucket bucket) {
+			bucketShuttler.shuttlBucket(bucketModifier.modifyLocalBucket(bucket));
+		}
+	}
 }
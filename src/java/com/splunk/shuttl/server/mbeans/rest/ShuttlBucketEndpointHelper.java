@@ -18,18 +18,20 @@ import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.BucketModifier;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ConfigProvider;
+import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlExecutor;
 import com.splunk.shuttl.server.mbeans.rest.ShuttlBucketEndpoint.ShuttlProvider;
 
 public class ShuttlBucketEndpointHelper {
 
-	public static void shuttlBucket(String path, String index,
+	public static String shuttlBucket(String path, String index,
 			ShuttlProvider shuttlProvider, ConfigProvider configProvider,
-			BucketModifier bucketModifier, BucketLocker bucketLocker) {
+			BucketModifier bucketModifier, BucketLocker bucketLocker,
+			ShuttlExecutor shuttlExecutor) {
 		BucketFactory bucketFactory = new BucketFactory();
 		ShuttlBucketEndpoint shuttlBucketEndpoint = new ShuttlBucketEndpoint(
 				shuttlProvider, configProvider, bucketModifier, bucketFactory,
-				bucketLocker);
+				bucketLocker, shuttlExecutor);
 
-		shuttlBucketEndpoint.shuttlBucket(path, index);
+		return shuttlBucketEndpoint.shuttlBucket(path, index);
 	}
 }
@@ -31,7 +31,7 @@ import org.apache.log4j.Logger;
 import com.amazonaws.util.json.JSONException;
 import com.amazonaws.util.json.JSONObject;
 import com.splunk.shuttl.archiver.thaw.BucketThawer;
-import com.splunk.shuttl.archiver.thaw.BucketThawerFactory;
+import com.splunk.shuttl.archiver.thaw.SplunkIndexedLayerFactory;
 import com.splunk.shuttl.archiver.thaw.StringDateConverter;
 import com.splunk.shuttl.archiver.util.JsonUtils;
 import com.splunk.shuttl.server.distributed.RequestOnSearchPeers;
@@ -89,7 +89,9 @@ public class ThawBucketsEndpoint {
 
 		logMetricsAtEndpoint(ENDPOINT_BUCKET_THAW);
 		// thaw
-		BucketThawer bucketThawer = BucketThawerFactory.createDefaultThawer();
+		BucketThawer bucketThawer = ArchiveComponentRegistry.getSharedInstance()
+				.getConfiguredComponents()
+				.createThawer(SplunkIndexedLayerFactory.create());
 		bucketThawer.thawBuckets(index, fromDate, toDate);
 
 		JSONObject json = convertThawInfoToJSON(bucketThawer);
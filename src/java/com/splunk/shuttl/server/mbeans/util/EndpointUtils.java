@@ -46,6 +46,23 @@ public class EndpointUtils {
 				ENDPOINT_BUCKET_ARCHIVE);
 	}
 
+	/**
+	 * @return request to a batch endpoint, with a path and an index parameter
+	 *         for each bucket.
+	 */
+	public static HttpPost createBucketsPostRequest(String shuttlHost,
+			int shuttlPort, String endpoint, List<LocalBucket> buckets) {
+		List<Object> kvs = new ArrayList<Object>();
+		for (LocalBucket bucket : buckets) {
+			kvs.add("path");
+			kvs.add(bucket.getDirectory().getAbsolutePath());
+			kvs.add("index");
+			kvs.add(bucket.getIndex());
+		}
+		return createHttpPost(
+				getShuttlEndpointUri(shuttlHost, shuttlPort, endpoint), kvs.toArray());
+	}
+
 	private static HttpPost createArchiverPostRequest(String shuttlHost,
 			int shuttlPort, String bucketPath, String index, String endpoint) {
 		URI copyBucketEndpoint = getShuttlEndpointUri(shuttlHost, shuttlPort,
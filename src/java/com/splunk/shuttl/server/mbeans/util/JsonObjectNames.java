@@ -27,5 +27,6 @@ public class JsonObjectNames {
 	public static final String INDEX_COLLECTION = "indexes";
 	public static final String SERVER_NAME = "server_name";
 	public static final String EXCEPTIONS = "exceptions";
+	public static final String IMPORTED_ARCHIVE_IDS = "imported_archive_ids";
 
 }
@@ -30,7 +30,8 @@ import javax.xml.bind.annotation.XmlType;
 @XmlRootElement(namespace = "com.splunk.shuttl.server.model")
 @XmlType(propOrder = { "localArchiverDir", "archiveFormats", "clusterName",
 		"serverName", "bucketFormatPriority", "backendName", "archivePath",
-		"archiverRootURI" })
+		"archiverRootURI", "diskReadBytesPerSecond", "diskReadOperationsPerSecond",
+		"networkBytesPerSecond", "backendNetworkLimits", "throttleWindows" })
 public class ArchiverConf {
 	private String localArchiverDir;
 	private List<String> archiveFormats;
@@ -40,6 +41,11 @@ public class ArchiverConf {
 	private String backendName;
 	private String archivePath;
 	private String archiverRootURI;
+	private Long diskReadBytesPerSecond;
+	private Long diskReadOperationsPerSecond;
+	private Long networkBytesPerSecond;
+	private List<String> backendNetworkLimits;
+	private List<String> throttleWindows;
 
 	public String getLocalArchiverDir() {
 		return localArchiverDir;
@@ -106,4 +112,48 @@ public class ArchiverConf {
 	public void setArchiverRootURI(String archiverRootURI) {
 		this.archiverRootURI = archiverRootURI;
 	}
+
+	public Long getDiskReadBytesPerSecond() {
+		return diskReadBytesPerSecond;
+	}
+
+	public void setDiskReadBytesPerSecond(Long diskReadBytesPerSecond) {
+		this.diskReadBytesPerSecond = diskReadBytesPerSecond;
+	}
+
+	public Long getDiskReadOperationsPerSecond() {
+		return diskReadOperationsPerSecond;
+	}
+
+	public void setDiskReadOperationsPerSecond(Long diskReadOperationsPerSecond) {
+		this.diskReadOperationsPerSecond = diskReadOperationsPerSecond;
+	}
+
+	public Long getNetworkBytesPerSecond() {
+		return networkBytesPerSecond;
+	}
+
+	public void setNetworkBytesPerSecond(Long networkBytesPerSecond) {
+		this.networkBytesPerSecond = networkBytesPerSecond;
+	}
+
+	@XmlElementWrapper(name = "backendNetworkLimits")
+	@XmlElement(name = "backendNetworkLimit")
+	public List<String> getBackendNetworkLimits() {
+		return backendNetworkLimits;
+	}
+
+	public void setBackendNetworkLimits(List<String> backendNetworkLimits) {
+		this.backendNetworkLimits = backendNetworkLimits;
+	}
+
+	@XmlElementWrapper(name = "throttleWindows")
+	@XmlElement(name = "throttleWindow")
+	public List<String> getThrottleWindows() {
+		return throttleWindows;
+	}
+
+	public void setThrottleWindows(List<String> throttleWindows) {
+		this.throttleWindows = throttleWindows;
+	}
 }
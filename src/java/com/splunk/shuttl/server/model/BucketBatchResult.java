@@ -0,0 +1,125 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.util.json.JSONArray;
+import com.amazonaws.util.json.JSONException;
+import com.amazonaws.util.json.JSONObject;
+import com.splunk.shuttl.server.mbeans.util.JsonObjectNames;
+
+/**
+ * Outcome for one bucket of a batch archive or copy request. The status is the
+ * http status that the endpoint for a single bucket would have responded with.
+ */
+public class BucketBatchResult {
+
+	private static final String PATH = "path";
+	private static final String INDEX = "index";
+	private static final String STATUS = "status";
+	private static final String MESSAGE = "message";
+
+	private final String path;
+	private final String index;
+	private final int status;
+	private final String message;
+
+	public BucketBatchResult(String path, String index, int status,
+			String message) {
+		this.path = path;
+		this.index = index;
+		this.status = status;
+		this.message = message;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getIndex() {
+		return index;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return job id of an archived bucket, error message of a failed bucket or
+	 *         null.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isSuccessful() {
+		return status >= 200 && status < 300;
+	}
+
+	private JSONObject toJsonObject() throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put(PATH, path);
+		json.put(INDEX, index);
+		json.put(STATUS, status);
+		if (message != null)
+			json.put(MESSAGE, message);
+		return json;
+	}
+
+	private static BucketBatchResult fromJsonObject(JSONObject json)
+			throws JSONException {
+		return new BucketBatchResult(json.getString(PATH), json.optString(INDEX,
+				null), json.getInt(STATUS), json.optString(MESSAGE, null));
+	}
+
+	/**
+	 * @return JSON with the results as a bucket collection.
+	 */
+	public static String toJson(List<BucketBatchResult> results) {
+		try {
+			JSONArray array = new JSONArray();
+			for (BucketBatchResult result : results)
+				array.put(result.toJsonObject());
+			return new JSONObject().put(JsonObjectNames.BUCKET_COLLECTION, array)
+					.toString();
+		} catch (JSONException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return results from JSON created with {@link #toJson(List)}.
+	 */
+	public static List<BucketBatchResult> fromJson(String jsonString) {
+		try {
+			JSONArray array = new JSONObject(jsonString)
+					.getJSONArray(JsonObjectNames.BUCKET_COLLECTION);
+			List<BucketBatchResult> results = new ArrayList<BucketBatchResult>();
+			for (int i = 0; i < array.length(); i++)
+				results.add(fromJsonObject(array.getJSONObject(i)));
+			return results;
+		} catch (JSONException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BucketBatchResult [path=" + path + ", index=" + index
+				+ ", status=" + status + ", message=" + message + "]";
+	}
+}
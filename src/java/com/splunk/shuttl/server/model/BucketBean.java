@@ -20,6 +20,7 @@ import java.util.Date;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.archiver.model.DirectoryDidNotExistException;
 
 /**
  * Bean for a bucket to respond with rest.
@@ -141,11 +142,23 @@ public class BucketBean {
 	 *          to create bean from.
 	 */
 	public static BucketBean createBeanFromBucket(Bucket bucket) {
-		Long size = bucket.getSize() == null ? 0 : bucket.getSize();
 		return new BucketBean(bucket.getFormat().name(), bucket.getIndex(),
 				bucket.getName(), bucket.getPath(),
 				stringFromDate(bucket.getEarliest()),
-				stringFromDate(bucket.getLatest()), size);
+				stringFromDate(bucket.getLatest()), getSizeForListing(bucket));
+	}
+
+	/**
+	 * A bucket can be removed while it is listed, and is then listed with size
+	 * 0.
+	 */
+	private static Long getSizeForListing(Bucket bucket) {
+		try {
+			Long size = bucket.getSize();
+			return size == null ? 0 : size;
+		} catch (DirectoryDidNotExistException e) {
+			return 0L;
+		}
 	}
 
 	public static String stringFromDate(Date date) {
@@ -33,6 +33,17 @@ public class ServerConf {
 	private String httpHost;
 	private int httpPort;
 	private String splunkClusterName;
+	private int archiveWorkerThreads;
+	private int archiveQueueSize;
+	private int compressorThreads;
+	private int transferThreads;
+	private int zstdCompressionLevel;
+	private int handoffPort;
+	private int exportThreads;
+	private int uploadThreads;
+	private int deleteThreads;
+	private int stageQueueSize;
+	private int trashDeletesPerSecond;
 
 	public String getSplunkClusterName() {
 		return splunkClusterName;
@@ -58,6 +69,94 @@ public class ServerConf {
 		this.httpPort = httpPort;
 	}
 
+	public int getArchiveWorkerThreads() {
+		return archiveWorkerThreads;
+	}
+
+	public void setArchiveWorkerThreads(int archiveWorkerThreads) {
+		this.archiveWorkerThreads = archiveWorkerThreads;
+	}
+
+	public int getArchiveQueueSize() {
+		return archiveQueueSize;
+	}
+
+	public void setArchiveQueueSize(int archiveQueueSize) {
+		this.archiveQueueSize = archiveQueueSize;
+	}
+
+	public int getCompressorThreads() {
+		return compressorThreads;
+	}
+
+	public void setCompressorThreads(int compressorThreads) {
+		this.compressorThreads = compressorThreads;
+	}
+
+	public int getTransferThreads() {
+		return transferThreads;
+	}
+
+	public void setTransferThreads(int transferThreads) {
+		this.transferThreads = transferThreads;
+	}
+
+	public int getZstdCompressionLevel() {
+		return zstdCompressionLevel;
+	}
+
+	public void setZstdCompressionLevel(int zstdCompressionLevel) {
+		this.zstdCompressionLevel = zstdCompressionLevel;
+	}
+
+	public int getHandoffPort() {
+		return handoffPort;
+	}
+
+	public void setHandoffPort(int handoffPort) {
+		this.handoffPort = handoffPort;
+	}
+
+	public int getExportThreads() {
+		return exportThreads;
+	}
+
+	public void setExportThreads(int exportThreads) {
+		this.exportThreads = exportThreads;
+	}
+
+	public int getUploadThreads() {
+		return uploadThreads;
+	}
+
+	public void setUploadThreads(int uploadThreads) {
+		this.uploadThreads = uploadThreads;
+	}
+
+	public int getDeleteThreads() {
+		return deleteThreads;
+	}
+
+	public void setDeleteThreads(int deleteThreads) {
+		this.deleteThreads = deleteThreads;
+	}
+
+	public int getStageQueueSize() {
+		return stageQueueSize;
+	}
+
+	public void setStageQueueSize(int stageQueueSize) {
+		this.stageQueueSize = stageQueueSize;
+	}
+
+	public int getTrashDeletesPerSecond() {
+		return trashDeletesPerSecond;
+	}
+
+	public void setTrashDeletesPerSecond(int trashDeletesPerSecond) {
+		this.trashDeletesPerSecond = trashDeletesPerSecond;
+	}
+
 	@XmlElementWrapper(name = "clusterlist")
 	@XmlElement(name = "hadoopcluster")
 	public ArrayList<HadoopCluster> getClusterlist() {
@@ -31,9 +31,12 @@ import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
 import com.splunk.shuttl.archiver.filesystem.transaction.AbstractTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionException;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.PutBucketTransaction;
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.metastore.ArchiveBucketSize;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -45,6 +48,7 @@ public class ArchiveBucketTransfererTest {
 	private PathResolver pathResolver;
 	private ArchiveBucketTransferer archiveBucketTransferer;
 	private ArchiveBucketSize archiveBucketSize;
+	private ArchiveBucketChecksums archiveBucketChecksums;
 	private TransactionExecuter transactionExecuter;
 
 	@BeforeMethod
@@ -52,9 +56,11 @@ public class ArchiveBucketTransfererTest {
 		archive = mock(ArchiveFileSystem.class);
 		pathResolver = mock(PathResolver.class);
 		archiveBucketSize = mock(ArchiveBucketSize.class);
+		archiveBucketChecksums = mock(ArchiveBucketChecksums.class);
 		transactionExecuter = mock(TransactionExecuter.class);
 		archiveBucketTransferer = new ArchiveBucketTransferer(archive,
-				pathResolver, archiveBucketSize, transactionExecuter);
+				pathResolver, archiveBucketSize, archiveBucketChecksums,
+				transactionExecuter);
 	}
 
 	@Test(groups = { "fast-unit" })
@@ -66,32 +72,55 @@ public class ArchiveBucketTransfererTest {
 		when(pathResolver.resolveTempPathForBucket(bucket)).thenReturn(temp);
 		archiveBucketTransferer.transferBucketToArchive(bucket);
 		verify(transactionExecuter).execute(
-				eq(PutBucketTransaction.create(archive, bucket, temp, destination)));
+				eq(PutBucketTransaction.create(archive, bucket, temp, destination)),
+				any(Transaction.class), any(Transaction.class));
 	}
 
-	public void transferBucketToArchive_givenSuccessfulBucketTransfer_startBucketSizeTransaction() {
+	public void transferBucketToArchive_givenBucket_executesBucketSizeTransactionAfterBucketTransaction() {
 		Bucket bucket = mock(Bucket.class);
+		Transaction bucketSizeTransaction = mock(Transaction.class);
+		when(archiveBucketSize.getPersistBucketSizeTransaction(bucket))
+				.thenReturn(bucketSizeTransaction);
 		archiveBucketTransferer.transferBucketToArchive(bucket);
-		verify(archiveBucketSize).persistBucketSize(bucket);
+		verify(transactionExecuter).execute(any(AbstractTransaction.class),
+				eq(bucketSizeTransaction), any(Transaction.class));
 	}
 
-	public void transferBucketToArchive_whenBucketTransferIsUnsuccessful_dontPutBucketSizeInArchive()
+	public void transferBucketToArchive_givenBucket_executesChecksumsTransactionLast() {
+		Bucket bucket = mock(Bucket.class);
+		Transaction checksumsTransaction = mock(Transaction.class);
+		when(
+				archiveBucketChecksums.getPersistChecksumsTransaction(eq(bucket),
+						any(ChecksumManifest.class))).thenReturn(checksumsTransaction);
+		archiveBucketTransferer.transferBucketToArchive(bucket);
+		verify(transactionExecuter).execute(any(AbstractTransaction.class),
+				any(Transaction.class), eq(checksumsTransaction));
+	}
+
+	public void transferBucketToArchive_givenBucket_doesNotPutBucketSizeOutsideOfTheTransactions() {
+		Bucket bucket = mock(Bucket.class);
+		archiveBucketTransferer.transferBucketToArchive(bucket);
+		verify(archiveBucketSize, never()).persistBucketSize(bucket);
+	}
+
+	public void transferBucketToArchive_whenBucketTransferIsUnsuccessful_throws()
 			throws FileNotFoundException, FileOverwriteException, IOException {
 		doThrow(Exception.class).when(transactionExecuter).execute(
-				any(AbstractTransaction.class));
+				any(AbstractTransaction.class), any(Transaction.class),
+				any(Transaction.class));
 		try {
 			archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
 			fail();
 		} catch (Exception e) {
 		}
-		verifyZeroInteractions(archiveBucketSize);
 	}
 
 	@Test(expectedExceptions = { FailedToArchiveBucketException.class })
 	public void _archiveFileSystemThrowsFileNotFoundException_throwFailedToArchiveBucketException()
 			throws IOException {
 		doThrow(TransactionException.class).when(transactionExecuter).execute(
-				any(AbstractTransaction.class));
+				any(AbstractTransaction.class), any(Transaction.class),
+				any(Transaction.class));
 		archiveBucketTransferer.transferBucketToArchive(mock(Bucket.class));
 	}
 
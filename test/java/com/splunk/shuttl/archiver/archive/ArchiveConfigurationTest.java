@@ -183,4 +183,20 @@ public class ArchiveConfigurationTest {
 
 		assertNotEquals(originalConf.getServerName(), newConf.getServerName());
 	}
+
+	public void equals_configurationsWithSameValues_equalWithSameHashCode() {
+		List<BucketFormat> list = asList(BucketFormat.UNKNOWN);
+		ArchiveConfiguration conf = new ArchiveConfiguration("a", list, "c", "d",
+				list, "f", "g", "h");
+		ArchiveConfiguration sameConf = new ArchiveConfiguration("a", list, "c",
+				"d", list, "f", "g", "h");
+
+		assertEquals(conf, sameConf);
+		assertEquals(conf.hashCode(), sameConf.hashCode());
+	}
+
+	public void equals_configurationWithOtherServerName_notEqual() {
+		ArchiveConfiguration conf = createConfiguration();
+		assertNotEquals(conf, conf.newConfigWithServerName("newServerName"));
+	}
 }
@@ -0,0 +1,55 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ArchivePipelineTest {
+
+	public void create_givenThreads_stageThreadsDoNotTimeOut() {
+		ArchivePipeline pipeline = ArchivePipeline.create(1, 1, 1, 1);
+		for (ExecutorService stage : new ExecutorService[] {
+				pipeline.getExportStage(), pipeline.getUploadStage(),
+				pipeline.getDeleteStage() })
+			assertFalse(((ThreadPoolExecutor) stage).allowsCoreThreadTimeOut());
+	}
+
+	public void execute_queueIsFull_waitsForRoomAndRunsAllWork()
+			throws InterruptedException {
+		ExecutorService stage = ArchivePipeline.create(1, 1, 1, 1)
+				.getExportStage();
+		final CountDownLatch ran = new CountDownLatch(3);
+		Runnable work = new Runnable() {
+
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		};
+
+		for (int i = 0; i < 3; i++)
+			stage.execute(work);
+
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+	}
+}
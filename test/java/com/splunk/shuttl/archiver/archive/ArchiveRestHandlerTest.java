@@ -14,6 +14,7 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.archive;
 
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
@@ -22,17 +23,23 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 
+import org.apache.http.HttpVersion;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.log4j.Logger;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.ShuttlConstants;
+import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+import com.splunk.shuttl.server.model.BucketBatchResult;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 /**
@@ -126,4 +133,37 @@ public class ArchiveRestHandlerTest {
 
 		verifyClassWasOnlyErrorLogged(IOException.class);
 	}
+
+	public void handleSharedLockedBuckets_givenBuckets_executesOneRequestToBatchEndpoint()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		LocalBucket otherBucket = TUtilsBucket.createBucket();
+		archiveRestHandler.handleSharedLockedBuckets(asList((Bucket) bucket,
+				otherBucket));
+
+		ArgumentCaptor<HttpUriRequest> requestCaptor = ArgumentCaptor
+				.forClass(HttpUriRequest.class);
+		verify(httpClient).execute(requestCaptor.capture());
+		assertTrue(requestCaptor.getValue().getURI().getPath()
+				.endsWith(ShuttlConstants.ENDPOINT_BUCKETS_ARCHIVE));
+	}
+
+	public void callRestToArchiveLocalBuckets_oneBucketFailed_logsErrorForThatBucket()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		LocalBucket failedBucket = TUtilsBucket.createBucket();
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+				200, "OK");
+		response.setEntity(new StringEntity(BucketBatchResult.toJson(asList(
+				new BucketBatchResult(bucket.getPath(), "index", 202, "job"),
+				new BucketBatchResult(failedBucket.getPath(), "index", 503, null)))));
+		when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response);
+
+		archiveRestHandler.callRestToArchiveLocalBuckets(asList(bucket,
+				failedBucket));
+
+		ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+		verify(logger).error(captor.capture());
+		assertTrue(captor.getValue().contains(failedBucket.getPath()));
+	}
 }
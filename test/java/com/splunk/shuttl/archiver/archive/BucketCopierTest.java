@@ -46,7 +46,7 @@ public class BucketCopierTest {
 		deletesBuckets = mock(BucketDeleter.class);
 		bucketFormats = asList(BucketFormat.SPLUNK_BUCKET);
 		bucketCopier = new BucketCopier(exporter, archiveBucketTransferer,
-				bucketFormats, deletesBuckets);
+				bucketFormats, deletesBuckets, BucketFormatExecutor.create(1, 1));
 
 		bucket = TUtilsBucket.createBucket();
 	}
@@ -19,7 +19,11 @@ import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -46,7 +50,7 @@ public class BucketCopierTwoFormatsTest {
 		bucketDeleter = mock(BucketDeleter.class);
 		formats = asList(BucketFormat.SPLUNK_BUCKET, BucketFormat.CSV);
 		bucketCopier = new BucketCopier(exporter, archiveBucketTransferer, formats,
-				bucketDeleter);
+				bucketDeleter, BucketFormatExecutor.create(2, 2));
 
 		bucket = mock(LocalBucket.class);
 	}
@@ -125,4 +129,50 @@ public class BucketCopierTwoFormatsTest {
 		verify(bucketDeleter).deleteBucket(exportedBucket1);
 		verify(bucketDeleter).deleteBucket(exportedBucket2);
 	}
+
+	public void copyBucket_givenTwoFormats_exportsTheFormatsConcurrently() {
+		exportedBucket1 = mock(LocalBucket.class);
+		exportedBucket2 = mock(LocalBucket.class);
+		CountDownLatch bothExporting = new CountDownLatch(2);
+		when(exporter.exportBucket(bucket, formats.get(0))).thenAnswer(
+				waitForOtherExportThenReturn(bothExporting, exportedBucket1));
+		when(exporter.exportBucket(bucket, formats.get(1))).thenAnswer(
+				waitForOtherExportThenReturn(bothExporting, exportedBucket2));
+
+		bucketCopier.copyBucket(bucket);
+
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket1);
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket2);
+	}
+
+	private Answer<LocalBucket> waitForOtherExportThenReturn(
+			final CountDownLatch bothExporting, final LocalBucket exportedBucket) {
+		return new Answer<LocalBucket>() {
+			@Override
+			public LocalBucket answer(InvocationOnMock invocation) throws Throwable {
+				bothExporting.countDown();
+				assertTrue(bothExporting.await(5, TimeUnit.SECONDS),
+						"Exports did not run concurrently");
+				return exportedBucket;
+			}
+		};
+	}
+
+	public void copyBucket_firstFormatFailsToExport_copiesSecondFormatAndThrowsExportException() {
+		exportedBucket2 = mock(LocalBucket.class);
+		RuntimeException exportException = new RuntimeException();
+		when(exporter.exportBucket(bucket, formats.get(0))).thenThrow(
+				exportException);
+		when(exporter.exportBucket(bucket, formats.get(1))).thenReturn(
+				exportedBucket2);
+
+		try {
+			bucketCopier.copyBucket(bucket);
+			fail("should have gotten exception");
+		} catch (RuntimeException e) {
+			assertSame(e, exportException);
+		}
+		verify(archiveBucketTransferer).transferBucketToArchive(exportedBucket2);
+		verify(bucketDeleter).deleteBucket(exportedBucket2);
+	}
 }
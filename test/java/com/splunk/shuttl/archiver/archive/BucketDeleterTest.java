@@ -55,4 +55,25 @@ public class BucketDeleterTest {
 		bucketDeleter.deleteBucket(throwsIOExceptionOnDelete);
 		verify(logger).warn(anyString());
 	}
+
+	public void deleteBucket_trashTakesBucket_doesNotDeleteBucketItself() {
+		BucketTrash bucketTrash = mock(BucketTrash.class);
+		when(bucketTrash.moveToTrash(bucket.getDirectory(), bucket.getSize()))
+				.thenReturn(true);
+
+		new BucketDeleter(logger, bucketTrash).deleteBucket(bucket);
+
+		verify(bucketTrash).moveToTrash(bucket.getDirectory(), bucket.getSize());
+		assertTrue(bucket.getDirectory().exists());
+	}
+
+	public void deleteBucket_trashCanNotTakeBucket_deletesBucket() {
+		BucketTrash bucketTrash = mock(BucketTrash.class);
+		when(bucketTrash.moveToTrash(bucket.getDirectory(), bucket.getSize()))
+				.thenReturn(false);
+
+		new BucketDeleter(logger, bucketTrash).deleteBucket(bucket);
+
+		assertFalse(bucket.getDirectory().exists());
+	}
 }
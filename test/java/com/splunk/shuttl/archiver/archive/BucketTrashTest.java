@@ -0,0 +1,107 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.throttle.TokenBucket;
+
+@Test(groups = { "fast-unit" })
+public class BucketTrashTest {
+
+	File trashDirectory;
+	BucketTrash bucketTrash;
+
+	@BeforeMethod
+	public void setUp() {
+		trashDirectory = createDirectory();
+		bucketTrash = new BucketTrash(trashDirectory, new TokenBucket(0));
+	}
+
+	private File createDirectoryWithBytes(int bytes) throws IOException {
+		File directory = createDirectory();
+		File subDirectory = createDirectoryInParent(directory, "rawdata");
+		FileUtils.writeByteArrayToFile(new File(subDirectory, "journal"),
+				new byte[bytes]);
+		return directory;
+	}
+
+	public void moveToTrash_givenDirectory_movesDirectoryIntoTrash()
+			throws IOException {
+		File directory = createDirectoryWithBytes(10);
+
+		assertTrue(bucketTrash.moveToTrash(directory, 10));
+
+		assertFalse(directory.exists());
+		assertEquals(1, trashDirectory.listFiles().length);
+		assertEquals(1, bucketTrash.getBucketsPending());
+	}
+
+	public void moveToTrash_directoryDoesNotExist_returnsFalse() {
+		assertFalse(bucketTrash.moveToTrash(createFilePath(), 10));
+		assertEquals(0, bucketTrash.getBucketsPending());
+		assertEquals(0, bucketTrash.getBytesPending());
+	}
+
+	public void moveToTrash_queuedDirectories_sizesArePending()
+			throws IOException {
+		bucketTrash.moveToTrash(createDirectoryWithBytes(10), 10);
+		bucketTrash.moveToTrash(createDirectoryWithBytes(20), 20);
+
+		assertEquals(30, bucketTrash.getBytesPending());
+	}
+
+	public void emptyTrash_trashedDirectory_deletesItAndCountsReclaimedBytes()
+			throws IOException {
+		bucketTrash.moveToTrash(createDirectoryWithBytes(10), 10);
+
+		bucketTrash.emptyTrash();
+
+		assertEquals(0, trashDirectory.listFiles().length);
+		assertEquals(10, bucketTrash.getBytesReclaimed());
+		assertEquals(0, bucketTrash.getBytesPending());
+		assertEquals(0, bucketTrash.getBucketsPending());
+	}
+
+	public void start_directoryWasLeftInTrash_deletesIt() throws Exception {
+		File leftInTrash = createDirectoryWithBytes(10);
+		FileUtils.moveDirectoryToDirectory(leftInTrash, trashDirectory, false);
+
+		bucketTrash.start();
+
+		for (int i = 0; i < 100 && bucketTrash.getBucketsPending() > 0; i++)
+			Thread.sleep(10);
+		assertEquals(0, trashDirectory.listFiles().length);
+		assertEquals(10, bucketTrash.getBytesReclaimed());
+		assertEquals(0, bucketTrash.getBytesPending());
+	}
+
+	public void emptyTrash_sizeDifferedFromDeletedBytes_noBytesPending()
+			throws IOException {
+		bucketTrash.moveToTrash(createDirectoryWithBytes(10), 15);
+
+		bucketTrash.emptyTrash();
+
+		assertEquals(0, bucketTrash.getBytesPending());
+	}
+}
@@ -0,0 +1,140 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive;
+
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.BucketExportController;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class PipelinedBucketArchiverTest {
+
+	private PipelinedBucketArchiver archiver;
+	private BucketExportController exporter;
+	private ArchiveBucketTransferer transferer;
+	private BucketDeleter deleter;
+	private ArchivePipeline pipeline;
+
+	private LocalBucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		exporter = mock(BucketExportController.class);
+		transferer = mock(ArchiveBucketTransferer.class);
+		deleter = mock(BucketDeleter.class);
+		pipeline = ArchivePipeline.create(1, 1, 1, 1);
+		archiver = new PipelinedBucketArchiver(exporter, transferer,
+				asList(BucketFormat.SPLUNK_BUCKET), deleter, pipeline);
+
+		bucket = TUtilsBucket.createBucket();
+		when(exporter.exportBucket(eq(bucket), any(BucketFormat.class)))
+				.thenReturn(bucket);
+	}
+
+	public void archiveBucket_givenBucket_transfersThenDeletesBucket() {
+		archiver.archiveBucket(bucket);
+
+		verify(transferer).transferBucketToArchive(bucket);
+		verify(deleter).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_transferFails_throwsAndKeepsBucket() {
+		doThrow(new RuntimeException()).when(transferer).transferBucketToArchive(
+				bucket);
+		try {
+			archiver.archiveBucket(bucket);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(deleter, never()).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_exportFails_throwsAndKeepsBucket() {
+		when(exporter.exportBucket(eq(bucket), any(BucketFormat.class)))
+				.thenThrow(new RuntimeException());
+		try {
+			archiver.archiveBucket(bucket);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(transferer, never()).transferBucketToArchive(
+				any(LocalBucket.class));
+		verify(deleter, never()).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_exportCreatesNewBucket_deletesExportedBucket() {
+		LocalBucket exportedBucket = TUtilsBucket.createBucket();
+		when(exporter.exportBucket(eq(bucket), any(BucketFormat.class)))
+				.thenReturn(exportedBucket);
+
+		archiver.archiveBucket(bucket);
+
+		verify(transferer).transferBucketToArchive(exportedBucket);
+		verify(deleter, timeout(1000)).deleteBucket(exportedBucket);
+		verify(deleter).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_formatIsArchivedAlready_deletesBucketWithoutExporting() {
+		when(transferer.isArchived(bucket, BucketFormat.SPLUNK_BUCKET))
+				.thenReturn(true);
+
+		archiver.archiveBucket(bucket);
+
+		verifyZeroInteractions(exporter);
+		verify(deleter).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_twoFormats_transfersBothFormats() {
+		LocalBucket csvBucket = TUtilsBucket.createBucket();
+		when(exporter.exportBucket(bucket, BucketFormat.CSV)).thenReturn(
+				csvBucket);
+		archiver = new PipelinedBucketArchiver(exporter, transferer, asList(
+				BucketFormat.SPLUNK_BUCKET, BucketFormat.CSV), deleter, pipeline);
+
+		archiver.archiveBucket(bucket);
+
+		verify(transferer).transferBucketToArchive(bucket);
+		verify(transferer).transferBucketToArchive(csvBucket);
+		verify(deleter).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_deleteFails_throws() {
+		doThrow(new RuntimeException()).when(deleter).deleteBucket(bucket);
+		try {
+			archiver.archiveBucket(bucket);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(deleter).deleteBucket(bucket);
+	}
+
+	public void archiveBucket_stageIsShutDown_throwsInsteadOfWaiting() {
+		pipeline.getExportStage().shutdown();
+		try {
+			archiver.archiveBucket(bucket);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(deleter, never()).deleteBucket(bucket);
+	}
+}
@@ -0,0 +1,149 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.recovery.FailedBucketRetryScheduler.RetriesBuckets;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class FailedBucketRetrySchedulerTest {
+
+	private static final long DELAY = 1000;
+
+	FailedBucketRetryScheduler scheduler;
+	RetryBackoff backoff;
+	File scheduleFile;
+	File lockFile;
+	CollectsBuckets retrier;
+
+	@BeforeMethod
+	public void setUp() {
+		File directory = createDirectory();
+		scheduleFile = new File(directory, "schedule");
+		lockFile = new File(directory, "lock");
+		backoff = mock(RetryBackoff.class);
+		when(backoff.getDelay(anyInt())).thenReturn(DELAY);
+		scheduler = createSchedulerWithMaxBucketsPerRound(10);
+		retrier = new CollectsBuckets();
+	}
+
+	private FailedBucketRetryScheduler createSchedulerWithMaxBucketsPerRound(
+			int maxBucketsPerRound) {
+		return new FailedBucketRetryScheduler(scheduleFile, lockFile, backoff,
+				maxBucketsPerRound);
+	}
+
+	private static class CollectsBuckets implements RetriesBuckets {
+
+		List<List<Bucket>> rounds = new ArrayList<List<Bucket>>();
+
+		@Override
+		public void retryBuckets(List<Bucket> buckets) {
+			rounds.add(buckets);
+		}
+	}
+
+	public void retryDueBuckets_newFailedBucket_isNotRetriedBeforeBackoff() {
+		Bucket bucket = TUtilsBucket.createBucket();
+
+		assertTrue(scheduler.retryDueBuckets(asList(bucket), retrier, 0));
+		assertTrue(scheduler.retryDueBuckets(asList(bucket), retrier, DELAY - 1));
+
+		assertTrue(retrier.rounds.isEmpty());
+	}
+
+	public void retryDueBuckets_failedBucketAfterBackoff_retriesBucket() {
+		Bucket bucket = TUtilsBucket.createBucket();
+
+		scheduler.retryDueBuckets(asList(bucket), retrier, 0);
+		scheduler.retryDueBuckets(asList(bucket), retrier, DELAY);
+
+		assertEquals(asList(asList(bucket)), retrier.rounds);
+	}
+
+	public void retryDueBuckets_retriedBucket_backsOffWithMoreAttempts() {
+		Bucket bucket = TUtilsBucket.createBucket();
+
+		scheduler.retryDueBuckets(asList(bucket), retrier, 0);
+		scheduler.retryDueBuckets(asList(bucket), retrier, DELAY);
+
+		verify(backoff).getDelay(1);
+		verify(backoff).getDelay(2);
+	}
+
+	public void retryDueBuckets_newScheduler_keepsAttemptsOfEarlierScheduler() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		scheduler.retryDueBuckets(asList(bucket), retrier, 0);
+
+		createSchedulerWithMaxBucketsPerRound(10).retryDueBuckets(asList(bucket),
+				retrier, DELAY - 1);
+
+		assertTrue(retrier.rounds.isEmpty());
+	}
+
+	public void retryDueBuckets_moreBucketsDueThanMax_retriesMaxAndTheRestNextRound() {
+		scheduler = createSchedulerWithMaxBucketsPerRound(2);
+		List<Bucket> buckets = asList(TUtilsBucket.createBucket(),
+				TUtilsBucket.createBucket(), TUtilsBucket.createBucket());
+		scheduler.retryDueBuckets(buckets, retrier, 0);
+
+		scheduler.retryDueBuckets(buckets, retrier, DELAY);
+		scheduler.retryDueBuckets(buckets, retrier, DELAY);
+
+		assertEquals(asList(buckets.subList(0, 2), buckets.subList(2, 3)),
+				retrier.rounds);
+	}
+
+	public void retryDueBuckets_bucketIsNoLongerFailing_forgetsAttempts() {
+		Bucket bucket = TUtilsBucket.createBucket();
+		scheduler.retryDueBuckets(asList(bucket), retrier, 0);
+		scheduler.retryDueBuckets(new ArrayList<Bucket>(), retrier, 0);
+
+		scheduler.retryDueBuckets(asList(bucket), retrier, DELAY);
+
+		assertTrue(retrier.rounds.isEmpty());
+	}
+
+	public void retryDueBuckets_roundIsRunning_doesNotRunAnotherRound() {
+		final Bucket bucket = TUtilsBucket.createBucket();
+		scheduler.retryDueBuckets(asList(bucket), retrier, 0);
+		final List<Boolean> nestedRounds = new ArrayList<Boolean>();
+
+		scheduler.retryDueBuckets(asList(bucket), new RetriesBuckets() {
+
+			@Override
+			public void retryBuckets(List<Bucket> buckets) {
+				nestedRounds.add(scheduler.retryDueBuckets(asList(bucket), retrier,
+						DELAY * 10));
+			}
+		}, DELAY);
+
+		assertEquals(asList(false), nestedRounds);
+		assertTrue(retrier.rounds.isEmpty());
+	}
+}
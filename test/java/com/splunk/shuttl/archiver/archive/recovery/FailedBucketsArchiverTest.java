@@ -19,6 +19,7 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +29,7 @@ import org.testng.annotations.Test;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker;
 import com.splunk.shuttl.archiver.bucketlock.BucketLockerInTestDir;
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -50,7 +52,8 @@ public class FailedBucketsArchiverTest {
 	private List<Bucket> stubXBucketsInBucketMover(int x) {
 		List<Bucket> buckets = new ArrayList<Bucket>();
 		for (int i = 0; i < x; i++) {
-			Bucket movedBucket = TUtilsBucket.createBucket();
+			Bucket movedBucket = TUtilsBucket.createBucketWithIndexAndName("index",
+					"db_1332295013_1332295012_" + i);
 			buckets.add(movedBucket);
 		}
 		when(bucketMover.getMovedBuckets()).thenReturn(buckets);
@@ -80,4 +83,50 @@ public class FailedBucketsArchiverTest {
 		verify(sharedLockBucketHandler, times(2)).handleSharedLockedBucket(
 				any(Bucket.class));
 	}
+
+	public void archiveFailedBuckets_handlerHandlesManyBuckets_handlesBucketsInBatches() {
+		List<Bucket> buckets = stubXBucketsInBucketMover(
+				FailedBucketsArchiver.BATCH_SIZE + 1);
+		SharedLockBucketHandler batchHandler = mock(SharedLockBucketHandler.class,
+				withSettings().extraInterfaces(SharedLockBucketsHandler.class));
+
+		failedBucketsArchiver.archiveFailedBuckets(batchHandler);
+
+		SharedLockBucketsHandler bucketsHandler = (SharedLockBucketsHandler) batchHandler;
+		verify(bucketsHandler).handleSharedLockedBuckets(
+				buckets.subList(0, FailedBucketsArchiver.BATCH_SIZE));
+		verify(bucketsHandler).handleSharedLockedBuckets(
+				buckets.subList(FailedBucketsArchiver.BATCH_SIZE, buckets.size()));
+		verify(batchHandler, never()).handleSharedLockedBucket(any(Bucket.class));
+	}
+
+	public void archiveFailedBuckets_retrySchedulerAndNewFailedBucket_doesNotHandleBucketBeforeBackoff() {
+		stubXBucketsInBucketMover(1);
+		File scheduleDir = createDirectory();
+		FailedBucketRetryScheduler retryScheduler = new FailedBucketRetryScheduler(
+				new File(scheduleDir, "schedule"), new File(scheduleDir, "lock"),
+				RetryBackoff.create(), 1);
+
+		new FailedBucketsArchiver(bucketMover, bucketLocker, retryScheduler)
+				.archiveFailedBuckets(sharedLockBucketHandler);
+
+		verify(sharedLockBucketHandler, never()).handleSharedLockedBucket(
+				any(Bucket.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void archiveFailedBuckets_retrySchedulerDoesNotRunRound_doesNotHandleBuckets() {
+		stubXBucketsInBucketMover(2);
+		FailedBucketRetryScheduler retryScheduler = mock(FailedBucketRetryScheduler.class);
+		when(
+				retryScheduler.retryDueBuckets(anyList(),
+						any(FailedBucketRetryScheduler.RetriesBuckets.class))).thenReturn(
+				false);
+
+		new FailedBucketsArchiver(bucketMover, bucketLocker, retryScheduler)
+				.archiveFailedBuckets(sharedLockBucketHandler);
+
+		verify(sharedLockBucketHandler, never()).handleSharedLockedBucket(
+				any(Bucket.class));
+	}
 }
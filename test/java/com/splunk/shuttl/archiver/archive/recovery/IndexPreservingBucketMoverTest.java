@@ -15,6 +15,7 @@
 package com.splunk.shuttl.archiver.archive.recovery;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
@@ -28,6 +29,8 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.FileNotDirectoryException;
 import com.splunk.shuttl.archiver.model.LocalBucket;
@@ -170,4 +173,30 @@ public class IndexPreservingBucketMoverTest {
 		return TUtilsBucket.createBucketInDirectoryWithIndex(
 				directoryRepresentingIndex, index);
 	}
+
+	public void moveBucket_withJournal_enqueuesArchiveJobForTheMovedBucketDirectory() {
+		JobJournal jobJournal = mock(JobJournal.class);
+		bucketMover = IndexPreservingBucketMover.createWithJournal(
+				moveBucketLocation, jobJournal);
+		LocalBucket bucket = TUtilsBucket.createBucket();
+
+		LocalBucket movedBucket = bucketMover.moveBucket(bucket);
+
+		verify(jobJournal).enqueue(JobType.ARCHIVE, bucket.getIndex(),
+				movedBucket.getDirectory());
+	}
+
+	public void getMovedBuckets_withJournal_returnsPendingArchiveJobs() {
+		JobJournal jobJournal = mock(JobJournal.class);
+		LocalBucket pendingBucket = TUtilsBucket.createBucket();
+		when(jobJournal.getPendingBuckets(JobType.ARCHIVE)).thenReturn(
+				asList(pendingBucket));
+		bucketMover = IndexPreservingBucketMover.createWithJournal(
+				moveBucketLocation, jobJournal);
+
+		List<Bucket> movedBuckets = bucketMover.getMovedBuckets();
+
+		assertEquals(1, movedBuckets.size());
+		assertEquals(pendingBucket, movedBuckets.get(0));
+	}
 }
@@ -0,0 +1,56 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.archive.recovery;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class RetryBackoffTest {
+
+	Random random;
+	RetryBackoff backoff;
+
+	@BeforeMethod
+	public void setUp() {
+		random = mock(Random.class);
+		backoff = new RetryBackoff(100, 1000, random);
+	}
+
+	public void getDelay_noJitter_isHalfOfBaseDelayForFirstAttempt() {
+		when(random.nextDouble()).thenReturn(0.0);
+		assertEquals(50, backoff.getDelay(1));
+	}
+
+	public void getDelay_fullJitter_isBaseDelayForFirstAttempt() {
+		when(random.nextDouble()).thenReturn(1.0);
+		assertEquals(100, backoff.getDelay(1));
+	}
+
+	public void getDelay_moreAttempts_doublesDelay() {
+		when(random.nextDouble()).thenReturn(1.0);
+		assertEquals(400, backoff.getDelay(3));
+	}
+
+	public void getDelay_manyAttempts_isCappedAtMaxDelay() {
+		when(random.nextDouble()).thenReturn(1.0);
+		assertEquals(1000, backoff.getDelay(Integer.MAX_VALUE));
+	}
+}
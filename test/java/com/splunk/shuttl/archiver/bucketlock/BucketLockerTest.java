@@ -15,6 +15,8 @@
 package com.splunk.shuttl.archiver.bucketlock;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
@@ -27,6 +29,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketHandler;
+import com.splunk.shuttl.archiver.bucketlock.BucketLocker.SharedLockBucketsHandler;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -87,6 +90,40 @@ public class BucketLockerTest {
 		verify(bucketHandler).handleSharedLockedBucket(bucket);
 	}
 
+	public void callBucketsHandlerUnderSharedLocks_givenOneLockedBucket_handlesTheOtherBucketsAtOnce() {
+		Bucket otherBucket = TUtilsBucket
+				.createBucketInDirectory(tempTestDirectory);
+		Bucket lockedBucket = TUtilsBucket
+				.createBucketInDirectory(tempTestDirectory);
+		assertTrue(bucketLocker.getLockForBucket(lockedBucket).tryLockExclusive());
+		SharedLockBucketsHandler bucketsHandler = mock(SharedLockBucketsHandler.class);
+
+		bucketLocker.callBucketsHandlerUnderSharedLocks(
+				asList(bucket, lockedBucket, otherBucket), bucketsHandler);
+
+		verify(bucketsHandler).handleSharedLockedBuckets(
+				asList(bucket, otherBucket));
+		verify(bucketsHandler).bucketWasLocked(lockedBucket);
+	}
+
+	public void callBucketsHandlerUnderSharedLocks_afterHandlerIsDone_releasesTheLocks() {
+		bucketLocker.callBucketsHandlerUnderSharedLocks(asList(bucket),
+				mock(SharedLockBucketsHandler.class));
+
+		assertTrue(bucketLocker.getLockForBucket(bucket).tryLockExclusive());
+	}
+
+	public void callBucketsHandlerUnderSharedLocks_allBucketsLocked_neverCallsHandler() {
+		assertTrue(bucketLocker.getLockForBucket(bucket).tryLockExclusive());
+		SharedLockBucketsHandler bucketsHandler = mock(SharedLockBucketsHandler.class);
+
+		bucketLocker.callBucketsHandlerUnderSharedLocks(asList(bucket),
+				bucketsHandler);
+
+		verify(bucketsHandler, never()).handleSharedLockedBuckets(
+				anyListOf(Bucket.class));
+	}
+
 	public static class NoOpBucketHandler implements SharedLockBucketHandler {
 
 		public boolean wasRun = false;
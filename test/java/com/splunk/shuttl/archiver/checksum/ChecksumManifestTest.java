@@ -0,0 +1,100 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.checksum;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ChecksumManifestTest {
+
+	private static final FileChecksum CHECKSUM = new FileChecksum(3, 42,
+			"abcdef");
+
+	public void parse_givenFormattedManifest_equalChecksums() {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/rawdata/journal.gz", CHECKSUM);
+		manifest.put("/a file with spaces.tsidx", new FileChecksum(0, 0, "00"));
+
+		ChecksumManifest parsed = ChecksumManifest.parse(manifest.format());
+
+		assertEquals(parsed.getPaths(), manifest.getPaths());
+		assertEquals(parsed.get("/rawdata/journal.gz"), CHECKSUM);
+		assertEquals(parsed.get("/a file with spaces.tsidx"), new FileChecksum(0,
+				0, "00"));
+	}
+
+	public void format_givenManifest_isOneLine() {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		manifest.put("/b", CHECKSUM);
+
+		assertFalse(manifest.format().contains("\n"));
+	}
+
+	public void parse_givenEmptyManifest_emptyManifest() {
+		assertTrue(ChecksumManifest.parse(new ChecksumManifest().format())
+				.isEmpty());
+	}
+
+	public void parse_givenOtherText_null() {
+		assertNull(ChecksumManifest.parse("12345"));
+	}
+
+	public void parse_givenCutOffRecord_null() {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		String formatted = manifest.format();
+
+		assertNull(ChecksumManifest.parse(formatted.substring(0,
+				formatted.indexOf(" /a"))));
+	}
+
+	public void verify_givenSameChecksum_doesNotThrow()
+			throws ChecksumMismatchException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		manifest.verify("/a", new FileChecksum(3, 42, "abcdef"));
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void verify_givenOtherChecksum_throws()
+			throws ChecksumMismatchException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		manifest.verify("/a", new FileChecksum(3, 42, "abcdee"));
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void verifyAllTransferred_givenPathsWithoutAFileInTheManifest_throws()
+			throws ChecksumMismatchException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		manifest.put("/b", CHECKSUM);
+		manifest.verifyAllTransferred(new HashSet<String>(asList("/a", "/c")));
+	}
+
+	public void verifyAllTransferred_givenMorePathsThanInTheManifest_doesNotThrow()
+			throws ChecksumMismatchException {
+		ChecksumManifest manifest = new ChecksumManifest();
+		manifest.put("/a", CHECKSUM);
+		manifest.verifyAllTransferred(new HashSet<String>(asList("/a",
+				"/archive_meta/bucket.size")));
+	}
+}
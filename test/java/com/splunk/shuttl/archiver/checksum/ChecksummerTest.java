@@ -0,0 +1,39 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.checksum;
+
+import static org.testng.Assert.*;
+
+import java.io.UnsupportedEncodingException;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ChecksummerTest {
+
+	public void getChecksum_givenAbc_crc32AndSha256OfAbc()
+			throws UnsupportedEncodingException {
+		Checksummer checksummer = new Checksummer();
+		byte[] abc = "abc".getBytes("US-ASCII");
+		checksummer.update(abc, 0, 1);
+		checksummer.update(abc, 1, 2);
+
+		FileChecksum checksum = checksummer.getChecksum();
+		assertEquals(checksum.getLength(), 3);
+		assertEquals(checksum.getCrc32(), 0x352441c2L);
+		assertEquals(checksum.getSha256(),
+				"ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+	}
+}
@@ -0,0 +1,73 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.copy;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.copy.IndexScanner.UnknownIndexPathException;
+
+@Test(groups = { "fast-unit" })
+public class CachingIndexScannerTest {
+
+	private CachingIndexScanner indexScanner;
+	private IndexStoragePaths indexPaths;
+	private File bucketPath;
+	private Map<String, String> paths;
+
+	@BeforeMethod
+	public void setUp() {
+		indexPaths = mock(IndexStoragePaths.class);
+		indexScanner = new CachingIndexScanner(indexPaths);
+		bucketPath = createFile();
+		paths = new HashMap<String, String>();
+		paths.put(bucketPath.getParentFile().getAbsolutePath(), "index");
+	}
+
+	@Test(expectedExceptions = { UnknownIndexPathException.class })
+	public void getIndex_givenNoIndexes_throws() {
+		Map<String, String> emptyMap = Collections.emptyMap();
+		when(indexPaths.getIndexPaths()).thenReturn(emptyMap);
+		indexScanner.getIndex(bucketPath);
+	}
+
+	public void getIndex_calledTwiceWithKnownPath_fetchesIndexPathsOnce() {
+		when(indexPaths.getIndexPaths()).thenReturn(paths);
+
+		assertEquals(indexScanner.getIndex(bucketPath), "index");
+		assertEquals(indexScanner.getIndex(bucketPath), "index");
+		verify(indexPaths, times(1)).getIndexPaths();
+	}
+
+	public void getIndex_givenPathOfIndexAddedAfterFirstCall_fetchesIndexPathsAgain() {
+		File otherBucket = createFileInParent(createDirectory(), "other-bucket");
+		Map<String, String> pathsWithNewIndex = new HashMap<String, String>(paths);
+		pathsWithNewIndex.put(otherBucket.getParentFile().getAbsolutePath(),
+				"new-index");
+		when(indexPaths.getIndexPaths()).thenReturn(paths, pathsWithNewIndex);
+
+		indexScanner.getIndex(bucketPath);
+		assertEquals(indexScanner.getIndex(otherBucket), "new-index");
+	}
+}
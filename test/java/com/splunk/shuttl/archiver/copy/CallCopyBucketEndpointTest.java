@@ -14,17 +14,22 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.copy;
 
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
+import org.apache.http.HttpVersion;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -33,6 +38,7 @@ import com.splunk.shuttl.archiver.copy.CallCopyBucketEndpoint.NonSuccessfulBucke
 import com.splunk.shuttl.archiver.copy.CallCopyBucketEndpoint.ResponseHandler;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.server.mbeans.ShuttlServer;
+import com.splunk.shuttl.server.model.BucketBatchResult;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
@@ -96,4 +102,28 @@ public class CallCopyBucketEndpointTest {
 				new IOException());
 		copyBucketEndpoint.call(bucket);
 	}
+
+	public void callWithBuckets_oneBucketFailedToCopy_returnsOnlyCopiedBucket()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		LocalBucket failedBucket = TUtilsBucket.createBucket();
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+				200, "OK");
+		response.setEntity(new StringEntity(BucketBatchResult.toJson(asList(
+				new BucketBatchResult(bucket.getPath(), "index", 204, null),
+				new BucketBatchResult(failedBucket.getPath(), "index", 500, "fail")))));
+		when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response);
+
+		List<LocalBucket> copied = copyBucketEndpoint.callWithBuckets(asList(
+				bucket, failedBucket));
+
+		assertEquals(copied, asList(bucket));
+	}
+
+	@Test(expectedExceptions = { NonSuccessfulBucketCopy.class })
+	public void callWithBuckets_requestThrows_throws() throws IOException {
+		when(httpClient.execute(any(HttpUriRequest.class))).thenThrow(
+				new IOException());
+		copyBucketEndpoint.callWithBuckets(asList(TUtilsBucket.createBucket()));
+	}
 }
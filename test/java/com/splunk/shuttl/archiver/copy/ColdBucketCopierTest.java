@@ -17,9 +17,16 @@ package com.splunk.shuttl.archiver.copy;
 import static java.util.Arrays.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.mockito.InOrder;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -30,6 +37,7 @@ public class ColdBucketCopierTest {
 	private ColdBucketInterator bucketInterator;
 	private CopyBucketReceipts receipts;
 	private LockedBucketCopier lockedCopier;
+	private JobJournal jobJournal;
 
 	private LocalBucket localBucket;
 
@@ -38,9 +46,10 @@ public class ColdBucketCopierTest {
 		bucketInterator = mock(ColdBucketInterator.class);
 		receipts = mock(CopyBucketReceipts.class);
 		lockedCopier = mock(LockedBucketCopier.class);
+		jobJournal = mock(JobJournal.class);
 
 		coldBucketCopier = new ColdBucketCopier(bucketInterator, receipts,
-				lockedCopier);
+				lockedCopier, jobJournal);
 
 		localBucket = TUtilsBucket.createBucket();
 	}
@@ -58,6 +67,21 @@ public class ColdBucketCopierTest {
 		verify(lockedCopier).copyBucket(localBucket);
 	}
 
+	public void copyColdBucket_givenBucketWithoutReceipt_marksJobStartedBeforeCopying() {
+		coldBucketCopier.copyColdBucket(localBucket);
+
+		InOrder inOrder = inOrder(jobJournal, lockedCopier);
+		inOrder.verify(jobJournal).markStarted(JobType.COPY, localBucket);
+		inOrder.verify(jobJournal).flush();
+		inOrder.verify(lockedCopier).copyBucket(localBucket);
+	}
+
+	public void copyColdBucket_lockedCopierCopiedBucket_marksJobCompleted() {
+		when(lockedCopier.copyBucket(localBucket)).thenReturn(true);
+		coldBucketCopier.copyColdBucket(localBucket);
+		verify(jobJournal).markCompleted(JobType.COPY, localBucket);
+	}
+
 	public void copyColdBucket_givenBucketWithReceipt_doesNotCopyBucket() {
 		when(receipts.hasReceipt(localBucket)).thenReturn(true);
 		coldBucketCopier.copyColdBucket(localBucket);
@@ -76,4 +100,138 @@ public class ColdBucketCopierTest {
 		coldBucketCopier.copyColdBucket(bucketStartingWithNumber);
 		verifyZeroInteractions(lockedCopier);
 	}
+
+	public void copyBucketAndPendingBuckets_givenBucket_enqueuesCopyJobBeforeCopyingPendingBuckets() {
+		when(jobJournal.hasWalked(JobType.COPY, localBucket.getIndex()))
+				.thenReturn(true);
+		coldBucketCopier.copyBucketAndPendingBuckets(localBucket);
+
+		InOrder inOrder = inOrder(jobJournal);
+		inOrder.verify(jobJournal).enqueue(JobType.COPY, localBucket.getIndex(),
+				localBucket.getDirectory());
+		inOrder.verify(jobJournal).startPendingBuckets(JobType.COPY);
+		verifyZeroInteractions(bucketInterator);
+	}
+
+	public void copyBucketAndPendingBuckets_indexNotWalked_walksTheBucketsIndex() {
+		when(jobJournal.exists()).thenReturn(true);
+		when(jobJournal.hasWalked(JobType.COPY, localBucket.getIndex()))
+				.thenReturn(false);
+		when(bucketInterator.coldBucketsAtIndex(localBucket.getIndex()))
+				.thenReturn(Collections.<LocalBucket> emptyList());
+		coldBucketCopier.copyBucketAndPendingBuckets(localBucket);
+
+		verify(bucketInterator).coldBucketsAtIndex(localBucket.getIndex());
+	}
+
+	public void copyPendingBuckets_lockedCopierCopiedPendingBucket_marksJobCompleted() {
+		when(jobJournal.startPendingBuckets(JobType.COPY)).thenReturn(
+				asList(localBucket));
+		when(lockedCopier.copyBuckets(asList(localBucket))).thenReturn(
+				asList(localBucket));
+
+		coldBucketCopier.copyPendingBuckets();
+
+		verify(receipts, times(1)).hasReceipt(localBucket);
+		verify(jobJournal).markCompleted(JobType.COPY, localBucket);
+	}
+
+	public void copyPendingBuckets_lockedCopierDidNotCopyPendingBucket_marksJobFailed() {
+		when(jobJournal.startPendingBuckets(JobType.COPY)).thenReturn(
+				asList(localBucket));
+		when(lockedCopier.copyBuckets(asList(localBucket))).thenReturn(
+				Collections.<LocalBucket> emptyList());
+
+		coldBucketCopier.copyPendingBuckets();
+
+		verify(jobJournal).markFailed(JobType.COPY, localBucket);
+	}
+
+	public void copyPendingBuckets_lockedCopierThrows_marksJobFailed() {
+		when(jobJournal.startPendingBuckets(JobType.COPY)).thenReturn(
+				asList(localBucket));
+		when(lockedCopier.copyBuckets(asList(localBucket))).thenThrow(
+				new RuntimeException());
+
+		try {
+			coldBucketCopier.copyPendingBuckets();
+		} catch (RuntimeException e) {
+		}
+
+		verify(jobJournal).markFailed(JobType.COPY, localBucket);
+	}
+
+	public void copyPendingBuckets_pendingReplicatedBucket_marksJobCompletedWithoutCopying() {
+		LocalBucket replicatedBucket = TUtilsBucket.createReplicatedBucket();
+		when(jobJournal.startPendingBuckets(JobType.COPY)).thenReturn(
+				asList(replicatedBucket));
+
+		coldBucketCopier.copyPendingBuckets();
+
+		verifyZeroInteractions(lockedCopier);
+		verify(jobJournal).markCompleted(JobType.COPY, replicatedBucket);
+	}
+
+	public void tryCopyingColdBuckets_givenMoreBucketsThanBatchSize_copiesInBatches() {
+		List<LocalBucket> coldBuckets = new ArrayList<LocalBucket>();
+		for (int i = 0; i < ColdBucketCopier.BATCH_SIZE + 1; i++)
+			coldBuckets.add(localBucket);
+		when(bucketInterator.coldBucketsAtIndex("index")).thenReturn(coldBuckets);
+
+		coldBucketCopier.tryCopyingColdBuckets("index");
+
+		verify(lockedCopier).copyBuckets(
+				coldBuckets.subList(0, ColdBucketCopier.BATCH_SIZE));
+		verify(lockedCopier).copyBuckets(asList(localBucket));
+	}
+
+	public void tryCopyingColdBuckets_givenIndex_marksJobsStartedBeforeCopying() {
+		when(bucketInterator.coldBucketsAtIndex("index")).thenReturn(
+				asList(localBucket));
+
+		coldBucketCopier.tryCopyingColdBuckets("index");
+
+		InOrder inOrder = inOrder(jobJournal, lockedCopier);
+		inOrder.verify(jobJournal).markStarted(JobType.COPY, localBucket);
+		inOrder.verify(jobJournal).flush();
+		inOrder.verify(lockedCopier).copyBuckets(asList(localBucket));
+	}
+
+	public void tryCopyingColdBuckets_walkedIndex_marksIndexWalked() {
+		when(bucketInterator.coldBucketsAtIndex("index")).thenReturn(
+				asList(localBucket));
+
+		coldBucketCopier.tryCopyingColdBuckets("index");
+
+		verify(jobJournal).markWalked(JobType.COPY, "index");
+	}
+
+	public void tryCopyingColdBuckets_walkThrows_doesNotMarkIndexWalked() {
+		when(bucketInterator.coldBucketsAtIndex("index")).thenThrow(
+				new RuntimeException());
+
+		try {
+			coldBucketCopier.tryCopyingColdBuckets("index");
+		} catch (RuntimeException e) {
+		}
+
+		verify(jobJournal, never()).markWalked(JobType.COPY, "index");
+	}
+
+	public void copyPendingBuckets_afterCopying_flushesJournal() {
+		coldBucketCopier.copyPendingBuckets();
+		verify(jobJournal).flush();
+	}
+
+	public void tryCopyingColdBuckets_givenIndex_checksReceiptOnceOnColdBuckets() {
+		when(bucketInterator.coldBucketsAtIndex("index")).thenReturn(
+				asList(localBucket));
+		when(lockedCopier.copyBuckets(asList(localBucket))).thenReturn(
+				asList(localBucket));
+
+		coldBucketCopier.tryCopyingColdBuckets("index");
+
+		verify(receipts, times(1)).hasReceipt(localBucket);
+		verify(jobJournal).markCompleted(JobType.COPY, localBucket);
+	}
 }
@@ -15,6 +15,7 @@
 package com.splunk.shuttl.archiver.copy;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
@@ -64,6 +65,42 @@ public class LockedBucketCopierTest {
 		verify(receipts, never()).createReceipt(bucket);
 	}
 
+	public void copyBucket_successfulBucketCopy_true() {
+		assertTrue(copyBucketEntryPoint.copyBucket(bucket));
+	}
+
+	public void copyBucket_endpointCallThrows_false() {
+		doThrow(RuntimeException.class).when(endpoint).call(bucket);
+		assertFalse(copyBucketEntryPoint.copyBucket(bucket));
+	}
+
+	public void copyBuckets_givenBuckets_createsReceiptsOnlyForCopiedBuckets() {
+		LocalBucket failedBucket = TUtilsBucket.createBucket();
+		when(endpoint.callWithBuckets(asList(bucket, failedBucket))).thenReturn(
+				asList(bucket));
+
+		copyBucketEntryPoint.copyBuckets(asList(bucket, failedBucket));
+
+		verify(receipts).createReceipt(bucket);
+		verify(receipts, never()).createReceipt(failedBucket);
+	}
+
+	public void copyBuckets_givenBuckets_returnsOnlyCopiedBuckets() {
+		LocalBucket failedBucket = TUtilsBucket.createBucket();
+		when(endpoint.callWithBuckets(asList(bucket, failedBucket))).thenReturn(
+				asList(bucket));
+
+		assertEquals(asList(bucket),
+				copyBucketEntryPoint.copyBuckets(asList(bucket, failedBucket)));
+	}
+
+	public void copyBuckets_endpointCallThrows_doesNotCreateReceipts() {
+		when(endpoint.callWithBuckets(asList(bucket))).thenThrow(
+				new RuntimeException());
+		assertTrue(copyBucketEntryPoint.copyBuckets(asList(bucket)).isEmpty());
+		verifyZeroInteractions(receipts);
+	}
+
 	public void copyBucket_notGivenBucketLock_doesNothingWithDependencies() {
 		final Runnable runnableForVerification = mock(Runnable.class);
 
@@ -247,6 +247,7 @@ public class ArchiverEndToEndTest {
 		assertEquals(latest, bucketToFreeze.getLatest());
 
 		archivesBucket.archiveBucket(bucketToFreeze);
+		TUtilsFunctional.waitForAsyncArchiving();
 
 		verifyFreezeByListingBucketInArchive(bucketToFreeze);
 
@@ -227,4 +227,18 @@ public class PathResolverTest {
 		assertEquals(indexesHomeParent, serversHome);
 	}
 
+	public void getMetadataLogHome_givenSetup_uniqueForIndexOutsideServerNamesHome() {
+		String metadataLogHome = pathResolver.getMetadataLogHome(bucketIndex);
+
+		assertEquals(ROOT_PATH + "/archive_meta_logs/" + clusterName + "/"
+				+ serverName + "/" + bucketIndex, metadataLogHome);
+		assertFalse(metadataLogHome.startsWith(pathResolver.getServerNamesHome()));
+	}
+
+	public void resolveTempPathForMetadataLog_givenSetup_metadataLogHomeInTempPath() {
+		assertEquals(ROOT_PATH + "/" + tmpDirectory
+				+ pathResolver.getMetadataLogHome(bucketIndex),
+				pathResolver.resolveTempPathForMetadataLog(bucketIndex));
+	}
+
 }
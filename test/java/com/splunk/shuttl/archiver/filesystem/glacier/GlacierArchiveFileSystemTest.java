@@ -15,50 +15,58 @@
 package com.splunk.shuttl.archiver.filesystem.glacier;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.apache.log4j.Logger;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.splunk.shuttl.archiver.archive.BucketDeleter;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierClient.WritesArchive;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.TransfersBuckets;
-import com.splunk.shuttl.archiver.importexport.tgz.TgzFormatExporter;
+import com.splunk.shuttl.archiver.importexport.tgz.StreamingTgzBucket;
+import com.splunk.shuttl.archiver.importexport.tgz.WritesBucketTgz;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
 public class GlacierArchiveFileSystemTest {
 
 	private GlacierClient glacierClient;
+	private GlacierArchiveFileSystem glacierArchiveFileSystem;
 	private TransfersBuckets glacierBucketTransferer;
 
 	private String temp;
 	private String dst;
-	private TgzFormatExporter tgzFormatExporter;
+	private WritesBucketTgz writesBucketTgz;
 	private Logger logger;
-	private BucketDeleter bucketDeleter;
 	private GlacierArchiveIdStore glacierArchiveIdStore;
 
 	@BeforeMethod
 	public void setUp() {
 		glacierClient = mock(GlacierClient.class);
-		tgzFormatExporter = mock(TgzFormatExporter.class);
+		writesBucketTgz = mock(WritesBucketTgz.class);
 		logger = mock(Logger.class);
-		bucketDeleter = mock(BucketDeleter.class);
 		glacierArchiveIdStore = mock(GlacierArchiveIdStore.class);
-		glacierBucketTransferer = new GlacierArchiveFileSystem(null, glacierClient,
-				tgzFormatExporter, logger, bucketDeleter, glacierArchiveIdStore)
-				.getBucketTransferer();
+		glacierArchiveFileSystem = new GlacierArchiveFileSystem(null,
+				glacierClient, writesBucketTgz, logger, glacierArchiveIdStore);
+		glacierBucketTransferer = glacierArchiveFileSystem.getBucketTransferer();
 
 		temp = "/path/temp";
 		dst = "/path/dst";
@@ -88,26 +96,64 @@ public class GlacierArchiveFileSystemTest {
 		return tgzBucket.getDirectory().listFiles()[0];
 	}
 
-	public void putBucket_givenSplunkBucket_exportBucketToTgzAndLogThisEventThenUploadTgz()
+	private WritesArchive captureUploadedArchive() throws IOException {
+		ArgumentCaptor<WritesArchive> archive = ArgumentCaptor
+				.forClass(WritesArchive.class);
+		verify(glacierClient).upload(eq(dst), archive.capture());
+		return archive.getValue();
+	}
+
+	public void putBucket_givenSplunkBucket_uploadsTgzOfBucketAndLogsThisEvent()
 			throws IOException {
 		LocalBucket bucket = TUtilsBucket.createBucket();
-		LocalBucket tgzBucket = TUtilsBucket.createTgzBucket();
-		when(tgzFormatExporter.exportBucket(bucket)).thenReturn(tgzBucket);
 		glacierBucketTransferer.put(bucket, temp, dst);
-		verify(glacierClient).upload(eq(getBucketFile(tgzBucket)), eq(dst));
+
+		OutputStream out = new ByteArrayOutputStream();
+		captureUploadedArchive().writeTo(out);
+		verify(writesBucketTgz).writeTgz(bucket, out);
 		verify(logger).warn(anyString());
+		verify(glacierClient, never()).upload(any(File.class), anyString());
 	}
 
-	public void putBucket_givenSplunkBucket_exportedBucketGetsUploadedThenDeleted()
+	public void putBucket_givenStreamingTgzBucket_uploadsTgzOfSourceBucketAndPersistsArchiveId()
 			throws IOException {
-		LocalBucket bucket = TUtilsBucket.createBucket();
-		LocalBucket tgzBucket = TUtilsBucket.createTgzBucket();
-		when(tgzFormatExporter.exportBucket(bucket)).thenReturn(tgzBucket);
-		glacierBucketTransferer.put(bucket, temp, dst);
-		InOrder inOrder = inOrder(glacierClient, bucketDeleter);
-		inOrder.verify(glacierClient).upload(eq(getBucketFile(tgzBucket)), eq(dst));
-		inOrder.verify(bucketDeleter).deleteBucket(tgzBucket);
-		inOrder.verifyNoMoreInteractions();
+		LocalBucket source = TUtilsBucket.createBucket();
+		StreamingTgzBucket streamingBucket = new StreamingTgzBucket(
+				createDirectory(), source, writesBucketTgz);
+		when(glacierClient.getArchiveId(dst)).thenReturn("archiveId");
+		glacierBucketTransferer.put(streamingBucket, temp, dst);
+
+		OutputStream out = new ByteArrayOutputStream();
+		captureUploadedArchive().writeTo(out);
+		verify(writesBucketTgz).writeTgz(eq(source), any(OutputStream.class));
+		verify(glacierArchiveIdStore).putArchiveId(streamingBucket, "archiveId");
+	}
+
+	public void putBucket_givenStreamingTgzBucket_sizeIsBytesUploaded()
+			throws IOException {
+		StreamingTgzBucket streamingBucket = new StreamingTgzBucket(
+				createDirectory(), TUtilsBucket.createBucket(), writesBucketTgz);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write(new byte[7]);
+				return null;
+			}
+		}).when(writesBucketTgz).writeTgz(any(LocalBucket.class),
+				any(OutputStream.class));
+		glacierBucketTransferer.put(streamingBucket, temp, dst);
+
+		captureUploadedArchive().writeTo(new ByteArrayOutputStream());
+		assertEquals(streamingBucket.getSize(), (Long) 7L);
+	}
+
+	@Test(expectedExceptions = { GlacierArchivingException.class })
+	public void putBucket_uploadingTgzThrows_wrapsExceptionInGlacierArchivingException()
+			throws IOException {
+		doThrow(IOException.class).when(glacierClient).upload(anyString(),
+				any(WritesArchive.class));
+		glacierBucketTransferer.put(TUtilsBucket.createBucket(), temp, dst);
 	}
 
 	public void getBucket_bucket_getTheFileInTheBucketWhichIsTheGlacierArchiveByUsingTheExtensionToTheBucketFormat()
@@ -162,4 +208,42 @@ public class GlacierArchiveFileSystemTest {
 		glacierBucketTransferer.get(TUtilsBucket.createRemoteBucket(),
 				createDirectory(), mock(File.class));
 	}
+
+	private Bucket createRemoteBucketAt(String path) {
+		return new RemoteBucket(path, "index", "db_2_1_0",
+				BucketFormat.SPLUNK_BUCKET_TGZ);
+	}
+
+	public void requestRetrieval_givenBuckets_requestsRetrievalOfEachBucketPath() {
+		Bucket bucket1 = createRemoteBucketAt("/archive/bucket1");
+		Bucket bucket2 = createRemoteBucketAt("/archive/bucket2");
+
+		glacierArchiveFileSystem.requestRetrieval(asList(bucket1, bucket2));
+		verify(glacierClient).requestRetrieval(bucket1.getPath());
+		verify(glacierClient).requestRetrieval(bucket2.getPath());
+	}
+
+	public void requestRetrieval_archiveIdDoesNotExist_putsArchiveIdFromStoreBeforeRequesting() {
+		Bucket remoteBucket = TUtilsBucket.createRemoteBucket();
+		String key = remoteBucket.getPath();
+		when(glacierClient.getArchiveId(key)).thenThrow(
+				new GlacierArchiveIdDoesNotExist("msg"));
+		when(glacierArchiveIdStore.getArchiveId(remoteBucket)).thenReturn(
+				"archiveId");
+
+		glacierArchiveFileSystem.requestRetrieval(asList(remoteBucket));
+		InOrder inOrder = inOrder(glacierClient);
+		inOrder.verify(glacierClient).putArchiveId(key, "archiveId");
+		inOrder.verify(glacierClient).requestRetrieval(key);
+	}
+
+	public void requestRetrieval_requestingBucketThrows_stillRequestsTheOtherBuckets() {
+		Bucket failing = createRemoteBucketAt("/archive/failing");
+		Bucket other = createRemoteBucketAt("/archive/other");
+		doThrow(RuntimeException.class).when(glacierClient).requestRetrieval(
+				failing.getPath());
+
+		glacierArchiveFileSystem.requestRetrieval(asList(failing, other));
+		verify(glacierClient).requestRetrieval(other.getPath());
+	}
 }
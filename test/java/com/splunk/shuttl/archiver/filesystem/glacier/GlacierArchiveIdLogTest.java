@@ -0,0 +1,111 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+
+@Test(groups = { "fast-unit" })
+public class GlacierArchiveIdLogTest {
+
+	private File logFile;
+	private GlacierArchiveIdLog archiveIdLog;
+
+	@BeforeMethod
+	public void setUp() {
+		logFile = new File(createDirectory(), "archive-ids.log");
+		archiveIdLog = createLog();
+	}
+
+	private GlacierArchiveIdLog createLog() {
+		return new GlacierArchiveIdLog(logFile, new HashMap<String, String>());
+	}
+
+	public void get_nothingPut_null() {
+		assertNull(archiveIdLog.get("/path"));
+	}
+
+	public void get_putInAnotherLogOnTheSameFile_getsArchiveId() {
+		archiveIdLog.put("/path", "archiveId");
+		assertEquals(createLog().get("/path"), "archiveId");
+	}
+
+	public void get_pathPutTwice_getsLastArchiveIdAfterLoading() {
+		archiveIdLog.put("/path", "first");
+		archiveIdLog.put("/path", "second");
+		assertEquals(archiveIdLog.get("/path"), "second");
+		assertEquals(createLog().get("/path"), "second");
+	}
+
+	public void putAll_manyArchiveIds_appendsAllToTheLog() throws IOException {
+		Map<String, String> archiveIds = new HashMap<String, String>();
+		archiveIds.put("/a", "1");
+		archiveIds.put("/b", "2");
+		archiveIdLog.putAll(archiveIds);
+
+		assertEquals(FileUtils.readLines(logFile).size(), 2);
+		assertEquals(createLog().size(), 2);
+	}
+
+	public void load_logEndsWithIncompleteLine_removesTheIncompleteLine()
+			throws IOException {
+		FileUtils.writeStringToFile(logFile, "/a\t1\n/b\tincompl");
+
+		assertEquals(archiveIdLog.get("/a"), "1");
+		assertNull(archiveIdLog.get("/b"));
+		assertEquals(FileUtils.readFileToString(logFile), "/a\t1\n");
+	}
+
+	public void load_mostLinesSuperseded_compactsLogToOneSortedLinePerPath()
+			throws IOException {
+		FileUtils.writeStringToFile(logFile, "/b\t1\n/a\t1\n/b\t2\n/b\t3\n/b\t4\n"
+				+ "/a\t2\n");
+
+		archiveIdLog.load();
+		assertEquals(FileUtils.readLines(logFile), asList("/a\t2", "/b\t4"));
+	}
+
+	public void load_fewLinesSuperseded_doesNotRewriteLog() throws IOException {
+		String log = "/b\t1\n/a\t1\n/b\t2\n";
+		FileUtils.writeStringToFile(logFile, log);
+
+		archiveIdLog.load();
+		assertEquals(FileUtils.readFileToString(logFile), log);
+	}
+
+	public void createInMemory_put_putsInTheMap() {
+		Map<String, String> archiveIds = new HashMap<String, String>();
+		GlacierArchiveIdLog.createInMemory(archiveIds).put("/path", "archiveId");
+		assertEquals(archiveIds.get("/path"), "archiveId");
+	}
+
+	public void getSharedInstance_samePaths_sameInstance() {
+		LocalFileSystemPaths paths = new LocalFileSystemPaths(createDirectory());
+		assertSame(GlacierArchiveIdLog.getSharedInstance(paths),
+				GlacierArchiveIdLog.getSharedInstance(paths));
+	}
+}
@@ -15,11 +15,14 @@
 package com.splunk.shuttl.archiver.filesystem.glacier;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +34,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.glacier.transfer.ArchiveTransferManager;
 import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.splunk.shuttl.archiver.filesystem.glacier.GlacierClient.WritesArchive;
 
 @Test(groups = { "fast-unit" })
 public class GlacierClientTest {
@@ -63,6 +67,103 @@ public class GlacierClientTest {
 		assertEquals(archiveId, glacierClient.getArchiveId(dst));
 	}
 
+	public void upload_givenWritesArchiveWithoutUploader_uploadsWrittenBytesWithTransferManager()
+			throws IOException {
+		String dst = "/path/dst";
+		UploadResult uploadResult = mock(UploadResult.class);
+		when(uploadResult.getArchiveId()).thenReturn("archiveId");
+		when(transferManager.upload(eq(vault), eq(dst), any(File.class)))
+				.thenReturn(uploadResult);
+
+		glacierClient.upload(dst, mock(WritesArchive.class));
+		assertEquals("archiveId", glacierClient.getArchiveId(dst));
+	}
+
+	public void upload_givenWritesArchiveWithUploader_storesArchiveIdOfUpload()
+			throws IOException {
+		GlacierUpload upload = mock(GlacierUpload.class);
+		when(upload.getArchiveId()).thenReturn("archiveId");
+		String dst = "/path/dst";
+		glacierClient = createClientWithUpload(dst, upload);
+		WritesArchive archive = mock(WritesArchive.class);
+
+		glacierClient.upload(dst, archive);
+		InOrder inOrder = inOrder(archive, upload);
+		inOrder.verify(archive).writeTo(upload);
+		inOrder.verify(upload).close();
+		verify(upload, never()).abort();
+		assertEquals("archiveId", glacierClient.getArchiveId(dst));
+	}
+
+	public void upload_writingArchiveThrows_abortsUploadAndRethrows()
+			throws IOException {
+		GlacierUpload upload = mock(GlacierUpload.class);
+		String dst = "/path/dst";
+		glacierClient = createClientWithUpload(dst, upload);
+		WritesArchive archive = mock(WritesArchive.class);
+		IOException exception = new IOException();
+		doThrow(exception).when(archive).writeTo(any(OutputStream.class));
+
+		try {
+			glacierClient.upload(dst, archive);
+			fail();
+		} catch (IOException e) {
+			assertEquals(exception, e);
+		}
+		verify(upload).abort();
+		assertFalse(archiveIds.containsKey(dst));
+	}
+
+	private GlacierClient createClientWithUpload(String dst,
+			GlacierUpload upload) {
+		GlacierMultipartUploader uploader = mock(GlacierMultipartUploader.class);
+		when(uploader.openUpload(vault, dst)).thenReturn(upload);
+		return new GlacierClient(transferManager, vault, archiveIds, uploader);
+	}
+
+	public void requestRetrieval_givenRetrievals_startsRetrievalOfTheArchive() {
+		GlacierRetrievals retrievals = mock(GlacierRetrievals.class);
+		glacierClient = createClientWithRetrievals(retrievals);
+		glacierClient.putArchiveId("/path", "archiveId");
+
+		glacierClient.requestRetrieval("/path");
+		verify(retrievals).start(vault, "archiveId");
+	}
+
+	public void requestRetrieval_noRetrievals_doesNothing() {
+		glacierClient.requestRetrieval("/path/doesNotExist");
+		verifyZeroInteractions(transferManager);
+	}
+
+	public void download_retrievalStarted_downloadsWithRetrievals()
+			throws IOException {
+		GlacierRetrievals retrievals = mock(GlacierRetrievals.class);
+		when(retrievals.isStarted("archiveId")).thenReturn(true);
+		glacierClient = createClientWithRetrievals(retrievals);
+		glacierClient.putArchiveId("/path", "archiveId");
+		File file = createFilePath();
+
+		glacierClient.downloadArchiveToFile("/path", file);
+		verify(retrievals).download(vault, "archiveId", file);
+		verifyZeroInteractions(transferManager);
+	}
+
+	public void download_retrievalNotStarted_downloadsWithTransferManager() {
+		GlacierRetrievals retrievals = mock(GlacierRetrievals.class);
+		glacierClient = createClientWithRetrievals(retrievals);
+		glacierClient.putArchiveId("/path", "archiveId");
+		File file = createFilePath();
+
+		glacierClient.downloadArchiveToFile("/path", file);
+		verify(transferManager).download(vault, "archiveId", file);
+	}
+
+	private GlacierClient createClientWithRetrievals(
+			GlacierRetrievals retrievals) {
+		return new GlacierClient(transferManager, vault,
+				GlacierArchiveIdLog.createInMemory(archiveIds), null, retrievals);
+	}
+
 	@Test(expectedExceptions = { GlacierArchiveIdDoesNotExist.class })
 	public void getArchiveId_doesNotContainPath_throws() {
 		glacierClient.getArchiveId("/path/doesNotExist");
@@ -0,0 +1,91 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class GlacierInventoryImporterTest {
+
+	private Map<String, String> archiveIds;
+	private GlacierInventoryImporter importer;
+
+	@BeforeMethod
+	public void setUp() {
+		archiveIds = new HashMap<String, String>();
+		importer = new GlacierInventoryImporter(
+				GlacierArchiveIdLog.createInMemory(archiveIds), new JsonFactory());
+	}
+
+	private int importInventory(String... archives) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"VaultARN\":\"arn:aws:glacier:vaults/vault\",")
+				.append("\"InventoryDate\":\"2013-01-01T00:00:00Z\",")
+				.append("\"ArchiveList\":[");
+		for (int i = 0; i < archives.length; i++)
+			json.append(i == 0 ? "" : ",").append(archives[i]);
+		json.append("]}");
+		return importer.importInventory(new ByteArrayInputStream(json.toString()
+				.getBytes("UTF-8")));
+	}
+
+	private String archive(String archiveId, String description,
+			String creationDate) {
+		return "{\"ArchiveId\":\"" + archiveId + "\",\"ArchiveDescription\":\""
+				+ description + "\",\"CreationDate\":\"" + creationDate
+				+ "\",\"Size\":1024,\"SHA256TreeHash\":\"abc\"}";
+	}
+
+	public void importInventory_givenArchives_importsDescriptionsAsPaths()
+			throws IOException {
+		int imported = importInventory(
+				archive("id1", "/archive/a", "2013-01-01T00:00:00Z"),
+				archive("id2", "/archive/b", "2013-01-01T00:00:00Z"));
+
+		assertEquals(imported, 2);
+		assertEquals(archiveIds.get("/archive/a"), "id1");
+		assertEquals(archiveIds.get("/archive/b"), "id2");
+	}
+
+	public void importInventory_pathWithSeveralArchives_importsMostRecentlyCreated()
+			throws IOException {
+		importInventory(archive("new", "/archive/a", "2013-02-01T00:00:00Z"),
+				archive("old", "/archive/a", "2013-01-01T00:00:00Z"));
+
+		assertEquals(archiveIds.get("/archive/a"), "new");
+	}
+
+	public void importInventory_archiveWithoutDescription_isNotImported()
+			throws IOException {
+		int imported = importInventory(archive("id", "", "2013-01-01T00:00:00Z"));
+
+		assertEquals(imported, 0);
+		assertTrue(archiveIds.isEmpty());
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void importInventory_notAJsonObject_throws() throws IOException {
+		importer.importInventory(new ByteArrayInputStream("[]".getBytes("UTF-8")));
+	}
+}
@@ -0,0 +1,151 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+@Test(groups = { "fast-unit" })
+public class GlacierMultipartUploaderTest {
+
+	private static final int PART_SIZE = TreeHash.CHUNK_SIZE;
+
+	private AmazonGlacier glacier;
+	private ExecutorService executorService;
+	private GlacierMultipartUploader uploader;
+
+	@BeforeMethod
+	public void setUp() {
+		glacier = mock(AmazonGlacier.class);
+		InitiateMultipartUploadResult init = new InitiateMultipartUploadResult();
+		init.setUploadId("upload");
+		when(glacier.initiateMultipartUpload(
+				any(InitiateMultipartUploadRequest.class))).thenReturn(init);
+		CompleteMultipartUploadResult done = new CompleteMultipartUploadResult();
+		done.setArchiveId("archive");
+		when(glacier.completeMultipartUpload(
+				any(CompleteMultipartUploadRequest.class))).thenReturn(done);
+		executorService = Executors.newFixedThreadPool(2);
+		uploader = new GlacierMultipartUploader(glacier, executorService,
+				PART_SIZE, 2, TransferThrottle.createUnlimited());
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	private byte[] writeBytes(GlacierUpload upload, int length)
+			throws IOException {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = (byte) i;
+		upload.write(bytes, 0, 1000);
+		upload.write(bytes, 1000, length - 1000);
+		return bytes;
+	}
+
+	public void close_twoAndAHalfPartsWritten_uploadsThreePartsWithTheirRanges()
+			throws IOException {
+		GlacierUpload upload = uploader.openUpload("vault", "/path/dst");
+		writeBytes(upload, PART_SIZE * 2 + PART_SIZE / 2);
+		upload.close();
+
+		ArgumentCaptor<UploadMultipartPartRequest> parts = ArgumentCaptor
+				.forClass(UploadMultipartPartRequest.class);
+		verify(glacier, times(3)).uploadMultipartPart(parts.capture());
+		List<String> ranges = new ArrayList<String>();
+		for (UploadMultipartPartRequest part : parts.getAllValues())
+			ranges.add(part.getRange());
+		assertTrue(ranges.contains("bytes 0-" + (PART_SIZE - 1) + "/*"));
+		assertTrue(ranges.contains("bytes " + PART_SIZE + "-"
+				+ (2 * PART_SIZE - 1) + "/*"));
+		assertTrue(ranges.contains("bytes " + 2 * PART_SIZE + "-"
+				+ (2 * PART_SIZE + PART_SIZE / 2 - 1) + "/*"));
+		assertEquals(upload.getArchiveId(), "archive");
+	}
+
+	public void close_bytesWritten_completesWithTheSizeAndTreeHashOfAllBytes()
+			throws IOException {
+		GlacierUpload upload = uploader.openUpload("vault", "/path/dst");
+		byte[] bytes = writeBytes(upload, PART_SIZE + 10);
+		upload.close();
+
+		TreeHash expected = new TreeHash();
+		expected.update(bytes, 0, bytes.length);
+		expected.finishChunk();
+		ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor
+				.forClass(CompleteMultipartUploadRequest.class);
+		verify(glacier).completeMultipartUpload(complete.capture());
+		assertEquals(complete.getValue().getArchiveSize(),
+				Integer.toString(bytes.length));
+		assertEquals(complete.getValue().getChecksum(), expected.getTreeHash());
+	}
+
+	public void close_partFails_throwsIOExceptionAndDoesNotComplete() {
+		when(glacier.uploadMultipartPart(any(UploadMultipartPartRequest.class)))
+				.thenThrow(new AmazonServiceException("failed"));
+		GlacierUpload upload = uploader.openUpload("vault", "/path/dst");
+		try {
+			writeBytes(upload, PART_SIZE + 10);
+			upload.close();
+			fail();
+		} catch (IOException e) {
+		}
+		verify(glacier, never()).completeMultipartUpload(
+				any(CompleteMultipartUploadRequest.class));
+	}
+
+	public void abort_notCompleted_abortsTheMultipartUpload() throws IOException {
+		GlacierUpload upload = uploader.openUpload("vault", "/path/dst");
+		writeBytes(upload, PART_SIZE + 10);
+		upload.abort();
+
+		verify(glacier).abortMultipartUpload(
+				any(AbortMultipartUploadRequest.class));
+	}
+
+	public void abort_completed_doesNothing() throws IOException {
+		GlacierUpload upload = uploader.openUpload("vault", "/path/dst");
+		writeBytes(upload, 2000);
+		upload.close();
+		upload.abort();
+
+		verify(glacier, never()).abortMultipartUpload(
+				any(AbortMultipartUploadRequest.class));
+	}
+}
@@ -0,0 +1,45 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class GlacierPropertiesTest {
+
+	private static final long MEGABYTE = 1024 * 1024;
+
+	public void getPartSize_notSet_defaultPartSize() {
+		assertEquals(new GlacierProperties(0).getPartSize(),
+				GlacierMultipartUploader.DEFAULT_PART_SIZE);
+	}
+
+	public void getPartSize_256Megabytes_256Megabytes() {
+		assertEquals(new GlacierProperties(256 * MEGABYTE).getPartSize(),
+				256 * MEGABYTE);
+	}
+
+	@Test(expectedExceptions = { InvalidGlacierConfigurationException.class })
+	public void getPartSize_512Megabytes_throws() {
+		new GlacierProperties(512 * MEGABYTE).getPartSize();
+	}
+
+	@Test(expectedExceptions = { InvalidGlacierConfigurationException.class })
+	public void getPartSize_notPowerOfTwo_throws() {
+		new GlacierProperties(24 * MEGABYTE).getPartSize();
+	}
+}
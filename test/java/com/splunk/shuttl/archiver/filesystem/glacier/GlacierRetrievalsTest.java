@@ -0,0 +1,135 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.InitiateJobResult;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+
+@Test(groups = { "fast-unit" })
+public class GlacierRetrievalsTest {
+
+	private AmazonGlacier glacier;
+	private GlacierRetrievals retrievals;
+	private byte[] archive;
+	private File file;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		glacier = mock(AmazonGlacier.class);
+		InitiateJobResult job = new InitiateJobResult();
+		job.setJobId("job");
+		when(glacier.initiateJob(any(InitiateJobRequest.class))).thenReturn(job);
+		retrievals = new GlacierRetrievals(glacier, 1,
+				TransferThrottle.createUnlimited());
+		archive = "archive".getBytes("UTF-8");
+		file = createFilePath();
+	}
+
+	private DescribeJobResult jobWithStatus(String status, boolean completed) {
+		DescribeJobResult job = new DescribeJobResult();
+		job.setStatusCode(status);
+		job.setCompleted(completed);
+		return job;
+	}
+
+	private void stubJobOutput(String checksum) {
+		GetJobOutputResult output = new GetJobOutputResult();
+		output.setBody(new ByteArrayInputStream(archive));
+		output.setChecksum(checksum);
+		when(glacier.getJobOutput(any(GetJobOutputRequest.class))).thenReturn(
+				output);
+	}
+
+	private String treeHashOfArchive() {
+		TreeHash treeHash = new TreeHash();
+		treeHash.update(archive, 0, archive.length);
+		treeHash.finishChunk();
+		return treeHash.getTreeHash();
+	}
+
+	public void start_sameArchiveTwice_startsOneJob() {
+		retrievals.start("vault", "archiveId");
+		retrievals.start("vault", "archiveId");
+
+		verify(glacier).initiateJob(any(InitiateJobRequest.class));
+		assertTrue(retrievals.isStarted("archiveId"));
+	}
+
+	public void isStarted_notStarted_false() {
+		assertFalse(retrievals.isStarted("archiveId"));
+	}
+
+	public void download_jobInProgressThenSucceeded_downloadsOutputWhenCompleted()
+			throws IOException {
+		retrievals.start("vault", "archiveId");
+		when(glacier.describeJob(any(DescribeJobRequest.class))).thenReturn(
+				jobWithStatus("InProgress", false), jobWithStatus("InProgress", false),
+				jobWithStatus("Succeeded", true));
+		stubJobOutput(treeHashOfArchive());
+
+		retrievals.download("vault", "archiveId", file);
+		verify(glacier, times(3)).describeJob(any(DescribeJobRequest.class));
+		assertEquals(FileUtils.readFileToByteArray(file), archive);
+		assertFalse(retrievals.isStarted("archiveId"));
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void download_jobFailed_throws() throws IOException {
+		retrievals.start("vault", "archiveId");
+		when(glacier.describeJob(any(DescribeJobRequest.class))).thenReturn(
+				jobWithStatus("Failed", true));
+
+		retrievals.download("vault", "archiveId", file);
+	}
+
+	public void download_treeHashDoesNotMatch_throwsAndDeletesFile() {
+		retrievals.start("vault", "archiveId");
+		when(glacier.describeJob(any(DescribeJobRequest.class))).thenReturn(
+				jobWithStatus("Succeeded", true));
+		stubJobOutput("not the tree hash");
+
+		try {
+			retrievals.download("vault", "archiveId", file);
+			fail();
+		} catch (IOException e) {
+		}
+		assertFalse(file.exists());
+		assertFalse(retrievals.isStarted("archiveId"));
+	}
+
+	@Test(expectedExceptions = { IllegalStateException.class })
+	public void download_notStarted_throws() throws IOException {
+		retrievals.download("vault", "archiveId", file);
+	}
+}
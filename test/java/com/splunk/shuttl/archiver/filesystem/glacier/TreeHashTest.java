@@ -0,0 +1,102 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.glacier;
+
+import static org.testng.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TreeHashTest {
+
+	private TreeHash treeHash;
+
+	@BeforeMethod
+	public void setUp() {
+		treeHash = new TreeHash();
+	}
+
+	private static byte[] sha256(byte[]... parts) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		for (byte[] part : parts)
+			digest.update(part);
+		return digest.digest();
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes)
+			hex.append(String.format("%02x", b & 0xff));
+		return hex.toString();
+	}
+
+	private static byte[] createBytes(int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = (byte) (i % 251);
+		return bytes;
+	}
+
+	public void getTreeHash_lessThanAChunk_isTheSha256OfTheBytes() {
+		treeHash.update("abc".getBytes(), 0, 3);
+		treeHash.finishChunk();
+
+		assertEquals(treeHash.getTreeHash(),
+				"ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+	}
+
+	public void getTreeHash_nothingWritten_isTheSha256OfNothing()
+			throws Exception {
+		assertEquals(treeHash.getTreeHash(), hex(sha256()));
+	}
+
+	public void getTreeHash_threeChunksWrittenInPieces_hashesPairsUpTheTree()
+			throws Exception {
+		int chunk = TreeHash.CHUNK_SIZE;
+		byte[] bytes = createBytes(2 * chunk + 10);
+		treeHash.update(bytes, 0, 100);
+		treeHash.update(bytes, 100, bytes.length - 100);
+		treeHash.finishChunk();
+
+		byte[] first = sha256(Arrays.copyOfRange(bytes, 0, chunk));
+		byte[] second = sha256(Arrays.copyOfRange(bytes, chunk, 2 * chunk));
+		byte[] third = sha256(Arrays.copyOfRange(bytes, 2 * chunk, bytes.length));
+		assertEquals(treeHash.getChunkCount(), 3);
+		assertEquals(treeHash.getTreeHash(), hex(sha256(sha256(first, second),
+				third)));
+	}
+
+	public void getTreeHash_rangeOfChunks_hashesOnlyTheRange() throws Exception {
+		int chunk = TreeHash.CHUNK_SIZE;
+		byte[] bytes = createBytes(3 * chunk);
+		treeHash.update(bytes, 0, bytes.length);
+
+		byte[] second = sha256(Arrays.copyOfRange(bytes, chunk, 2 * chunk));
+		byte[] third = sha256(Arrays.copyOfRange(bytes, 2 * chunk, 3 * chunk));
+		assertEquals(treeHash.getTreeHash(1, 3), hex(sha256(second, third)));
+	}
+
+	public void finishChunk_chunkAlreadyFinished_doesNotAddAnEmptyChunk() {
+		byte[] bytes = createBytes(TreeHash.CHUNK_SIZE);
+		treeHash.update(bytes, 0, bytes.length);
+		treeHash.finishChunk();
+
+		assertEquals(treeHash.getChunkCount(), 1);
+	}
+}
@@ -28,6 +28,10 @@ import org.apache.hadoop.fs.FileSystem;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.importexport.tgz.StreamingTgzFormatExporter;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
 import com.splunk.shuttl.testutil.TUtilsFile;
 import com.splunk.shuttl.testutil.TUtilsFileSystem;
 
@@ -148,6 +152,18 @@ public class HadoopArchiveFileSystemTest {
 		assertFalse(fileInDir.exists());
 	}
 
+	public void bucketTransactionCleaner_tempHasTransferManifest_keepsTempForResuming()
+			throws IOException {
+		File dir = createDirectoryInParent(createDirectory(), "temp");
+		File manifest = new File(ParallelDirectoryTransferer.getManifestPath(dir
+				.getAbsolutePath()));
+		assertTrue(manifest.createNewFile());
+		hadoopArchiveFileSystem.getBucketTransactionCleaner().cleanTransaction(
+				null, dir.getAbsolutePath());
+
+		assertTrue(dir.exists());
+	}
+
 	public void fileTransactionCleaner_existingFile_deletesFile() {
 		File file = createFile();
 		hadoopArchiveFileSystem.getFileTransactionCleaner().cleanTransaction(null,
@@ -171,4 +187,19 @@ public class HadoopArchiveFileSystemTest {
 	public void putFile_givenRelativeBucket_putsFile() {
 
 	}
+
+	public void putBucket_givenStreamingTgzBucket_writesTgzFileInTemp()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		LocalBucket tgzBucket = StreamingTgzFormatExporter.create(
+				new LocalFileSystemPaths(createDirectory())).exportBucket(bucket);
+		File temp = createFilePath();
+
+		hadoopArchiveFileSystem.getBucketTransferer().put(tgzBucket,
+				temp.getAbsolutePath(), createFilePath().getAbsolutePath());
+
+		File tgz = new File(temp, bucket.getName() + ".tgz");
+		assertTrue(tgz.exists());
+		assertNotEquals(0, tgz.length());
+	}
 }
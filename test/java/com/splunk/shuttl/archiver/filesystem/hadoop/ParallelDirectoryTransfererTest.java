@@ -0,0 +1,425 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.checksum.ChecksumMismatchException;
+import com.splunk.shuttl.archiver.checksum.Checksummer;
+import com.splunk.shuttl.archiver.checksum.FileChecksum;
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+
+@Test(groups = { "fast-unit" })
+public class ParallelDirectoryTransfererTest {
+
+	private ExecutorService executorService;
+	private ParallelDirectoryTransferer directoryTransferer;
+
+	@BeforeMethod
+	public void setUp() {
+		executorService = Executors.newFixedThreadPool(4);
+		directoryTransferer = new ParallelDirectoryTransferer(
+				TUtilsFileSystem.getLocalFileSystem(), executorService);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	public void put_givenDirectoryTree_putsAllFilesAndDirectories()
+			throws IOException {
+		File src = createDirectoryTree();
+		File dst = createFilePath();
+
+		directoryTransferer.put(src, new Path(dst.getAbsolutePath()));
+
+		assertSameTree(src, dst);
+	}
+
+	public void get_givenDirectoryTree_getsAllFilesAndDirectories()
+			throws IOException {
+		File src = createDirectoryTree();
+		File dst = createFilePath();
+
+		directoryTransferer.get(new Path(src.getAbsolutePath()), dst);
+
+		assertSameTree(src, dst);
+	}
+
+	public void put_givenFile_putsFileAtDestination() throws IOException {
+		File src = createFileWithRandomContent();
+		File dst = createFilePath();
+
+		directoryTransferer.put(src, new Path(dst.getAbsolutePath()));
+
+		assertTrue(FileUtils.contentEquals(src, dst));
+	}
+
+	public void get_givenEmptyDirectory_createsEmptyDirectory()
+			throws IOException {
+		File dst = createFilePath();
+		directoryTransferer.get(new Path(createDirectory().getAbsolutePath()),
+				dst);
+		assertTrue(dst.isDirectory());
+		assertTrue(isDirectoryEmpty(dst));
+	}
+
+	@Test(expectedExceptions = { FileNotFoundException.class })
+	public void put_srcDoesNotExist_throws() throws IOException {
+		directoryTransferer.put(createFilePath(), new Path(createFilePath()
+				.getAbsolutePath()));
+	}
+
+	@Test(expectedExceptions = { FileNotFoundException.class })
+	public void get_srcDoesNotExist_throws() throws IOException {
+		directoryTransferer.get(new Path(createFilePath().getAbsolutePath()),
+				createFilePath());
+	}
+
+	public void put_givenFilesOfDifferentSizes_startsWithTheLargestFile()
+			throws IOException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		when(fileSystem.create(any(Path.class), anyBoolean())).thenAnswer(
+				new Answer<FSDataOutputStream>() {
+					@Override
+					public FSDataOutputStream answer(
+							InvocationOnMock invocation)
+							throws Throwable {
+						return new FSDataOutputStream(new ByteArrayOutputStream(), null);
+					}
+				});
+		ExecutorService singleThread = Executors.newSingleThreadExecutor();
+		File dir = createDirectory();
+		FileUtils.writeStringToFile(createFileInParent(dir, "small"), "a");
+		FileUtils.writeStringToFile(createFileInParent(dir, "large"), "aaaaaaaa");
+		FileUtils.writeStringToFile(createFileInParent(dir, "medium"), "aaaa");
+		Path dst = new Path("/dst");
+
+		try {
+			new ParallelDirectoryTransferer(fileSystem, singleThread).put(dir, dst);
+		} finally {
+			singleThread.shutdownNow();
+		}
+
+		InOrder inOrder = inOrder(fileSystem);
+		inOrder.verify(fileSystem).mkdirs(dst);
+		inOrder.verify(fileSystem).create(new Path(dst, "large"), true);
+		inOrder.verify(fileSystem).create(new Path(dst, "medium"), true);
+		inOrder.verify(fileSystem).create(new Path(dst, "small"), true);
+	}
+
+	public void put_givenManifestOfEarlierPut_onlyPutsFilesThatAreNotDurable()
+			throws IOException {
+		File src = createDirectory();
+		File done = createFileInParent(src, "done");
+		File missing = createFileInParent(src, "missing");
+		FileUtils.writeStringToFile(done, "local");
+		FileUtils.writeStringToFile(missing, "local");
+		File dst = createDirectory();
+		File remoteDone = createFileInParent(dst, "done");
+		FileUtils.writeStringToFile(remoteDone, "remote");
+		TransferManifest manifest = new TransferManifest(src.getAbsolutePath());
+		manifest.setDurableBytes("/done", done.length(), done.lastModified(),
+				done.length());
+		File manifestFile = new File(ParallelDirectoryTransferer
+				.getManifestPath(dst.getAbsolutePath()));
+		FileUtils.writeStringToFile(manifestFile, manifest.format());
+
+		directoryTransferer.put(src, new Path(dst.getAbsolutePath()));
+
+		assertEquals(FileUtils.readFileToString(remoteDone), "remote");
+		assertEquals(FileUtils.readFileToString(new File(dst, "missing")),
+				"local");
+		assertFalse(manifestFile.exists());
+	}
+
+	public void put_givenManifestOfAnotherSource_putsEverythingAgain()
+			throws IOException {
+		File src = createDirectory();
+		FileUtils.writeStringToFile(createFileInParent(src, "file"), "local");
+		File dst = createDirectory();
+		File stale = createFileInParent(dst, "stale");
+		FileUtils.writeStringToFile(new File(ParallelDirectoryTransferer
+				.getManifestPath(dst.getAbsolutePath())), new TransferManifest(
+				"/other/source").format());
+
+		directoryTransferer.put(src, new Path(dst.getAbsolutePath()));
+
+		assertFalse(stale.exists());
+		assertEquals(FileUtils.readFileToString(new File(dst, "file")), "local");
+	}
+
+	public void get_givenManifestWithPartOfAFile_getsTheRestOfTheFile()
+			throws IOException {
+		directoryTransferer = new ParallelDirectoryTransferer(
+				TUtilsFileSystem.getLocalFileSystem(), executorService, 4);
+		File src = createDirectory();
+		File remote = createFileInParent(src, "journal");
+		FileUtils.writeStringToFile(remote, "0123456789");
+		File dst = createFilePath();
+		FileUtils.writeStringToFile(new File(dst, "journal"), "abcdXX");
+		TransferManifest manifest = new TransferManifest(new Path(
+				src.getAbsolutePath()).toString());
+		manifest.setDurableBytes("/journal", remote.length(),
+				remote.lastModified(), 4);
+		FileUtils.writeStringToFile(new File(ParallelDirectoryTransferer
+				.getManifestPath(dst.getAbsolutePath())), manifest.format());
+
+		directoryTransferer.get(new Path(src.getAbsolutePath()), dst);
+
+		assertEquals(FileUtils.readFileToString(new File(dst, "journal")),
+				"abcd456789");
+	}
+
+	public void get_srcFailsHalfWay_leavesManifestWithTheDurableChunks()
+			throws IOException {
+		directoryTransferer = new ParallelDirectoryTransferer(
+				TUtilsFileSystem.getLocalFileSystem(), executorService, 4);
+		File src = createFileWithRandomContent();
+		File dst = createFilePath();
+		FileSystem fileSystem = spy(TUtilsFileSystem.getLocalFileSystem());
+		doAnswer(new Answer<FSDataInputStream>() {
+			@Override
+			public FSDataInputStream answer(InvocationOnMock invocation)
+					throws Throwable {
+				FSDataInputStream in = (FSDataInputStream) invocation
+						.callRealMethod();
+				return new FSDataInputStream(new FailingAfter(in, 10));
+			}
+		}).when(fileSystem).open(any(Path.class));
+
+		try {
+			new ParallelDirectoryTransferer(fileSystem, executorService, 4).get(
+					new Path(src.getAbsolutePath()), dst);
+			fail();
+		} catch (IOException e) {
+		}
+
+		TransferManifest manifest = TransferManifest.parse(FileUtils
+				.readFileToString(new File(ParallelDirectoryTransferer
+						.getManifestPath(dst.getAbsolutePath()))));
+		assertEquals(manifest.getDurableBytes(src.getName(), src.length(),
+				fileSystem.getFileStatus(new Path(src.getAbsolutePath()))
+						.getModificationTime()), 8);
+	}
+
+	public void put_givenChecksumManifest_addsTheChecksumOfEveryFile()
+			throws IOException {
+		File src = createDirectoryTree();
+		File dst = createFilePath();
+		ChecksumManifest checksums = new ChecksumManifest();
+
+		directoryTransferer.put(src, new Path(dst.getAbsolutePath()), checksums);
+
+		assertEquals(checksums.getPaths(), new HashSet<String>(Arrays.asList(
+				"/a.tsidx", "/rawdata/journal.gz", "/rawdata/slicesv2.dat")));
+		assertEquals(checksums.get("/rawdata/journal.gz"), checksumOf(new File(
+				src, "rawdata/journal.gz")));
+	}
+
+	public void get_givenChecksumsOfThePut_getsAllFiles() throws IOException {
+		File src = createDirectoryTree();
+		File remote = createFilePath();
+		ChecksumManifest checksums = new ChecksumManifest();
+		directoryTransferer.put(src, new Path(remote.getAbsolutePath()),
+				checksums);
+		File dst = createFilePath();
+
+		directoryTransferer.get(new Path(remote.getAbsolutePath()), dst,
+				checksums);
+
+		assertSameTree(src, dst);
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void get_givenFileThatDoesNotMatchItsChecksum_throws()
+			throws IOException {
+		File src = createDirectoryTree();
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.put("/a.tsidx", new FileChecksum(1001, 0, "bad"));
+
+		directoryTransferer.get(new Path(src.getAbsolutePath()),
+				createFilePath(), checksums);
+	}
+
+	@Test(expectedExceptions = { ChecksumMismatchException.class })
+	public void get_givenChecksumOfFileThatDoesNotExist_throws()
+			throws IOException {
+		File src = createDirectoryTree();
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.put("/rawdata/missing", new FileChecksum(0, 0, "missing"));
+
+		directoryTransferer.get(new Path(src.getAbsolutePath()),
+				createFilePath(), checksums);
+	}
+
+	public void get_resumedFileWithCorruptPrefix_throwsAndGetsWholeFileOnRetry()
+			throws IOException {
+		directoryTransferer = new ParallelDirectoryTransferer(
+				TUtilsFileSystem.getLocalFileSystem(), executorService, 4);
+		File src = createDirectory();
+		File remote = createFileInParent(src, "journal");
+		FileUtils.writeStringToFile(remote, "0123456789");
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.put("/journal", checksumOf(remote));
+		File dst = createFilePath();
+		FileUtils.writeStringToFile(new File(dst, "journal"), "abcdXX");
+		TransferManifest manifest = new TransferManifest(new Path(
+				src.getAbsolutePath()).toString());
+		manifest.setDurableBytes("/journal", remote.length(),
+				remote.lastModified(), 4);
+		FileUtils.writeStringToFile(new File(ParallelDirectoryTransferer
+				.getManifestPath(dst.getAbsolutePath())), manifest.format());
+
+		try {
+			directoryTransferer.get(new Path(src.getAbsolutePath()), dst,
+					checksums);
+			fail();
+		} catch (ChecksumMismatchException e) {
+		}
+		directoryTransferer.get(new Path(src.getAbsolutePath()), dst, checksums);
+
+		assertEquals(FileUtils.readFileToString(new File(dst, "journal")),
+				"0123456789");
+	}
+
+	private FileChecksum checksumOf(File file) throws IOException {
+		byte[] bytes = FileUtils.readFileToByteArray(file);
+		Checksummer checksummer = new Checksummer();
+		checksummer.update(bytes, 0, bytes.length);
+		return checksummer.getChecksum();
+	}
+
+	private File createDirectoryTree() {
+		File dir = createDirectory();
+		File sub = createDirectoryInParent(dir, "rawdata");
+		createDirectoryInParent(dir, "empty");
+		populateFileWithRandomContent(createFileInParent(dir, "a.tsidx"));
+		populateFileWithRandomContent(createFileInParent(sub, "journal.gz"));
+		populateFileWithRandomContent(createFileInParent(sub, "slicesv2.dat"));
+		return dir;
+	}
+
+	private void assertSameTree(File expected, File actual) throws IOException {
+		assertTrue(actual.isDirectory());
+		String[] names = expected.list();
+		assertEquals(names.length, listWithoutChecksumFiles(actual));
+		for (String name : names) {
+			File e = new File(expected, name);
+			File a = new File(actual, name);
+			if (e.isDirectory())
+				assertSameTree(e, a);
+			else
+				assertTrue(FileUtils.contentEquals(e, a));
+		}
+	}
+
+	private int listWithoutChecksumFiles(File dir) {
+		int files = 0;
+		for (String name : dir.list())
+			if (!name.endsWith(".crc"))
+				files++;
+		return files;
+	}
+
+	/**
+	 * Seekable stream that throws after a number of bytes.
+	 */
+	private static class FailingAfter extends FilterInputStream implements
+			Seekable, PositionedReadable {
+
+		private long bytesLeft;
+
+		public FailingAfter(FSDataInputStream in, long bytes) {
+			super(in);
+			this.bytesLeft = bytes;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (bytesLeft <= 0)
+				throw new IOException("Connection reset");
+			int read = super.read(b, off, (int) Math.min(len, bytesLeft));
+			if (read > 0)
+				bytesLeft -= read;
+			return read;
+		}
+
+		private FSDataInputStream fsIn() {
+			return (FSDataInputStream) in;
+		}
+
+		@Override
+		public void seek(long pos) throws IOException {
+			fsIn().seek(pos);
+		}
+
+		@Override
+		public long getPos() throws IOException {
+			return fsIn().getPos();
+		}
+
+		@Override
+		public boolean seekToNewSource(long targetPos) throws IOException {
+			return fsIn().seekToNewSource(targetPos);
+		}
+
+		@Override
+		public int read(long position, byte[] buffer, int offset, int length)
+				throws IOException {
+			return fsIn().read(position, buffer, offset, length);
+		}
+
+		@Override
+		public void readFully(long position, byte[] buffer, int offset,
+				int length) throws IOException {
+			fsIn().readFully(position, buffer, offset, length);
+		}
+
+		@Override
+		public void readFully(long position, byte[] buffer) throws IOException {
+			fsIn().readFully(position, buffer);
+		}
+	}
+}
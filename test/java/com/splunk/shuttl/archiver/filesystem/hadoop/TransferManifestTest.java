@@ -0,0 +1,73 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.hadoop;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TransferManifestTest {
+
+	private TransferManifest manifest;
+
+	@BeforeMethod
+	public void setUp() {
+		manifest = new TransferManifest("/source/dir");
+	}
+
+	public void getDurableBytes_fileNotInManifest_zero() {
+		assertEquals(manifest.getDurableBytes("/a", 10, 1), 0);
+	}
+
+	public void getDurableBytes_sameLengthAndModificationTime_durableBytes() {
+		manifest.setDurableBytes("/a", 10, 1, 5);
+		assertEquals(manifest.getDurableBytes("/a", 10, 1), 5);
+	}
+
+	public void getDurableBytes_fileChangedSinceTransfer_zero() {
+		manifest.setDurableBytes("/a", 10, 1, 5);
+		assertEquals(manifest.getDurableBytes("/a", 11, 1), 0);
+		assertEquals(manifest.getDurableBytes("/a", 10, 2), 0);
+	}
+
+	public void parse_formattedManifest_equalManifest() {
+		manifest.setDurableBytes("/rawdata/journal.gz", 100, 2, 64);
+		manifest.setDurableBytes("/a b\tc", 7, 3, 7);
+
+		TransferManifest parsed = TransferManifest.parse(manifest.format());
+
+		assertEquals(parsed.getSource(), "/source/dir");
+		assertEquals(parsed.getPaths(),
+				new HashSet<String>(Arrays.asList("/rawdata/journal.gz", "/a b\tc")));
+		assertEquals(parsed.getDurableBytes("/rawdata/journal.gz", 100, 2), 64);
+		assertEquals(parsed.getDurableBytes("/a b\tc", 7, 3), 7);
+	}
+
+	public void parse_manifestCutOff_null() {
+		manifest.setDurableBytes("/a", 10, 1, 5);
+		String formatted = manifest.format();
+		assertNull(TransferManifest.parse(formatted.substring(0,
+				formatted.length() - 3)));
+	}
+
+	public void parse_notAManifest_null() {
+		assertNull(TransferManifest.parse("foo\nbar\n"));
+	}
+}
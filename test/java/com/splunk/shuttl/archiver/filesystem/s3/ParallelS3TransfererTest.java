@@ -0,0 +1,311 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+import com.splunk.shuttl.testutil.TUtilsFile;
+
+@Test(groups = { "fast-unit" })
+public class ParallelS3TransfererTest {
+
+	private static final String BUCKET = "bucket";
+	private static final long PART_SIZE = 10;
+
+	private AmazonS3 s3;
+	private ExecutorService executorService;
+	private ParallelS3Transferer transferer;
+
+	@BeforeMethod
+	public void setUp() {
+		s3 = mock(AmazonS3.class);
+		executorService = Executors.newFixedThreadPool(4);
+		transferer = new ParallelS3Transferer(s3, BUCKET, executorService,
+				PART_SIZE, TransferThrottle.createUnlimited());
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	private File createFileWithContent(String content) throws IOException {
+		File file = TUtilsFile.createFile();
+		FileUtils.writeStringToFile(file, content);
+		return file;
+	}
+
+	private void stubMultipartUpload() {
+		InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+		result.setUploadId("upload");
+		when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+				.thenReturn(result);
+	}
+
+	public void put_fileLargerThanPartSize_uploadsPartsAndCompletesUpload()
+			throws IOException {
+		stubMultipartUpload();
+		final List<String> parts = new ArrayList<String>();
+		when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(
+				new Answer<UploadPartResult>() {
+
+					@Override
+					public UploadPartResult answer(InvocationOnMock invocation)
+							throws Throwable {
+						UploadPartRequest request = (UploadPartRequest) invocation
+								.getArguments()[0];
+						String part = IOUtils.toString(request.getInputStream());
+						synchronized (parts) {
+							parts.add(request.getPartNumber() + ":" + part);
+						}
+						UploadPartResult result = new UploadPartResult();
+						result.setPartNumber(request.getPartNumber());
+						result.setETag("etag" + request.getPartNumber());
+						return result;
+					}
+				});
+
+		transferer.put(createFileWithContent("0123456789abcdefghijABCDE"), "key");
+
+		assertEquals(parts.size(), 3);
+		assertTrue(parts.containsAll(Arrays.asList("1:0123456789",
+				"2:abcdefghij", "3:ABCDE")));
+		ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor
+				.forClass(CompleteMultipartUploadRequest.class);
+		verify(s3).completeMultipartUpload(complete.capture());
+		List<PartETag> partETags = complete.getValue().getPartETags();
+		assertEquals(partETags.size(), 3);
+		for (int i = 0; i < 3; i++)
+			assertEquals(partETags.get(i).getETag(), "etag" + (i + 1));
+	}
+
+	public void put_fileSmallerThanPartSize_putsSingleObject()
+			throws IOException {
+		transferer.put(createFileWithContent("012345"), "key");
+
+		verify(s3).putObject(any(PutObjectRequest.class));
+		verify(s3, never()).initiateMultipartUpload(
+				any(InitiateMultipartUploadRequest.class));
+	}
+
+	public void put_directory_putsEveryFileUnderTheKeyAndMarksEmptyDirectories()
+			throws IOException {
+		File dir = TUtilsFile.createDirectory();
+		FileUtils.writeStringToFile(new File(dir, "a"), "a");
+		FileUtils.writeStringToFile(new File(dir, "sub/b"), "b");
+		assertTrue(new File(dir, "empty").mkdir());
+
+		transferer.put(dir, "key");
+
+		ArgumentCaptor<PutObjectRequest> puts = ArgumentCaptor
+				.forClass(PutObjectRequest.class);
+		verify(s3, times(3)).putObject(puts.capture());
+		List<String> keys = new ArrayList<String>();
+		for (PutObjectRequest put : puts.getAllValues())
+			keys.add(put.getKey());
+		assertTrue(keys.containsAll(Arrays.asList("key/a", "key/sub/b",
+				"key/empty/")));
+	}
+
+	public void put_partFails_abortsUploadAndThrowsIOException() {
+		stubMultipartUpload();
+		when(s3.uploadPart(any(UploadPartRequest.class))).thenThrow(
+				new AmazonServiceException("failed"));
+
+		try {
+			transferer.put(createFileWithContent("0123456789abcdefghij"), "key");
+			fail();
+		} catch (IOException e) {
+		}
+		verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(s3, never()).completeMultipartUpload(
+				any(CompleteMultipartUploadRequest.class));
+	}
+
+	public void get_objectLargerThanPartSize_getsRangesIntoTheFile()
+			throws IOException {
+		final String content = "0123456789abcdefghijABCDE";
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength(content.length());
+		when(s3.getObjectMetadata(BUCKET, "key")).thenReturn(metadata);
+		when(s3.getObject(any(GetObjectRequest.class))).thenAnswer(
+				new Answer<S3Object>() {
+
+					@Override
+					public S3Object answer(InvocationOnMock invocation)
+							throws Throwable {
+						long[] range = ((GetObjectRequest) invocation.getArguments()[0])
+								.getRange();
+						S3Object object = new S3Object();
+						object.setObjectContent(new ByteArrayInputStream(content
+								.substring((int) range[0], (int) range[1] + 1).getBytes()));
+						return object;
+					}
+				});
+		File dst = TUtilsFile.createFilePath();
+
+		transferer.get("key", dst);
+
+		assertEquals(FileUtils.readFileToString(dst), content);
+		verify(s3, times(3)).getObject(any(GetObjectRequest.class));
+	}
+
+	private void stubNoObject(String key) {
+		AmazonServiceException notFound = new AmazonServiceException("not found");
+		notFound.setStatusCode(404);
+		when(s3.getObjectMetadata(BUCKET, key)).thenThrow(notFound);
+	}
+
+	private ObjectListing createListing(String... keys) {
+		ObjectListing listing = new ObjectListing();
+		for (String key : keys) {
+			S3ObjectSummary summary = new S3ObjectSummary();
+			summary.setKey(key);
+			summary.setSize(0);
+			listing.getObjectSummaries().add(summary);
+		}
+		return listing;
+	}
+
+	public void get_directoryWithHadoopFolderMarker_makesTheMarkedDirectory()
+			throws IOException {
+		stubNoObject("key");
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing("key/sub_$folder$", "key/empty/"));
+		File dst = TUtilsFile.createFilePath();
+
+		transferer.get("key", dst);
+
+		assertTrue(new File(dst, "sub").isDirectory());
+		assertTrue(new File(dst, "empty").isDirectory());
+	}
+
+	@Test(expectedExceptions = { FileNotFoundException.class })
+	public void get_nothingWithTheKey_throwsFileNotFoundException()
+			throws IOException {
+		stubNoObject("key");
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing());
+
+		transferer.get("key", TUtilsFile.createFilePath());
+	}
+
+	public void move_directoryOverPages_copiesEveryObjectAndDeletesSources()
+			throws IOException {
+		stubNoObject("from");
+		ObjectListing first = createListing("from/a");
+		first.setTruncated(true);
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(first);
+		when(s3.listNextBatchOfObjects(first)).thenReturn(
+				createListing("from/sub/b"));
+
+		transferer.move("from", "to");
+
+		verify(s3).copyObject(BUCKET, "from/a", BUCKET, "to/a");
+		verify(s3).copyObject(BUCKET, "from/sub/b", BUCKET, "to/sub/b");
+		ArgumentCaptor<DeleteObjectsRequest> delete = ArgumentCaptor
+				.forClass(DeleteObjectsRequest.class);
+		verify(s3).deleteObjects(delete.capture());
+		assertEquals(delete.getValue().getKeys().size(), 2);
+	}
+
+	public void move_objectLargerThanPartSize_copiesPartsAndCompletesWithTheirETags()
+			throws IOException {
+		stubMultipartUpload();
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength(25);
+		when(s3.getObjectMetadata(BUCKET, "from")).thenReturn(metadata);
+		final List<String> ranges = new ArrayList<String>();
+		when(s3.copyPart(any(CopyPartRequest.class))).thenAnswer(
+				new Answer<CopyPartResult>() {
+
+					@Override
+					public CopyPartResult answer(InvocationOnMock invocation)
+							throws Throwable {
+						CopyPartRequest request = (CopyPartRequest) invocation
+								.getArguments()[0];
+						synchronized (ranges) {
+							ranges.add(request.getPartNumber() + ":"
+									+ request.getFirstByte() + "-" + request.getLastByte());
+						}
+						CopyPartResult result = new CopyPartResult();
+						result.setPartNumber(request.getPartNumber());
+						result.setETag("etag" + request.getPartNumber());
+						return result;
+					}
+				});
+
+		transferer.move("from", "to");
+
+		assertTrue(ranges.containsAll(Arrays.asList("1:0-9", "2:10-19",
+				"3:20-24")));
+		ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor
+				.forClass(CompleteMultipartUploadRequest.class);
+		verify(s3).completeMultipartUpload(complete.capture());
+		List<PartETag> partETags = complete.getValue().getPartETags();
+		assertEquals(partETags.size(), 3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(partETags.get(i).getPartNumber(), i + 1);
+			assertEquals(partETags.get(i).getETag(), "etag" + (i + 1));
+		}
+	}
+
+	public void getPartSize_objectWithMorePartsThanAllowed_growsThePartSize() {
+		long length = PART_SIZE * ParallelS3Transferer.MAX_PARTS * 3;
+		assertEquals(transferer.getPartSize(length), PART_SIZE * 3);
+		assertEquals(transferer.getPartSize(PART_SIZE), PART_SIZE);
+	}
+}
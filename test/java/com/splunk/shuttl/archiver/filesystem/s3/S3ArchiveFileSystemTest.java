@@ -0,0 +1,174 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.filesystem.s3;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.splunk.shuttl.archiver.filesystem.FileOverwriteException;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class S3ArchiveFileSystemTest {
+
+	private static final String BUCKET = "bucket";
+
+	private AmazonS3 s3;
+	private ParallelS3Transferer transferer;
+	private S3ArchiveFileSystem s3ArchiveFileSystem;
+
+	@BeforeMethod
+	public void setUp() {
+		s3 = mock(AmazonS3.class);
+		transferer = mock(ParallelS3Transferer.class);
+		s3ArchiveFileSystem = new S3ArchiveFileSystem(s3, BUCKET, transferer);
+	}
+
+	private ObjectListing createListing(List<String> commonPrefixes,
+			String... keys) {
+		ObjectListing listing = new ObjectListing();
+		if (commonPrefixes != null)
+			listing.setCommonPrefixes(commonPrefixes);
+		for (String key : keys) {
+			S3ObjectSummary summary = new S3ObjectSummary();
+			summary.setKey(key);
+			listing.getObjectSummaries().add(summary);
+		}
+		return listing;
+	}
+
+	public void toKey_absolutePathToDirectory_keyWithoutSlashes() {
+		assertEquals(S3ArchiveFileSystem.toKey("/archive/index/"), "archive/index");
+	}
+
+	public void listPath_directoryListedOverPages_listsChildrenOfEveryPage()
+			throws IOException {
+		ObjectListing first = createListing(asList("archive/db_1/"),
+				"archive/", "archive/file");
+		first.setTruncated(true);
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(first);
+		when(s3.listNextBatchOfObjects(first)).thenReturn(
+				createListing(asList("archive/db_2/"), "archive/db_3_$folder$"));
+
+		List<String> paths = s3ArchiveFileSystem.listPath("/archive");
+
+		assertEquals(paths, asList("/archive/db_1", "/archive/file",
+				"/archive/db_2", "/archive/db_3"));
+	}
+
+	public void listPath_object_listsTheObject() throws IOException {
+		when(transferer.getMetadataOrNull("archive/file")).thenReturn(
+				new ObjectMetadata());
+
+		assertEquals(s3ArchiveFileSystem.listPath("/archive/file"),
+				asList("/archive/file"));
+		verify(s3, never()).listObjects(any(ListObjectsRequest.class));
+	}
+
+	public void exists_objectsUnderThePath_true() throws IOException {
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing(null, "archive/db_1/file"));
+
+		assertTrue(s3ArchiveFileSystem.exists("/archive/db_1"));
+	}
+
+	public void exists_nothingAtThePath_false() throws IOException {
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing(null));
+
+		assertFalse(s3ArchiveFileSystem.exists("/archive/db_1"));
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void exists_serviceFails_throwsIOException() throws IOException {
+		when(transferer.getMetadataOrNull("archive")).thenThrow(
+				new AmazonServiceException("failed"));
+
+		s3ArchiveFileSystem.exists("/archive");
+	}
+
+	public void rename_givenPaths_movesTheKeys() throws IOException {
+		s3ArchiveFileSystem.rename("/temp/bucket", "/archive/bucket");
+
+		verify(transferer).move("temp/bucket", "archive/bucket");
+	}
+
+	public void putBucket_bucketOfManyFiles_putsTheBucketDirectoryToTheTempKey()
+			throws IOException {
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing(null));
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		createFileInParent(bucket.getDirectory(), "other.file");
+
+		s3ArchiveFileSystem.getBucketTransferer().put(bucket, "/temp/bucket",
+				"/archive/bucket");
+
+		verify(transferer).put(bucket.getDirectory().getAbsoluteFile(),
+				"temp/bucket");
+	}
+
+	public void putBucket_bucketOfOneFile_putsTheBucketStraightToTheDestinationKey()
+			throws IOException {
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing(null));
+		LocalBucket bucket = TUtilsBucket.createBucket();
+
+		s3ArchiveFileSystem.getBucketTransferer().put(bucket, "/temp/bucket",
+				"/archive/bucket");
+
+		verify(transferer).put(bucket.getDirectory().getAbsoluteFile(),
+				"archive/bucket");
+		verify(transferer, never()).put(any(File.class), eq("temp/bucket"));
+	}
+
+	public void putFile_givenFile_putsTheFileStraightToTheDestinationKey()
+			throws IOException {
+		when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(
+				createListing(null));
+		File file = createFile();
+
+		s3ArchiveFileSystem.getFileTransferer().put(file.getAbsolutePath(),
+				"/temp/file", "/archive/file");
+
+		verify(transferer).put(file.getAbsoluteFile(), "archive/file");
+	}
+
+	@Test(expectedExceptions = { FileOverwriteException.class })
+	public void putBucket_destinationExists_throwsFileOverwriteException()
+			throws IOException {
+		when(transferer.getMetadataOrNull("archive/bucket")).thenReturn(
+				new ObjectMetadata());
+
+		s3ArchiveFileSystem.getBucketTransferer().put(
+				TUtilsBucket.createBucket(), "/temp/bucket", "/archive/bucket");
+	}
+}
@@ -17,6 +17,8 @@ package com.splunk.shuttl.archiver.filesystem.transaction;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.IOException;
+
 import org.mockito.InOrder;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -63,4 +65,94 @@ public class TransactionExecuterTest {
 		}
 		verify(transaction).clean();
 	}
+
+	public void execute_givenTransactions_preparesAllThenCommitsAllThenCleansAll() {
+		Transaction other = mock(Transaction.class);
+		transactionExecuter.execute(transaction, other);
+
+		InOrder inOrder = inOrder(transaction, other);
+		inOrder.verify(transaction).prepare();
+		inOrder.verify(other).prepare();
+		inOrder.verify(transaction).commit();
+		inOrder.verify(other).commit();
+		inOrder.verify(transaction).clean();
+		inOrder.verify(other).clean();
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	public void execute_secondPrepareThrows_cleansAllButCommitsNone() {
+		Transaction other = mock(Transaction.class);
+		doThrow(new RuntimeException()).when(other).prepare();
+		try {
+			transactionExecuter.execute(transaction, other);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		verify(transaction, never()).commit();
+		verify(other, never()).commit();
+		verify(transaction).clean();
+		verify(other).clean();
+	}
+
+	public void execute_firstCleanThrows_stillCleansTheOthersAndThrows() {
+		Transaction other = mock(Transaction.class);
+		RuntimeException exception = new RuntimeException();
+		doThrow(exception).when(transaction).clean();
+		try {
+			transactionExecuter.execute(transaction, other);
+			fail();
+		} catch (RuntimeException e) {
+			assertSame(exception, e);
+		}
+		verify(other).clean();
+	}
+
+	public void execute_transactionsWithinAMissingDestination_asksForTheDestinationOnlyOncePerPhase()
+			throws IOException {
+		HasFileStructure fileStructure = mock(HasFileStructure.class);
+		String dst = "/archive/bucket";
+		when(fileStructure.exists(dst)).thenReturn(false);
+		AbstractTransaction<String> bucket = transaction(fileStructure,
+				"/temp/archive/bucket", dst);
+		AbstractTransaction<String> metadata = transaction(fileStructure,
+				"/temp/archive/bucket/metadata/size", dst + "/metadata/size");
+
+		transactionExecuter.execute(bucket, metadata);
+
+		verify(fileStructure, times(2)).exists(dst);
+		verify(fileStructure, never()).exists(dst + "/metadata/size");
+		verify(fileStructure).rename("/temp/archive/bucket", dst);
+		verify(fileStructure, never()).rename("/temp/archive/bucket/metadata/size",
+				dst + "/metadata/size");
+	}
+
+	public void execute_transactionsSharingTemp_makesTheDirectoriesOnce()
+			throws IOException {
+		HasFileStructure fileStructure = mock(HasFileStructure.class);
+		String temp = "/temp/path";
+		transactionExecuter.execute(transaction(fileStructure, temp, "/a"),
+				transaction(fileStructure, temp, "/b"));
+
+		verify(fileStructure, times(1)).mkdirs(temp);
+	}
+
+	public void execute_givenAbstractTransactions_restoresTheirFileStructuresAfterwards() {
+		HasFileStructure fileStructure = mock(HasFileStructure.class);
+		AbstractTransaction<String> t = transaction(fileStructure, "/temp", "/dst");
+		transactionExecuter.execute(t, mock(Transaction.class));
+
+		assertSame(fileStructure, t.getHasFileStructure());
+	}
+
+	@SuppressWarnings("unchecked")
+	private AbstractTransaction<String> transaction(
+			HasFileStructure fileStructure, String temp, String dst) {
+		return new AbstractTransaction<String>(fileStructure,
+				mock(TransactionCleaner.class), "data", temp, dst) {
+			@Override
+			protected void doTransferData(String data, String temp, String dst)
+					throws IOException {
+			}
+		};
+	}
 }
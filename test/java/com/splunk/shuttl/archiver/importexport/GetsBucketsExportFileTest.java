@@ -45,8 +45,14 @@ public class GetsBucketsExportFileTest {
 
 	public void __fileInExportDir() {
 		File file = getsBucketsExportFile.getExportFile(bucket, extension);
-		assertEquals(localFileSystemPaths.getExportDirectory(bucket),
-				file.getParentFile());
+		assertEquals(localFileSystemPaths.getExportDirectory(bucket), file
+				.getParentFile().getParentFile());
+	}
+
+	public void _differentExtensions_filesInDifferentDirectories() {
+		File file = getsBucketsExportFile.getExportFile(bucket, extension);
+		File otherFile = getsBucketsExportFile.getExportFile(bucket, "other");
+		assertNotEquals(file.getParentFile(), otherFile.getParentFile());
 	}
 
 	public void __parentDirectoryExists() {
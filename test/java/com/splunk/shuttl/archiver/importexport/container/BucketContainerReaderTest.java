@@ -0,0 +1,266 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class BucketContainerReaderTest {
+
+	private File bucketDir;
+	private File journal;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		bucketDir = TUtilsBucket.createBucket().getDirectory();
+		journal = new File(bucketDir, "rawdata/journal.gz");
+		FileUtils.writeByteArrayToFile(journal, randomBytes(10 * 1024));
+		FileUtils.writeStringToFile(new File(bucketDir, "1234-5678.tsidx"),
+				"tsidx tsidx tsidx tsidx tsidx tsidx");
+		FileUtils.writeStringToFile(new File(bucketDir, "Hosts.data"), "");
+		new File(bucketDir, "empty-dir").mkdir();
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		new Random().nextBytes(bytes);
+		return bytes;
+	}
+
+	private static File writeContainer(File directory) throws IOException {
+		File container = new File(createDirectory(), "bucket.sbc");
+		OutputStream out = new FileOutputStream(container);
+		try {
+			BucketContainerWriter writer = new BucketContainerWriter(out);
+			writer.putDirectory(directory);
+			writer.finish();
+		} finally {
+			out.close();
+		}
+		return container;
+	}
+
+	private static void assertDirectoryContentsEqual(File expected, File actual)
+			throws IOException {
+		for (File file : FileUtils.listFilesAndDirs(expected, TrueFileFilter.TRUE,
+				TrueFileFilter.TRUE)) {
+			String relative = expected.toURI().relativize(file.toURI()).getPath();
+			File restored = new File(actual, relative);
+			assertTrue(restored.exists(), relative);
+			if (file.isFile())
+				assertTrue(FileUtils.contentEquals(file, restored), relative);
+		}
+	}
+
+	public void extractTo_givenContainerOfDirectory_restoresAllFilesAndDirectories()
+			throws IOException {
+		File container = writeContainer(bucketDir);
+		File extracted = createDirectory();
+
+		BucketContainerReader.create(container).extractTo(extracted);
+
+		assertDirectoryContentsEqual(bucketDir, extracted);
+		assertTrue(new File(extracted, "empty-dir").isDirectory());
+	}
+
+	public void getEntries_givenCompressedFileAndOtherFile_storesCompressedAndDeflatesOther()
+			throws IOException {
+		BucketContainerReader reader = BucketContainerReader
+				.create(writeContainer(bucketDir));
+
+		assertEquals(ContainerEntry.STORED,
+				getEntry(reader, "rawdata/journal.gz").getMethod());
+		assertEquals(ContainerEntry.DEFLATED,
+				getEntry(reader, "1234-5678.tsidx").getMethod());
+		assertTrue(getEntry(reader, "rawdata/").isDirectory());
+	}
+
+	private ContainerEntry getEntry(BucketContainerReader reader, String name)
+			throws IOException {
+		for (ContainerEntry entry : reader.getEntries())
+			if (entry.getName().equals(name))
+				return entry;
+		fail("No entry named: " + name);
+		return null;
+	}
+
+	public void openEntry_givenEntry_readsOnlyThatFile() throws IOException {
+		BucketContainerReader reader = BucketContainerReader
+				.create(writeContainer(bucketDir));
+
+		InputStream in = reader.openEntry(getEntry(reader, "rawdata/journal.gz"));
+		try {
+			assertTrue(Arrays.equals(FileUtils.readFileToByteArray(journal),
+					IOUtils.toByteArray(in)));
+		} finally {
+			in.close();
+		}
+	}
+
+	public void extract_givenEntriesUnderRawdata_extractsOnlyRawdata()
+			throws IOException {
+		BucketContainerReader reader = BucketContainerReader
+				.create(writeContainer(bucketDir));
+		File extracted = createDirectory();
+
+		reader.extract(reader.getEntriesUnder("rawdata/"), extracted);
+
+		assertDirectoryContentsEqual(new File(bucketDir, "rawdata"), new File(
+				extracted, "rawdata"));
+		assertEquals(1, extracted.listFiles().length);
+	}
+
+	public void extract_givenEntriesWithSmallFileBetween_readsThemWithOneRange()
+			throws IOException {
+		assertEquals(1, rangesToExtractTsidxAndSlices());
+	}
+
+	public void extract_givenEntriesWithLargeFileBetween_readsThemWithARangeEach()
+			throws IOException {
+		FileUtils.writeByteArrayToFile(journal,
+				randomBytes((int) BucketContainerReader.MAX_SKIPPED_BYTES + 1));
+		assertEquals(2, rangesToExtractTsidxAndSlices());
+	}
+
+	/**
+	 * The journal is between the tsidx and the slices in the container.
+	 */
+	private int rangesToExtractTsidxAndSlices() throws IOException {
+		CountingSource source = new CountingSource(writeContainer(bucketDir));
+		BucketContainerReader reader = new BucketContainerReader(source);
+		List<ContainerEntry> entries = Arrays.asList(
+				getEntry(reader, "1234-5678.tsidx"),
+				getEntry(reader, "rawdata/slices.dat"));
+		int rangesToReadDirectory = source.ranges;
+		File extracted = createDirectory();
+
+		reader.extract(entries, extracted);
+
+		assertTrue(FileUtils.contentEquals(new File(bucketDir,
+				"rawdata/slices.dat"), new File(extracted, "rawdata/slices.dat")));
+		assertFalse(new File(extracted, "rawdata/journal.gz").exists());
+		return source.ranges - rangesToReadDirectory;
+	}
+
+	public void getEntries_givenDirectoryLargerThanTheTail_readsTheDirectory()
+			throws IOException {
+		File dir = createDirectory();
+		int files = 2000;
+		for (int i = 0; i < files; i++)
+			FileUtils.writeStringToFile(new File(dir,
+					"a-file-with-a-long-name-to-make-a-large-directory-" + i), "" + i);
+		File container = writeContainer(dir);
+		File extracted = createDirectory();
+
+		BucketContainerReader reader = BucketContainerReader.create(container);
+		reader.extractTo(extracted);
+
+		assertEquals(files, reader.getEntries().size());
+		assertDirectoryContentsEqual(dir, extracted);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void getEntries_givenCorruptDirectory_throws() throws IOException {
+		File container = writeContainer(bucketDir);
+		flipByteAt(container, container.length()
+				- BucketContainer.TRAILER_LENGTH - 1);
+
+		BucketContainerReader.create(container).getEntries();
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void getEntries_givenFileThatIsNotAContainer_throws()
+			throws IOException {
+		File file = createFileWithRandomContent();
+
+		BucketContainerReader.create(file).getEntries();
+	}
+
+	public void extractTo_givenCorruptFile_throws() throws IOException {
+		File container = writeContainer(bucketDir);
+		BucketContainerReader reader = BucketContainerReader.create(container);
+		flipByteAt(container, getEntry(reader, "rawdata/journal.gz").getOffset());
+
+		try {
+			BucketContainerReader.create(container).extractTo(createDirectory());
+			fail("Should have thrown");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("rawdata/journal.gz"));
+		}
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void extract_givenEntryNamedOutsideTheDirectory_throws()
+			throws IOException {
+		File container = writeContainer(bucketDir);
+		ContainerEntry entry = new ContainerEntry("../outside",
+				ContainerEntry.STORED, BucketContainer.MAGIC.length, 0, 0, 0, 0);
+
+		BucketContainerReader.create(container).extract(Arrays.asList(entry),
+				createDirectory());
+	}
+
+	private static void flipByteAt(File file, long position) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			int b = raf.read();
+			raf.seek(position);
+			raf.write(b ^ 0xff);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static class CountingSource implements ContainerSource {
+
+		private final ContainerSource source;
+		private int ranges = 0;
+
+		public CountingSource(File container) {
+			this.source = new LocalContainerSource(container);
+		}
+
+		@Override
+		public long getLength() throws IOException {
+			return source.getLength();
+		}
+
+		@Override
+		public InputStream openRange(long offset, long length) throws IOException {
+			ranges++;
+			return source.openRange(offset, length);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.container;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketFileCreator;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.importexport.container.ContainerImporter.ContainerImportFailedException;
+import com.splunk.shuttl.archiver.importexport.container.CreatesBucketContainer.ContainerCreationFailedException;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class ContainerFormatExporterTest {
+
+	private GetsBucketsExportFile getsBucketsExportFile;
+	private ContainerFormatExporter exporter;
+	private LocalBucket bucket;
+	private File container;
+
+	@BeforeMethod
+	public void setUp() {
+		getsBucketsExportFile = mock(GetsBucketsExportFile.class);
+		exporter = new ContainerFormatExporter(new CreatesBucketContainer(
+				TransferThrottle.createUnlimited(), getsBucketsExportFile),
+				BucketFileCreator.createForContainer());
+
+		bucket = TUtilsBucket.createBucket();
+		File exportDir = createDirectory();
+		container = new File(exportDir, bucket.getName() + ".sbc");
+		when(getsBucketsExportFile.getExportFile(bucket, "sbc")).thenReturn(
+				container);
+	}
+
+	public void exportBucket_givenBucket_bucketWithOneContainerFile() {
+		LocalBucket exported = exporter.exportBucket(bucket);
+
+		assertEquals(BucketFormat.SPLUNK_BUCKET_CONTAINER, exported.getFormat());
+		File[] files = exported.getDirectory().listFiles();
+		assertEquals(1, files.length);
+		assertEquals(bucket.getName() + ".sbc", files[0].getName());
+	}
+
+	public void importBucket_givenExportedBucket_restoresTheBucketsFiles()
+			throws IOException {
+		File original = createDirectory();
+		FileUtils.copyDirectory(bucket.getDirectory(), original);
+
+		LocalBucket exported = exporter.exportBucket(bucket);
+		LocalBucket imported = new ContainerImporter().importBucket(exported);
+
+		assertEquals(BucketFormat.SPLUNK_BUCKET, imported.getFormat());
+		assertFalse(new File(imported.getDirectory(), bucket.getName() + ".sbc")
+				.exists());
+		for (File file : FileUtils.listFiles(original, null, true)) {
+			String relative = original.toURI().relativize(file.toURI()).getPath();
+			File restored = new File(imported.getDirectory(), relative);
+			assertTrue(FileUtils.contentEquals(file, restored), relative);
+		}
+	}
+
+	public void createContainer_bucketDirectoryDoesNotExist_throwsAndNoTrashFilesExist()
+			throws IOException {
+		FileUtils.deleteDirectory(bucket.getDirectory());
+
+		try {
+			new CreatesBucketContainer(TransferThrottle.createUnlimited(),
+					getsBucketsExportFile).createContainer(bucket);
+			fail("Should have thrown");
+		} catch (ContainerCreationFailedException e) {
+			assertFalse(container.exists());
+		}
+	}
+
+	@Test(expectedExceptions = { ContainerImportFailedException.class })
+	public void importBucket_givenCorruptContainer_throws() throws IOException {
+		LocalBucket exported = exporter.exportBucket(bucket);
+		File file = exported.getDirectory().listFiles()[0];
+		FileUtils.writeStringToFile(file, "not a container");
+
+		new ContainerImporter().importBucket(exported);
+	}
+}
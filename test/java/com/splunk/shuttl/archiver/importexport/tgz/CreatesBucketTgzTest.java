@@ -15,19 +15,19 @@
 package com.splunk.shuttl.archiver.importexport.tgz;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
-import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
+import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTgz.TgzBucketCreationFailedException;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -35,47 +35,39 @@ import com.splunk.shuttl.testutil.TUtilsBucket;
 public class CreatesBucketTgzTest {
 
 	private CreatesBucketTgz createsBucketTgz;
-	private ShellExecutor shellExecutor;
+	private WritesBucketTgz writesBucketTgz;
 	private GetsBucketsExportFile getsBucketsExportFile;
 
-	private HashMap<String, String> emptyMap;
 	private LocalBucket bucket;
 	private File tgz;
 
 	@BeforeMethod
 	public void setUp() {
-		shellExecutor = mock(ShellExecutor.class);
+		writesBucketTgz = mock(WritesBucketTgz.class);
 		getsBucketsExportFile = mock(GetsBucketsExportFile.class);
-		createsBucketTgz = new CreatesBucketTgz(shellExecutor,
+		createsBucketTgz = new CreatesBucketTgz(writesBucketTgz,
 				getsBucketsExportFile);
 
-		emptyMap = new HashMap<String, String>();
 		bucket = TUtilsBucket.createBucket();
 		tgz = createFile();
 		when(getsBucketsExportFile.getExportFile(bucket, "tgz")).thenReturn(tgz);
 	}
 
-	public void _givenBucket_createsTarWithBucketNameAndTarExtension() {
-		String tgzBucketCmd = "tar -C "
-				+ bucket.getDirectory().getParentFile().getAbsolutePath() + " -c "
-				+ bucket.getDirectory().getName() + " | gzip -c > "
-				+ tgz.getAbsolutePath();
-		String[] cmd = { "/bin/sh", "-c", tgzBucketCmd };
+	public void _givenBucket_writesBucketTgzToTheExportFile() throws IOException {
+		File created = createsBucketTgz.createTgz(bucket);
 
-		when(shellExecutor.executeCommand(emptyMap, asList(cmd))).thenReturn(0);
-
-		createsBucketTgz.createTgz(bucket);
-
-		verify(shellExecutor).executeCommand(emptyMap, asList(cmd));
+		assertEquals(tgz, created);
+		verify(writesBucketTgz).writeTgz(eq(bucket), any(OutputStream.class));
 	}
 
-	@SuppressWarnings("unchecked")
-	public void _tarFails_throwsAndNoTrashFilesExist() {
-		when(shellExecutor.executeCommand(anyMap(), anyList())).thenReturn(1);
+	public void _tarFails_throwsAndNoTrashFilesExist() throws IOException {
+		doThrow(new IOException()).when(writesBucketTgz).writeTgz(eq(bucket),
+				any(OutputStream.class));
 
 		try {
 			createsBucketTgz.createTgz(bucket);
-		} catch (RuntimeException e) {
+			fail("Should have thrown");
+		} catch (TgzBucketCreationFailedException e) {
 			assertFalse(tgz.exists());
 		}
 	}
@@ -0,0 +1,86 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.ShellExecutor;
+
+@Test(groups = { "slow-unit" })
+public class ExtractsBucketTgzTest {
+
+	private ExtractsBucketTgz extractsBucketTgz;
+	private File bucketDir;
+	private File journal;
+	private File tgz;
+	private File extractDir;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		CompressorPool compressorPool = CompressorPool.create(2);
+		extractsBucketTgz = new ExtractsBucketTgz(compressorPool);
+		bucketDir = createDirectory();
+		journal = new File(createDirectoryInParent(bucketDir, "rawdata"),
+				"journal.gz");
+		WritesBucketTgzTest.writeRandomBytes(journal,
+				ParallelGzipOutputStream.BLOCK_SIZE * 2 + 5);
+		tgz = createFilePath();
+		extractDir = createDirectory();
+	}
+
+	public void extractTgz_tgzWrittenInJvm_extractsTheSameFiles()
+			throws IOException {
+		FileOutputStream out = new FileOutputStream(tgz);
+		try {
+			new WritesBucketTgz(CompressorPool.create(2)).writeTgz(bucketDir, out);
+		} finally {
+			out.close();
+		}
+
+		extractsBucketTgz.extractTgz(tgz, extractDir);
+
+		assertExtractedJournalIsTheSame();
+	}
+
+	public void extractTgz_tgzWrittenWithTarCommand_extractsTheSameFiles()
+			throws IOException {
+		int exit = ShellExecutor.getInstance().executeCommand(
+				new HashMap<String, String>(),
+				asList("tar", "-czf", tgz.getAbsolutePath(), "-C", bucketDir
+						.getParentFile().getAbsolutePath(), bucketDir.getName()));
+		assertEquals(0, exit);
+
+		extractsBucketTgz.extractTgz(tgz, extractDir);
+
+		assertExtractedJournalIsTheSame();
+	}
+
+	private void assertExtractedJournalIsTheSame() throws IOException {
+		File extracted = new File(extractDir, bucketDir.getName()
+				+ "/rawdata/journal.gz");
+		assertTrue(FileUtils.contentEquals(journal, extracted));
+	}
+}
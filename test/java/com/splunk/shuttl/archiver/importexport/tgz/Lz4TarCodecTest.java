@@ -0,0 +1,53 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class Lz4TarCodecTest {
+
+	public void compress_givenData_decompressesToSameBytes() throws IOException {
+		Lz4TarCodec codec = Lz4TarCodec.create();
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			builder.append("bucket data ").append(i).append('\n');
+		byte[] data = builder.toString().getBytes("UTF-8");
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		OutputStream out = codec.compress(compressed);
+		out.write(data);
+		out.close();
+		byte[] decompressed = IOUtils.toByteArray(codec
+				.decompress(new ByteArrayInputStream(compressed.toByteArray())));
+
+		assertTrue(compressed.size() < data.length);
+		assertEquals(decompressed, data);
+	}
+
+	@Test(expectedExceptions = { IOException.class })
+	public void decompress_givenDataThatIsNotLz4_throws() throws IOException {
+		IOUtils.toByteArray(Lz4TarCodec.create().decompress(
+				new ByteArrayInputStream("not lz4".getBytes("UTF-8"))));
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.archiver.importexport.tgz.ParallelGzipOutputStreamTest.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ParallelGzipInputStreamTest {
+
+	private ExecutorService executor;
+
+	@BeforeMethod
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	public void read_parallelGzippedBlocks_inflatesToTheSameData()
+			throws IOException {
+		byte[] data = randomCompressibleBytes(
+				ParallelGzipOutputStream.BLOCK_SIZE * 4 + 11);
+
+		assertEquals(data, gunzip(parallelGzip(data)));
+	}
+
+	public void read_gzipFromOtherCompressor_inflatesToTheSameData()
+			throws IOException {
+		byte[] data = randomCompressibleBytes(100000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(data);
+		gzip.close();
+
+		assertEquals(data, gunzip(out.toByteArray()));
+	}
+
+	public void read_emptyParallelGzip_noData() throws IOException {
+		assertEquals(new byte[0], gunzip(parallelGzip(new byte[0])));
+	}
+
+	@Test(expectedExceptions = { ZipException.class })
+	public void read_corruptBlock_throwsZipException() throws IOException {
+		byte[] gzipped = parallelGzip(randomCompressibleBytes(1000));
+		gzipped[gzipped.length - 8] ^= 0xff;
+
+		gunzip(gzipped);
+	}
+
+	private byte[] parallelGzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				executor, 2);
+		gzip.write(data);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private byte[] gunzip(byte[] gzipped) throws IOException {
+		ParallelGzipInputStream in = new ParallelGzipInputStream(
+				new ByteArrayInputStream(gzipped), executor, 2);
+		try {
+			return IOUtils.toByteArray(in);
+		} finally {
+			in.close();
+		}
+	}
+}
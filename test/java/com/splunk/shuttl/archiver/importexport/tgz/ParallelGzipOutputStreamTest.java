@@ -0,0 +1,91 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class ParallelGzipOutputStreamTest {
+
+	private ExecutorService executor;
+
+	@BeforeMethod
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	public void write_dataSpanningManyBlocks_readableWithGZIPInputStream()
+			throws IOException {
+		byte[] data = randomCompressibleBytes(
+				ParallelGzipOutputStream.BLOCK_SIZE * 5 + 3);
+
+		byte[] gzipped = gzip(data);
+
+		assertEquals(data, gunzipWithJdk(gzipped));
+	}
+
+	public void finish_nothingWritten_isAnEmptyGzipStream() throws IOException {
+		byte[] gzipped = gzip(new byte[0]);
+
+		assertTrue(gzipped.length > 0);
+		assertEquals(new byte[0], gunzipWithJdk(gzipped));
+	}
+
+	public void write_compressibleData_isCompressed() throws IOException {
+		byte[] data = new byte[ParallelGzipOutputStream.BLOCK_SIZE * 2];
+
+		assertTrue(gzip(data).length < data.length / 100);
+	}
+
+	private byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+				executor, 2);
+		gzip.write(data);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private byte[] gunzipWithJdk(byte[] gzipped) throws IOException {
+		return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+				gzipped)));
+	}
+
+	static byte[] randomCompressibleBytes(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) ('a' + random.nextInt(4));
+		return data;
+	}
+}
@@ -0,0 +1,106 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.LocalFileSystemPaths;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.filesystem.WritesTempOutputStream;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class StreamingTgzFormatExporterTest {
+
+	private StreamingTgzFormatExporter exporter;
+	private WritesBucketTgz writesBucketTgz;
+	private LocalBucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		writesBucketTgz = mock(WritesBucketTgz.class);
+		exporter = new StreamingTgzFormatExporter(new GetsBucketsExportFile(
+				new LocalFileSystemPaths(createDirectory())), writesBucketTgz);
+		bucket = TUtilsBucket.createBucket();
+	}
+
+	public void exportBucket_givenBucket_tgzBucketWithSameNameIndexAndSize() {
+		LocalBucket tgzBucket = exporter.exportBucket(bucket);
+
+		assertEquals(BucketFormat.SPLUNK_BUCKET_TGZ, tgzBucket.getFormat());
+		assertEquals(bucket.getName(), tgzBucket.getName());
+		assertEquals(bucket.getIndex(), tgzBucket.getIndex());
+		assertEquals(bucket.getSize(), tgzBucket.getSize());
+	}
+
+	public void exportBucket_givenBucket_doesNotWriteTgzToDisk()
+			throws IOException {
+		LocalBucket tgzBucket = exporter.exportBucket(bucket);
+
+		assertTrue(isDirectoryEmpty(tgzBucket.getDirectory()));
+		assertNotEquals(bucket.getDirectory(), tgzBucket.getDirectory());
+		verifyZeroInteractions(writesBucketTgz);
+	}
+
+	public void putTgz_givenArchive_writesSourceBucketToTgzFileInTempDirectory()
+			throws IOException {
+		StreamingTgzBucket tgzBucket = (StreamingTgzBucket) exporter
+				.exportBucket(bucket);
+		WritesTempOutputStream archive = mock(WritesTempOutputStream.class);
+		OutputStream out = spy(new ByteArrayOutputStream());
+		when(archive.openTempOutputStream(anyString())).thenReturn(out);
+
+		tgzBucket.putTgz(archive, "/temp");
+
+		verify(archive).openTempOutputStream(
+				"/temp/" + bucket.getName() + ".tgz");
+		verify(writesBucketTgz).writeTgz(eq(bucket), any(OutputStream.class));
+		verify(out).close();
+	}
+
+	public void putTgz_tgzWritten_sizeIsBytesOfTgz() throws IOException {
+		StreamingTgzBucket tgzBucket = (StreamingTgzBucket) exporter
+				.exportBucket(bucket);
+		WritesTempOutputStream archive = mock(WritesTempOutputStream.class);
+		when(archive.openTempOutputStream(anyString())).thenReturn(
+				new ByteArrayOutputStream());
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((OutputStream) invocation.getArguments()[1]).write(new byte[3]);
+				return null;
+			}
+		}).when(writesBucketTgz).writeTgz(eq(bucket), any(OutputStream.class));
+
+		tgzBucket.putTgz(archive, "/temp");
+
+		assertEquals(tgzBucket.getSize(), (Long) 3L);
+	}
+}
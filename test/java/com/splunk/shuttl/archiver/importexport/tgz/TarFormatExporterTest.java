@@ -0,0 +1,112 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.BucketFileCreator;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.importexport.tgz.CreatesBucketTar.TarBucketCreationFailedException;
+import com.splunk.shuttl.archiver.importexport.tgz.TarImporter.TarImportFailedException;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class TarFormatExporterTest {
+
+	private ZstdTarCodec codec;
+	private GetsBucketsExportFile getsBucketsExportFile;
+	private TarFormatExporter exporter;
+	private LocalBucket bucket;
+	private File tar;
+
+	@BeforeMethod
+	public void setUp() {
+		codec = new ZstdTarCodec(ZstdTarCodec.DEFAULT_LEVEL, 1);
+		getsBucketsExportFile = mock(GetsBucketsExportFile.class);
+		exporter = new TarFormatExporter(new CreatesBucketTar(codec,
+				TransferThrottle.createUnlimited(), getsBucketsExportFile),
+				BucketFileCreator.createForZstd());
+
+		bucket = TUtilsBucket.createBucket();
+		File exportDir = createDirectory();
+		tar = new File(exportDir, bucket.getName() + ".tzst");
+		when(getsBucketsExportFile.getExportFile(bucket, "tzst")).thenReturn(tar);
+	}
+
+	public void exportBucket_givenBucket_bucketWithOneTarFileInCodecsFormat() {
+		LocalBucket exported = exporter.exportBucket(bucket);
+
+		assertEquals(BucketFormat.SPLUNK_BUCKET_ZSTD, exported.getFormat());
+		File[] files = exported.getDirectory().listFiles();
+		assertEquals(1, files.length);
+		assertEquals(bucket.getName() + ".tzst", files[0].getName());
+	}
+
+	public void importBucket_givenExportedBucket_restoresTheBucketsFiles()
+			throws IOException {
+		File original = createDirectory();
+		FileUtils.copyDirectory(bucket.getDirectory(), original);
+
+		LocalBucket exported = exporter.exportBucket(bucket);
+		LocalBucket imported = new TarImporter(codec).importBucket(exported);
+
+		assertEquals(BucketFormat.SPLUNK_BUCKET, imported.getFormat());
+		for (File file : FileUtils.listFiles(original, null, true)) {
+			String relative = original.toURI().relativize(file.toURI()).getPath();
+			File restored = new File(imported.getDirectory(), relative);
+			assertTrue(FileUtils.contentEquals(file, restored), relative);
+		}
+	}
+
+	public void createTar_compressFails_throwsAndNoTrashFilesExist() {
+		TarCodec failing = new ZstdTarCodec(ZstdTarCodec.DEFAULT_LEVEL, 1) {
+			@Override
+			public OutputStream compress(OutputStream out) throws IOException {
+				throw new IOException();
+			}
+		};
+		CreatesBucketTar createsBucketTar = new CreatesBucketTar(failing,
+				TransferThrottle.createUnlimited(), getsBucketsExportFile);
+
+		try {
+			createsBucketTar.createTar(bucket);
+			fail("Should have thrown");
+		} catch (TarBucketCreationFailedException e) {
+			assertFalse(tar.exists());
+		}
+	}
+
+	@Test(expectedExceptions = { TarImportFailedException.class })
+	public void importBucket_givenCorruptTar_throws() throws IOException {
+		LocalBucket exported = exporter.exportBucket(bucket);
+		File file = exported.getDirectory().listFiles()[0];
+		FileUtils.writeStringToFile(file, "not zstd");
+
+		new TarImporter(codec).importBucket(exported);
+	}
+}
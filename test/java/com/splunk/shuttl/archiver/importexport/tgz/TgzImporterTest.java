@@ -18,10 +18,12 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import com.splunk.shuttl.archiver.importexport.ShellExecutor;
 import com.splunk.shuttl.archiver.importexport.tgz.TgzImporter.TgzImportFailedException;
 import com.splunk.shuttl.archiver.model.LocalBucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
@@ -35,7 +37,8 @@ public class TgzImporterTest {
 	@BeforeMethod
 	public void setUp() {
 		tgzBucket = TUtilsBucket.createRealSplunkBucketTgz();
-		tgzImporter = new TgzImporter(ShellExecutor.getInstance());
+		tgzImporter = new TgzImporter(new ExtractsBucketTgz(
+				CompressorPool.create(2)));
 	}
 
 	public void _givenTgzAndOriginalBucket_importsTgzBucketToBeEqualToOriginal() {
@@ -50,11 +53,11 @@ public class TgzImporterTest {
 		return original.getDirectory().listFiles().length;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Test(expectedExceptions = { TgzImportFailedException.class })
-	public void _unsuccessfulImport_throws() {
-		ShellExecutor shellExecutor = mock(ShellExecutor.class);
-		when(shellExecutor.executeCommand(anyMap(), anyList())).thenReturn(3);
-		new TgzImporter(shellExecutor).importBucket(tgzBucket);
+	public void _unsuccessfulImport_throws() throws IOException {
+		ExtractsBucketTgz extractsBucketTgz = mock(ExtractsBucketTgz.class);
+		doThrow(new IOException()).when(extractsBucketTgz).extractTgz(
+				any(File.class), any(File.class));
+		new TgzImporter(extractsBucketTgz).importBucket(tgzBucket);
 	}
 }
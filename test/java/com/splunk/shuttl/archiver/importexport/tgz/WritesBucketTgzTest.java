@@ -0,0 +1,124 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.importexport.ShellExecutor;
+
+@Test(groups = { "slow-unit" })
+public class WritesBucketTgzTest {
+
+	private WritesBucketTgz writesBucketTgz;
+	private File bucketDir;
+	private File tgz;
+	private File extractDir;
+
+	@BeforeMethod
+	public void setUp() {
+		writesBucketTgz = new WritesBucketTgz(CompressorPool.create(2));
+		bucketDir = createDirectory();
+		tgz = createFilePath();
+		extractDir = createDirectory();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(bucketDir);
+		FileUtils.deleteQuietly(tgz);
+		FileUtils.deleteQuietly(extractDir);
+	}
+
+	public void writeTgz_givenBucketDirectory_extractsWithTarToTheSameFiles()
+			throws IOException {
+		File rawdata = createDirectoryInParent(bucketDir, "rawdata");
+		File journal = createFileInParent(rawdata, "journal.gz");
+		populateFileWithRandomContent(journal);
+		File tsidx = createFileInParent(bucketDir, "1-2-3.tsidx");
+		populateFileWithRandomContent(tsidx);
+		createFileInParent(bucketDir, "empty");
+
+		writeAndExtractTgz();
+
+		File extracted = new File(extractDir, bucketDir.getName());
+		assertTrue(FileUtils.contentEquals(journal, new File(extracted,
+				"rawdata/journal.gz")));
+		assertTrue(FileUtils.contentEquals(tsidx, new File(extracted,
+				"1-2-3.tsidx")));
+		assertEquals(0, new File(extracted, "empty").length());
+	}
+
+	public void writeTgz_givenPathsLongerThanTarNameField_extractsTheLongPaths()
+			throws IOException {
+		String longName = StringUtils.repeat("a", 120);
+		String dirName = StringUtils.repeat("b", 90);
+		String subDirName = StringUtils.repeat("c", 90);
+		File deepDir = createDirectoryInParent(
+				createDirectoryInParent(bucketDir, dirName), subDirName);
+		File longFile = createFileInParent(deepDir, longName);
+		populateFileWithRandomContent(longFile);
+
+		writeAndExtractTgz();
+
+		File extracted = new File(extractDir, bucketDir.getName() + "/" + dirName
+				+ "/" + subDirName + "/" + longName);
+		assertTrue(FileUtils.contentEquals(longFile, extracted));
+	}
+
+	public void writeTgz_givenFileLargerThanOneGzipBlock_extractsWithTarToTheSameFile()
+			throws IOException {
+		File journal = createFileInParent(bucketDir, "journal");
+		writeRandomBytes(journal, ParallelGzipOutputStream.BLOCK_SIZE * 3 + 17);
+
+		writeAndExtractTgz();
+
+		assertTrue(FileUtils.contentEquals(journal, new File(extractDir,
+				bucketDir.getName() + "/journal")));
+	}
+
+	static void writeRandomBytes(File file, int size) throws IOException {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		FileUtils.writeByteArrayToFile(file, bytes);
+	}
+
+	private void writeAndExtractTgz() throws IOException {
+		FileOutputStream out = new FileOutputStream(tgz);
+		try {
+			writesBucketTgz.writeTgz(bucketDir, out);
+		} finally {
+			out.close();
+		}
+		int exit = ShellExecutor.getInstance().executeCommand(
+				new HashMap<String, String>(),
+				asList("tar", "-xzf", tgz.getAbsolutePath(), "-C",
+						extractDir.getAbsolutePath()));
+		assertEquals(0, exit);
+	}
+}
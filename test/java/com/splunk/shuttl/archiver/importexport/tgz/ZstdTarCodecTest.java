@@ -0,0 +1,96 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.importexport.tgz;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.server.mbeans.ShuttlServerMBean;
+
+@Test(groups = { "fast-unit" })
+public class ZstdTarCodecTest {
+
+	private static byte[] roundTrip(TarCodec codec, byte[] data)
+			throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		OutputStream out = codec.compress(compressed);
+		out.write(data);
+		out.close();
+		return IOUtils.toByteArray(codec.decompress(new ByteArrayInputStream(
+				compressed.toByteArray())));
+	}
+
+	private static byte[] bucketData() throws IOException {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			data.append("bucket data ").append(i).append('\n');
+		return data.toString().getBytes("UTF-8");
+	}
+
+	public void isAvailable_nativeLibraryOnClasspath_true() {
+		assertTrue(new ZstdTarCodec(ZstdTarCodec.DEFAULT_LEVEL, 1).isAvailable());
+	}
+
+	public void compress_oneWorker_decompressesToSameBytes() throws IOException {
+		byte[] data = bucketData();
+		assertEquals(
+				roundTrip(new ZstdTarCodec(ZstdTarCodec.DEFAULT_LEVEL, 1), data),
+				data);
+	}
+
+	public void compress_manyWorkersAndMaxLevel_decompressesToSameBytes()
+			throws IOException {
+		byte[] data = bucketData();
+		assertEquals(roundTrip(new ZstdTarCodec(ZstdTarCodec.MAX_LEVEL, 4), data),
+				data);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_givenLevelAboveMax_throws() {
+		new ZstdTarCodec(ZstdTarCodec.MAX_LEVEL + 1, 1);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void constructor_givenLevelZero_throws() {
+		new ZstdTarCodec(0, 1);
+	}
+
+	public void createWithMBean_levelAndThreadsConfigured_usesThem() {
+		ShuttlServerMBean serverMBean = mock(ShuttlServerMBean.class);
+		when(serverMBean.getZstdCompressionLevel()).thenReturn(9);
+		when(serverMBean.getCompressorThreads()).thenReturn(3);
+
+		ZstdTarCodec codec = ZstdTarCodec.createWithMBean(serverMBean);
+
+		assertEquals(codec.getLevel(), 9);
+		assertEquals(codec.getWorkers(), 3);
+	}
+
+	public void createWithMBean_nothingConfigured_usesDefaults() {
+		ZstdTarCodec codec = ZstdTarCodec.createWithMBean(mock(
+				ShuttlServerMBean.class));
+
+		assertEquals(codec.getLevel(), ZstdTarCodec.DEFAULT_LEVEL);
+		assertEquals(codec.getWorkers(), CompressorPool.getDefaultThreads());
+	}
+}
@@ -0,0 +1,272 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.journal;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class JobJournalTest {
+
+	private File journalDir;
+	private File journalFile;
+	private JobJournal jobJournal;
+	private LocalBucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		journalDir = createDirectory();
+		journalFile = new File(journalDir, "jobs.journal");
+		jobJournal = createJournalWithBatchSize(100);
+		bucket = TUtilsBucket.createBucket();
+	}
+
+	private JobJournal createJournalWithBatchSize(int batchSize) {
+		return new JobJournal(journalFile, new File(journalDir, "jobs.lock"),
+				batchSize);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(journalDir);
+		FileUtils.deleteQuietly(bucket.getDirectory());
+	}
+
+	private void enqueue(JobType type, LocalBucket b) {
+		jobJournal.enqueue(type, b.getIndex(), b.getDirectory());
+	}
+
+	public void getPendingBuckets_noJobs_emptyList() {
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_enqueuedJob_returnsBucket() {
+		enqueue(JobType.ARCHIVE, bucket);
+
+		List<LocalBucket> pending = jobJournal.getPendingBuckets(JobType.ARCHIVE);
+		assertEquals(1, pending.size());
+		assertEquals(bucket.getDirectory().getAbsolutePath(), pending.get(0)
+				.getDirectory().getAbsolutePath());
+		assertEquals(bucket.getIndex(), pending.get(0).getIndex());
+	}
+
+	public void getPendingBuckets_enqueuedJobOfOtherType_emptyList() {
+		enqueue(JobType.COPY, bucket);
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_completedJob_emptyList() {
+		enqueue(JobType.ARCHIVE, bucket);
+		jobJournal.markCompleted(JobType.ARCHIVE, bucket);
+
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_startedJob_emptyList() {
+		enqueue(JobType.ARCHIVE, bucket);
+		jobJournal.markStarted(JobType.ARCHIVE, bucket);
+
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_failedJob_returnsBucket() {
+		enqueue(JobType.ARCHIVE, bucket);
+		jobJournal.markStarted(JobType.ARCHIVE, bucket);
+		jobJournal.markFailed(JobType.ARCHIVE, bucket);
+
+		assertEquals(1, jobJournal.getPendingBuckets(JobType.ARCHIVE).size());
+	}
+
+	public void getPendingBuckets_bucketDirectoryIsGone_emptyList() {
+		enqueue(JobType.ARCHIVE, bucket);
+		FileUtils.deleteQuietly(bucket.getDirectory());
+
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_jobsWrittenByOtherJournalInstance_readsThem() {
+		enqueue(JobType.ARCHIVE, bucket);
+
+		JobJournal otherJournal = createJournalWithBatchSize(100);
+		assertEquals(1, otherJournal.getPendingBuckets(JobType.ARCHIVE).size());
+	}
+
+	public void enqueue_givenJob_isWrittenWithoutFlushing() {
+		enqueue(JobType.ARCHIVE, bucket);
+		assertTrue(journalFile.length() > 0);
+	}
+
+	public void markCompleted_fewerJobsThanBatch_isNotWrittenUntilFlushed() {
+		enqueue(JobType.ARCHIVE, bucket);
+		long lengthAfterEnqueue = journalFile.length();
+
+		jobJournal.markCompleted(JobType.ARCHIVE, bucket);
+		assertEquals(lengthAfterEnqueue, journalFile.length());
+
+		jobJournal.flush();
+		assertTrue(journalFile.length() > lengthAfterEnqueue);
+	}
+
+	public void markCompleted_batchIsFull_isWritten() {
+		jobJournal = createJournalWithBatchSize(2);
+		jobJournal.markStarted(JobType.ARCHIVE, bucket);
+		assertFalse(journalFile.exists());
+
+		jobJournal.markCompleted(JobType.ARCHIVE, bucket);
+		assertTrue(journalFile.exists());
+	}
+
+	public void getPendingBuckets_halfWrittenLastLine_isIgnoredAndNextEntryIsReadable()
+			throws IOException {
+		FileUtils.writeStringToFile(journalFile, "ENQUEUED\tARCH");
+		enqueue(JobType.ARCHIVE, bucket);
+
+		assertEquals(1, jobJournal.getPendingBuckets(JobType.ARCHIVE).size());
+	}
+
+	public void replay_completedAndPendingJobs_keepsOnlyPendingJobs()
+			throws IOException {
+		LocalBucket completed = TUtilsBucket.createBucket();
+		enqueue(JobType.ARCHIVE, completed);
+		jobJournal.markCompleted(JobType.ARCHIVE, completed);
+		enqueue(JobType.ARCHIVE, bucket);
+
+		jobJournal.replay();
+
+		List<String> lines = FileUtils.readLines(journalFile);
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0).endsWith(bucket.getDirectory().getAbsolutePath()));
+		FileUtils.deleteQuietly(completed.getDirectory());
+	}
+
+	public void replay_startedJob_isPendingAgain() {
+		enqueue(JobType.ARCHIVE, bucket);
+		jobJournal.markStarted(JobType.ARCHIVE, bucket);
+
+		jobJournal.replay();
+
+		assertEquals(1, jobJournal.getPendingBuckets(JobType.ARCHIVE).size());
+	}
+
+	public void replay_bucketDirectoryIsGone_dropsJob() throws IOException {
+		enqueue(JobType.ARCHIVE, bucket);
+		FileUtils.deleteQuietly(bucket.getDirectory());
+
+		jobJournal.replay();
+
+		assertTrue(FileUtils.readLines(journalFile).isEmpty());
+	}
+
+	public void startPendingBuckets_enqueuedJob_returnsBucketAndIsNoLongerPending() {
+		enqueue(JobType.COPY, bucket);
+
+		assertEquals(1, jobJournal.startPendingBuckets(JobType.COPY).size());
+		assertTrue(jobJournal.getPendingBuckets(JobType.COPY).isEmpty());
+	}
+
+	public void startPendingBuckets_jobStartedByOtherJournalInstance_emptyList() {
+		enqueue(JobType.COPY, bucket);
+		createJournalWithBatchSize(100).startPendingBuckets(JobType.COPY);
+
+		assertTrue(jobJournal.startPendingBuckets(JobType.COPY).isEmpty());
+	}
+
+	public void flush_journalHasGrownPastCompactionThreshold_compactsJournal()
+			throws IOException {
+		jobJournal = new JobJournal(journalFile, new File(journalDir,
+				"jobs.lock"), 100, 10);
+		LocalBucket pending = TUtilsBucket.createBucket();
+		enqueue(JobType.ARCHIVE, pending);
+		for (int i = 0; i < 5; i++) {
+			enqueue(JobType.ARCHIVE, bucket);
+			jobJournal.markCompleted(JobType.ARCHIVE, bucket);
+			jobJournal.flush();
+		}
+
+		assertTrue(FileUtils.readLines(journalFile).size() < 10);
+		assertEquals(asList(pending.getDirectory()),
+				directoriesOf(jobJournal.getPendingBuckets(JobType.ARCHIVE)));
+		FileUtils.deleteQuietly(pending.getDirectory());
+	}
+
+	public void getPendingBuckets_journalCompactedByOtherJournalInstance_readsCompactedJournal() {
+		enqueue(JobType.ARCHIVE, bucket);
+		jobJournal.getPendingBuckets(JobType.ARCHIVE);
+
+		JobJournal otherJournal = createJournalWithBatchSize(100);
+		otherJournal.markCompleted(JobType.ARCHIVE, bucket);
+		otherJournal.replay();
+
+		assertTrue(jobJournal.getPendingBuckets(JobType.ARCHIVE).isEmpty());
+	}
+
+	public void getPendingBuckets_jobsAppendedAfterLastRead_readsNewJobs() {
+		jobJournal.getPendingBuckets(JobType.ARCHIVE);
+		createJournalWithBatchSize(100).enqueue(JobType.ARCHIVE,
+				bucket.getIndex(), bucket.getDirectory());
+
+		assertEquals(1, jobJournal.getPendingBuckets(JobType.ARCHIVE).size());
+	}
+
+	private List<File> directoriesOf(List<LocalBucket> buckets) {
+		List<File> directories = new ArrayList<File>();
+		for (LocalBucket b : buckets)
+			directories.add(b.getDirectory().getAbsoluteFile());
+		return directories;
+	}
+
+	public void exists_nothingWritten_false() {
+		assertFalse(jobJournal.exists());
+	}
+
+	public void exists_afterEnqueue_true() {
+		enqueue(JobType.COPY, bucket);
+		assertTrue(jobJournal.exists());
+	}
+
+	public void hasWalked_afterReplay_false() {
+		jobJournal.replay();
+		assertFalse(jobJournal.hasWalked(JobType.COPY, "index"));
+	}
+
+	public void hasWalked_markedWalked_true() {
+		jobJournal.markWalked(JobType.COPY, "index");
+		assertTrue(jobJournal.hasWalked(JobType.COPY, "index"));
+	}
+
+	public void hasWalked_otherIndexMarkedWalked_false() {
+		jobJournal.markWalked(JobType.COPY, "other-index");
+		assertFalse(jobJournal.hasWalked(JobType.COPY, "index"));
+	}
+
+	public void hasWalked_otherJournalInstanceMarkedWalked_true() {
+		createJournalWithBatchSize(1).markWalked(JobType.COPY, "index");
+		assertTrue(jobJournal.hasWalked(JobType.COPY, "index"));
+	}
+}
@@ -0,0 +1,84 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
+import com.splunk.shuttl.archiver.checksum.FileChecksum;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.DeferredMetadata;
+import com.splunk.shuttl.archiver.model.Bucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveBucketChecksumsTest {
+
+	private ArchiveBucketChecksums archiveBucketChecksums;
+	private MetadataStore metadataStore;
+	private Bucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		metadataStore = mock(MetadataStore.class);
+		archiveBucketChecksums = new ArchiveBucketChecksums(metadataStore);
+		bucket = TUtilsBucket.createBucket();
+	}
+
+	public void getPersistChecksumsTransaction_manifestFilledBeforeExecuting_putsTheFilledManifest() {
+		ChecksumManifest checksums = new ChecksumManifest();
+		archiveBucketChecksums.getPersistChecksumsTransaction(bucket, checksums);
+		checksums.put("/journal.gz", new FileChecksum(1, 2, "ab"));
+
+		assertEquals(checksums.format(), captureDeferredMetadata().getData());
+	}
+
+	public void getPersistChecksumsTransaction_manifestEmptyWhenExecuting_putsNothing() {
+		archiveBucketChecksums.getPersistChecksumsTransaction(bucket,
+				new ChecksumManifest());
+
+		assertNull(captureDeferredMetadata().getData());
+	}
+
+	private DeferredMetadata captureDeferredMetadata() {
+		ArgumentCaptor<DeferredMetadata> captor = ArgumentCaptor
+				.forClass(DeferredMetadata.class);
+		verify(metadataStore).getDeferredPutTransaction(eq(bucket),
+				eq(ArchiveBucketChecksums.FILE_NAME), captor.capture());
+		return captor.getValue();
+	}
+
+	public void readChecksums_givenPersistedManifest_parsedManifest() {
+		ChecksumManifest checksums = new ChecksumManifest();
+		checksums.put("/journal.gz", new FileChecksum(1, 2, "ab"));
+		when(metadataStore.read(bucket, ArchiveBucketChecksums.FILE_NAME))
+				.thenReturn(checksums.format());
+
+		assertEquals(checksums.getPaths(), archiveBucketChecksums
+				.readChecksums(bucket).getPaths());
+	}
+
+	public void readChecksums_metadataStoreException_null() {
+		when(metadataStore.read(any(Bucket.class), anyString())).thenThrow(
+				new CouldNotReadMetadataException());
+		assertNull(archiveBucketChecksums.readChecksums(bucket));
+	}
+}
@@ -18,11 +18,14 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.metastore.MetadataStore.CouldNotReadMetadataException;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.DeferredMetadata;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -51,6 +54,26 @@ public class ArchiveBucketSizeTest {
 				archiveBucketSize.getSizeMetadataFileName(), "" + bucket.getSize());
 	}
 
+	public void getPersistBucketSizeTransaction_givenBucket_deferredPutTransactionFromMetadataStore() {
+		Transaction transaction = mock(Transaction.class);
+		when(
+				metadataStore.getDeferredPutTransaction(eq(bucket),
+						eq(archiveBucketSize.getSizeMetadataFileName()),
+						any(DeferredMetadata.class))).thenReturn(transaction);
+		assertEquals(transaction,
+				archiveBucketSize.getPersistBucketSizeTransaction(bucket));
+	}
+
+	public void getPersistBucketSizeTransaction_givenBucket_deferredMetadataIsBucketSize() {
+		archiveBucketSize.getPersistBucketSizeTransaction(bucket);
+
+		ArgumentCaptor<DeferredMetadata> metadata = ArgumentCaptor
+				.forClass(DeferredMetadata.class);
+		verify(metadataStore).getDeferredPutTransaction(eq(bucket),
+				eq(archiveBucketSize.getSizeMetadataFileName()), metadata.capture());
+		assertEquals("" + bucket.getSize(), metadata.getValue().getData());
+	}
+
 	public void readBucketSize_givenBucket_sizeFromMetadataStore() {
 		String data = "123";
 		Long longData = 123L;
@@ -0,0 +1,178 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.metastore;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.hadoop.HadoopArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
+import com.splunk.shuttl.testutil.TUtilsFileSystem;
+
+@Test(groups = { "fast-unit" })
+public class MetadataLogTest {
+
+	private ArchiveFileSystem archiveFileSystem;
+	private File archive;
+	private String home;
+	private String temp;
+	private MetadataLog metadataLog;
+
+	@BeforeMethod
+	public void setUp() {
+		archiveFileSystem = new HadoopArchiveFileSystem(
+				TUtilsFileSystem.getLocalFileSystem());
+		archive = createDirectory();
+		home = new File(archive, "home").getAbsolutePath();
+		temp = new File(archive, "temp").getAbsolutePath();
+		metadataLog = createLog(createDirectory(), 10, 10);
+	}
+
+	private MetadataLog createLog(File directory, int flushRecords,
+			int maxSegments) {
+		return new MetadataLog(directory, home, temp, archiveFileSystem,
+				new TransactionExecuter(), flushRecords, maxSegments, 0);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		FileUtils.deleteQuietly(archive);
+	}
+
+	public void get_keyNeverPut_null() {
+		assertNull(metadataLog.get("key"));
+	}
+
+	public void get_putKey_data() {
+		metadataLog.put("key", "data");
+		assertEquals("data", metadataLog.get("key"));
+	}
+
+	public void get_keyPutTwice_lastData() {
+		metadataLog.put("key", "first");
+		metadataLog.put("other", "other");
+		metadataLog.put("key", "last");
+
+		assertEquals("last", metadataLog.get("key"));
+		assertEquals("other", metadataLog.get("other"));
+	}
+
+	public void flush_pendingRecords_putsSegmentInArchive() throws IOException {
+		metadataLog.put("key", "data");
+
+		metadataLog.flush();
+
+		assertEquals(0, metadataLog.getPendingRecords());
+		assertEquals(1, archiveFileSystem.listPath(home).size());
+		assertEquals("data", metadataLog.get("key"));
+	}
+
+	public void flush_noPendingRecords_putsNothingInArchive() throws IOException {
+		metadataLog.flush();
+		assertTrue(archiveFileSystem.listPath(home).isEmpty());
+	}
+
+	public void put_flushRecordsReached_flushes() throws IOException {
+		metadataLog = createLog(createDirectory(), 2, 10);
+
+		metadataLog.put("a", "1");
+		assertTrue(archiveFileSystem.listPath(home).isEmpty());
+		metadataLog.put("b", "2");
+
+		assertEquals(1, archiveFileSystem.listPath(home).size());
+	}
+
+	public void get_recordFlushedByAnotherLog_getsSegmentFromArchive() {
+		MetadataLog otherLog = createLog(createDirectory(), 10, 10);
+		otherLog.put("key", "data");
+		otherLog.flush();
+
+		assertEquals("data", metadataLog.get("key"));
+	}
+
+	public void get_pendingRecordAndOlderRecordFromAnotherLog_pendingData() {
+		MetadataLog otherLog = createLog(createDirectory(), 10, 10);
+		otherLog.put("key", "older");
+		metadataLog.put("key", "newer");
+		otherLog.flush();
+
+		assertNull(metadataLog.get("missing"));
+		assertEquals("newer", metadataLog.get("key"));
+	}
+
+	public void load_restartedWithPendingRecords_readsPendingRecords() {
+		File directory = createDirectory();
+		createLog(directory, 10, 10).put("key", "data");
+
+		MetadataLog restarted = createLog(directory, 10, 10);
+
+		assertEquals(1, restarted.getPendingRecords());
+		assertEquals("data", restarted.get("key"));
+	}
+
+	public void load_incompleteLastRecord_removesTheRecord() throws IOException {
+		File directory = createDirectory();
+		createLog(directory, 10, 10).put("key", "data");
+		FileOutputStream pending = new FileOutputStream(new File(directory,
+				MetadataLog.PENDING_FILE_NAME), true);
+		pending.write("half\tda".getBytes("UTF-8"));
+		pending.close();
+
+		MetadataLog restarted = createLog(directory, 10, 10);
+		restarted.put("next", "record");
+
+		assertNull(restarted.get("half"));
+		assertEquals("record", restarted.get("next"));
+		assertEquals(2, restarted.getPendingRecords());
+	}
+
+	public void flush_tooManySegments_compactsKeepingTheLastRecords()
+			throws IOException {
+		metadataLog = createLog(createDirectory(), 1, 2);
+
+		metadataLog.put("a", "first");
+		metadataLog.put("b", "b");
+		metadataLog.put("a", "last");
+
+		assertEquals(1, metadataLog.getSegments());
+		assertEquals(1, archiveFileSystem.listPath(home).size());
+		assertEquals("last", metadataLog.get("a"));
+		assertEquals("b", metadataLog.get("b"));
+	}
+
+	public void get_segmentsCompactedByAnotherLog_getsCompactedSegment() {
+		MetadataLog otherLog = createLog(createDirectory(), 1, 2);
+		otherLog.put("a", "a");
+		assertEquals("a", metadataLog.get("a"));
+
+		otherLog.put("b", "b");
+		otherLog.put("c", "c");
+
+		assertNull(metadataLog.get("missing"));
+		assertEquals(1, metadataLog.getSegments());
+		assertEquals("a", metadataLog.get("a"));
+		assertEquals("c", metadataLog.get("c"));
+	}
+}
@@ -16,8 +16,10 @@ package com.splunk.shuttl.archiver.metastore;
 
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
 import java.io.File;
+import java.io.IOException;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -25,8 +27,11 @@ import org.testng.annotations.Test;
 import com.splunk.shuttl.archiver.LocalFileSystemPaths;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
 import com.splunk.shuttl.archiver.filesystem.PathResolver;
+import com.splunk.shuttl.archiver.filesystem.transaction.Transaction;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.file.PutFileTransaction;
+import com.splunk.shuttl.archiver.filesystem.transaction.file.TransfersFiles;
+import com.splunk.shuttl.archiver.metastore.MetadataStore.DeferredMetadata;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
@@ -71,4 +76,144 @@ public class MetadataStoreTest {
 				eq(PutFileTransaction.create(archiveFileSystem,
 						flatFile.getAbsolutePath(), temp, flatFileRealPath)));
 	}
+
+	public void getPutTransaction_bucketFileNameAndData_writesFlatFileWithoutExecutingTransaction() {
+		File flatFile = mock(File.class);
+		String filename = "filename";
+		String temp = "temp";
+		when(flatFileStorage.getFlatFile(bucket, filename)).thenReturn(flatFile);
+		when(pathResolver.resolveTempPathForBucketMetadata(bucket, flatFile))
+				.thenReturn(temp);
+		String flatFileRealPath = "";
+		when(pathResolver.resolvePathForBucketMetadata(bucket, flatFile))
+				.thenReturn(flatFileRealPath);
+
+		Transaction transaction = metadataStore.getPutTransaction(bucket,
+				filename, "data");
+
+		verify(flatFileStorage).writeFlatFile(bucket, filename, "data");
+		assertEquals(PutFileTransaction.create(archiveFileSystem,
+				flatFile.getAbsolutePath(), temp, flatFileRealPath), transaction);
+		verifyZeroInteractions(transactionExecuter);
+	}
+
+	public void getDeferredPutTransaction_noMetadataWhenPrepared_writesAndTransfersNothing()
+			throws IOException {
+		when(flatFileStorage.getFlatFile(bucket, "filename")).thenReturn(
+				new File("filename"));
+		Transaction transaction = metadataStore.getDeferredPutTransaction(bucket,
+				"filename", new DeferredMetadata() {
+
+					@Override
+					public String getData() {
+						return null;
+					}
+				});
+
+		transaction.prepare();
+		transaction.commit();
+
+		verify(flatFileStorage, never()).writeFlatFile(any(Bucket.class),
+				anyString(), anyString());
+		verify(archiveFileSystem, never()).mkdirs(anyString());
+		verify(archiveFileSystem, never()).rename(anyString(), anyString());
+	}
+
+	public void getDeferredPutTransaction_metadataWhenPrepared_writesFlatFileWhenPrepared()
+			throws IOException {
+		final StringBuilder data = new StringBuilder();
+		TransfersFiles transfersFiles = mock(TransfersFiles.class);
+		when(archiveFileSystem.getFileTransferer()).thenReturn(transfersFiles);
+		when(flatFileStorage.getFlatFile(bucket, "filename")).thenReturn(
+				new File("filename"));
+		Transaction transaction = metadataStore.getDeferredPutTransaction(bucket,
+				"filename", new DeferredMetadata() {
+
+					@Override
+					public String getData() {
+						return data.toString();
+					}
+				});
+		verify(flatFileStorage, never()).writeFlatFile(any(Bucket.class),
+				anyString(), anyString());
+		data.append("data");
+
+		transaction.prepare();
+
+		verify(flatFileStorage).writeFlatFile(bucket, "filename", "data");
+		verify(transfersFiles).put(eq(new File("filename").getAbsolutePath()),
+				anyString(), anyString());
+	}
+
+	private MetadataLog setUpMetadataLog() {
+		MetadataLogs metadataLogs = mock(MetadataLogs.class);
+		MetadataLog metadataLog = mock(MetadataLog.class);
+		when(metadataLogs.getLog(archiveFileSystem, pathResolver,
+				bucket.getIndex())).thenReturn(metadataLog);
+		metadataStore = new MetadataStore(pathResolver, flatFileStorage,
+				archiveFileSystem, transactionExecuter, localFileSystemPaths,
+				metadataLogs);
+		return metadataLog;
+	}
+
+	private String logKey(String fileName) {
+		return bucket.getName() + "/" + bucket.getFormat() + "/" + fileName;
+	}
+
+	public void put_withMetadataLogs_putsDataInLogOfBucketsIndex() {
+		MetadataLog metadataLog = setUpMetadataLog();
+
+		metadataStore.put(bucket, "filename", "data");
+
+		verify(metadataLog).put(logKey("filename"), "data");
+		verifyZeroInteractions(transactionExecuter, flatFileStorage);
+	}
+
+	public void getPutTransaction_withMetadataLogs_putsDataInLogWhenCommitted() {
+		MetadataLog metadataLog = setUpMetadataLog();
+
+		Transaction transaction = metadataStore.getPutTransaction(bucket,
+				"filename", "data");
+		transaction.prepare();
+		verifyZeroInteractions(metadataLog);
+		transaction.commit();
+
+		verify(metadataLog).put(logKey("filename"), "data");
+	}
+
+	public void getDeferredPutTransaction_withMetadataLogsAndNoMetadata_putsNothingInLog() {
+		MetadataLog metadataLog = setUpMetadataLog();
+
+		Transaction transaction = metadataStore.getDeferredPutTransaction(bucket,
+				"filename", new DeferredMetadata() {
+
+					@Override
+					public String getData() {
+						return null;
+					}
+				});
+		transaction.prepare();
+		transaction.commit();
+
+		verifyZeroInteractions(metadataLog);
+	}
+
+	public void read_withMetadataLogHavingTheData_readsDataFromLog() {
+		MetadataLog metadataLog = setUpMetadataLog();
+		when(metadataLog.get(logKey("filename"))).thenReturn("data");
+
+		assertEquals("data", metadataStore.read(bucket, "filename"));
+		verifyZeroInteractions(flatFileStorage, transactionExecuter);
+	}
+
+	public void read_withMetadataLogMissingTheData_readsMetadataFile() {
+		setUpMetadataLog();
+		File flatFile = mock(File.class);
+		when(flatFileStorage.getFlatFile(bucket, "filename"))
+				.thenReturn(flatFile);
+		when(flatFileStorage.readFlatFile(flatFile)).thenReturn("data");
+		when(flatFile.exists()).thenReturn(true);
+
+		assertEquals("data", metadataStore.read(bucket, "filename"));
+	}
 }
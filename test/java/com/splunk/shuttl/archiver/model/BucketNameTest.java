@@ -152,6 +152,18 @@ public class BucketNameTest {
 		getBucketName(db, earliest, latest, index, "").getGuid();
 	}
 
+	public void getGuid_guidEndsWithUnderscore_guidIncludesUnderscore() {
+		BucketName bucketName = new BucketName("db_2_1_index_guid_");
+		assertEquals("index", bucketName.getIndex());
+		assertEquals("guid_", bucketName.getGuid());
+	}
+
+	@Test(expectedExceptions = { NumberFormatException.class })
+	public void getLatest_latestDoesNotFitInLong_throwsNumberFormatException() {
+		getBucketName(db, earliest, "99999999999999999999", index, guid)
+				.getLatest();
+	}
+
 	public void constructor_null_doesNothing() {
 		new BucketName(null);
 	}
@@ -0,0 +1,100 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.model;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BucketSizeCacheTest {
+
+	BucketSizeCache cache;
+	File directory;
+
+	@BeforeMethod
+	public void setUp() {
+		cache = BucketSizeCache.create(10, 4);
+		directory = createDirectory();
+	}
+
+	private File writeBytes(File parent, String name, int bytes)
+			throws IOException {
+		File file = new File(parent, name);
+		FileUtils.writeByteArrayToFile(file, new byte[bytes]);
+		return file;
+	}
+
+	public void getSize_filesAndSubDirectory_sumsAllFiles() throws IOException {
+		writeBytes(directory, "a", 10);
+		writeBytes(createDirectoryInParent(directory, "rawdata"), "journal", 5);
+
+		assertEquals(15, cache.getSize(directory));
+	}
+
+	public void getSize_moreEntriesThanOneWalk_sumsAllFiles() throws IOException {
+		int entries = BucketSizeCache.MIN_ENTRIES_PER_WALK * 5 + 3;
+		for (int i = 0; i < entries; i++)
+			writeBytes(directory, "file" + i, 2);
+
+		assertEquals(entries * 2, cache.getSize(directory));
+	}
+
+	public void getSize_directoryIsNotModified_returnsCachedSize()
+			throws IOException {
+		File file = writeBytes(directory, "a", 10);
+		long lastModified = directory.lastModified();
+		cache.getSize(directory);
+
+		FileUtils.writeByteArrayToFile(file, new byte[20]);
+		directory.setLastModified(lastModified);
+
+		assertEquals(10, cache.getSize(directory));
+	}
+
+	public void getSize_directoryIsModified_computesSizeAgain()
+			throws IOException {
+		writeBytes(directory, "a", 10);
+		cache.getSize(directory);
+
+		writeBytes(directory, "b", 20);
+		directory.setLastModified(directory.lastModified() + 10000);
+
+		assertEquals(30, cache.getSize(directory));
+	}
+
+	public void getSize_subDirectoryIsModified_computesSizeAgain()
+			throws IOException {
+		File rawdata = createDirectoryInParent(directory, "rawdata");
+		writeBytes(rawdata, "journal", 10);
+		cache.getSize(directory);
+
+		writeBytes(rawdata, "slice", 20);
+		rawdata.setLastModified(rawdata.lastModified() + 10000);
+
+		assertEquals(30, cache.getSize(directory));
+	}
+
+	@Test(expectedExceptions = { DirectoryDidNotExistException.class })
+	public void getSize_directoryDoesNotExist_throws() {
+		cache.getSize(createFilePath());
+	}
+}
@@ -55,6 +55,14 @@ public class BucketTest {
 		assertEquals("index-name", bucket.getIndex());
 	}
 
+	public void getIndex_twoBucketsWithEqualIndexNames_shareIndexName() {
+		Bucket bucket1 = new RemoteBucket("/path1", new String("index"),
+				"db_2_1_0", BucketFormat.SPLUNK_BUCKET);
+		Bucket bucket2 = new RemoteBucket("/path2", new String("index"),
+				"db_2_1_1", BucketFormat.SPLUNK_BUCKET);
+		assertSame(bucket1.getIndex(), bucket2.getIndex());
+	}
+
 	public void getIndex_absolutePathToBucketEndingWithSlash_correctIndexName()
 			throws IOException {
 		File file = TUtilsFile.createDirectory();
@@ -162,6 +170,30 @@ public class BucketTest {
 		assertNotNull(bucket.getSize());
 	}
 
+	@Test(expectedExceptions = { DirectoryDidNotExistException.class })
+	public void getSize_directoryRemovedBeforeGetSize_throws()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		FileUtils.deleteDirectory(bucket.getDirectory());
+		bucket.getSize();
+	}
+
+	public void getSize_sizeCapturedBeforeDirectoryIsRemoved_capturedSize()
+			throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		long size = FileUtils.sizeOfDirectory(bucket.getDirectory());
+		bucket.captureSize();
+		FileUtils.deleteDirectory(bucket.getDirectory());
+		assertEquals(size, (long) bucket.getSize());
+	}
+
+	public void getSize_bucketDeleted_sizeBeforeDelete() throws IOException {
+		LocalBucket bucket = TUtilsBucket.createBucket();
+		long size = FileUtils.sizeOfDirectory(bucket.getDirectory());
+		bucket.deleteBucket();
+		assertEquals(size, (long) bucket.getSize());
+	}
+
 	public void getSize_remoteBucket_null() throws IOException {
 		Bucket bucket = new RemoteBucket("/remote/bucket", null, null, null);
 		assertNull(bucket.getSize());
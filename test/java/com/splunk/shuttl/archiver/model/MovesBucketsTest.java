@@ -88,6 +88,14 @@ public class MovesBucketsTest {
 		MovesBuckets.moveBucket(TUtilsBucket.createBucket(), nonExistingDir);
 	}
 
+	public void moveBucket_givenBucket_movedBucketHasSizeOfBucketBeforeMove() {
+		long size = FileUtils.sizeOfDirectory(bucket.getDirectory());
+		LocalBucket movedBucket = MovesBuckets
+				.moveBucket(bucket, directoryToMoveTo);
+		assertEquals(size, (long) movedBucket.getSize());
+		assertEquals(size, (long) bucket.getSize());
+	}
+
 	public void moveBucket_givenDirectoryWithContents_contentShouldBeMoved()
 			throws IOException {
 		String contentsFileName = "contents";
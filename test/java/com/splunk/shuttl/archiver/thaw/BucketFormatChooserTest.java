@@ -14,6 +14,7 @@
 // limitations under the License.
 package com.splunk.shuttl.archiver.thaw;
 
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.AssertJUnit.*;
 
@@ -26,6 +27,7 @@ import org.testng.annotations.Test;
 
 import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
 import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.importexport.tgz.TarCodecs;
 
 @Test(groups = { "fast-unit" })
 public class BucketFormatChooserTest {
@@ -96,4 +98,30 @@ public class BucketFormatChooserTest {
 		assertEquals(BucketFormat.UNKNOWN, chosenFormat);
 	}
 
+	public void chooseBucketFormat_givenFormatWithUnavailableCodec_choosesAnotherFormat() {
+		TarCodecs tarCodecs = mock(TarCodecs.class);
+		when(tarCodecs.isAvailable(any(BucketFormat.class))).thenReturn(true);
+		when(tarCodecs.isAvailable(BucketFormat.SPLUNK_BUCKET_ZSTD)).thenReturn(
+				false);
+		when(configuration.getBucketFormatPriority()).thenReturn(
+				Arrays.asList(BucketFormat.SPLUNK_BUCKET_ZSTD, BucketFormat.CSV));
+		List<BucketFormat> formats = Arrays.asList(BucketFormat.SPLUNK_BUCKET_ZSTD,
+				BucketFormat.CSV);
+
+		BucketFormat chosenFormat = new BucketFormatChooser(configuration,
+				tarCodecs).chooseBucketFormat(formats);
+		assertEquals(BucketFormat.CSV, chosenFormat);
+	}
+
+	public void chooseBucketFormat_givenNoFormatWithAvailableCodec_choosesAmongAll() {
+		TarCodecs tarCodecs = mock(TarCodecs.class);
+		when(configuration.getBucketFormatPriority()).thenReturn(
+				new ArrayList<BucketFormat>());
+		List<BucketFormat> formats = Arrays.asList(BucketFormat.SPLUNK_BUCKET_LZ4,
+				BucketFormat.SPLUNK_BUCKET_ZSTD);
+
+		BucketFormat chosenFormat = new BucketFormatChooser(configuration,
+				tarCodecs).chooseBucketFormat(formats);
+		assertEquals(BucketFormat.SPLUNK_BUCKET_LZ4, chosenFormat);
+	}
 }
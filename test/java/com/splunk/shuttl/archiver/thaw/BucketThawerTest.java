@@ -24,7 +24,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.mockito.InOrder;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -65,6 +68,16 @@ public class BucketThawerTest {
 		bucket = mock(Bucket.class);
 	}
 
+	/**
+	 * The buckets of a thaw are locked together, and the test locker names the
+	 * locks by the bucket names.
+	 */
+	private Bucket mockBucketNamed(String name) {
+		Bucket bucket = mock(Bucket.class);
+		when(bucket.getName()).thenReturn(name);
+		return bucket;
+	}
+
 	public void thawBuckets_givenZeroBucketsWithinTimeRange_getsNoBuckets() {
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
@@ -75,8 +88,8 @@ public class BucketThawerTest {
 
 	public void thawBuckets_givenTwoBucketsWithinTimeRange_getsBuckets()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
-		Bucket archivedBucketWithinTimeRange1 = mock(Bucket.class);
-		Bucket archivedBucketWithinTimeRange2 = mock(Bucket.class);
+		Bucket archivedBucketWithinTimeRange1 = mockBucketNamed("bucket1");
+		Bucket archivedBucketWithinTimeRange2 = mockBucketNamed("bucket2");
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
 						latestTime)).thenReturn(
@@ -128,8 +141,8 @@ public class BucketThawerTest {
 
 	public void getThawedBuckets_gotBucketFromArchive_returnBucket()
 			throws ThawTransferFailException, ImportThawedBucketFailException {
-		Bucket bucket1 = mock(Bucket.class);
-		Bucket bucket2 = mock(Bucket.class);
+		Bucket bucket1 = mockBucketNamed("bucket1");
+		Bucket bucket2 = mockBucketNamed("bucket2");
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
 						latestTime)).thenReturn(asList(bucket1, bucket2));
@@ -159,6 +172,52 @@ public class BucketThawerTest {
 		assertTrue(failedBucket.exception instanceof ThawTransferFailException);
 	}
 
+	public void thawBuckets_givenTwoBuckets_requestsRetrievalOfBothBeforeGettingThem()
+			throws ThawTransferFailException, ImportThawedBucketFailException {
+		Bucket bucket1 = mockBucketNamed("bucket1");
+		Bucket bucket2 = mockBucketNamed("bucket2");
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(asList(bucket1, bucket2));
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+		InOrder inOrder = inOrder(getsBucketsFromArchive);
+		inOrder.verify(getsBucketsFromArchive).requestRetrieval(
+				asList(bucket1, bucket2));
+		inOrder.verify(getsBucketsFromArchive).getBucketFromArchive(bucket1);
+		inOrder.verify(getsBucketsFromArchive).getBucketFromArchive(bucket2);
+	}
+
+	public void thawBuckets_givenExecutor_getsAllBucketsOnTheExecutor()
+			throws ThawTransferFailException, ImportThawedBucketFailException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		bucketThawer = new BucketThawer(listsBucketsFiltered,
+				getsBucketsFromArchive, localBuckets, thawBucketLocker, executor);
+		List<Bucket> buckets = new ArrayList<Bucket>();
+		for (int i = 0; i < 5; i++) {
+			Bucket bucket = mockBucketNamed("bucket" + i);
+			when(getsBucketsFromArchive.getBucketFromArchive(bucket)).thenReturn(
+					mock(LocalBucket.class));
+			buckets.add(bucket);
+		}
+		when(
+				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
+						latestTime)).thenReturn(buckets);
+
+		bucketThawer.thawBuckets(index, earliestTime, latestTime);
+		executor.shutdown();
+		assertEquals(5, bucketThawer.getThawedBuckets().size());
+	}
+
+	public void getFailedBuckets_gettingBucketThrowsRuntimeException_returnBucket()
+			throws ThawTransferFailException, ImportThawedBucketFailException {
+		doThrow(RuntimeException.class).when(getsBucketsFromArchive)
+				.getBucketFromArchive(bucket);
+
+		run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive();
+		assertEquals(bucket, bucketThawer.getFailedBuckets().get(0).bucket);
+	}
+
 	private void run_thawBuckets_bucketFieldPassedToGetsBucketFromArchive() {
 		when(
 				listsBucketsFiltered.listFilteredBucketsAtIndex(index, earliestTime,
@@ -15,22 +15,38 @@
 package com.splunk.shuttl.archiver.thaw;
 
 import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static java.util.Arrays.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.archiver.checksum.ChecksumManifest;
 import com.splunk.shuttl.archiver.filesystem.ArchiveFileSystem;
+import com.splunk.shuttl.archiver.filesystem.ReadsFileRanges;
+import com.splunk.shuttl.archiver.filesystem.RequestsBucketRetrieval;
 import com.splunk.shuttl.archiver.filesystem.transaction.TransactionExecuter;
 import com.splunk.shuttl.archiver.filesystem.transaction.bucket.GetBucketTransaction;
+import com.splunk.shuttl.archiver.importexport.GetsBucketsExportFile;
+import com.splunk.shuttl.archiver.importexport.container.CreatesBucketContainer;
+import com.splunk.shuttl.archiver.importexport.container.LocalContainerSource;
+import com.splunk.shuttl.archiver.metastore.ArchiveBucketChecksums;
 import com.splunk.shuttl.archiver.model.Bucket;
 import com.splunk.shuttl.archiver.model.BucketFactory;
 import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.archiver.model.RemoteBucket;
+import com.splunk.shuttl.archiver.throttle.TransferThrottle;
 import com.splunk.shuttl.testutil.TUtilsBucket;
 
 @Test(groups = { "fast-unit" })
@@ -42,16 +58,19 @@ public class ThawBucketTransfererTest {
 	ThawLocationProvider thawLocationProvider;
 	BucketFactory bucketFactory;
 	private TransactionExecuter transactionExecuter;
+	private ArchiveBucketChecksums archiveBucketChecksums;
 
 	@BeforeMethod
 	public void setUp() {
 		bucket = TUtilsBucket.createRemoteBucket();
 		thawLocationProvider = mock(ThawLocationProvider.class);
 		archiveFileSystem = mock(ArchiveFileSystem.class);
-		bucketFactory = mock(BucketFactory.class);
+		bucketFactory = mock(BucketFactory.class, RETURNS_MOCKS);
 		transactionExecuter = mock(TransactionExecuter.class);
+		archiveBucketChecksums = mock(ArchiveBucketChecksums.class);
 		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
-				archiveFileSystem, bucketFactory, transactionExecuter);
+				archiveFileSystem, bucketFactory, archiveBucketChecksums,
+				transactionExecuter);
 	}
 
 	@Test(groups = { "fast-unit" })
@@ -68,6 +87,20 @@ public class ThawBucketTransfererTest {
 						temp.getAbsolutePath(), dst.getAbsolutePath())));
 	}
 
+	public void _givenBucket_readsChecksumsToVerifyTheTransferWith()
+			throws IOException {
+		when(thawLocationProvider.getThawTransferLocation(bucket)).thenReturn(
+				createDirectory());
+		when(thawLocationProvider.getLocationInThawForBucket(bucket)).thenReturn(
+				createDirectory());
+		when(archiveBucketChecksums.readChecksums(bucket)).thenReturn(
+				new ChecksumManifest());
+
+		bucketTransferer.transferBucketToThaw(bucket);
+
+		verify(archiveBucketChecksums).readChecksums(bucket);
+	}
+
 	public void _givenSuccessfulTransfer_returnBucketTransferedBucketOnLocalDisk()
 			throws IOException {
 		stub(thawLocationProvider.getThawTransferLocation(any(Bucket.class)))
@@ -87,6 +120,74 @@ public class ThawBucketTransfererTest {
 		Bucket actualBucket = bucketTransferer
 				.transferBucketToThaw(bucketToTransfer);
 		assertEquals(bucketOnLocalDisk, actualBucket);
+		verify(bucketOnLocalDisk).captureSize();
+	}
+
+	public void requestRetrieval_archiveRequestsBucketRetrieval_requestsRetrievalOfBuckets() {
+		archiveFileSystem = mock(ArchiveFileSystem.class,
+				withSettings().extraInterfaces(RequestsBucketRetrieval.class));
+		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
+				archiveFileSystem, bucketFactory, archiveBucketChecksums,
+				transactionExecuter);
+		List<Bucket> buckets = asList(bucket);
+
+		bucketTransferer.requestRetrieval(buckets);
+		verify((RequestsBucketRetrieval) archiveFileSystem).requestRetrieval(
+				buckets);
 	}
 
+	public void requestRetrieval_archiveDoesNotRequestBucketRetrieval_doesNothing() {
+		bucketTransferer.requestRetrieval(asList(bucket));
+		verifyZeroInteractions(archiveFileSystem);
+	}
+
+	public void _givenContainerAndArchiveReadingRanges_extractsContainerFromArchiveWithoutTransaction()
+			throws IOException {
+		LocalBucket local = TUtilsBucket.createBucket();
+		final File container = createContainer(local);
+		archiveFileSystem = mock(ArchiveFileSystem.class,
+				withSettings().extraInterfaces(ReadsFileRanges.class));
+		ReadsFileRanges readsFileRanges = (ReadsFileRanges) archiveFileSystem;
+		String containerPath = "/path/" + local.getName() + ".sbc";
+		when(readsFileRanges.getFileLength(containerPath)).thenReturn(
+				container.length());
+		when(readsFileRanges.openRange(eq(containerPath), anyLong(), anyLong()))
+				.thenAnswer(new Answer<InputStream>() {
+					@Override
+					public InputStream answer(InvocationOnMock invocation)
+							throws Throwable {
+						Object[] args = invocation.getArguments();
+						return new LocalContainerSource(container).openRange(
+								(Long) args[1], (Long) args[2]);
+					}
+				});
+		bucketTransferer = new ThawBucketTransferer(thawLocationProvider,
+				archiveFileSystem, bucketFactory, archiveBucketChecksums,
+				transactionExecuter);
+		Bucket remote = new RemoteBucket("/path", local.getIndex(),
+				local.getName(), BucketFormat.SPLUNK_BUCKET_CONTAINER, 17L);
+		File dst = new File(createDirectory(), local.getName());
+		when(thawLocationProvider.getThawTransferLocation(remote)).thenReturn(
+				new File(createDirectory(), "temp"));
+		when(thawLocationProvider.getLocationInThawForBucket(remote)).thenReturn(
+				dst);
+
+		bucketTransferer.transferBucketToThaw(remote);
+
+		verifyZeroInteractions(transactionExecuter);
+		File slices = new File(local.getDirectory(), "rawdata/slices.dat");
+		assertTrue(FileUtils.contentEquals(slices, new File(dst,
+				"rawdata/slices.dat")));
+		verify(bucketFactory).createWithIndexDirectoryAndSize(local.getIndex(),
+				dst, BucketFormat.SPLUNK_BUCKET, null);
+	}
+
+	private File createContainer(LocalBucket local) {
+		GetsBucketsExportFile getsBucketsExportFile = mock(GetsBucketsExportFile.class);
+		File container = new File(createDirectory(), local.getName() + ".sbc");
+		when(getsBucketsExportFile.getExportFile(local, "sbc")).thenReturn(
+				container);
+		return new CreatesBucketContainer(TransferThrottle.createUnlimited(),
+				getsBucketsExportFile).createContainer(local);
+	}
 }
@@ -0,0 +1,77 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.util.Calendar;
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.throttle.ThrottleSchedule.InvalidThrottleScheduleException;
+
+@Test(groups = { "fast-unit" })
+public class ThrottleScheduleTest {
+
+	public void isThrottled_noWindows_alwaysThrottled() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse(Collections
+				.<String> emptyList());
+		assertTrue(schedule.isThrottled(time(Calendar.SUNDAY, 3, 0)));
+	}
+
+	public void isThrottled_businessHoursOnWeekdays_throttledOnlyThen() {
+		ThrottleSchedule schedule = ThrottleSchedule
+				.parse(asList("Mon-Fri 08:00-18:00"));
+		assertTrue(schedule.isThrottled(time(Calendar.MONDAY, 8, 0)));
+		assertTrue(schedule.isThrottled(time(Calendar.FRIDAY, 17, 59)));
+		assertFalse(schedule.isThrottled(time(Calendar.FRIDAY, 18, 0)));
+		assertFalse(schedule.isThrottled(time(Calendar.TUESDAY, 2, 0)));
+		assertFalse(schedule.isThrottled(time(Calendar.SATURDAY, 12, 0)));
+	}
+
+	public void isThrottled_windowPastMidnight_throttledUntilItEnds() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse(asList("Fri 22:00-06:00"));
+		assertTrue(schedule.isThrottled(time(Calendar.FRIDAY, 23, 0)));
+		assertTrue(schedule.isThrottled(time(Calendar.SATURDAY, 5, 59)));
+		assertFalse(schedule.isThrottled(time(Calendar.FRIDAY, 5, 0)));
+		assertFalse(schedule.isThrottled(time(Calendar.SATURDAY, 23, 0)));
+	}
+
+	public void isThrottled_windowWithoutDays_everyDay() {
+		ThrottleSchedule schedule = ThrottleSchedule.parse(asList("12:00-13:00"));
+		assertTrue(schedule.isThrottled(time(Calendar.SUNDAY, 12, 30)));
+		assertTrue(schedule.isThrottled(time(Calendar.WEDNESDAY, 12, 30)));
+	}
+
+	@Test(expectedExceptions = { InvalidThrottleScheduleException.class })
+	public void parse_invalidWindow_throws() {
+		ThrottleSchedule.parse(asList("weekdays 8-18"));
+	}
+
+	@Test(expectedExceptions = { InvalidThrottleScheduleException.class })
+	public void parse_invalidDay_throws() {
+		ThrottleSchedule.parse(asList("Foo 08:00-18:00"));
+	}
+
+	private static Calendar time(int dayOfWeek, int hour, int minute) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
+		calendar.set(Calendar.HOUR_OF_DAY, hour);
+		calendar.set(Calendar.MINUTE, minute);
+		return calendar;
+	}
+}
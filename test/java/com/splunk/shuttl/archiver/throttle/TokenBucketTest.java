@@ -0,0 +1,93 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import static org.testng.Assert.*;
+
+import java.io.InterruptedIOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class TokenBucketTest {
+
+	private static final long SECOND = 1000L * 1000 * 1000;
+
+	private FakeTimeTokenBucket tokenBucket;
+
+	@BeforeMethod
+	public void setUp() {
+		tokenBucket = new FakeTimeTokenBucket(100);
+	}
+
+	public void acquire_withinTheBurst_doesNotWait() throws InterruptedIOException {
+		tokenBucket.acquire(100);
+		assertEquals(tokenBucket.slept, 0);
+	}
+
+	public void acquire_moreThanTheBurst_waitsForTheRest()
+			throws InterruptedIOException {
+		tokenBucket.acquire(150);
+		assertEquals(tokenBucket.slept, SECOND / 2);
+	}
+
+	public void acquire_afterTimePassed_hasRefilled() throws InterruptedIOException {
+		tokenBucket.acquire(100);
+		tokenBucket.now += SECOND / 2;
+		tokenBucket.acquire(50);
+		assertEquals(tokenBucket.slept, 0);
+	}
+
+	public void acquire_refillsNoMoreThanOneSecond() throws InterruptedIOException {
+		tokenBucket.now += 10 * SECOND;
+		tokenBucket.acquire(200);
+		assertEquals(tokenBucket.slept, SECOND);
+	}
+
+	public void acquire_unlimited_neverWaits() throws InterruptedIOException {
+		tokenBucket.setPermitsPerSecond(0);
+		tokenBucket.acquire(Long.MAX_VALUE / 2);
+		assertEquals(tokenBucket.slept, 0);
+	}
+
+	public void setPermitsPerSecond_lowered_appliesToNextAcquire()
+			throws InterruptedIOException {
+		tokenBucket.acquire(100);
+		tokenBucket.setPermitsPerSecond(10);
+		tokenBucket.acquire(10);
+		assertEquals(tokenBucket.slept, SECOND);
+	}
+
+	private static class FakeTimeTokenBucket extends TokenBucket {
+
+		private long now;
+		private long slept;
+
+		public FakeTimeTokenBucket(long permitsPerSecond) {
+			super(permitsPerSecond);
+		}
+
+		@Override
+		protected long nanoTime() {
+			return now;
+		}
+
+		@Override
+		protected void sleep(long nanos) {
+			slept += nanos;
+		}
+	}
+}
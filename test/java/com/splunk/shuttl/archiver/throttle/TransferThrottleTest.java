@@ -0,0 +1,113 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.archiver.throttle;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.Calendar;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.server.mbeans.ShuttlArchiverMBean;
+
+@Test(groups = { "fast-unit" })
+public class TransferThrottleTest {
+
+	private ShuttlArchiverMBean archiverMBean;
+	private TransferThrottle transferThrottle;
+
+	@BeforeMethod
+	public void setUp() {
+		archiverMBean = mock(ShuttlArchiverMBean.class);
+		when(archiverMBean.getDiskReadBytesPerSecond()).thenReturn(100L);
+		when(archiverMBean.getDiskReadOperationsPerSecond()).thenReturn(10L);
+		when(archiverMBean.getNetworkBytesPerSecond()).thenReturn(200L);
+		when(archiverMBean.getBackendNetworkLimits()).thenReturn(
+				asList("s3n=50", "hdfs = 300", "broken"));
+		transferThrottle = new TransferThrottle(archiverMBean);
+	}
+
+	public void refresh_noWindows_appliesTheLimits() {
+		transferThrottle.refresh(Calendar.getInstance());
+
+		assertEquals(transferThrottle.getDiskReadBudget().getBytesPerSecond(), 100);
+		assertEquals(transferThrottle.getDiskReadBudget()
+				.getOperationsPerSecond(), 10);
+		assertEquals(transferThrottle.getNetworkBudget().getBytesPerSecond(), 200);
+		assertEquals(transferThrottle.getBudgetForBackend("s3n")
+				.getBytesPerSecond(), 50);
+		assertEquals(transferThrottle.getBudgetForBackend("hdfs")
+				.getBytesPerSecond(), 300);
+		assertEquals(transferThrottle.getBudgetForBackend("local")
+				.getBytesPerSecond(), 0);
+	}
+
+	public void refresh_limitsNotSet_unlimited() {
+		when(archiverMBean.getDiskReadBytesPerSecond()).thenReturn(null);
+		when(archiverMBean.getDiskReadOperationsPerSecond()).thenReturn(null);
+		when(archiverMBean.getNetworkBytesPerSecond()).thenReturn(null);
+
+		transferThrottle.refresh(Calendar.getInstance());
+
+		assertEquals(transferThrottle.getDiskReadBudget().getBytesPerSecond(), 0);
+		assertEquals(transferThrottle.getDiskReadBudget()
+				.getOperationsPerSecond(), 0);
+		assertEquals(transferThrottle.getNetworkBudget().getBytesPerSecond(), 0);
+	}
+
+	public void refresh_outsideOfWindows_unlimited() {
+		when(archiverMBean.getThrottleWindows()).thenReturn(
+				asList("Mon-Fri 08:00-18:00"));
+		Calendar night = Calendar.getInstance();
+		night.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+		night.set(Calendar.HOUR_OF_DAY, 2);
+
+		transferThrottle.refresh(night);
+
+		assertEquals(transferThrottle.getDiskReadBudget().getBytesPerSecond(), 0);
+		assertEquals(transferThrottle.getNetworkBudget().getBytesPerSecond(), 0);
+		assertEquals(transferThrottle.getBudgetForBackend("s3n")
+				.getBytesPerSecond(), 0);
+	}
+
+	public void refresh_limitChangedInMBean_budgetsAreAdjusted() {
+		transferThrottle.refresh(Calendar.getInstance());
+		transferThrottle.getBudgetForBackend("s3n");
+		when(archiverMBean.getNetworkBytesPerSecond()).thenReturn(1000L);
+		when(archiverMBean.getBackendNetworkLimits()).thenReturn(asList("s3n=70"));
+
+		transferThrottle.refresh(Calendar.getInstance());
+
+		assertEquals(transferThrottle.getNetworkBudget().getBytesPerSecond(),
+				1000);
+		assertEquals(transferThrottle.getBudgetForBackend("s3n")
+				.getBytesPerSecond(), 70);
+	}
+
+	public void refresh_invalidWindows_appliesTheLimits() {
+		when(archiverMBean.getThrottleWindows()).thenReturn(asList("whenever"));
+		transferThrottle.refresh(Calendar.getInstance());
+		assertEquals(transferThrottle.getNetworkBudget().getBytesPerSecond(), 200);
+	}
+
+	public void createUnlimited_refreshed_staysUnlimited() {
+		TransferThrottle unlimited = TransferThrottle.createUnlimited();
+		unlimited.refresh();
+		assertEquals(unlimited.getNetworkBudget().getBytesPerSecond(), 0);
+	}
+}
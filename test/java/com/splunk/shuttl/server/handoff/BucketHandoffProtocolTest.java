@@ -0,0 +1,73 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BucketHandoffProtocolTest {
+
+	private BucketHandoffProtocol protocol;
+	private BucketHandoffCommand command;
+
+	@BeforeMethod
+	public void setUp() {
+		command = mock(BucketHandoffCommand.class);
+		Map<String, BucketHandoffCommand> commands = new HashMap<String, BucketHandoffCommand>();
+		commands.put("freeze", command);
+		protocol = new BucketHandoffProtocol(commands);
+	}
+
+	public void respond_givenCommandAndPath_handsOverPathToCommand() {
+		String reply = protocol.respond("freeze /path/with space/db_1_0_0");
+
+		assertEquals(reply, BucketHandoffClient.REPLY_OK);
+		verify(command).handOff(new File("/path/with space/db_1_0_0"));
+	}
+
+	public void respond_givenCommandWithoutPath_handsOverNull() {
+		assertEquals(protocol.respond("freeze"), BucketHandoffClient.REPLY_OK);
+		verify(command).handOff(null);
+	}
+
+	public void respond_givenUnknownCommand_repliesError() {
+		String reply = protocol.respond("unknown /path");
+
+		assertTrue(reply.startsWith(BucketHandoffClient.REPLY_ERROR));
+		verifyZeroInteractions(command);
+	}
+
+	public void respond_givenNoRequest_repliesError() {
+		assertTrue(protocol.respond(null).startsWith(
+				BucketHandoffClient.REPLY_ERROR));
+	}
+
+	public void respond_commandThrows_repliesErrorWithMessage() {
+		doThrow(new BucketHandoffFailedException("message")).when(command)
+				.handOff(any(File.class));
+
+		assertEquals(protocol.respond("freeze /path"),
+				BucketHandoffClient.REPLY_ERROR + " message");
+	}
+}
@@ -0,0 +1,100 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static com.splunk.shuttl.testutil.TUtilsFile.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BucketHandoffServerTest {
+
+	private BucketHandoffServer server;
+	private BucketHandoffProtocol protocol;
+	private File portFile;
+	private BucketHandoffClient client;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		ServerSocket serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(InetAddress.getByName(null), 0));
+		protocol = mock(BucketHandoffProtocol.class);
+		server = new BucketHandoffServer(serverSocket, protocol,
+				Executors.newCachedThreadPool());
+		new Thread(server).start();
+
+		portFile = createFilePath();
+		FileUtils.writeStringToFile(portFile, Integer.toString(server.getPort()));
+		client = new BucketHandoffClient(portFile, 1000, 5000);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		server.stop();
+		FileUtils.deleteQuietly(portFile);
+	}
+
+	public void handOff_serverRepliesOk_exitsOk() {
+		String bucketPath = new File("/colddb/db_1_0_0").getAbsolutePath();
+		when(protocol.respond("freeze " + bucketPath)).thenReturn(
+				BucketHandoffClient.REPLY_OK);
+
+		assertEquals(client.handOff("freeze", bucketPath),
+				BucketHandoffClient.EXIT_OK);
+	}
+
+	public void handOff_commandWithoutBucket_sendsOnlyCommand() {
+		when(protocol.respond("retry-freeze")).thenReturn(
+				BucketHandoffClient.REPLY_OK);
+
+		assertEquals(client.handOff("retry-freeze", null),
+				BucketHandoffClient.EXIT_OK);
+	}
+
+	public void handOff_serverRepliesError_exitsNotHandedOff() {
+		when(protocol.respond(anyString())).thenReturn(
+				BucketHandoffClient.REPLY_ERROR + " failed");
+
+		assertEquals(client.handOff("freeze", "/colddb/db_1_0_0"),
+				BucketHandoffClient.EXIT_NOT_HANDED_OFF);
+	}
+
+	public void handOff_serverStopped_exitsNotHandedOff() {
+		server.stop();
+
+		assertEquals(client.handOff("freeze", "/colddb/db_1_0_0"),
+				BucketHandoffClient.EXIT_NOT_HANDED_OFF);
+	}
+
+	public void handOff_noPortFile_exitsNotHandedOff() {
+		FileUtils.deleteQuietly(portFile);
+
+		assertEquals(client.handOff("freeze", "/colddb/db_1_0_0"),
+				BucketHandoffClient.EXIT_NOT_HANDED_OFF);
+	}
+}
@@ -0,0 +1,79 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.handoff;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketFreezer;
+import com.splunk.shuttl.archiver.copy.CachingIndexScanner;
+
+@Test(groups = { "fast-unit" })
+public class FreezeBucketHandoffTest {
+
+	private FreezeBucketHandoff freezeBucketHandoff;
+	private CachingIndexScanner indexScanner;
+	private BucketFreezer bucketFreezer;
+	private Executor executor;
+	private File bucketDir;
+
+	@BeforeMethod
+	public void setUp() {
+		indexScanner = mock(CachingIndexScanner.class);
+		bucketFreezer = mock(BucketFreezer.class);
+		executor = mock(Executor.class);
+		freezeBucketHandoff = new FreezeBucketHandoff(indexScanner,
+				bucketFreezer, executor);
+		bucketDir = new File("/colddb/db_1_0_0");
+		when(indexScanner.getIndex(bucketDir)).thenReturn("index");
+	}
+
+	public void handOff_givenBucket_movesBucketBeforeRecoveringFailedBucketsInBackground() {
+		when(bucketFreezer.moveBucketToArchive("index", bucketDir.getPath()))
+				.thenReturn(BucketFreezer.EXIT_OK);
+
+		freezeBucketHandoff.handOff(bucketDir);
+		verify(bucketFreezer, never()).archiveFailedBuckets();
+
+		ArgumentCaptor<Runnable> recovery = ArgumentCaptor.forClass(Runnable.class);
+		verify(executor).execute(recovery.capture());
+		recovery.getValue().run();
+
+		InOrder inOrder = inOrder(bucketFreezer);
+		inOrder.verify(bucketFreezer).moveBucketToArchive("index",
+				bucketDir.getPath());
+		inOrder.verify(bucketFreezer).archiveFailedBuckets();
+	}
+
+	@Test(expectedExceptions = { BucketHandoffFailedException.class })
+	public void handOff_moveFails_throws() {
+		when(bucketFreezer.moveBucketToArchive(anyString(), anyString()))
+				.thenReturn(BucketFreezer.EXIT_FILE_NOT_FOUND);
+		freezeBucketHandoff.handOff(bucketDir);
+	}
+
+	@Test(expectedExceptions = { BucketHandoffFailedException.class })
+	public void handOff_givenNoBucket_throws() {
+		freezeBucketHandoff.handOff(null);
+	}
+}
@@ -0,0 +1,106 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.ArchiveConfiguration;
+import com.splunk.shuttl.archiver.archive.BucketFormat;
+import com.splunk.shuttl.server.mbeans.rest.ArchiveComponentRegistry.ComponentsFactory;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveComponentRegistryTest {
+
+	private ArchiveComponentRegistry registry;
+	private ComponentsFactory componentsFactory;
+
+	@BeforeMethod
+	public void setUp() {
+		componentsFactory = mock(ComponentsFactory.class);
+		when(componentsFactory.create(any(ArchiveConfiguration.class)))
+				.thenAnswer(new Answer<ArchiveComponents>() {
+
+					@Override
+					public ArchiveComponents answer(InvocationOnMock invocation) {
+						return mock(ArchiveComponents.class);
+					}
+				});
+		registry = new ArchiveComponentRegistry(componentsFactory);
+	}
+
+	private ArchiveConfiguration createConfig(String archivePath) {
+		List<BucketFormat> formats = asList(BucketFormat.SPLUNK_BUCKET);
+		return ArchiveConfiguration.createSafeConfiguration("localArchiverDir",
+				archivePath, formats, "cluster", "server", formats, "local");
+	}
+
+	public void getConfiguredComponents_sameConfigurationTwice_createsComponentsOnce() {
+		ArchiveComponents first = registry
+				.getConfiguredComponents(createConfig("/archive"));
+		ArchiveComponents second = registry
+				.getConfiguredComponents(createConfig("/archive"));
+
+		assertSame(first, second);
+		verify(componentsFactory, times(1)).create(any(ArchiveConfiguration.class));
+	}
+
+	public void getConfiguredComponents_changedConfiguration_createsNewComponents() {
+		ArchiveComponents old = registry
+				.getConfiguredComponents(createConfig("/archive"));
+		ArchiveComponents changed = registry
+				.getConfiguredComponents(createConfig("/other/archive"));
+
+		assertNotSame(old, changed);
+	}
+
+	public void getConfiguredComponents_configurationChangedBack_doesNotReuseDroppedComponents() {
+		ArchiveComponents first = registry
+				.getConfiguredComponents(createConfig("/archive"));
+		registry.getConfiguredComponents(createConfig("/other/archive"));
+		ArchiveComponents changedBack = registry
+				.getConfiguredComponents(createConfig("/archive"));
+
+		assertNotSame(first, changedBack);
+	}
+
+	public void getComponents_derivedConfiguration_reusedUntilConfigurationChanges() {
+		ArchiveConfiguration config = createConfig("/archive");
+		registry.getConfiguredComponents(config);
+		ArchiveConfiguration derived = config.newConfigWithServerName("other");
+		ArchiveComponents first = registry.getComponents(derived);
+		assertSame(first, registry.getComponents(derived));
+
+		registry.getConfiguredComponents(createConfig("/other/archive"));
+		assertNotSame(first, registry.getComponents(derived));
+	}
+
+	public void getComponents_derivedConfiguration_differentFromConfiguredComponents() {
+		ArchiveConfiguration config = createConfig("/archive");
+		ArchiveComponents configured = registry.getConfiguredComponents(config);
+		ArchiveComponents derived = registry.getComponents(config
+				.newConfigWithServerName("other"));
+
+		assertNotSame(configured, derived);
+	}
+}
@@ -0,0 +1,153 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.archiver.archive.BucketShuttlerRunner;
+import com.splunk.shuttl.archiver.journal.JobJournal;
+import com.splunk.shuttl.archiver.journal.JobType;
+import com.splunk.shuttl.archiver.model.LocalBucket;
+import com.splunk.shuttl.testutil.TUtilsBucket;
+
+@Test(groups = { "fast-unit" })
+public class ArchiveWorkerPoolTest {
+
+	private ArchiveWorkerPool archiveWorkerPool;
+	private ExecutorService executorService;
+	private BucketShuttlerRunner runner;
+	private JobJournal jobJournal;
+	private LocalBucket bucket;
+
+	@BeforeMethod
+	public void setUp() {
+		executorService = mock(ExecutorService.class);
+		runner = mock(BucketShuttlerRunner.class);
+		jobJournal = mock(JobJournal.class);
+		bucket = TUtilsBucket.createBucket();
+		when(runner.getBucket()).thenReturn(bucket);
+		archiveWorkerPool = new ArchiveWorkerPool(executorService, jobJournal);
+	}
+
+	public void executeShuttling_givenRunner_returnsJobIdWithoutRunningRunner() {
+		String jobId = archiveWorkerPool.executeShuttling(runner);
+
+		assertNotNull(jobId);
+		verify(executorService).execute(any(Runnable.class));
+		verifyZeroInteractions(runner);
+	}
+
+	public void executeShuttling_twoRunners_differentJobIds() {
+		String first = archiveWorkerPool.executeShuttling(runner);
+		String second = archiveWorkerPool.executeShuttling(runner);
+
+		assertNotEquals(first, second);
+	}
+
+	public void executeShuttling_executedJob_runsRunner() {
+		getExecutedJob().run();
+
+		verify(runner).run();
+	}
+
+	public void executeShuttling_runnerThrows_jobDoesNotThrow() {
+		doThrow(new RuntimeException()).when(runner).run();
+
+		getExecutedJob().run();
+	}
+
+	public void executeShuttling_executedJobSucceeds_journalsStartedThenCompleted() {
+		getExecutedJob().run();
+
+		InOrder inOrder = inOrder(jobJournal, runner);
+		inOrder.verify(jobJournal).markStarted(JobType.ARCHIVE, bucket);
+		inOrder.verify(runner).run();
+		inOrder.verify(jobJournal).markCompleted(JobType.ARCHIVE, bucket);
+	}
+
+	public void executeShuttling_runnerThrows_journalsFailed() {
+		doThrow(new RuntimeException()).when(runner).run();
+
+		getExecutedJob().run();
+
+		verify(jobJournal).markFailed(JobType.ARCHIVE, bucket);
+		verify(jobJournal, never()).markCompleted(JobType.ARCHIVE, bucket);
+	}
+
+	private Runnable getExecutedJob() {
+		archiveWorkerPool.executeShuttling(runner);
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		verify(executorService).execute(captor.capture());
+		return captor.getValue();
+	}
+
+	@Test(expectedExceptions = { RejectedExecutionException.class })
+	public void executeShuttling_executorRejects_throws() {
+		doThrow(new RejectedExecutionException()).when(executorService).execute(
+				any(Runnable.class));
+
+		archiveWorkerPool.executeShuttling(runner);
+	}
+
+	public void shutdown_givenExecutor_waitsForJobsThenFlushesJournal()
+			throws InterruptedException {
+		archiveWorkerPool.shutdown();
+
+		InOrder inOrder = inOrder(executorService, jobJournal);
+		inOrder.verify(executorService).shutdown();
+		inOrder.verify(executorService).awaitTermination(anyLong(),
+				any(TimeUnit.class));
+		inOrder.verify(jobJournal).flush();
+	}
+
+	public void create_workersAndQueueAreFull_rejectsJob() {
+		ArchiveWorkerPool pool = ArchiveWorkerPool.create(1, 1, jobJournal);
+		final CountDownLatch latch = new CountDownLatch(1);
+		BucketShuttlerRunner blockingRunner = mock(BucketShuttlerRunner.class);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				latch.await();
+				return null;
+			}
+		}).when(blockingRunner).run();
+		try {
+			pool.executeShuttling(blockingRunner);
+			pool.executeShuttling(runner);
+			try {
+				pool.executeShuttling(runner);
+				fail();
+			} catch (RejectedExecutionException e) {
+			}
+		} finally {
+			latch.countDown();
+			pool.shutdown();
+		}
+	}
+}
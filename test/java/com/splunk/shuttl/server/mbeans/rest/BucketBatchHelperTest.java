@@ -0,0 +1,78 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.mbeans.rest;
+
+import static java.util.Arrays.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.splunk.shuttl.server.mbeans.rest.BucketBatchHelper.CallsBucketEndpoint;
+import com.splunk.shuttl.server.model.BucketBatchResult;
+
+@Test(groups = { "fast-unit" })
+public class BucketBatchHelperTest {
+
+	private CallsBucketEndpoint endpoint;
+
+	@BeforeMethod
+	public void setUp() {
+		endpoint = mock(CallsBucketEndpoint.class);
+	}
+
+	private List<BucketBatchResult> callWithEachBucket(List<String> paths,
+			List<String> indexes) {
+		return BucketBatchResult.fromJson(BucketBatchHelper.callWithEachBucket(
+				paths, indexes, endpoint));
+	}
+
+	public void callWithEachBucket_givenPathsAndIndexes_callsEndpointWithEachPair() {
+		when(endpoint.call("/a", "x")).thenReturn(
+				new BucketBatchResult("/a", "x", 202, "job"));
+		when(endpoint.call("/b", "y")).thenReturn(
+				new BucketBatchResult("/b", "y", 204, null));
+
+		List<BucketBatchResult> results = callWithEachBucket(asList("/a", "/b"),
+				asList("x", "y"));
+
+		assertEquals(results.get(0).getStatus(), 202);
+		assertEquals(results.get(1).getStatus(), 204);
+	}
+
+	public void callWithEachBucket_endpointThrowsForOneBucket_otherBucketsAreStillCalled() {
+		when(endpoint.call("/a", "x")).thenThrow(new RuntimeException("fail"));
+		when(endpoint.call("/b", "y")).thenReturn(
+				new BucketBatchResult("/b", "y", 204, null));
+
+		List<BucketBatchResult> results = callWithEachBucket(asList("/a", "/b"),
+				asList("x", "y"));
+
+		assertEquals(results.get(0).getStatus(), 500);
+		assertEquals(results.get(0).getMessage(), "fail");
+		assertTrue(results.get(1).isSuccessful());
+	}
+
+	public void callWithEachBucket_pathWithoutIndex_badRequestWithoutCallingEndpoint() {
+		List<BucketBatchResult> results = callWithEachBucket(asList("/a"),
+				asList(new String[0]));
+
+		assertEquals(results.get(0).getStatus(), 400);
+		verifyZeroInteractions(endpoint);
+	}
+}
@@ -0,0 +1,51 @@
+// Copyright (C) 2011 Splunk Inc.
+//
+// Splunk Inc. licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.splunk.shuttl.server.model;
+
+import static java.util.Arrays.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+@Test(groups = { "fast-unit" })
+public class BucketBatchResultTest {
+
+	public void fromJson_givenJsonOfResults_returnsEqualResults() {
+		List<BucketBatchResult> results = BucketBatchResult
+				.fromJson(BucketBatchResult.toJson(asList(new BucketBatchResult(
+						"/path/a", "index", 202, "job-id"), new BucketBatchResult(
+						"/path/b", null, 400, null))));
+
+		assertEquals(results.size(), 2);
+		assertEquals(results.get(0).getPath(), "/path/a");
+		assertEquals(results.get(0).getIndex(), "index");
+		assertEquals(results.get(0).getStatus(), 202);
+		assertEquals(results.get(0).getMessage(), "job-id");
+		assertNull(results.get(1).getIndex());
+		assertNull(results.get(1).getMessage());
+	}
+
+	public void isSuccessful_given2xxStatus_true() {
+		assertTrue(new BucketBatchResult("/path", "index", 204, null)
+				.isSuccessful());
+	}
+
+	public void isSuccessful_given503Status_false() {
+		assertFalse(new BucketBatchResult("/path", "index", 503, null)
+				.isSuccessful());
+	}
+}